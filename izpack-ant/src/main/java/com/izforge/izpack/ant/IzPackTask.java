@@ -24,6 +24,7 @@ package com.izforge.izpack.ant;
 
 import com.izforge.izpack.ant.logging.AntHandler;
 import com.izforge.izpack.api.data.PackCompression;
+import com.izforge.izpack.api.data.PacksInfoFormat;
 import com.izforge.izpack.compiler.data.CompilerData;
 import com.izforge.izpack.compiler.listener.PackagerListener;
 import com.izforge.izpack.merge.resolve.ResolveUtils;
@@ -92,6 +93,46 @@ public class IzPackTask extends Task implements PackagerListener
      */
     private int compressionLevel;
 
+    /**
+     * Holds value of property compressionThreads.
+     */
+    private int compressionThreads;
+
+    /**
+     * Holds value of property compressionAdaptive.
+     */
+    private boolean compressionAdaptive;
+
+    /**
+     * Holds value of property compileCacheDir.
+     */
+    private String compileCacheDir;
+
+    /**
+     * Holds value of property compileCacheMaxSize.
+     */
+    private long compileCacheMaxSize;
+
+    /**
+     * Holds value of property compileCacheMaxAge.
+     */
+    private int compileCacheMaxAge;
+
+    /**
+     * Holds value of property packsInfoFormat.
+     */
+    private String packsInfoFormat;
+
+    /**
+     * Holds value of property seekablePacks.
+     */
+    private boolean seekablePacks;
+
+    /**
+     * Holds value of property parallelAssembly.
+     */
+    private boolean parallelAssembly;
+
     /**
      * Holds value of property installerType.
      */
@@ -125,6 +166,14 @@ public class IzPackTask extends Task implements PackagerListener
         izPackDir = null;
         compression = PackCompression.DEFAULT.toName();
         compressionLevel = -1;
+        compressionThreads = 1;
+        compressionAdaptive = false;
+        compileCacheDir = null;
+        compileCacheMaxSize = 0;
+        compileCacheMaxAge = 30;
+        packsInfoFormat = PacksInfoFormat.BINARY.toName();
+        seekablePacks = false;
+        parallelAssembly = false;
     }
 
     /**
@@ -181,6 +230,18 @@ public class IzPackTask extends Task implements PackagerListener
         log(str, antPriority);
     }
 
+    /**
+     * Logs the number of bytes saved by storing files of a pack as references.
+     *
+     * @param pack       the pack name
+     * @param files      the number of files stored as references
+     * @param bytesSaved the number of bytes not written to the pack stream
+     */
+    public void packagerPackDeduplicated(String pack, int files, long bytesSaved)
+    {
+        log("Pack " + pack + ": " + files + " duplicate file(s), " + bytesSaved + " bytes saved", Project.MSG_VERBOSE);
+    }
+
     /**
      * Called when the packaging starts.
      */
@@ -225,10 +286,14 @@ public class IzPackTask extends Task implements PackagerListener
         {
 			Class<?> runableClass = urlClassLoader.loadClass(IzpackAntRunnable.class.getName());
             Constructor<?> constructor = runableClass.getConstructor(String.class, String.class,
-            		String.class, String.class, String.class, String.class, Boolean.TYPE, Integer.TYPE, Properties.class,
-            		Boolean.class, Map.class, String.class, Handler.class);
+            		String.class, String.class, String.class, String.class, Boolean.TYPE, Integer.TYPE, Integer.TYPE,
+            		Boolean.TYPE,
+            		String.class, Long.TYPE, Integer.TYPE, String.class, Boolean.TYPE, Boolean.TYPE, Properties.class, Boolean.class, Map.class,
+            		String.class, Handler.class);
             Runnable instance = (Runnable)constructor.newInstance(compression, kind, input, configText, basedir, output, mkdirs,
-                    compressionLevel, properties, inheritAll, getProject().getProperties(), izPackDir, logHandler);
+                    compressionLevel, compressionThreads, compressionAdaptive, compileCacheDir, compileCacheMaxSize * 1024 * 1024,
+                    compileCacheMaxAge, packsInfoFormat, seekablePacks, parallelAssembly, properties, inheritAll, getProject().getProperties(), izPackDir,
+                    logHandler);
             Thread.currentThread().setContextClassLoader(urlClassLoader);
             instance.run();
         }
@@ -280,6 +345,11 @@ public class IzPackTask extends Task implements PackagerListener
         {
             throw new BuildException(ResourceBundle.getBundle(MESSAGES).getString("basedir_must_be_specified"));
         }
+
+        if (PacksInfoFormat.byName(packsInfoFormat) == null)
+        {
+            throw new BuildException("Unknown pack metadata format: " + packsInfoFormat);
+        }
     }
 
     /**
@@ -374,6 +444,74 @@ public class IzPackTask extends Task implements PackagerListener
         this.compressionLevel = compressionLevel;
     }
 
+    /**
+     * @param compressionThreads The number of threads used to compress pack files. Values below 2 compress
+     *                           sequentially.
+     */
+    public void setCompressionThreads(int compressionThreads)
+    {
+        this.compressionThreads = compressionThreads;
+    }
+
+    /**
+     * @param compressionAdaptive If true, pack files that are already compressed or close to random are stored
+     *                            uncompressed.
+     */
+    public void setCompressionAdaptive(boolean compressionAdaptive)
+    {
+        this.compressionAdaptive = compressionAdaptive;
+    }
+
+    /**
+     * @param compileCacheDir The directory of a compile cache, keeping compressed pack file data between builds.
+     */
+    public void setCompileCacheDir(String compileCacheDir)
+    {
+        this.compileCacheDir = compileCacheDir;
+    }
+
+    /**
+     * @param compileCacheMaxSize The maximum size of the compile cache in megabytes. 0 doesn't limit the size.
+     */
+    public void setCompileCacheMaxSize(long compileCacheMaxSize)
+    {
+        this.compileCacheMaxSize = compileCacheMaxSize;
+    }
+
+    /**
+     * @param compileCacheMaxAge The number of days after which unused compile cache entries are removed.
+     */
+    public void setCompileCacheMaxAge(int compileCacheMaxAge)
+    {
+        this.compileCacheMaxAge = compileCacheMaxAge;
+    }
+
+    /**
+     * @param packsInfoFormat The format of the pack metadata written to the installer: "binary" or "serialized".
+     */
+    public void setPacksInfoFormat(String packsInfoFormat)
+    {
+        this.packsInfoFormat = packsInfoFormat;
+    }
+
+    /**
+     * @param seekablePacks If true, compressed pack streams are stored without further jar compression, so that the
+     *                      installer can seek to the files in a pack.
+     */
+    public void setSeekablePacks(boolean seekablePacks)
+    {
+        this.seekablePacks = seekablePacks;
+    }
+
+    /**
+     * @param parallelAssembly If true, the skeleton installer, the installer data and the packs are written to the
+     *                         installer concurrently.
+     */
+    public void setParallelAssembly(boolean parallelAssembly)
+    {
+        this.parallelAssembly = parallelAssembly;
+    }
+
 
     /**
      * Ant will call this for each &lt;property&gt; tag to the IzPack task.
@@ -1,5 +1,6 @@
 package com.izforge.izpack.ant;
 
+import com.izforge.izpack.api.data.PacksInfoFormat;
 import com.izforge.izpack.compiler.CompilerConfig;
 import com.izforge.izpack.compiler.container.CompilerContainer;
 import com.izforge.izpack.compiler.data.CompilerData;
@@ -24,11 +25,21 @@ public class IzpackAntRunnable implements Runnable
     private final Handler logHandler;
 
     public IzpackAntRunnable(String compression, String kind, String input, String configText, String basedir,
-                             String output, boolean mkdirs, int compressionLevel, Properties properties,
-                             Boolean inheritAll, Map<String, Object> antProjectProperties, String izPackDir,
-                             Handler logHandler)
+                             String output, boolean mkdirs, int compressionLevel, int compressionThreads,
+                             boolean compressionAdaptive,
+                             String compileCacheDir, long compileCacheMaxSize, int compileCacheMaxAge,
+                             String packsInfoFormat, boolean seekablePacks, boolean parallelAssembly, Properties properties, Boolean inheritAll, Map<String, Object> antProjectProperties,
+                             String izPackDir, Handler logHandler)
     {
         this.compilerData = new CompilerData(compression, kind, input, configText, basedir, output, mkdirs, compressionLevel);
+        this.compilerData.setComprThreads(compressionThreads);
+        this.compilerData.setComprAdaptive(compressionAdaptive);
+        this.compilerData.setCompileCacheDir(compileCacheDir);
+        this.compilerData.setCompileCacheMaxSize(compileCacheMaxSize);
+        this.compilerData.setCompileCacheMaxAge(compileCacheMaxAge);
+        this.compilerData.setPacksInfoFormat(PacksInfoFormat.byName(packsInfoFormat));
+        this.compilerData.setSeekablePacks(seekablePacks);
+        this.compilerData.setParallelAssembly(parallelAssembly);
         this.input = input;
         this.properties = properties;
         this.inheritAll = inheritAll;
@@ -0,0 +1,95 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.api.data;
+
+import java.io.File;
+
+/**
+ * Locates the content of a pack file within an archive, so that it can be streamed from the archive when the pack
+ * is written, rather than being extracted beforehand.
+ */
+public class ArchiveEntrySource
+{
+    /**
+     * The archive.
+     */
+    private final File archive;
+
+    /**
+     * The index of the entry in the archive, or {@code -1} for a directory implied by the entries within it.
+     */
+    private final int index;
+
+    /**
+     * The entry name.
+     */
+    private final String name;
+
+    /**
+     * Constructs an <tt>ArchiveEntrySource</tt>.
+     *
+     * @param archive the archive
+     * @param index   the index of the entry in the archive, starting at 0, or {@code -1} for a directory that has
+     *                no entry of its own
+     * @param name    the entry name
+     */
+    public ArchiveEntrySource(File archive, int index, String name)
+    {
+        this.archive = archive;
+        this.index = index;
+        this.name = name;
+    }
+
+    /**
+     * Returns the archive.
+     *
+     * @return the archive
+     */
+    public File getArchive()
+    {
+        return archive;
+    }
+
+    /**
+     * Returns the index of the entry in the archive.
+     *
+     * @return the index of the entry, starting at 0, or {@code -1} for a directory that has no entry of its own
+     */
+    public int getIndex()
+    {
+        return index;
+    }
+
+    /**
+     * Returns the entry name.
+     *
+     * @return the entry name
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    @Override
+    public String toString()
+    {
+        return name + " (" + archive + ")";
+    }
+}
@@ -136,6 +136,16 @@ public class Info implements Serializable
 
     private String compressionFormat = PackCompression.DEFAULT.toName();
 
+    private int unpackThreads = 1;
+
+    private int unpackWriteThreads = 1;
+
+    private boolean spoolCompressedFiles = false;
+
+    private int unpackBufferSize = 64 * 1024;
+
+    private boolean unpackJournal = false;
+
     private boolean requirePrivilegedExecution = false;
 
     private boolean requirePrivilegedExecutionUninstaller = false;
@@ -438,6 +448,115 @@ public class Info implements Serializable
         this.compressionFormat = compression.toName();
     }
 
+    /**
+     * Returns the maximum number of packs unpacked concurrently by the installer.
+     * <p/>
+     * Packs are unpacked sequentially if installer listeners are notified of each file, or if any selected pack has
+     * update checks. Packs that depend on each other, or that install files to the same target paths, are never
+     * unpacked concurrently.
+     *
+     * @return the number of unpack threads. Values below {@code 2} denote sequential unpacking
+     */
+    public int getUnpackThreads()
+    {
+        return unpackThreads;
+    }
+
+    /**
+     * Sets the maximum number of packs unpacked concurrently by the installer.
+     *
+     * @param unpackThreads the number of unpack threads. Values below {@code 2} denote sequential unpacking
+     */
+    public void setUnpackThreads(int unpackThreads)
+    {
+        this.unpackThreads = unpackThreads;
+    }
+
+    /**
+     * Returns the number of threads writing the files of each pack, while the pack stream is read.
+     *
+     * @return the number of writer threads. Values below {@code 2} denote writing files while reading the pack
+     */
+    public int getUnpackWriteThreads()
+    {
+        return unpackWriteThreads;
+    }
+
+    /**
+     * Sets the number of threads writing the files of each pack, while the pack stream is read.
+     *
+     * @param unpackWriteThreads the number of writer threads. Values below {@code 2} denote writing files while
+     *                           reading the pack
+     */
+    public void setUnpackWriteThreads(int unpackWriteThreads)
+    {
+        this.unpackWriteThreads = unpackWriteThreads;
+    }
+
+    /**
+     * Determines if compressed files are copied from the pack to a temporary file before they are uncompressed.
+     *
+     * @return {@code true} if compressed files are spooled, {@code false} if they are uncompressed directly from
+     *         the pack
+     */
+    public boolean isSpoolCompressedFiles()
+    {
+        return spoolCompressedFiles;
+    }
+
+    /**
+     * Determines if compressed files are copied from the pack to a temporary file before they are uncompressed.
+     *
+     * @param spoolCompressedFiles if {@code true}, spool compressed files, otherwise uncompress them directly from
+     *                             the pack
+     */
+    public void setSpoolCompressedFiles(boolean spoolCompressedFiles)
+    {
+        this.spoolCompressedFiles = spoolCompressedFiles;
+    }
+
+    /**
+     * Returns the size of the buffer used by the installer to copy files.
+     *
+     * @return the buffer size, in bytes
+     */
+    public int getUnpackBufferSize()
+    {
+        return unpackBufferSize;
+    }
+
+    /**
+     * Sets the size of the buffer used by the installer to copy files.
+     *
+     * @param unpackBufferSize the buffer size, in bytes
+     */
+    public void setUnpackBufferSize(int unpackBufferSize)
+    {
+        this.unpackBufferSize = unpackBufferSize;
+    }
+
+    /**
+     * Determines if the installer records the files it unpacks in a journal, so that an interrupted installation
+     * can be resumed without unpacking them again.
+     *
+     * @return {@code true} if installations are resumable
+     */
+    public boolean isUnpackJournal()
+    {
+        return unpackJournal;
+    }
+
+    /**
+     * Determines if the installer records the files it unpacks in a journal, so that an interrupted installation
+     * can be resumed without unpacking them again.
+     *
+     * @param unpackJournal if {@code true}, installations are resumable
+     */
+    public void setUnpackJournal(boolean unpackJournal)
+    {
+        this.unpackJournal = unpackJournal;
+    }
+
     /**
      * This class represents an author.
      *
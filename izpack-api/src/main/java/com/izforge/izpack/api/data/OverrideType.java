@@ -30,7 +30,12 @@ import java.util.Map;
  */
 public enum OverrideType
 {
-    OVERRIDE_FALSE("false"), OVERRIDE_TRUE("true"), OVERRIDE_ASK_FALSE("askfalse"), OVERRIDE_ASK_TRUE("asktrue"), OVERRIDE_UPDATE("update");
+    OVERRIDE_FALSE("false"), OVERRIDE_TRUE("true"), OVERRIDE_ASK_FALSE("askfalse"), OVERRIDE_ASK_TRUE("asktrue"), OVERRIDE_UPDATE("update"),
+
+    /**
+     * Overwrite existing files only if their size or content digest differs from the pack file.
+     */
+    OVERRIDE_CHANGED("changed");
 
     private static Map<String, OverrideType> lookup;
 
@@ -28,7 +28,8 @@ import java.util.Map;
  */
 public enum PackCompression
 {
-    DEFAULT("default"), GZIP("gz"), BZIP2("bzip2"), XZ("xz"), LZMA("lzma"), DEFLATE("deflate");
+    DEFAULT("default"), GZIP("gz"), BZIP2("bzip2"), XZ("xz"), LZMA("lzma"), DEFLATE("deflate"), ZSTD("zstd"),
+    LZ4_FRAMED("lz4-framed");
 
     private static Map<String, PackCompression> lookupByName;
 
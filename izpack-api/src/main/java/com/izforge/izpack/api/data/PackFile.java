@@ -44,6 +44,11 @@ public class PackFile implements Serializable
 {
     private static final long serialVersionUID = -834377078706854909L;
 
+    /**
+     * The message digest algorithm used to compute the content digest of a file.
+     */
+    public static final String DIGEST_ALGORITHM = "SHA-256";
+
     @SuppressWarnings("unused")
     private static AtomicInteger nextInstanceId = new AtomicInteger(0);
     private final int instanceId;
@@ -117,6 +122,17 @@ public class PackFile implements Serializable
 
     private PackFile linkedPackFile;
 
+    /**
+     * The content digest of the file, computed using {@link #DIGEST_ALGORITHM}. May be {@code null}
+     */
+    private byte[] digest;
+
+    /**
+     * The compression format of the file content in the pack stream, or {@code null} if the installer compression
+     * format applies
+     */
+    private PackCompression compression;
+
     /**
      * True if the file is a Jar and pack200 compression us activated.
      */
@@ -165,12 +181,29 @@ public class PackFile implements Serializable
                     String overrideRenameTo, Blockable blockable, Map additionals, Map<String, String> pack200Properties)
             throws FileNotFoundException
     {
-        instanceId = nextInstanceId.getAndIncrement();
-        if (!src.exists()) // allows cleaner client co
-        {
-            throw new FileNotFoundException("No such file: " + src);
-        }
+        this(requireExists(src), relativeSourcePath, target, src.isDirectory(), src.length(), src.lastModified(),
+             osList, override, overrideRenameTo, blockable, additionals, pack200Properties);
+    }
 
+    /**
+     * Constructs and initializes from a description of the file content, for files that don't exist on disk
+     * such as archive entries.
+     *
+     * @param src                the file the content is read from, e.g. the archive
+     * @param relativeSourcePath the path relative to the compiletime's basedirectory
+     * @param target             the path to install the file to
+     * @param directory          determines if the file is a directory
+     * @param length             the length of the file in bytes
+     * @param lastModified       the last-modification time of the file
+     * @param osList             OS constraints
+     * @param override           what to do when the file already exists
+     * @param additionals        additional attributes
+     */
+    public PackFile(File src, String relativeSourcePath, String target, boolean directory, long length,
+                    long lastModified, List<OsModel> osList, OverrideType override, String overrideRenameTo,
+                    Blockable blockable, Map additionals, Map<String, String> pack200Properties)
+    {
+        instanceId = nextInstanceId.getAndIncrement();
         if ('/' != File.separatorChar)
         {
             target = target.replace(File.separatorChar, '/');
@@ -189,11 +222,11 @@ public class PackFile implements Serializable
         this.overrideRenameTo = overrideRenameTo;
         this.blockable = blockable;
 
-        this.mtime = src.lastModified();
-        this.isDirectory = src.isDirectory();
+        this.mtime = lastModified;
+        this.isDirectory = directory;
         if (!this.isDirectory())
         {
-            this.length = src.length();
+            this.length = length;
             this.size = this.length;
         }
         this.additionals = additionals;
@@ -230,6 +263,15 @@ public class PackFile implements Serializable
                 additionals, pack200Properties);
     }
 
+    private static File requireExists(File src) throws FileNotFoundException
+    {
+        if (!src.exists()) // allows cleaner client co
+        {
+            throw new FileNotFoundException("No such file: " + src);
+        }
+        return src;
+    }
+
     /**
      * Get the unique ID compiled into this object
      * @return the unique ID
@@ -251,6 +293,48 @@ public class PackFile implements Serializable
         // update packed size and offset in order for unpacking to work correctly
         size = linkedPackFile.size;
         streamOffset = linkedPackFile.streamOffset;
+        compression = linkedPackFile.compression;
+    }
+
+    /**
+     * Returns the content digest of the file.
+     *
+     * @return the digest computed using {@link #DIGEST_ALGORITHM}, or {@code null} if it is unknown
+     */
+    public byte[] getDigest()
+    {
+        return digest;
+    }
+
+    /**
+     * Sets the content digest of the file.
+     *
+     * @param digest the digest computed using {@link #DIGEST_ALGORITHM}. May be {@code null}
+     */
+    public void setDigest(byte[] digest)
+    {
+        this.digest = digest;
+    }
+
+    /**
+     * Returns the compression format of the file content in the pack stream.
+     *
+     * @return the compression format, or {@code null} if the installer compression format applies
+     */
+    public PackCompression getCompression()
+    {
+        return compression;
+    }
+
+    /**
+     * Sets the compression format of the file content in the pack stream, if it differs from the installer
+     * compression format.
+     *
+     * @param compression the compression format. May be {@code null}
+     */
+    public void setCompression(PackCompression compression)
+    {
+        this.compression = compression;
     }
 
     public String getStreamResourceName()
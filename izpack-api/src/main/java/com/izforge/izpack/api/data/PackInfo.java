@@ -58,6 +58,11 @@ public class PackInfo implements Serializable
      */
     private final Map<PackFile, File> files = new LinkedHashMap<PackFile, File>();
 
+    /**
+     * The archive entries in this Pack, streamed from their archive when the Pack is written.
+     */
+    private transient Map<PackFile, ArchiveEntrySource> archiveEntries;
+
     /**
      * Parsables files in this Pack.
      */
@@ -88,9 +93,18 @@ public class PackInfo implements Serializable
     public PackInfo(String name, String id, String description, boolean required, boolean loose, String excludegroup,
                     boolean uninstall, long size)
     {
-        boolean ispreselected = (excludegroup == null);
-        pack = new Pack(name, id, description, null, null, required, ispreselected,
-                loose, excludegroup, uninstall, size);
+        this(new Pack(name, id, description, null, null, required, excludegroup == null,
+                loose, excludegroup, uninstall, size));
+    }
+
+    /**
+     * Constructs a <tt>PackInfo</tt> for an existing pack, e.g. when reading pack metadata in the installer.
+     *
+     * @param pack the pack
+     */
+    protected PackInfo(Pack pack)
+    {
+        this.pack = pack;
         colour = PackColor.WHITE;
     }
 
@@ -162,6 +176,47 @@ public class PackInfo implements Serializable
         files.put(packFile, file);
     }
 
+    /**
+     * Add an archive entry to be installed. The entry content is read from the archive when the pack is written.
+     *
+     * @param source       the archive entry
+     * @param directory    determines if the entry is a directory
+     * @param length       the length of the entry content in bytes
+     * @param lastModified the last-modification time of the entry
+     * @param targetfile   path file will be installed to.
+     * @param osList       the target operation system(s) of this pack.
+     * @param override     what to do if the file already exists when installing
+     * @param condition    the condition to decide whether the file should be extracted
+     * @throws IOException if the archive does not exist.
+     */
+    public void addArchiveEntry(ArchiveEntrySource source, boolean directory, long length, long lastModified,
+                                String targetfile, List<OsModel> osList, OverrideType override,
+                                String overrideRenameTo, Blockable blockable, Map additionals, String condition)
+            throws IOException
+    {
+        File archive = source.getArchive();
+        if (!archive.exists())
+        {
+            throw new FileNotFoundException(archive.toString());
+        }
+
+        String name = source.getName();
+        if (name.endsWith("/"))
+        {
+            name = name.substring(0, name.length() - 1);
+        }
+        PackFile packFile = new PackFile(archive, name, targetfile, directory, length, lastModified, osList,
+                                         override, overrideRenameTo, blockable, additionals, null);
+        packFile.setLoosePackInfo(pack.isLoose());
+        packFile.setCondition(condition);
+        files.put(packFile, archive);
+        if (archiveEntries == null)
+        {
+            archiveEntries = new HashMap<PackFile, ArchiveEntrySource>();
+        }
+        archiveEntries.put(packFile, source);
+    }
+
     /**
      * Set of PackFile objects for this Pack.
      */
@@ -181,13 +236,24 @@ public class PackInfo implements Serializable
 
     /**
      * The file described by the specified PackFile. Returns <tt>null</tt> if the PackFile did not
-     * come from the set returned by {@link #getPackFiles()}.
+     * come from the set returned by {@link #getPackFiles()}. For archive entries, this is the archive.
      */
     public File getFile(PackFile packFile)
     {
         return files.get(packFile);
     }
 
+    /**
+     * The archive entry containing the content of the specified PackFile.
+     *
+     * @param packFile the pack file
+     * @return the archive entry, or <tt>null</tt> if the PackFile wasn't added from an archive entry
+     */
+    public ArchiveEntrySource getArchiveEntry(PackFile packFile)
+    {
+        return archiveEntries != null ? archiveEntries.get(packFile) : null;
+    }
+
     /**
      * Parsable files have variables substituted after installation.
      */
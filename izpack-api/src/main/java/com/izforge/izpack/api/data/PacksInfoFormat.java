@@ -0,0 +1,73 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.api.data;
+
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The format of the pack metadata written to the <em>packs.info</em> installer resource.
+ */
+public enum PacksInfoFormat
+{
+    /**
+     * Compact binary format with a string table and a per-pack offset index, so the installer can read pack
+     * headers without decoding the file lists.
+     */
+    BINARY("binary"),
+
+    /**
+     * A Java-serialized list of {@link PackInfo}, as written by previous versions.
+     */
+    SERIALIZED("serialized");
+
+    private static Map<String, PacksInfoFormat> lookupByName;
+
+    private String name;
+
+    PacksInfoFormat(String name)
+    {
+        this.name = name;
+    }
+
+    static
+    {
+        lookupByName = new HashMap<String, PacksInfoFormat>();
+        for (PacksInfoFormat format : EnumSet.allOf(PacksInfoFormat.class))
+        {
+            lookupByName.put(format.toName(), format);
+        }
+    }
+
+    public String toName()
+    {
+        return name;
+    }
+
+    public static PacksInfoFormat byName(String name)
+    {
+        if (name != null && lookupByName.containsKey(name))
+        {
+            return lookupByName.get(name);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.api.data;
+
+
+/**
+ * Notified when variables change.
+ *
+ * @see Variables#addListener(VariableListener)
+ */
+public interface VariableListener
+{
+
+    /**
+     * Invoked after a variable has been set to a different value, or unset.
+     *
+     * @param name     the variable name
+     * @param oldValue the previous value. May be {@code null}
+     * @param newValue the new value. May be {@code null}
+     * @param version  the version of the variables following the change
+     */
+    void variableChanged(String name, String oldValue, String newValue, long version);
+}
@@ -133,11 +133,67 @@ public interface Variables
 
     /**
      * Exposes the variables as properties.
+     * <p/>
+     * Changes made directly to the properties are not versioned, nor notified to listeners.
      *
      * @return the variables
      */
     Properties getProperties();
 
+    /**
+     * Returns the version of the variables.
+     * <p/>
+     * The version is incremented each time a variable is set to a different value, or unset, so a cache of values
+     * derived from variables is current as long as the version is unchanged.
+     * <p/>
+     * This implementation returns {@code -1}, for implementations that don't track changes. Values derived from
+     * such variables must not be cached.
+     *
+     * @return the version of the variables, or {@code -1} if changes are not tracked
+     */
+    default long getVersion()
+    {
+        return -1;
+    }
+
+    /**
+     * Returns the version of a variable, i.e. the {@link #getVersion() version of the variables} following the last
+     * change to the variable.
+     *
+     * @param name the variable name
+     * <p/>
+     * This implementation returns {@code -1}, for implementations that don't track changes.
+     *
+     * @return the version of the variable, {@code 0} if it has not been changed, or {@code -1} if changes are not
+     *         tracked
+     */
+    default long getVersion(String name)
+    {
+        return -1;
+    }
+
+    /**
+     * Registers a listener to be notified when variables change.
+     * <p/>
+     * This implementation does nothing, for implementations that don't track changes.
+     *
+     * @param listener the listener
+     */
+    default void addListener(VariableListener listener)
+    {
+    }
+
+    /**
+     * Removes a listener.
+     * <p/>
+     * This implementation does nothing.
+     *
+     * @param listener the listener
+     */
+    default void removeListener(VariableListener listener)
+    {
+    }
+
     /**
      * Register a set of variable names for blocking from further changes.
      *
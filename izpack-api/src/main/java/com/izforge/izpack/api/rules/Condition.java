@@ -107,4 +107,18 @@ public abstract class Condition implements Serializable
      * @return  the names of all variables referenced by this condition 
      */
     public abstract Set<String> getVarRefs();
+
+    /**
+     * Determines if the current result of this condition depends only on the values of the variables returned by
+     * {@link #getVarRefs()}, i.e. if the result may be reused until one of those variables changes.
+     * <p/>
+     * Conditions depending on anything else, such as files, the selected packs or Java fields, must return
+     * {@code false}, which is the default.
+     *
+     * @return {@code true} if the condition only depends on the variables it refers to
+     */
+    public boolean isPure()
+    {
+        return false;
+    }
 }
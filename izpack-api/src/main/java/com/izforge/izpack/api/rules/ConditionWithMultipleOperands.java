@@ -49,4 +49,17 @@ public abstract class ConditionWithMultipleOperands extends Condition
         }
         return vars;
     }
+
+    @Override
+    public boolean isPure()
+    {
+        for (Condition condition : nestedConditions)
+        {
+            if (!condition.isPure())
+            {
+                return false;
+            }
+        }
+        return true;
+    }
 }
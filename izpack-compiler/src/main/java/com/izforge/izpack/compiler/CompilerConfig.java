@@ -40,6 +40,7 @@ import com.izforge.izpack.api.substitutor.SubstitutionType;
 import com.izforge.izpack.api.substitutor.VariableSubstitutor;
 import com.izforge.izpack.compiler.data.CompilerData;
 import com.izforge.izpack.compiler.data.PropertyManager;
+import com.izforge.izpack.compiler.helper.ArchiveFileSet;
 import com.izforge.izpack.compiler.helper.AssertionHelper;
 import com.izforge.izpack.compiler.helper.TargetFileSet;
 import com.izforge.izpack.compiler.helper.XmlCompilerHelper;
@@ -1075,6 +1076,33 @@ public class CompilerConfig extends Thread
         }
     }
 
+    /**
+     * Returns the OS constraints of a file set, combined with those of its parent.
+     *
+     * @param fs           the file set
+     * @param parentOsList the OS constraints of the parent. May be {@code null}
+     * @return the OS constraints satisfying both the parent's and the file set's
+     * @throws CompilerException if the constraints cannot be satisfied
+     */
+    private List<OsModel> getOsList(TargetFileSet fs, List<OsModel> parentOsList) throws CompilerException
+    {
+        List<OsModel> osList = fs.getOsList();
+        if (parentOsList != null && !parentOsList.isEmpty())
+        {
+            // get list of OS constraints safisfiying both parent's and fs's
+            try
+            {
+                osList = OsConstraintHelper.commonOsList(parentOsList, fs.getOsList());
+                logCombineOsLists(parentOsList, fs.getOsList(), osList);
+            }
+            catch (OsConstraintHelper.UnsatisfiableOsConstraintsException ex)
+            {
+                throw new CompilerException(ex.getMessage());
+            }
+        }
+        return osList;
+    }
+
     private void processFileSetChildren(TargetFileSet fs, File baseDir, List<OsModel> parentOsList, PackInfo pack) throws Exception
     {
         String[][] includedFilesAndDirs = new String[][]{
@@ -1091,22 +1119,8 @@ public class CompilerConfig extends Thread
                     {
                         File file = new File(fs.getDir(), filePath);
                         String target = new File(fs.getTargetDir(), filePath).getPath();
-                        List<OsModel> osList = fs.getOsList();
-                        
-                        if (parentOsList != null && !parentOsList.isEmpty())
-                        {
-                            // get list of OS constraints safisfiying both parent's and fs's
-                            try
-                            {
-                                osList = OsConstraintHelper.commonOsList(parentOsList, fs.getOsList());
-                                logCombineOsLists(parentOsList, fs.getOsList(), osList);
-                            }
-                            catch (OsConstraintHelper.UnsatisfiableOsConstraintsException ex)
-                            {
-                                throw new CompilerException(ex.getMessage());
-                            }
-                        }
-                        
+                        List<OsModel> osList = getOsList(fs, parentOsList);
+
                         logAddingFile(file.toString(), target);
                         pack.addFile(baseDir, file, target, osList,
                                      fs.getOverride(), fs.getOverrideRenameTo(),
@@ -1653,7 +1667,10 @@ public class CompilerConfig extends Thread
     }
 
     /**
-     * Add files in an archive to a pack
+     * Add files in an archive to a pack.
+     * <p/>
+     * Archive entries are not extracted: their content is streamed from the archive when the pack is written.
+     * Entries of unknown size and entries to be packed with Pack200 are extracted to a temporary directory.
      *
      * @param archive     the archive file to unpack
      * @param targetDir   the target directory where the content of the archive will be installed
@@ -1693,9 +1710,18 @@ public class CompilerConfig extends Thread
         {
             archiveInputStream = new ArchiveStreamFactory().createArchiveInputStream(archive, uncompressedInputStream);
 
-            // file is an archive (incl. ZIP archive) - unpack recursively
-            baseTempDir = com.izforge.izpack.util.file.FileUtils.createTempDirectory("izpack", TEMP_DIR);
+            // file is an archive (incl. ZIP archive) - add its entries
+            Map<ArchiveFileSet, IXMLElement> fileSets = new LinkedHashMap<ArchiveFileSet, IXMLElement>();
+            if (!hasNoFileSet)
+            {
+                for (IXMLElement fileSetNode : filesetNodes)
+                {
+                    fileSets.put(readArchiveFileSet(fileSetNode, targetDir), fileSetNode);
+                }
+            }
+            Set<String> directories = new HashSet<String>();
 
+            int index = -1;
             while (true)
             {
                 ArchiveEntry entry = archiveInputStream.getNextEntry();
@@ -1703,49 +1729,99 @@ public class CompilerConfig extends Thread
                 {
                     break;
                 }
+                index++;
                 String entryName = entry.getName();
+                long lastModified = entry.getLastModifiedDate().getTime();
+                ArchiveEntrySource source = new ArchiveEntrySource(archive, index, entryName);
                 if (entry.isDirectory())
                 {
                     String dName = FilenameUtils.normalizeNoEndSeparator(entryName);
-                    File tempDir = new File(baseTempDir, dName);
-                    FileUtils.forceMkdir(tempDir);
-                    updateLastModifiedDate(tempDir, entry);
                     if (hasNoFileSet)
                     {
                         String target = targetDir + "/" + dName;
                         logAddingFile(dName + " (" + archiveName + ")", target);
-                        pack.addFile(baseTempDir, tempDir, target, osList, override, overrideRenameTo, blockable, additionals, condition, null);
+                        pack.addArchiveEntry(source, true, 0, lastModified, target, osList, override,
+                                             overrideRenameTo, blockable, additionals, condition);
+                    }
+                    else if (directories.add(FilenameUtils.normalizeNoEndSeparator(entryName, true)))
+                    {
+                        addArchiveDirectory(source, fileSets.keySet(), lastModified, osList, pack, archiveName);
                     }
                 }
                 else
                 {
-                    FileOutputStream tempFileStream = null;
-                    try
+                    // the size of entries is needed up-front to stream them, and Pack200 needs a jar file
+                    boolean extract = entry.getSize() == ArchiveEntry.SIZE_UNKNOWN;
+                    File tempFile = null;
+                    if (hasNoFileSet)
                     {
-                        File tempFile = new File(baseTempDir, entryName);
-                        tempFileStream = FileUtils.openOutputStream(tempFile);
-                        IOUtils.copy(archiveInputStream, tempFileStream);
-                        tempFileStream.close();
-                        updateLastModifiedDate(tempFile, entry);
-                        if (hasNoFileSet)
+                        String target = targetDir + "/" + entryName;
+                        logAddingFile(entryName + " (" + archiveName + ")", target);
+                        if (extract || pack200Properties != null)
                         {
-                            String target = targetDir + "/" + entryName;
-                            logAddingFile(entryName + " (" + archiveName + ")", target);
+                            baseTempDir = createArchiveTempDir(baseTempDir);
+                            tempFile = extractArchiveEntry(archiveInputStream, entry, baseTempDir);
                             pack.addFile(baseTempDir, tempFile, target, osList, override, overrideRenameTo, blockable, additionals, condition, pack200Properties);
                         }
+                        else
+                        {
+                            pack.addArchiveEntry(source, false, entry.getSize(), lastModified, target, osList,
+                                                 override, overrideRenameTo, blockable, additionals, condition);
+                        }
                     }
-                    finally
+                    else
                     {
-                        IOUtils.closeQuietly(tempFileStream);
+                        // directories implied by the entry name, that have no entry of their own
+                        String name = FilenameUtils.normalizeNoEndSeparator(entryName, true);
+                        LinkedList<String> parents = new LinkedList<String>();
+                        String parent = FilenameUtils.getPathNoEndSeparator(name);
+                        while (!parent.isEmpty() && directories.add(parent))
+                        {
+                            parents.addFirst(parent);
+                            parent = FilenameUtils.getPathNoEndSeparator(parent);
+                        }
+                        for (String path : parents)
+                        {
+                            addArchiveDirectory(new ArchiveEntrySource(archive, -1, path + "/"), fileSets.keySet(),
+                                                lastModified, osList, pack, archiveName);
+                        }
+
+                        for (ArchiveFileSet fs : fileSets.keySet())
+                        {
+                            if (fs.isIncluded(name))
+                            {
+                                String target = new File(fs.getTargetDir(), fs.getRelativePath(name)).getPath();
+                                List<OsModel> fsOsList = getOsList(fs, osList);
+                                logAddingFile(entryName + " (" + archiveName + ")", target);
+                                if (extract || fs.getPack200Properties() != null)
+                                {
+                                    if (tempFile == null)
+                                    {
+                                        baseTempDir = createArchiveTempDir(baseTempDir);
+                                        tempFile = extractArchiveEntry(archiveInputStream, entry, baseTempDir);
+                                    }
+                                    pack.addFile(baseTempDir, tempFile, target, fsOsList, fs.getOverride(),
+                                                 fs.getOverrideRenameTo(), fs.getBlockable(), fs.getAdditionals(),
+                                                 fs.getCondition(), fs.getPack200Properties());
+                                }
+                                else
+                                {
+                                    pack.addArchiveEntry(source, false, entry.getSize(), lastModified, target,
+                                                         fsOsList, fs.getOverride(), fs.getOverrideRenameTo(),
+                                                         fs.getBlockable(), fs.getAdditionals(), fs.getCondition());
+                                }
+                            }
+                        }
                     }
                 }
             }
 
-            if (!hasNoFileSet)
+            for (Map.Entry<ArchiveFileSet, IXMLElement> fileSet : fileSets.entrySet())
             {
-                for (IXMLElement fileSetNode : filesetNodes)
+                if (!fileSet.getKey().isBaseDirFound())
                 {
-                    processFileSetChildren(readArchiveFileSet(fileSetNode, baseTempDir, targetDir), baseTempDir, osList, pack);
+                    assertionHelper.parseError(fileSet.getValue(), "Archive does not contain a base directory "
+                            + getDirSubstitutedAttributeValue(fileSet.getValue()));
                 }
             }
         }
@@ -1788,6 +1864,76 @@ public class CompilerConfig extends Thread
         }
     }
 
+    /**
+     * Adds an archive directory to a pack, for each archive file set that includes it.
+     *
+     * @param source       the directory entry
+     * @param fileSets     the archive file sets
+     * @param lastModified the last-modification time of the directory
+     * @param osList       the OS constraints of the archive
+     * @param pack         the pack
+     * @param archiveName  the archive name, for logging
+     */
+    private void addArchiveDirectory(ArchiveEntrySource source, Collection<ArchiveFileSet> fileSets,
+                                     long lastModified, List<OsModel> osList, PackInfo pack, String archiveName)
+            throws Exception
+    {
+        String name = FilenameUtils.normalizeNoEndSeparator(source.getName(), true);
+        for (ArchiveFileSet fs : fileSets)
+        {
+            if (fs.isIncluded(name))
+            {
+                String target = new File(fs.getTargetDir(), fs.getRelativePath(name)).getPath();
+                logAddingFile(name + " (" + archiveName + ")", target);
+                pack.addArchiveEntry(source, true, 0, lastModified, target, getOsList(fs, osList),
+                                     fs.getOverride(), fs.getOverrideRenameTo(), fs.getBlockable(),
+                                     fs.getAdditionals(), fs.getCondition());
+            }
+        }
+    }
+
+    /**
+     * Creates the temporary directory to extract archive entries to, if it doesn't exist yet.
+     *
+     * @param baseTempDir the temporary directory, or {@code null} if it hasn't been created
+     * @return the temporary directory
+     */
+    private File createArchiveTempDir(File baseTempDir) throws IOException
+    {
+        if (baseTempDir == null)
+        {
+            baseTempDir = com.izforge.izpack.util.file.FileUtils.createTempDirectory("izpack", TEMP_DIR);
+        }
+        return baseTempDir;
+    }
+
+    /**
+     * Extracts the current archive entry to a temporary directory.
+     *
+     * @param archiveInputStream the archive, positioned at the entry
+     * @param entry              the entry
+     * @param baseTempDir        the directory to extract to
+     * @return the extracted file
+     */
+    private File extractArchiveEntry(ArchiveInputStream archiveInputStream, ArchiveEntry entry, File baseTempDir)
+            throws IOException
+    {
+        File tempFile = new File(baseTempDir, entry.getName());
+        FileOutputStream tempFileStream = null;
+        try
+        {
+            tempFileStream = FileUtils.openOutputStream(tempFile);
+            IOUtils.copy(archiveInputStream, tempFileStream);
+            tempFileStream.close();
+            updateLastModifiedDate(tempFile, entry);
+        }
+        finally
+        {
+            IOUtils.closeQuietly(tempFileStream);
+        }
+        return tempFile;
+    }
+
     private void updateLastModifiedDate(File target, ArchiveEntry entry)
     {
         target.setLastModified(entry.getLastModifiedDate().getTime());
@@ -2608,6 +2754,36 @@ public class CompilerConfig extends Thread
             logger.info("Pack compression method: " + compression.toName());
         }
 
+        IXMLElement unpackThreads = root.getFirstChildNamed("unpack-threads");
+        if (unpackThreads != null)
+        {
+            info.setUnpackThreads(requireIntContent(unpackThreads));
+        }
+
+        IXMLElement unpackWriteThreads = root.getFirstChildNamed("unpack-write-threads");
+        if (unpackWriteThreads != null)
+        {
+            info.setUnpackWriteThreads(requireIntContent(unpackWriteThreads));
+        }
+
+        IXMLElement spoolCompressed = root.getFirstChildNamed("unpack-spool-compressed");
+        if (spoolCompressed != null)
+        {
+            info.setSpoolCompressedFiles(validateYesNo(xmlCompilerHelper.requireContent(spoolCompressed)));
+        }
+
+        IXMLElement unpackBufferSize = root.getFirstChildNamed("unpack-buffer-size");
+        if (unpackBufferSize != null)
+        {
+            info.setUnpackBufferSize(requireIntContent(unpackBufferSize));
+        }
+
+        IXMLElement unpackJournal = root.getFirstChildNamed("unpack-journal");
+        if (unpackJournal != null)
+        {
+            info.setUnpackJournal(validateYesNo(xmlCompilerHelper.requireContent(unpackJournal)));
+        }
+
         // Add the path for the summary log file if specified
         IXMLElement slfPath = root.getFirstChildNamed("summarylogfilepath");
         if (slfPath != null)
@@ -3499,6 +3675,27 @@ public class CompilerConfig extends Thread
         return result;
     }
 
+    /**
+     * Returns the content of an element, ensuring it is an integer.
+     *
+     * @param element the element
+     * @return the integer content
+     * @throws CompilerException if the element has no content, or it is not an integer
+     */
+    private int requireIntContent(IXMLElement element)
+    {
+        String value = xmlCompilerHelper.requireContent(element).trim();
+        try
+        {
+            return Integer.parseInt(value);
+        }
+        catch (NumberFormatException e)
+        {
+            assertionHelper.parseError(element, "<" + element.getName() + "> must be an integer", e);
+        }
+        return 0; // never happens
+    }
+
     /**
      * Adds installer and uninstaller listeners.
      *
@@ -3810,26 +4007,26 @@ public class CompilerConfig extends Thread
         return readFileSet(fileSetNode, extractedBaseDir, targetDir);
     }
 
-    private TargetFileSet readArchiveFileSet(IXMLElement fileSetNode, File baseDir, String targetDir) throws CompilerException
+    private ArchiveFileSet readArchiveFileSet(IXMLElement fileSetNode, String targetDir) throws CompilerException
     {
+        ArchiveFileSet fs = readFileSet(new ArchiveFileSet(), fileSetNode, null, targetDir);
         String dir_attr = getDirSubstitutedAttributeValue(fileSetNode);
-        File extractedBaseDir = baseDir;
         if (dir_attr != null)
         {
-            extractedBaseDir = new File(baseDir, dir_attr);
-            if (!extractedBaseDir.exists()) {
-                assertionHelper.parseError(fileSetNode, "Archive does not contain a base directory " + dir_attr);
-            }
+            fs.setArchiveBaseDir(FilenameUtils.normalizeNoEndSeparator(dir_attr, true));
         }
-
-        return readFileSet(fileSetNode, extractedBaseDir, targetDir);
+        return fs;
     }
 
 
     private TargetFileSet readFileSet(IXMLElement fileSetNode, File baseDir, String targetDir) throws CompilerException
     {
-        TargetFileSet fs = new TargetFileSet();
+        return readFileSet(new TargetFileSet(), fileSetNode, baseDir, targetDir);
+    }
 
+    private <T extends TargetFileSet> T readFileSet(T fs, IXMLElement fileSetNode, File baseDir, String targetDir)
+            throws CompilerException
+    {
         fs.setTargetDir(targetDir);
         List<OsModel> osList = OsConstraintHelper.getOsList(fileSetNode);
         fs.setOsList(osList);
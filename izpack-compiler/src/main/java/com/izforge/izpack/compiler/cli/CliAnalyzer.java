@@ -41,6 +41,9 @@ public class CliAnalyzer {
     private static final String ARG_OUTPUT = "o";
     private static final String ARG_COMPRESSION_FORMAT = "c";
     private static final String ARG_COMPRESSION_LEVEL = "l";
+    private static final String ARG_COMPRESSION_THREADS = "t";
+    private static final String ARG_COMPRESSION_ADAPTIVE = "a";
+    private static final String ARG_PARALLEL_ASSEMBLY = "p";
 
 
     /**
@@ -62,6 +65,12 @@ public class CliAnalyzer {
                 "default is the internal deflate compression\n");
         options.addOption(ARG_COMPRESSION_LEVEL, true, "compression-level : indicates the level for the used compression format"
                 + " if supported. Only integer are valid\n");
+        options.addOption(ARG_COMPRESSION_THREADS, true, "compression-threads : indicates the number of threads used"
+                + " to compress pack files. Default is 1 (sequential)\n");
+        options.addOption(ARG_COMPRESSION_ADAPTIVE, false, "compression-adaptive : store pack files that are already"
+                + " compressed uncompressed\n");
+        options.addOption(ARG_PARALLEL_ASSEMBLY, false, "parallel-assembly : write the skeleton installer, the installer"
+                + " data and the packs concurrently\n");
         return options;
     }
 
@@ -105,6 +114,9 @@ public class CliAnalyzer {
         out.format("-> Kind         : %s%n", result.getKind());
         out.format("-> Compression  : %s%n", result.getComprFormat());
         out.format("-> Compr. level : %s%n", result.getComprLevel());
+        out.format("-> Compr. thr.  : %s%n", result.getComprThreads());
+        out.format("-> Compr. adapt.: %s%n", result.isComprAdaptive());
+        out.format("-> Parallel     : %s%n", result.isParallelAssembly());
         out.format("-> IzPack home  : %s%n", CompilerData.IZPACK_HOME);
         out.println();
     }
@@ -159,6 +171,15 @@ public class CliAnalyzer {
         if (commandLine.hasOption(ARG_COMPRESSION_LEVEL)) {
             compilerData.setComprLevel(Integer.parseInt(commandLine.getOptionValue(ARG_COMPRESSION_LEVEL).trim()));
         }
+        if (commandLine.hasOption(ARG_COMPRESSION_THREADS)) {
+            compilerData.setComprThreads(Integer.parseInt(commandLine.getOptionValue(ARG_COMPRESSION_THREADS).trim()));
+        }
+        if (commandLine.hasOption(ARG_COMPRESSION_ADAPTIVE)) {
+            compilerData.setComprAdaptive(true);
+        }
+        if (commandLine.hasOption(ARG_PARALLEL_ASSEMBLY)) {
+            compilerData.setParallelAssembly(true);
+        }
         if (commandLine.hasOption(ARG_IZPACK_HOME)) {
             CompilerData.setIzpackHome(commandLine.getOptionValue(ARG_IZPACK_HOME).trim());
         }
@@ -20,11 +20,10 @@
 package com.izforge.izpack.compiler.container.provider;
 
 import com.izforge.izpack.compiler.data.CompilerData;
+import com.izforge.izpack.merge.jar.RawJarOutputStream;
 import org.picocontainer.injectors.Provider;
 
-import java.io.BufferedOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -47,7 +46,7 @@ public class JarOutputStreamProvider implements Provider
             {
                 Files.createDirectories(file.getParent());
             }
-            JarOutputStream jarOutputStream =  new JarOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+            JarOutputStream jarOutputStream = new RawJarOutputStream(file);
             int level = compilerData.getComprLevel();
             if (level >= 0 && level < 10)
             {
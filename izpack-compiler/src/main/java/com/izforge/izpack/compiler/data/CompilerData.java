@@ -20,6 +20,7 @@
 package com.izforge.izpack.compiler.data;
 
 import com.izforge.izpack.api.data.Info;
+import com.izforge.izpack.api.data.PacksInfoFormat;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -93,6 +94,46 @@ public class CompilerData
      */
     private int comprLevel = -1;
 
+    /**
+     * Number of threads used to compress pack files. Values below 2 compress sequentially.
+     */
+    private int comprThreads = 1;
+
+    /**
+     * Determines if pack files that are already compressed, or close to random, are stored uncompressed
+     */
+    private boolean comprAdaptive = false;
+
+    /**
+     * The directory of the compile cache of compressed pack file data, or {@code null} if no cache is used
+     */
+    private String compileCacheDir;
+
+    /**
+     * The maximum size of the compile cache in bytes. Values {@code <= 0} don't limit the size
+     */
+    private long compileCacheMaxSize = 0;
+
+    /**
+     * The number of days after which unused compile cache entries are removed. Values {@code <= 0} keep entries
+     */
+    private int compileCacheMaxAge = 30;
+
+    /**
+     * The format of the pack metadata written to the installer
+     */
+    private PacksInfoFormat packsInfoFormat = PacksInfoFormat.BINARY;
+
+    /**
+     * Determines if compressed pack streams are stored uncompressed in the installer jar, so files can be seeked to
+     */
+    private boolean seekablePacks = false;
+
+    /**
+     * Determines if the skeleton installer, the installer data and the packs are written to the installer concurrently
+     */
+    private boolean parallelAssembly = false;
+
     /**
      * External Information
      */
@@ -250,6 +291,173 @@ public class CompilerData
         this.comprLevel = comprLevel;
     }
 
+    /**
+     * Returns the number of threads used to compress pack files.
+     *
+     * @return the number of compression threads. Values below {@code 2} denote sequential compression
+     */
+    public int getComprThreads()
+    {
+        return comprThreads;
+    }
+
+    /**
+     * Sets the number of threads used to compress pack files.
+     *
+     * @param comprThreads the number of compression threads. Values below {@code 2} denote sequential compression
+     */
+    public void setComprThreads(int comprThreads)
+    {
+        this.comprThreads = comprThreads;
+    }
+
+    /**
+     * Determines if pack files that are unlikely to compress are stored uncompressed.
+     * <p/>
+     * Files are considered incompressible if they have the extension of a compressed format, or the entropy of
+     * a sample of their content is close to random. This only applies when a pack compression format is set.
+     *
+     * @return {@code true} if compression is adaptive
+     */
+    public boolean isComprAdaptive()
+    {
+        return comprAdaptive;
+    }
+
+    /**
+     * Determines if pack files that are unlikely to compress are stored uncompressed.
+     *
+     * @param comprAdaptive if {@code true}, store incompressible files uncompressed
+     */
+    public void setComprAdaptive(boolean comprAdaptive)
+    {
+        this.comprAdaptive = comprAdaptive;
+    }
+
+    /**
+     * Returns the directory of the compile cache of compressed pack file data.
+     *
+     * @return the cache directory, or {@code null} if no cache is used
+     */
+    public String getCompileCacheDir()
+    {
+        return compileCacheDir;
+    }
+
+    /**
+     * Sets the directory of the compile cache of compressed pack file data.
+     *
+     * @param compileCacheDir the cache directory, or {@code null} if no cache should be used
+     */
+    public void setCompileCacheDir(String compileCacheDir)
+    {
+        this.compileCacheDir = compileCacheDir;
+    }
+
+    /**
+     * Returns the maximum size of the compile cache.
+     *
+     * @return the maximum size in bytes. Values {@code <= 0} don't limit the size
+     */
+    public long getCompileCacheMaxSize()
+    {
+        return compileCacheMaxSize;
+    }
+
+    /**
+     * Sets the maximum size of the compile cache.
+     *
+     * @param compileCacheMaxSize the maximum size in bytes. Values {@code <= 0} don't limit the size
+     */
+    public void setCompileCacheMaxSize(long compileCacheMaxSize)
+    {
+        this.compileCacheMaxSize = compileCacheMaxSize;
+    }
+
+    /**
+     * Returns the number of days after which unused compile cache entries are removed.
+     *
+     * @return the maximum age in days. Values {@code <= 0} keep entries
+     */
+    public int getCompileCacheMaxAge()
+    {
+        return compileCacheMaxAge;
+    }
+
+    /**
+     * Sets the number of days after which unused compile cache entries are removed.
+     *
+     * @param compileCacheMaxAge the maximum age in days. Values {@code <= 0} keep entries
+     */
+    public void setCompileCacheMaxAge(int compileCacheMaxAge)
+    {
+        this.compileCacheMaxAge = compileCacheMaxAge;
+    }
+
+    /**
+     * Returns the format of the pack metadata written to the installer.
+     *
+     * @return the pack metadata format
+     */
+    public PacksInfoFormat getPacksInfoFormat()
+    {
+        return packsInfoFormat;
+    }
+
+    /**
+     * Sets the format of the pack metadata written to the installer.
+     *
+     * @param packsInfoFormat the pack metadata format
+     */
+    public void setPacksInfoFormat(PacksInfoFormat packsInfoFormat)
+    {
+        this.packsInfoFormat = packsInfoFormat;
+    }
+
+    /**
+     * Determines if compressed pack streams are stored without further jar compression, so that the installer can
+     * seek to the files in a pack instead of inflating and discarding the data preceding them.
+     *
+     * @return {@code true} if pack streams are seekable
+     */
+    public boolean isSeekablePacks()
+    {
+        return seekablePacks;
+    }
+
+    /**
+     * Determines if compressed pack streams are stored without further jar compression.
+     *
+     * @param seekablePacks if {@code true}, store compressed pack streams so that they are seekable
+     */
+    public void setSeekablePacks(boolean seekablePacks)
+    {
+        this.seekablePacks = seekablePacks;
+    }
+
+    /**
+     * Determines if the skeleton installer, the installer data and the packs are written concurrently.
+     * <p/>
+     * Each is compressed into a separate temporary jar, and the entries are then copied into the installer jar
+     * without recompression, in the same order as when written sequentially.
+     *
+     * @return {@code true} if the installer is assembled concurrently
+     */
+    public boolean isParallelAssembly()
+    {
+        return parallelAssembly;
+    }
+
+    /**
+     * Determines if the skeleton installer, the installer data and the packs are written concurrently.
+     *
+     * @param parallelAssembly if {@code true}, assemble the installer concurrently
+     */
+    public void setParallelAssembly(boolean parallelAssembly)
+    {
+        this.parallelAssembly = parallelAssembly;
+    }
+
     public Info getExternalInfo()
     {
         return this.externalInfo;
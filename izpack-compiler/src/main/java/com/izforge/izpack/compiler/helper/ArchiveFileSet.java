@@ -0,0 +1,110 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.compiler.helper;
+
+import com.izforge.izpack.util.file.DirectoryScanner;
+
+/**
+ * A {@link TargetFileSet} that selects entries of an archive, without extracting the archive.
+ */
+public class ArchiveFileSet extends TargetFileSet
+{
+    /**
+     * The base directory within the archive, ending with '/', or an empty string for the archive root.
+     */
+    private String baseDir = "";
+
+    /**
+     * Determines if an entry was found within the base directory.
+     */
+    private boolean baseDirFound;
+
+    /**
+     * Matches entry names against the patterns of the file set.
+     */
+    private DirectoryScanner matcher;
+
+    /**
+     * Sets the base directory within the archive.
+     *
+     * @param baseDir the base directory, relative to the archive root. May be {@code null}
+     */
+    public void setArchiveBaseDir(String baseDir)
+    {
+        if (baseDir == null || baseDir.isEmpty())
+        {
+            this.baseDir = "";
+        }
+        else
+        {
+            this.baseDir = baseDir.endsWith("/") ? baseDir : baseDir + "/";
+        }
+    }
+
+    /**
+     * Returns the path of an entry relative to the base directory.
+     *
+     * @param entryName the normalized entry name, using '/' as separator and without a trailing separator
+     * @return the relative path, or {@code null} if the entry is not within the base directory
+     */
+    public String getRelativePath(String entryName)
+    {
+        if (entryName.startsWith(baseDir))
+        {
+            baseDirFound = true;
+            return entryName.substring(baseDir.length());
+        }
+        else if ((entryName + "/").equals(baseDir))
+        {
+            baseDirFound = true;
+        }
+        return null;
+    }
+
+    /**
+     * Determines if an entry is selected by the file set.
+     *
+     * @param entryName the normalized entry name, using '/' as separator and without a trailing separator
+     * @return {@code true} if the entry is within the base directory and matches the patterns of the file set
+     */
+    public boolean isIncluded(String entryName)
+    {
+        String path = getRelativePath(entryName);
+        if (path == null || path.isEmpty())
+        {
+            return false;
+        }
+        if (matcher == null)
+        {
+            matcher = getPathMatcher();
+        }
+        return matcher.isIncludedPath(path);
+    }
+
+    /**
+     * Determines if the archive contains the base directory.
+     *
+     * @return {@code true} if no base directory was specified, or an entry was found within it
+     */
+    public boolean isBaseDirFound()
+    {
+        return baseDir.isEmpty() || baseDirFound;
+    }
+}
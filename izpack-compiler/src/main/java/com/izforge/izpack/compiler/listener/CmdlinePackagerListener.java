@@ -70,6 +70,18 @@ public class CmdlinePackagerListener implements PackagerListener
         }
     }
 
+    /**
+     * Print the number of bytes saved by storing files of a pack as references.
+     *
+     * @param pack       the pack name
+     * @param files      the number of files stored as references
+     * @param bytesSaved the number of bytes not written to the pack stream
+     */
+    public void packagerPackDeduplicated(String pack, int files, long bytesSaved)
+    {
+        logger.info("Pack " + pack + ": " + files + " duplicate file(s), " + bytesSaved + " bytes saved");
+    }
+
     /**
      * Called when the packager starts.
      */
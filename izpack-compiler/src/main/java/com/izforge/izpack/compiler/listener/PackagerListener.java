@@ -67,6 +67,16 @@ public interface PackagerListener
      */
     public void packagerMsg(String info, int priority);
 
+    /**
+     * Called when a pack has been written, if any of its files were stored as references to identical content
+     * written before.
+     *
+     * @param pack       the pack name
+     * @param files      the number of files stored as references
+     * @param bytesSaved the number of bytes not written to the pack stream
+     */
+    public void packagerPackDeduplicated(String pack, int files, long bytesSaved);
+
     /**
      * Called when the packager starts.
      */
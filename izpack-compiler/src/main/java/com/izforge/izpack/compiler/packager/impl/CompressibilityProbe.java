@@ -0,0 +1,122 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.compiler.packager.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Determines if file content is worth compressing.
+ * <p/>
+ * Files with the extension of an already compressed format are considered incompressible. Otherwise, the byte
+ * entropy of a sample from the start of the file is estimated; content close to random (such as compressed or
+ * encrypted data) gains almost nothing from compression.
+ */
+class CompressibilityProbe
+{
+    /**
+     * The number of bytes sampled from the start of a file.
+     */
+    static final int SAMPLE_SIZE = 64 * 1024;
+
+    /**
+     * Samples below this size are always compressed, as the entropy estimate is unreliable.
+     */
+    private static final int MIN_SAMPLE_SIZE = 4 * 1024;
+
+    /**
+     * The entropy in bits per byte above which content is considered incompressible.
+     */
+    private static final double ENTROPY_THRESHOLD = 7.5;
+
+    /**
+     * Extensions of already compressed file formats.
+     */
+    private static final Set<String> COMPRESSED_EXTENSIONS = new HashSet<String>(Arrays.asList(
+            "7z", "bz2", "cab", "ear", "gif", "gz", "jar", "jpeg", "jpg", "lz4", "lzma", "mkv", "mov", "mp3",
+            "mp4", "ogg", "pack", "png", "rar", "tbz2", "tgz", "txz", "war", "webm", "webp", "xz", "zip", "zst"));
+
+    /**
+     * Determines if a file is incompressible from its name.
+     *
+     * @param name the file name or path
+     * @return {@code true} if the file has the extension of an already compressed format
+     */
+    boolean isCompressedFormat(String name)
+    {
+        int index = name.lastIndexOf('.');
+        if (index < 0 || index < Math.max(name.lastIndexOf('/'), name.lastIndexOf('\\')))
+        {
+            return false;
+        }
+        return COMPRESSED_EXTENSIONS.contains(name.substring(index + 1).toLowerCase(Locale.ENGLISH));
+    }
+
+    /**
+     * Determines if content is incompressible by estimating the entropy of a sample of it.
+     * <p/>
+     * Up to {@link #SAMPLE_SIZE} bytes are read from the stream.
+     *
+     * @param in the stream to read the sample from. This is not closed
+     * @return {@code true} if the content is incompressible
+     * @throws IOException for any I/O error
+     */
+    boolean isIncompressible(InputStream in) throws IOException
+    {
+        byte[] sample = new byte[SAMPLE_SIZE];
+        int length = 0;
+        int read;
+        while (length < sample.length && (read = in.read(sample, length, sample.length - length)) != -1)
+        {
+            length += read;
+        }
+        return length >= MIN_SAMPLE_SIZE && entropy(sample, length) > ENTROPY_THRESHOLD;
+    }
+
+    /**
+     * Estimates the Shannon entropy of a sample.
+     *
+     * @param sample the sample
+     * @param length the number of bytes in the sample
+     * @return the entropy, in bits per byte
+     */
+    static double entropy(byte[] sample, int length)
+    {
+        int[] counts = new int[256];
+        for (int i = 0; i < length; ++i)
+        {
+            counts[sample[i] & 0xff]++;
+        }
+        double result = 0;
+        for (int count : counts)
+        {
+            if (count != 0)
+            {
+                double p = (double) count / length;
+                result -= p * Math.log(p);
+            }
+        }
+        return result / Math.log(2);
+    }
+}
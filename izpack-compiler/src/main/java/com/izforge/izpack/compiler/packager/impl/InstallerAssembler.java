@@ -0,0 +1,228 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.compiler.packager.impl;
+
+import com.izforge.izpack.merge.jar.RawJarOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.JarOutputStream;
+import java.util.logging.Logger;
+import java.util.zip.Deflater;
+
+/**
+ * Assembles the installer jar from groups of entries that are written concurrently.
+ * <p/>
+ * Each group is written, and its entries compressed, into its own scatter jar in a temporary file. Once all
+ * groups are complete, the compressed entries of the scatter jars are copied without recompression into the
+ * installer jar, in the order the groups were created. Entries with a name that was already gathered are
+ * skipped. The order of the entries is therefore independent of the order in which the groups complete.
+ */
+class InstallerAssembler implements Closeable
+{
+    private static final Logger logger = Logger.getLogger(InstallerAssembler.class.getName());
+
+    /**
+     * The compression level of the scatter jars.
+     */
+    private final int level;
+
+    /**
+     * The scatter jars, in gather order.
+     */
+    private final List<Path> files = new ArrayList<>();
+
+    /**
+     * The streams of the scatter jars.
+     */
+    private final List<JarOutputStream> groups = new ArrayList<>();
+
+    /**
+     * The worker threads.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * Constructs an <tt>InstallerAssembler</tt>.
+     *
+     * @param level   the compression level. Values outside {@code 0..9} denote the best compression
+     * @param threads the number of groups that may be written concurrently, in addition to the calling thread
+     */
+    InstallerAssembler(int level, int threads)
+    {
+        this.level = (level >= 0 && level < 10) ? level : Deflater.BEST_COMPRESSION;
+        final AtomicInteger count = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "izpack-assemble-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Creates a group of entries. The group is gathered after those created before it.
+     *
+     * @return the stream to write the entries of the group to. This is closed when the groups are gathered
+     * @throws IOException if the scatter jar cannot be created
+     */
+    JarOutputStream createGroup() throws IOException
+    {
+        Path file = Files.createTempFile("izpack-scatter", ".jar");
+        files.add(file);
+        JarOutputStream group = new RawJarOutputStream(file);
+        group.setLevel(level);
+        groups.add(group);
+        return group;
+    }
+
+    /**
+     * Submits the writing of a group to a worker thread.
+     *
+     * @param task the task writing the group
+     * @return the result of the task, to pass to {@link #await}
+     */
+    Future<Void> submit(Callable<Void> task)
+    {
+        return executor.submit(task);
+    }
+
+    /**
+     * Waits for submitted tasks to complete.
+     *
+     * @param tasks the tasks
+     * @throws IOException if a task failed
+     */
+    @SafeVarargs
+    final void await(Future<Void>... tasks) throws IOException
+    {
+        for (Future<Void> task : tasks)
+        {
+            try
+            {
+                task.get();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while assembling the installer");
+            }
+            catch (ExecutionException e)
+            {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException)
+                {
+                    throw (IOException) cause;
+                }
+                if (cause instanceof RuntimeException)
+                {
+                    throw (RuntimeException) cause;
+                }
+                throw new IOException("Failed to assemble the installer", cause);
+            }
+        }
+    }
+
+    /**
+     * Closes the groups, and copies their entries to the installer jar.
+     *
+     * @param installer the installer jar. Any existing file is replaced
+     * @throws IOException for any I/O error
+     */
+    void gather(Path installer) throws IOException
+    {
+        for (JarOutputStream group : groups)
+        {
+            group.close();
+        }
+        Set<String> names = new HashSet<>();
+        try (ZipArchiveOutputStream out = new ZipArchiveOutputStream(installer))
+        {
+            for (Path file : files)
+            {
+                try (ZipFile scatter = ZipFile.builder().setPath(file).get())
+                {
+                    Enumeration<ZipArchiveEntry> entries = scatter.getEntriesInPhysicalOrder();
+                    while (entries.hasMoreElements())
+                    {
+                        ZipArchiveEntry entry = entries.nextElement();
+                        if (!names.add(entry.getName()))
+                        {
+                            logger.fine("Skipping duplicate installer entry " + entry.getName());
+                            continue;
+                        }
+                        try (InputStream in = scatter.getRawInputStream(entry))
+                        {
+                            out.addRawArchiveEntry(entry, in);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops the worker threads and deletes the scatter jars.
+     */
+    @Override
+    public void close()
+    {
+        executor.shutdownNow();
+        for (JarOutputStream group : groups)
+        {
+            try
+            {
+                group.close();
+            }
+            catch (IOException ignore)
+            {
+                // the scatter jar is deleted regardless
+            }
+        }
+        for (Path file : files)
+        {
+            try
+            {
+                Files.deleteIfExists(file);
+            }
+            catch (IOException e)
+            {
+                file.toFile().deleteOnExit();
+            }
+        }
+    }
+}
@@ -22,6 +22,7 @@
 package com.izforge.izpack.compiler.packager.impl;
 
 import com.izforge.izpack.api.adaptator.IXMLElement;
+import com.izforge.izpack.api.data.ArchiveEntrySource;
 import com.izforge.izpack.api.data.Pack;
 import com.izforge.izpack.api.data.PackFile;
 import com.izforge.izpack.api.data.XPackFile;
@@ -29,6 +30,7 @@ import com.izforge.izpack.api.rules.RulesEngine;
 import com.izforge.izpack.compiler.data.CompilerData;
 import com.izforge.izpack.compiler.listener.PackagerListener;
 import com.izforge.izpack.compiler.merge.CompilerPathResolver;
+import com.izforge.izpack.compiler.util.compress.ArchiveEntryReader;
 import com.izforge.izpack.core.io.FileSpanningOutputStream;
 import com.izforge.izpack.api.data.PackInfo;
 import com.izforge.izpack.merge.MergeManager;
@@ -37,8 +39,8 @@ import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectOutputStream;
 import java.util.*;
 import java.util.jar.JarOutputStream;
@@ -200,11 +202,7 @@ public class MultiVolumePackager extends PackagerBase
         installerJar.closeEntry();
 
         // Now that we know sizes, write pack metadata to primary jar.
-        installerJar.putNextEntry(new ZipEntry(PACKSINFO_RESOURCE_PATH));
-        out = new ObjectOutputStream(installerJar);
-        out.writeObject(packs);
-        out.flush();
-        installerJar.closeEntry();
+        writePacksInfo(installerJar, packs);
     }
 
     /**
@@ -280,29 +278,50 @@ public class MultiVolumePackager extends PackagerBase
         Set<PackFile> files = packInfo.getPackFiles();
         Map<PackFile, File> xFiles = new LinkedHashMap<PackFile, File>();
 
-        for (PackFile packfile : files)
+        try (ArchiveEntryReader archiveReader = new ArchiveEntryReader())
         {
-            XPackFile pf = new XPackFile(packfile);
-            File file = packInfo.getFile(packfile);
-            logger.fine("Next file: " + file.getAbsolutePath());
-
-            if (!pf.isDirectory())
+            for (PackFile packfile : files)
             {
-                if (!pack.isLoose())
-                {
-                    writePackFile(file, volumes, pf);
-                }
-                else
+                XPackFile pf = new XPackFile(packfile);
+                File file = packInfo.getFile(packfile);
+                ArchiveEntrySource archiveEntry = packInfo.getArchiveEntry(packfile);
+                String source = archiveEntry != null ? archiveEntry.toString() : file.getAbsolutePath();
+                logger.fine("Next file: " + source);
+
+                if (!pf.isDirectory())
                 {
-                    // just copy the file to the target directory
-                    FileUtils.copyFile(file, new File(targetDir, pf.getRelativeSourcePath()));
+                    if (!pack.isLoose())
+                    {
+                        InputStream in = archiveEntry != null ? archiveReader.open(archiveEntry)
+                                                              : FileUtils.openInputStream(file);
+                        try
+                        {
+                            writePackFile(in, source, volumes, pf);
+                        }
+                        finally
+                        {
+                            IOUtils.closeQuietly(in);
+                        }
+                    }
+                    else if (archiveEntry != null)
+                    {
+                        // copy the entry content to the target directory
+                        File target = new File(targetDir, pf.getRelativeSourcePath());
+                        FileUtils.copyInputStreamToFile(archiveReader.open(archiveEntry), target);
+                        target.setLastModified(pf.lastModified());
+                    }
+                    else
+                    {
+                        // just copy the file to the target directory
+                        FileUtils.copyFile(file, new File(targetDir, pf.getRelativeSourcePath()));
+                    }
                 }
-            }
 
-            xFiles.put(pf, file);
+                xFiles.put(pf, file);
 
-            // even if not written, it counts towards pack size
-            pack.addFileSize(pf.length());
+                // even if not written, it counts towards pack size
+                pack.addFileSize(pf.length());
+            }
         }
 
         // Replace the PackFile objects by the corresponding XPackFile objects to be written to the packs.info resource
@@ -319,12 +338,14 @@ public class MultiVolumePackager extends PackagerBase
     /**
      * Writes a pack file to the volumes.
      *
-     * @param file     the file to write
+     * @param in       the stream to read the file content from
+     * @param source   the file or archive entry the content is read from
      * @param volumes  the volumes
      * @param packFile the pack file
      * @throws IOException for any I/O error
      */
-    private void writePackFile(File file, FileSpanningOutputStream volumes, XPackFile packFile) throws IOException
+    private void writePackFile(InputStream in, String source, FileSpanningOutputStream volumes, XPackFile packFile)
+            throws IOException
     {
         long beforePosition = volumes.getFilePointer();
         packFile.setArchiveFilePosition(beforePosition);
@@ -332,31 +353,23 @@ public class MultiVolumePackager extends PackagerBase
         // write the file to the volumes
         int volumeCount = volumes.getVolumes();
 
-        FileInputStream in = FileUtils.openInputStream(file);
-        try
-        {
-            long bytesWritten = IOUtils.copyLarge(in, volumes);
-            long afterPosition = volumes.getFilePointer();
-            logger.fine("File (" + packFile.getFile() + ") " + beforePosition + " <-> " + afterPosition);
-
-            if (volumes.getFilePointer() != (beforePosition + bytesWritten))
-            {
-                logger.fine("file: " + file.getName());
-                logger.fine("(Filepos/BytesWritten/ExpectedNewFilePos/NewFilePointer) ("
-                        + beforePosition + "/" + bytesWritten + "/" + (beforePosition + bytesWritten)
-                        + "/" + volumes.getFilePointer() + ")");
-                logger.fine("Volumes (before/after) (" + volumeCount + "/" + volumes.getVolumes() + ")");
-                throw new IOException("Error new file pointer is illegal");
-            }
+        long bytesWritten = IOUtils.copyLarge(in, volumes);
+        long afterPosition = volumes.getFilePointer();
+        logger.fine("File (" + source + ") " + beforePosition + " <-> " + afterPosition);
 
-            if (bytesWritten != packFile.length())
-            {
-                throw new IOException("File size mismatch when reading " + file);
-            }
+        if (volumes.getFilePointer() != (beforePosition + bytesWritten))
+        {
+            logger.fine("file: " + source);
+            logger.fine("(Filepos/BytesWritten/ExpectedNewFilePos/NewFilePointer) ("
+                    + beforePosition + "/" + bytesWritten + "/" + (beforePosition + bytesWritten)
+                    + "/" + volumes.getFilePointer() + ")");
+            logger.fine("Volumes (before/after) (" + volumeCount + "/" + volumes.getVolumes() + ")");
+            throw new IOException("Error new file pointer is illegal");
         }
-        finally
+
+        if (bytesWritten != packFile.length())
         {
-            IOUtils.closeQuietly(in);
+            throw new IOException("File size mismatch when reading " + source);
         }
     }
 
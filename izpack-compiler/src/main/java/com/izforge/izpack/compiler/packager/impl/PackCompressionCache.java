@@ -0,0 +1,363 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.compiler.packager.impl;
+
+import com.izforge.izpack.api.data.PackCompression;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * A persistent cache of compressed pack file data, shared between compilations.
+ * <p/>
+ * Entries are keyed on the content digest of the uncompressed file, the compression format and the compression
+ * level, so compressed data can be copied straight into a pack stream when the same content is packed again.
+ * Entries are written to a temporary file and moved into place when complete, so concurrent compilations never
+ * read partially written entries.
+ * <p/>
+ * The last-modified time of an entry is updated whenever it is used. {@link #evict()} removes entries that have not
+ * been used within the maximum age, and then the least recently used entries until the cache fits its maximum size.
+ */
+public class PackCompressionCache
+{
+    private static final Logger logger = Logger.getLogger(PackCompressionCache.class.getName());
+
+    /**
+     * The cache directory.
+     */
+    private final Path directory;
+
+    /**
+     * The maximum cache size in bytes, or {@code <= 0} if the size is unlimited.
+     */
+    private final long maxSize;
+
+    /**
+     * The maximum age of unused entries in milliseconds, or {@code <= 0} if entries don't expire.
+     */
+    private final long maxAge;
+
+    /**
+     * The number of cache hits.
+     */
+    private final AtomicLong hits = new AtomicLong();
+
+    /**
+     * The number of cache misses.
+     */
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * The number of compressed bytes copied from the cache.
+     */
+    private final AtomicLong bytesReused = new AtomicLong();
+
+    /**
+     * Constructs a <tt>PackCompressionCache</tt>.
+     *
+     * @param directory the cache directory. Created if it doesn't exist
+     * @param maxSize   the maximum cache size in bytes, or {@code <= 0} if the size is unlimited
+     * @param maxAge    the maximum age of unused entries in days, or {@code <= 0} if entries don't expire
+     * @throws IOException if the directory cannot be created
+     */
+    public PackCompressionCache(Path directory, long maxSize, int maxAge) throws IOException
+    {
+        this.directory = Files.createDirectories(directory);
+        this.maxSize = maxSize;
+        this.maxAge = TimeUnit.DAYS.toMillis(maxAge);
+    }
+
+    /**
+     * Copies cached compressed data to a stream.
+     *
+     * @param digest      the content digest of the uncompressed data
+     * @param compression the compression format
+     * @param level       the compression level
+     * @param out         the stream to write to
+     * @return the number of bytes copied, or {@code -1} if the cache has no entry for the data
+     * @throws IOException for any I/O error
+     */
+    public long copy(byte[] digest, PackCompression compression, int level, OutputStream out) throws IOException
+    {
+        Path path = getPath(digest, compression, level);
+        long size;
+        try
+        {
+            size = Files.copy(path, out);
+        }
+        catch (NoSuchFileException exception)
+        {
+            misses.incrementAndGet();
+            return -1;
+        }
+        hits.incrementAndGet();
+        bytesReused.addAndGet(size);
+        try
+        {
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+        }
+        catch (IOException exception)
+        {
+            logger.fine("Failed to update the last-modified time of " + path + ": " + exception.getMessage());
+        }
+        return size;
+    }
+
+    /**
+     * Creates a new cache entry.
+     * <p/>
+     * The entry only becomes visible once {@link Entry#commit()} is invoked.
+     *
+     * @param digest      the content digest of the uncompressed data
+     * @param compression the compression format
+     * @param level       the compression level
+     * @return a new entry
+     * @throws IOException for any I/O error
+     */
+    public Entry create(byte[] digest, PackCompression compression, int level) throws IOException
+    {
+        Path path = getPath(digest, compression, level);
+        Files.createDirectories(path.getParent());
+        Path temp = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+        return new Entry(path, temp);
+    }
+
+    /**
+     * Removes entries that have not been used within the maximum age, and then the least recently used entries
+     * until the cache is no larger than its maximum size.
+     *
+     * @throws IOException for any I/O error
+     */
+    public void evict() throws IOException
+    {
+        if (maxAge <= 0 && maxSize <= 0)
+        {
+            return;
+        }
+        List<Path> entries = new ArrayList<>();
+        try (Stream<Path> stream = Files.walk(directory))
+        {
+            stream.filter(path -> path.getFileName().toString().endsWith(".bin")).forEach(entries::add);
+        }
+
+        List<CachedFile> files = new ArrayList<>();
+        long expiry = System.currentTimeMillis() - maxAge;
+        long size = 0;
+        for (Path entry : entries)
+        {
+            BasicFileAttributes attributes;
+            try
+            {
+                attributes = Files.readAttributes(entry, BasicFileAttributes.class);
+            }
+            catch (NoSuchFileException exception)
+            {
+                continue; // evicted by a concurrent compilation
+            }
+            long lastModified = attributes.lastModifiedTime().toMillis();
+            if (maxAge > 0 && lastModified < expiry)
+            {
+                Files.deleteIfExists(entry);
+            }
+            else
+            {
+                files.add(new CachedFile(entry, lastModified, attributes.size()));
+                size += attributes.size();
+            }
+        }
+
+        if (maxSize > 0 && size > maxSize)
+        {
+            files.sort(Comparator.comparingLong(file -> file.lastModified));
+            for (CachedFile file : files)
+            {
+                if (size <= maxSize)
+                {
+                    break;
+                }
+                Files.deleteIfExists(file.path);
+                size -= file.size;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of times compressed data was found in the cache.
+     *
+     * @return the number of cache hits
+     */
+    public long getHits()
+    {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of times compressed data was not found in the cache.
+     *
+     * @return the number of cache misses
+     */
+    public long getMisses()
+    {
+        return misses.get();
+    }
+
+    /**
+     * Returns the number of compressed bytes copied from the cache.
+     *
+     * @return the number of bytes reused
+     */
+    public long getBytesReused()
+    {
+        return bytesReused.get();
+    }
+
+    /**
+     * Returns the path of a cache entry.
+     *
+     * @param digest      the content digest of the uncompressed data
+     * @param compression the compression format
+     * @param level       the compression level
+     * @return the path of the entry
+     */
+    private Path getPath(byte[] digest, PackCompression compression, int level)
+    {
+        StringBuilder hex = new StringBuilder(digest.length * 2);
+        for (byte b : digest)
+        {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return directory.resolve(hex.substring(0, 2)).resolve(hex + "-" + compression.toName() + "-" + level + ".bin");
+    }
+
+    /**
+     * A cache entry being written.
+     */
+    public static class Entry implements Closeable
+    {
+        /**
+         * The path of the entry.
+         */
+        private final Path path;
+
+        /**
+         * The temporary file the entry is written to.
+         */
+        private final Path temp;
+
+        /**
+         * The stream to the temporary file.
+         */
+        private final OutputStream out;
+
+        /**
+         * Constructs an <tt>Entry</tt>.
+         *
+         * @param path the path of the entry
+         * @param temp the temporary file to write to
+         * @throws IOException if the temporary file cannot be opened
+         */
+        Entry(Path path, Path temp) throws IOException
+        {
+            this.path = path;
+            this.temp = temp;
+            this.out = new BufferedOutputStream(Files.newOutputStream(temp));
+        }
+
+        /**
+         * Returns the stream to write the compressed data to.
+         *
+         * @return the stream
+         */
+        public OutputStream getOutputStream()
+        {
+            return out;
+        }
+
+        /**
+         * Makes the entry visible in the cache.
+         *
+         * @throws IOException for any I/O error
+         */
+        public void commit() throws IOException
+        {
+            out.close();
+            try
+            {
+                Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch (FileAlreadyExistsException exception)
+            {
+                // added by a concurrent compilation
+            }
+            catch (AtomicMoveNotSupportedException exception)
+            {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+
+        /**
+         * Discards the temporary file, if the entry has not been committed.
+         *
+         * @throws IOException for any I/O error
+         */
+        @Override
+        public void close() throws IOException
+        {
+            out.close();
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * A cache entry, when evicting.
+     */
+    private static class CachedFile
+    {
+        private final Path path;
+
+        private final long lastModified;
+
+        private final long size;
+
+        CachedFile(Path path, long lastModified, long size)
+        {
+            this.path = path;
+            this.lastModified = lastModified;
+            this.size = size;
+        }
+    }
+}
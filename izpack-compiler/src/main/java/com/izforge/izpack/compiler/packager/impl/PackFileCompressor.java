@@ -0,0 +1,281 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.compiler.packager.impl;
+
+import com.izforge.izpack.api.data.PackCompression;
+import com.izforge.izpack.api.data.PackFile;
+import com.izforge.izpack.util.NoCloseOutputStream;
+import com.izforge.izpack.util.StreamSupport;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.io.output.TeeOutputStream;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Compresses the content of pack files into a pack stream.
+ * <p/>
+ * If a {@link PackCompressionCache} is supplied, compressed data is looked up by content digest before compressing,
+ * and stored in the cache after compressing.
+ * <p/>
+ * If a {@link CompressibilityProbe} is supplied, files it considers incompressible are stored uncompressed, and
+ * this is recorded in their {@link PackFile#getCompression() compression format}.
+ */
+class PackFileCompressor
+{
+    /**
+     * The compression format.
+     */
+    private final PackCompression compression;
+
+    /**
+     * The compression level.
+     */
+    private final int level;
+
+    /**
+     * The compile cache. May be {@code null}
+     */
+    private final PackCompressionCache cache;
+
+    /**
+     * The probe to detect incompressible files, or {@code null} if all files are compressed
+     */
+    private final CompressibilityProbe probe;
+
+    /**
+     * Constructs a <tt>PackFileCompressor</tt>.
+     *
+     * @param compression the compression format
+     * @param level       the compression level
+     * @param cache       the compile cache. May be {@code null}
+     * @param probe       the probe to detect incompressible files. May be {@code null}
+     */
+    PackFileCompressor(PackCompression compression, int level, PackCompressionCache cache,
+                       CompressibilityProbe probe)
+    {
+        this.compression = compression;
+        this.level = level;
+        this.cache = cache;
+        this.probe = probe;
+    }
+
+    /**
+     * Returns the compression format of a compressed file.
+     *
+     * @param packFile the pack file
+     * @return the compression format
+     */
+    PackCompression getCompression(PackFile packFile)
+    {
+        return packFile.getCompression() != null ? packFile.getCompression() : compression;
+    }
+
+    /**
+     * Compresses a file, writing the result to a stream.
+     * <p/>
+     * The content digest of the file is stored in the pack file.
+     *
+     * @param packFile the pack file
+     * @param file     the source file
+     * @param out      the stream to write to. This is not closed
+     * @return the number of compressed bytes written
+     * @throws IOException for any I/O error, or if the file size has changed since the pack file was created
+     */
+    long compress(PackFile packFile, Path file, OutputStream out) throws IOException
+    {
+        PackCompression codec = compression;
+        if (probe != null)
+        {
+            boolean incompressible = probe.isCompressedFormat(packFile.getTargetPath());
+            if (!incompressible)
+            {
+                try (InputStream in = Files.newInputStream(file))
+                {
+                    incompressible = probe.isIncompressible(in);
+                }
+            }
+            codec = select(packFile, incompressible);
+        }
+        if (cache == null || codec == PackCompression.DEFAULT)
+        {
+            return compress(packFile, file, codec, out, null);
+        }
+
+        byte[] digest = digest(file);
+        packFile.setDigest(digest);
+        long size = cache.copy(digest, codec, level, out);
+        if (size < 0)
+        {
+            PackCompressionCache.Entry entry = cache.create(digest, codec, level);
+            try
+            {
+                size = compress(packFile, file, codec, out, entry.getOutputStream());
+                entry.commit();
+            }
+            finally
+            {
+                entry.close();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Compresses data read from a stream, such as an archive entry, writing the result to a stream.
+     * <p/>
+     * The compile cache is not used, as the content digest is only known once the data has been read.
+     * The content digest is stored in the pack file.
+     *
+     * @param packFile the pack file
+     * @param in       the stream to read from. This is not closed
+     * @param source   a description of the source, for error messages
+     * @param out      the stream to write to. This is not closed
+     * @return the number of compressed bytes written
+     * @throws IOException for any I/O error, or if the stream length differs from the pack file length
+     */
+    long compress(PackFile packFile, InputStream in, String source, OutputStream out) throws IOException
+    {
+        PackCompression codec = compression;
+        if (probe != null)
+        {
+            boolean incompressible = probe.isCompressedFormat(packFile.getTargetPath());
+            if (!incompressible)
+            {
+                in = new BufferedInputStream(in, CompressibilityProbe.SAMPLE_SIZE);
+                in.mark(CompressibilityProbe.SAMPLE_SIZE);
+                incompressible = probe.isIncompressible(in);
+                in.reset();
+            }
+            codec = select(packFile, incompressible);
+        }
+        return compress(packFile, in, codec, source, out, null);
+    }
+
+    /**
+     * Computes the content digest of a file.
+     *
+     * @param file the file
+     * @return the digest, computed using {@link PackFile#DIGEST_ALGORITHM}
+     * @throws IOException for any I/O error
+     */
+    static byte[] digest(Path file) throws IOException
+    {
+        MessageDigest digest = createDigest();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest))
+        {
+            IOUtils.consume(in);
+        }
+        return digest.digest();
+    }
+
+    /**
+     * Selects the compression format of a file, recording it in the pack file if it differs from the installer
+     * compression format.
+     *
+     * @param packFile       the pack file
+     * @param incompressible determines if the file is incompressible
+     * @return the compression format
+     */
+    private PackCompression select(PackFile packFile, boolean incompressible)
+    {
+        packFile.setCompression(incompressible ? PackCompression.DEFAULT : null);
+        return incompressible ? PackCompression.DEFAULT : compression;
+    }
+
+    /**
+     * Compresses a file, computing its content digest while it is read.
+     *
+     * @param packFile the pack file
+     * @param file     the source file
+     * @param codec    the compression format
+     * @param out      the stream to write to. This is not closed
+     * @param copy     a stream to also write the compressed data to. May be {@code null}
+     * @return the number of compressed bytes written
+     * @throws IOException for any I/O error, or if the file size has changed since the pack file was created
+     */
+    private long compress(PackFile packFile, Path file, PackCompression codec, OutputStream out, OutputStream copy)
+            throws IOException
+    {
+        try (InputStream in = Files.newInputStream(file))
+        {
+            return compress(packFile, in, codec, file.toString(), out, copy);
+        }
+    }
+
+    /**
+     * Compresses data read from a stream, computing its content digest while it is read.
+     *
+     * @param packFile the pack file
+     * @param in       the stream to read from. This is not closed
+     * @param codec    the compression format
+     * @param source   a description of the source, for error messages
+     * @param out      the stream to write to. This is not closed
+     * @param copy     a stream to also write the compressed data to. May be {@code null}
+     * @return the number of compressed bytes written
+     * @throws IOException for any I/O error, or if the stream length differs from the pack file length
+     */
+    private long compress(PackFile packFile, InputStream in, PackCompression codec, String source, OutputStream out,
+                          OutputStream copy) throws IOException
+    {
+        MessageDigest digest = createDigest();
+        OutputStream target = new NoCloseOutputStream(out);
+        if (copy != null)
+        {
+            target = new TeeOutputStream(target, new NoCloseOutputStream(copy));
+        }
+        CountingOutputStream proxyOutputStream = new CountingOutputStream(target);
+        try (OutputStream finalStream = StreamSupport.compressedOutput(codec, level, proxyOutputStream))
+        {
+            long bytesWritten = IOUtils.copyLarge(new DigestInputStream(in, digest), finalStream);
+            if (bytesWritten != packFile.length())
+            {
+                throw new IOException("File size mismatch when reading " + source);
+            }
+        }
+        packFile.setDigest(digest.digest());
+        return proxyOutputStream.getByteCount();
+    }
+
+    /**
+     * Creates a message digest to compute the content digest of files.
+     *
+     * @return a new message digest
+     */
+    private static MessageDigest createDigest()
+    {
+        try
+        {
+            return MessageDigest.getInstance(PackFile.DIGEST_ALGORITHM);
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -22,6 +22,8 @@ package com.izforge.izpack.compiler.packager.impl;
 
 import com.izforge.izpack.api.adaptator.IXMLElement;
 import com.izforge.izpack.api.adaptator.impl.XMLElementImpl;
+import com.izforge.izpack.api.data.ArchiveEntrySource;
+import com.izforge.izpack.api.data.OverrideType;
 import com.izforge.izpack.api.data.Pack;
 import com.izforge.izpack.api.data.PackCompression;
 import com.izforge.izpack.api.data.PackFile;
@@ -30,21 +32,21 @@ import com.izforge.izpack.api.rules.RulesEngine;
 import com.izforge.izpack.compiler.data.CompilerData;
 import com.izforge.izpack.compiler.listener.PackagerListener;
 import com.izforge.izpack.compiler.merge.CompilerPathResolver;
+import com.izforge.izpack.compiler.util.compress.ArchiveEntryReader;
 import com.izforge.izpack.merge.MergeManager;
 import com.izforge.izpack.merge.resolve.MergeableResolver;
 import com.izforge.izpack.util.NoCloseOutputStream;
-import com.izforge.izpack.util.StreamSupport;
 import org.apache.commons.compress.java.util.jar.Pack200;
 import org.apache.commons.io.output.CountingOutputStream;
 
 import java.io.BufferedOutputStream;
 import java.io.IOException;
-import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -52,6 +54,8 @@ import java.util.Properties;
 import java.util.jar.JarFile;
 import java.util.jar.JarOutputStream;
 import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
 import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
 
@@ -125,8 +129,34 @@ public class Packager extends PackagerBase
         // Map to remember pack number and bytes offsets of back references
         Map<Path, PackFile> storedFiles = new HashMap<>();
 
+        // Files stored in the pack streams, keyed on length, to look up files with identical content
+        Map<Long, List<PackFile>> storedContent = new HashMap<>();
+
         List<PackFile> pack200Files = new ArrayList<>();
 
+        PackCompression comprFormat = getInfo().getCompressionFormat();
+        int comprThreads = compilerData.getComprThreads();
+        boolean parallel = comprThreads > 1 && comprFormat != PackCompression.DEFAULT;
+        if (parallel)
+        {
+            sendMsg("Compressing pack files using " + comprThreads + " threads", PackagerListener.MSG_VERBOSE);
+        }
+        boolean seekable = compilerData.isSeekablePacks() && comprFormat != PackCompression.DEFAULT;
+        if (compilerData.isSeekablePacks() && !seekable)
+        {
+            sendMsg("Seekable packs require a pack compression format, packs are stored deflated",
+                    PackagerListener.MSG_WARN);
+        }
+        PackCompressionCache cache = createCompressionCache(comprFormat);
+        CompressibilityProbe probe = null;
+        if (compilerData.isComprAdaptive() && comprFormat != PackCompression.DEFAULT)
+        {
+            sendMsg("Storing incompressible pack files uncompressed", PackagerListener.MSG_VERBOSE);
+            probe = new CompressibilityProbe();
+        }
+        PackFileCompressor fileCompressor = new PackFileCompressor(comprFormat, compilerData.getComprLevel(), cache,
+                                                                   probe);
+
         // Force UTF-8 encoding in order to have proper ZipEntry names.
         int packNumber = 0;
         final IXMLElement root = new XMLElementImpl("packs");
@@ -135,6 +165,8 @@ public class Packager extends PackagerBase
         {
             final Pack pack = packInfo.getPack();
             pack.setFileSize(0);
+            int referencedFiles = 0;
+            long bytesSaved = 0;
 
             sendMsg("Writing Pack " + packNumber + ": " + pack.getName(), PackagerListener.MSG_VERBOSE);
 
@@ -154,28 +186,41 @@ public class Packager extends PackagerBase
                 entry = new ZipEntry(RESOURCES_PATH + streamResourceName);
             }
 
-            packJar.putNextEntry(entry);
-            packJar.flush(); // flush before we start counting
+            // seekable pack streams are stored, so their size and checksum must be known before the entry is written
+            final Path packData = seekable ? Files.createTempFile("izpack-pack", ".data") : null;
+            final CRC32 crc = new CRC32();
 
-            try (CountingOutputStream packOutputStream = new CountingOutputStream(new NoCloseOutputStream(packJar)))
+            try (CountingOutputStream packOutputStream = new CountingOutputStream(
+                    openPackStream(packJar, entry, packData, crc));
+                 ParallelPackCompressor compressor = parallel ? new ParallelPackCompressor(fileCompressor, comprThreads) : null;
+                 ArchiveEntryReader archiveReader = new ArchiveEntryReader())
             {
                 for (PackFile packFile : packInfo.getPackFiles())
                 {
                     boolean addFile = !pack.isLoose();
                     Path file = packInfo.getFile(packFile).toPath();
+                    ArchiveEntrySource archiveEntry = packInfo.getArchiveEntry(packFile);
 
                     boolean pack200 = packFile.isPack200Jar();
 
                     // use a back reference if file was in previous pack, and in
                     // same jar
-                    PackFile linkedPackFile = storedFiles.get(file);
+                    PackFile linkedPackFile = archiveEntry == null ? storedFiles.get(file) : null;
 
                     if (linkedPackFile != null && !packSeparateJars())
                     {
+                        if (compressor != null && compressor.isPending(linkedPackFile))
+                        {
+                            // offset and size of the linked file are only known once it has been written
+                            compressor.flush();
+                        }
                         // Save backreference link
                         logger.fine("File " + packFile.getTargetPath() + " is a backreference, linked to " + linkedPackFile.getTargetPath());
                         packFile.setLinkedPackFile(linkedPackFile);
+                        packFile.setDigest(linkedPackFile.getDigest());
                         addFile = false;
+                        referencedFiles++;
+                        bytesSaved += linkedPackFile.size();
                     }
 
                     if (addFile && !packFile.isDirectory())
@@ -197,25 +242,49 @@ public class Packager extends PackagerBase
                         }
                         else
                         {
-                            packFile.setStreamResourceName(streamResourceName);
-                            packFile.setStreamOffset(packOutputStream.getByteCount()); // get the position
-
-                            PackCompression comprFormat = getInfo().getCompressionFormat();
-                            CountingOutputStream proxyOutputStream = new CountingOutputStream(new NoCloseOutputStream(packOutputStream));
-                            try (OutputStream finalStream = StreamSupport.compressedOutput(comprFormat, proxyOutputStream))
+                            // use a back reference if identical content was stored before. Archive entries are
+                            // streamed, so their content digest is only known once they have been written
+                            PackFile duplicate = archiveEntry == null
+                                    ? findDuplicate(packFile, file, storedContent, compressor) : null;
+                            if (duplicate != null)
+                            {
+                                logger.fine("File " + packFile.getTargetPath() + " has the same content as "
+                                        + duplicate.getTargetPath() + ", linked as backreference");
+                                packFile.setLinkedPackFile(duplicate);
+                                referencedFiles++;
+                                bytesSaved += duplicate.size();
+                            }
+                            else
                             {
-                                long bytesWritten = Files.copy(file, finalStream);
-                                if (bytesWritten != packFile.length())
+                                if (archiveEntry != null)
+                                {
+                                    writeArchiveEntry(packFile, archiveEntry, streamResourceName, packOutputStream,
+                                                      compressor, fileCompressor, archiveReader);
+                                }
+                                else
                                 {
-                                    throw new IOException("File size mismatch when reading " + file);
+                                    writeFile(packFile, file, streamResourceName, packOutputStream, compressor,
+                                              fileCompressor);
+                                }
+                                if (!packSeparateJars() && packFile.length() > 0)
+                                {
+                                    storedContent.computeIfAbsent(packFile.length(), length -> new ArrayList<>())
+                                            .add(packFile);
                                 }
                             }
-                            packFile.setSize(proxyOutputStream.getByteCount());
-                            logger.fine("File " + packFile.getTargetPath() + " added compressed as " + comprFormat.toName()
-                                    + " (" + packFile.length() + " -> " + packFile.size() + " bytes)");
                         }
 
-                        storedFiles.put(file, packFile);
+                        if (archiveEntry == null)
+                        {
+                            storedFiles.put(file, packFile.isBackReference() ? packFile.getLinkedPackFile() : packFile);
+                        }
+                    }
+
+                    if (pack.isLoose() && archiveEntry == null && !packFile.isDirectory()
+                            && packFile.override() == OverrideType.OVERRIDE_CHANGED)
+                    {
+                        // loose files aren't streamed, but the installer needs their digest to detect changes
+                        packFile.setDigest(PackFileCompressor.digest(file));
                     }
 
                     // even if not written, it counts towards pack size
@@ -227,13 +296,34 @@ public class Packager extends PackagerBase
                     pack.setSize(pack.getFileSize());
                 }
 
+                if (compressor != null)
+                {
+                    compressor.flush();
+                }
+
+                if (referencedFiles > 0)
+                {
+                    sendPackDeduplicated(pack.getName(), referencedFiles, bytesSaved);
+                }
+
                 // Cleanup
                 packOutputStream.flush();
                 packOutputStream.close();
-                packJar.closeEntry();
+                if (packData != null)
+                {
+                    writeStoredEntry(packJar, entry, packData, crc.getValue());
+                }
+                else
+                {
+                    packJar.closeEntry();
+                }
             }
             finally
             {
+                if (packData != null)
+                {
+                    Files.deleteIfExists(packData);
+                }
                 packJar.flush();
                 // close pack specific jar if required
                 if (packSeparateJars())
@@ -255,13 +345,15 @@ public class Packager extends PackagerBase
             packNumber++;
         }
 
-        // Now that we know sizes, write pack metadata to primary jar.
-        installerJar.putNextEntry(new ZipEntry(PACKSINFO_RESOURCE_PATH));
-        try (ObjectOutputStream out = new ObjectOutputStream(new NoCloseOutputStream(installerJar)))
+        if (cache != null)
         {
-            out.writeObject(packs);
+            cache.evict();
+            sendMsg("Compile cache: " + cache.getHits() + " hits, " + cache.getMisses() + " misses, "
+                    + cache.getBytesReused() + " compressed bytes reused");
         }
-        installerJar.closeEntry();
+
+        // Now that we know sizes, write pack metadata to primary jar.
+        writePacksInfo(installerJar, packs);
 
         for (PackFile pack200PackFile : pack200Files)
         {
@@ -298,6 +390,177 @@ public class Packager extends PackagerBase
         }
     }
 
+    /**
+     * Creates the compile cache, if one is configured.
+     *
+     * @param comprFormat the compression format
+     * @return the compile cache, or {@code null} if no cache is configured or the packs are not compressed
+     * @throws IOException if the cache directory cannot be created
+     */
+    private PackCompressionCache createCompressionCache(PackCompression comprFormat) throws IOException
+    {
+        String dir = compilerData.getCompileCacheDir();
+        if (dir == null || comprFormat == PackCompression.DEFAULT)
+        {
+            return null;
+        }
+        sendMsg("Using compile cache " + dir, PackagerListener.MSG_VERBOSE);
+        return new PackCompressionCache(Paths.get(dir), compilerData.getCompileCacheMaxSize(),
+                                        compilerData.getCompileCacheMaxAge());
+    }
+
+    /**
+     * Opens the stream that pack data is written to.
+     *
+     * @param packJar  the jar to write the pack to
+     * @param entry    the pack entry
+     * @param packData the file to buffer the pack data in until it can be stored, or {@code null} to write
+     *                 the data straight to the jar
+     * @param crc      the checksum of the buffered pack data
+     * @return the pack stream
+     * @throws IOException for any I/O error
+     */
+    private OutputStream openPackStream(JarOutputStream packJar, ZipEntry entry, Path packData, CRC32 crc)
+            throws IOException
+    {
+        if (packData != null)
+        {
+            return new CheckedOutputStream(new BufferedOutputStream(Files.newOutputStream(packData)), crc);
+        }
+        packJar.putNextEntry(entry);
+        packJar.flush(); // flush before we start counting
+        return new NoCloseOutputStream(packJar);
+    }
+
+    /**
+     * Writes buffered pack data as a stored (uncompressed) jar entry.
+     * <p/>
+     * The pack files are already compressed, so storing them costs little space, and lets the installer skip to
+     * the offset of any file in the pack stream without inflating the data before it.
+     *
+     * @param packJar  the jar to write the pack to
+     * @param entry    the pack entry
+     * @param packData the pack data
+     * @param crc      the checksum of the pack data
+     * @throws IOException for any I/O error
+     */
+    private void writeStoredEntry(JarOutputStream packJar, ZipEntry entry, Path packData, long crc)
+            throws IOException
+    {
+        long size = Files.size(packData);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(size);
+        entry.setCompressedSize(size);
+        entry.setCrc(crc);
+        packJar.putNextEntry(entry);
+        Files.copy(packData, packJar);
+        packJar.closeEntry();
+        sendMsg("Stored seekable pack stream " + entry.getName() + " (" + size + " bytes)",
+                PackagerListener.MSG_VERBOSE);
+    }
+
+    /**
+     * Writes a file to the pack stream.
+     *
+     * @param packFile           the pack file
+     * @param file               the source file
+     * @param streamResourceName the pack stream resource name
+     * @param packOutputStream   the pack stream
+     * @param compressor         the parallel compressor, or {@code null} if files are compressed sequentially
+     * @param fileCompressor     the file compressor
+     * @throws IOException for any I/O error
+     */
+    private void writeFile(PackFile packFile, Path file, String streamResourceName,
+                           CountingOutputStream packOutputStream, ParallelPackCompressor compressor,
+                           PackFileCompressor fileCompressor) throws IOException
+    {
+        packFile.setStreamResourceName(streamResourceName);
+        if (compressor != null)
+        {
+            // offset and size are set when the compressed data is appended to the pack stream
+            compressor.submit(packFile, file, packOutputStream);
+        }
+        else
+        {
+            packFile.setStreamOffset(packOutputStream.getByteCount()); // get the position
+            packFile.setSize(fileCompressor.compress(packFile, file, packOutputStream));
+            logger.fine("File " + packFile.getTargetPath() + " added compressed as "
+                    + fileCompressor.getCompression(packFile).toName()
+                    + " (" + packFile.length() + " -> " + packFile.size() + " bytes)");
+        }
+    }
+
+    /**
+     * Writes an archive entry to the pack stream, reading its content straight from the archive.
+     * <p/>
+     * Archive entries are read sequentially, so they are compressed on the calling thread once any files in flight
+     * have been written.
+     *
+     * @param packFile           the pack file
+     * @param archiveEntry       the archive entry
+     * @param streamResourceName the pack stream resource name
+     * @param packOutputStream   the pack stream
+     * @param compressor         the parallel compressor, or {@code null} if files are compressed sequentially
+     * @param fileCompressor     the file compressor
+     * @param archiveReader      the archive entry reader
+     * @throws IOException for any I/O error
+     */
+    private void writeArchiveEntry(PackFile packFile, ArchiveEntrySource archiveEntry, String streamResourceName,
+                                   CountingOutputStream packOutputStream, ParallelPackCompressor compressor,
+                                   PackFileCompressor fileCompressor, ArchiveEntryReader archiveReader)
+            throws IOException
+    {
+        if (compressor != null)
+        {
+            compressor.flush();
+        }
+        packFile.setStreamResourceName(streamResourceName);
+        packFile.setStreamOffset(packOutputStream.getByteCount()); // get the position
+        packFile.setSize(fileCompressor.compress(packFile, archiveReader.open(archiveEntry), archiveEntry.toString(),
+                                                 packOutputStream));
+        logger.fine("Archive entry " + archiveEntry + " added compressed as "
+                + fileCompressor.getCompression(packFile).toName()
+                + " (" + packFile.length() + " -> " + packFile.size() + " bytes)");
+    }
+
+    /**
+     * Looks for a file with the same content as the specified file, stored in a pack stream before.
+     * <p/>
+     * Only files of the same length are candidates, so the content digest of the file is only computed
+     * up-front if there are any.
+     *
+     * @param packFile      the pack file
+     * @param file          the source file
+     * @param storedContent the stored files, keyed on length
+     * @param compressor    the parallel compressor, or {@code null} if files are compressed sequentially
+     * @return the stored file with the same content, or {@code null} if none is found
+     * @throws IOException for any I/O error
+     */
+    private PackFile findDuplicate(PackFile packFile, Path file, Map<Long, List<PackFile>> storedContent,
+                                   ParallelPackCompressor compressor) throws IOException
+    {
+        List<PackFile> candidates = storedContent.get(packFile.length());
+        if (candidates == null)
+        {
+            return null;
+        }
+        if (compressor != null && compressor.isPending(packFile.length()))
+        {
+            // digest, offset and size of candidates are only known once they have been written
+            compressor.flush();
+        }
+        byte[] digest = PackFileCompressor.digest(file);
+        packFile.setDigest(digest);
+        for (PackFile candidate : candidates)
+        {
+            if (Arrays.equals(digest, candidate.getDigest()))
+            {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
     private Pack200.Packer createPack200Packer(PackFile packFile)
     {
         Pack200.Packer packer = Pack200.newPacker();
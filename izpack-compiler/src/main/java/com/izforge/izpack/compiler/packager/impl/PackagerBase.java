@@ -39,6 +39,7 @@ import com.izforge.izpack.compiler.merge.CompilerPathResolver;
 import com.izforge.izpack.compiler.merge.PanelMerge;
 import com.izforge.izpack.compiler.packager.IPackager;
 import com.izforge.izpack.compiler.util.graph.DependencyGraph;
+import com.izforge.izpack.core.data.PacksInfoWriter;
 import com.izforge.izpack.data.CustomData;
 import com.izforge.izpack.merge.MergeManager;
 import com.izforge.izpack.merge.resolve.MergeableResolver;
@@ -53,11 +54,13 @@ import java.io.OutputStream;
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.Future;
 import java.util.jar.Attributes;
 import java.util.jar.JarOutputStream;
 import java.util.jar.Manifest;
@@ -364,16 +367,32 @@ public abstract class PackagerBase implements IPackager
     public final void createInstaller() throws Exception
     {
         info.setInstallerBase(compilerData.getOutput().replaceAll(".jar", ""));
-        try
+        try (InstallerAssembler assembler = compilerData.isParallelAssembly()
+                ? new InstallerAssembler(compilerData.getComprLevel(), 2) : null)
         {
-            sendStart();
-            writeInstaller();
+            try
+            {
+                sendStart();
+                if (assembler != null)
+                {
+                    writeInstaller(assembler);
+                }
+                else
+                {
+                    writeInstaller();
+                }
+            }
+            finally
+            {
+                installerJar.close();
+            }
+            if (assembler != null)
+            {
+                // replaces the empty jar written by the installer jar stream
+                assembler.gather(Paths.get(compilerData.getOutput()));
+            }
             sendStop();
         }
-        finally
-        {
-            installerJar.close();
-        }
     }
 
     /**
@@ -421,24 +440,64 @@ public abstract class PackagerBase implements IPackager
         writeManifest();
         writeSkeletonInstaller();
 
-        writeInstallerObject("info", info);
-        writeInstallerObject("vars", properties);
-        writeInstallerObject("ConsolePrefs", consolePrefs);
-        writeInstallerObject("GUIPrefs", guiPrefs);
-        writeInstallerObject("panelsOrder", panelList);
-        writeInstallerObject("customData", customDataList);
-        writeInstallerObject("langpacks.info", langpackNameList);
-        writeInstallerObject("rules", rules);
-        writeInstallerObject("dynvariables", buildVariableList());
-        writeInstallerObject("dynconditions", dynamicInstallerRequirements);
-        writeInstallerObject("installerrequirements", installerRequirements);
-
+        writeInstallerObjects(installerJar);
         writeInstallerResources();
 
         // Pack File Data may be written to separate jars
         writePacks(installerJar);
     }
 
+    /**
+     * Writes the installer, with the skeleton installer, the installer data and the packs written concurrently.
+     * <p/>
+     * The groups are gathered in the same order as {@link #writeInstaller()} writes them.
+     *
+     * @param assembler the installer assembler
+     * @throws IOException for any I/O error
+     */
+    private void writeInstaller(InstallerAssembler assembler) throws IOException
+    {
+        sendMsg("Assembling the installer concurrently", PackagerListener.MSG_VERBOSE);
+        final JarOutputStream skeletonJar = assembler.createGroup();
+        final JarOutputStream dataJar = assembler.createGroup();
+        final JarOutputStream packsJar = assembler.createGroup();
+
+        Future<Void> skeleton = assembler.submit(() -> {
+            // the manifest is the first entry of the first group, so it is not overwritten by an included jar
+            writeManifest();
+            writeSkeletonInstaller(skeletonJar);
+            return null;
+        });
+        Future<Void> packs = assembler.submit(() -> {
+            writePacks(packsJar);
+            return null;
+        });
+        writeInstallerObjects(dataJar);
+        writeInstallerResources(dataJar);
+        assembler.await(skeleton, packs);
+    }
+
+    /**
+     * Writes the serialized installer objects.
+     *
+     * @param installerJar the installer jar
+     * @throws IOException for any I/O error
+     */
+    private void writeInstallerObjects(JarOutputStream installerJar) throws IOException
+    {
+        writeInstallerObject(installerJar, "info", info);
+        writeInstallerObject(installerJar, "vars", properties);
+        writeInstallerObject(installerJar, "ConsolePrefs", consolePrefs);
+        writeInstallerObject(installerJar, "GUIPrefs", guiPrefs);
+        writeInstallerObject(installerJar, "panelsOrder", panelList);
+        writeInstallerObject(installerJar, "customData", customDataList);
+        writeInstallerObject(installerJar, "langpacks.info", langpackNameList);
+        writeInstallerObject(installerJar, "rules", rules);
+        writeInstallerObject(installerJar, "dynvariables", buildVariableList());
+        writeInstallerObject(installerJar, "dynconditions", dynamicInstallerRequirements);
+        writeInstallerObject(installerJar, "installerrequirements", installerRequirements);
+    }
+
     /**
      * Write manifest in the installer jar.
      *
@@ -454,6 +513,16 @@ public abstract class PackagerBase implements IPackager
      * Write skeleton installer to the installer jar.
      */
     protected final void writeSkeletonInstaller()
+    {
+        writeSkeletonInstaller(installerJar);
+    }
+
+    /**
+     * Write skeleton installer to a jar.
+     *
+     * @param installerJar the installer jar
+     */
+    private void writeSkeletonInstaller(JarOutputStream installerJar)
     {
         sendMsg("Copying the skeleton installer", PackagerListener.MSG_VERBOSE);
         mergeManager.addResourceToMerge("com/izforge/izpack/installer/");
@@ -476,6 +545,10 @@ public abstract class PackagerBase implements IPackager
         {
             case DEFAULT:
                 break;
+            case ZSTD:
+                // decompressed with aircompressor alone
+                mergeManager.addResourceToMerge("io/airlift/compress/");
+                break;
             case XZ:
             case LZMA:
                 mergeManager.addResourceToMerge("org/tukaani/xz");
@@ -492,6 +565,20 @@ public abstract class PackagerBase implements IPackager
      * @throws IOException for any I/O error
      */
     protected final void writeInstallerObject(String entryName, Object object) throws IOException
+    {
+        writeInstallerObject(installerJar, entryName, object);
+    }
+
+    /**
+     * Write an arbitrary object to a jar.
+     *
+     * @param installerJar the installer jar
+     * @param entryName    the entry name, relative to the resources path
+     * @param object       the object to serialize
+     * @throws IOException for any I/O error
+     */
+    private void writeInstallerObject(JarOutputStream installerJar, String entryName, Object object)
+            throws IOException
     {
         installerJar.putNextEntry(new ZipEntry(RESOURCES_PATH + entryName));
         try (ObjectOutputStream out = new ObjectOutputStream(new NoCloseOutputStream(installerJar)))
@@ -509,12 +596,43 @@ public abstract class PackagerBase implements IPackager
         }
     }
 
+    /**
+     * Writes the pack metadata to the installer jar, in the format selected by the compiler data.
+     *
+     * @param installerJar the installer jar
+     * @param packs        the packs
+     * @throws IOException for any I/O error
+     */
+    protected final void writePacksInfo(JarOutputStream installerJar, List<PackInfo> packs) throws IOException
+    {
+        installerJar.putNextEntry(new ZipEntry(PACKSINFO_RESOURCE_PATH));
+        try
+        {
+            new PacksInfoWriter(compilerData.getPacksInfoFormat()).write(packs, installerJar);
+        }
+        finally
+        {
+            installerJar.closeEntry();
+        }
+    }
+
     /**
      * Write the data referenced by URL to installer jar.
      *
      * @throws IOException for any I/O error
      */
     protected final void writeInstallerResources() throws IOException
+    {
+        writeInstallerResources(installerJar);
+    }
+
+    /**
+     * Write the data referenced by URL to a jar.
+     *
+     * @param installerJar the installer jar
+     * @throws IOException for any I/O error
+     */
+    private void writeInstallerResources(JarOutputStream installerJar) throws IOException
     {
         sendMsg("Copying " + installerResourceURLMap.size() + " files into installer");
 
@@ -574,6 +692,21 @@ public abstract class PackagerBase implements IPackager
         }
     }
 
+    /**
+     * Dispatches the number of bytes saved by storing files of a pack as references to the listeners.
+     *
+     * @param pack       the pack name
+     * @param files      the number of files stored as references
+     * @param bytesSaved the number of bytes not written to the pack stream
+     */
+    protected final void sendPackDeduplicated(String pack, int files, long bytesSaved)
+    {
+        if (listener != null)
+        {
+            listener.packagerPackDeduplicated(pack, files, bytesSaved);
+        }
+    }
+
     /**
      * Dispatches a start event to the listeners.
      */
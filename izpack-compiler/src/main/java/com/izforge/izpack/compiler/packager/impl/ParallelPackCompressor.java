@@ -0,0 +1,282 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.compiler.packager.impl;
+
+import com.izforge.izpack.api.data.PackFile;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.io.output.DeferredFileOutputStream;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Compresses pack files on a pool of worker threads.
+ * <p/>
+ * Each file is compressed into its own buffer, which is kept in memory up to a threshold and spilled to a
+ * temporary file beyond it. The buffers are appended to the pack stream by the calling thread in the order the
+ * files were submitted, so the stream offsets and sizes recorded in the {@link PackFile}s are the same as with
+ * sequential compression. The number of files in flight is bounded to limit memory usage.
+ */
+class ParallelPackCompressor implements Closeable
+{
+    private static final Logger logger = Logger.getLogger(ParallelPackCompressor.class.getName());
+
+    /**
+     * Compressed data above this size is spilled to a temporary file.
+     */
+    private static final int MEMORY_THRESHOLD = 4 * 1024 * 1024;
+
+    /**
+     * The file compressor.
+     */
+    private final PackFileCompressor compressor;
+
+    /**
+     * The maximum number of files in flight.
+     */
+    private final int maxPending;
+
+    /**
+     * The worker threads.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * The submitted files, in pack stream order.
+     */
+    private final Deque<Pending> pending = new ArrayDeque<>();
+
+    /**
+     * Constructs a <tt>ParallelPackCompressor</tt>.
+     *
+     * @param compressor the file compressor
+     * @param threads    the number of worker threads
+     */
+    ParallelPackCompressor(PackFileCompressor compressor, int threads)
+    {
+        this.compressor = compressor;
+        this.maxPending = threads * 2;
+        final AtomicInteger count = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "izpack-compress-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Submits a file for compression.
+     * <p/>
+     * If the maximum number of files are in flight, this blocks until the oldest has been written to its stream.
+     *
+     * @param packFile the pack file. Its stream offset and size are updated when the data is written
+     * @param file     the source file
+     * @param out      the pack stream to append the compressed data to
+     * @throws IOException for any I/O error
+     */
+    void submit(final PackFile packFile, final Path file, CountingOutputStream out) throws IOException
+    {
+        while (pending.size() >= maxPending)
+        {
+            writeNext();
+        }
+        Future<DeferredFileOutputStream> future = executor.submit(() -> {
+            DeferredFileOutputStream buffer = DeferredFileOutputStream.builder()
+                    .setThreshold(MEMORY_THRESHOLD)
+                    .setPrefix("izpack-compress")
+                    .setSuffix(".tmp")
+                    .get();
+            boolean compressed = false;
+            try
+            {
+                compressor.compress(packFile, file, buffer);
+                compressed = true;
+            }
+            finally
+            {
+                buffer.close();
+                if (!compressed)
+                {
+                    delete(buffer);
+                }
+            }
+            return buffer;
+        });
+        pending.add(new Pending(packFile, future, out));
+    }
+
+    /**
+     * Determines if a pack file has been submitted but not yet written.
+     *
+     * @param packFile the pack file
+     * @return <tt>true</tt> if the pack file is still in flight
+     */
+    boolean isPending(PackFile packFile)
+    {
+        for (Pending p : pending)
+        {
+            if (p.packFile == packFile)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Determines if a file of the specified length has been submitted but not yet written.
+     *
+     * @param length the uncompressed file length
+     * @return <tt>true</tt> if a file of the length is still in flight
+     */
+    boolean isPending(long length)
+    {
+        for (Pending p : pending)
+        {
+            if (p.packFile.length() == length)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Writes all files in flight to their streams, in submission order.
+     *
+     * @throws IOException for any I/O error
+     */
+    void flush() throws IOException
+    {
+        while (!pending.isEmpty())
+        {
+            writeNext();
+        }
+    }
+
+    /**
+     * Discards any files in flight and stops the worker threads.
+     */
+    @Override
+    public void close()
+    {
+        executor.shutdownNow();
+        for (Pending p : pending)
+        {
+            p.future.cancel(true);
+            try
+            {
+                delete(p.future.get());
+            }
+            catch (Exception ignore)
+            {
+                // nothing to clean up
+            }
+        }
+        pending.clear();
+    }
+
+    /**
+     * Waits for the oldest file in flight and appends its compressed data to its stream.
+     *
+     * @throws IOException for any I/O error
+     */
+    private void writeNext() throws IOException
+    {
+        Pending next = pending.removeFirst();
+        DeferredFileOutputStream buffer;
+        try
+        {
+            buffer = next.future.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while compressing " + next.packFile.getTargetPath());
+        }
+        catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+            {
+                throw (IOException) cause;
+            }
+            throw new IOException("Failed to compress " + next.packFile.getTargetPath(), cause);
+        }
+
+        try
+        {
+            next.packFile.setStreamOffset(next.out.getByteCount());
+            buffer.writeTo(next.out);
+            next.packFile.setSize(buffer.getByteCount());
+        }
+        finally
+        {
+            delete(buffer);
+        }
+        logger.fine("File " + next.packFile.getTargetPath() + " added compressed as "
+                + compressor.getCompression(next.packFile).toName()
+                + " (" + next.packFile.length() + " -> " + next.packFile.size() + " bytes)");
+    }
+
+    /**
+     * Deletes the temporary file of a buffer, if it spilled to disk.
+     *
+     * @param buffer the buffer
+     */
+    private static void delete(DeferredFileOutputStream buffer)
+    {
+        File file = buffer.getFile();
+        if (file != null && !file.delete() && file.exists())
+        {
+            file.deleteOnExit();
+        }
+    }
+
+    /**
+     * A file in flight.
+     */
+    private static class Pending
+    {
+        private final PackFile packFile;
+
+        private final Future<DeferredFileOutputStream> future;
+
+        private final CountingOutputStream out;
+
+        Pending(PackFile packFile, Future<DeferredFileOutputStream> future, CountingOutputStream out)
+        {
+            this.packFile = packFile;
+            this.future = future;
+            this.out = out;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.compiler.util.compress;
+
+import com.izforge.izpack.api.data.ArchiveEntrySource;
+import com.izforge.izpack.util.NoCloseInputStream;
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveException;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.compressors.CompressorException;
+import org.apache.commons.compress.compressors.CompressorStreamFactory;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Reads the content of archive entries, for packs that stream archive content instead of extracting it.
+ * <p/>
+ * An archive is kept open between reads, so entries requested in archive order are read in a single pass.
+ * Requesting an entry before the current position reopens the archive.
+ */
+public class ArchiveEntryReader implements Closeable
+{
+    private static final Logger logger = Logger.getLogger(ArchiveEntryReader.class.getName());
+
+    /**
+     * The open archives.
+     */
+    private final Map<File, Cursor> cursors = new HashMap<File, Cursor>();
+
+    /**
+     * Returns a stream to read the content of an archive entry.
+     * <p/>
+     * The stream is only valid until the next entry is opened, and doesn't need to be closed.
+     *
+     * @param source the archive entry
+     * @return the entry content
+     * @throws IOException if the archive cannot be read, or no longer contains the entry
+     */
+    public InputStream open(ArchiveEntrySource source) throws IOException
+    {
+        File archive = source.getArchive();
+        Cursor cursor = cursors.get(archive);
+        if (cursor != null && cursor.index >= source.getIndex())
+        {
+            logger.fine("Reopening archive " + archive + " to read " + source.getName());
+            cursors.remove(archive);
+            cursor.close();
+            cursor = null;
+        }
+        if (cursor == null)
+        {
+            cursor = new Cursor(archive);
+            cursors.put(archive, cursor);
+        }
+
+        ArchiveEntry entry = null;
+        while (cursor.index < source.getIndex())
+        {
+            entry = cursor.archiveInputStream.getNextEntry();
+            if (entry == null)
+            {
+                throw new IOException("Entry " + source.getName() + " not found in archive " + archive);
+            }
+            cursor.index++;
+        }
+        if (!source.getName().equals(entry.getName()))
+        {
+            throw new IOException("Archive " + archive + " has changed: expected entry " + source.getName()
+                                          + " but found " + entry.getName());
+        }
+        return new NoCloseInputStream(cursor.archiveInputStream);
+    }
+
+    /**
+     * Closes all open archives.
+     */
+    @Override
+    public void close()
+    {
+        for (Cursor cursor : cursors.values())
+        {
+            cursor.close();
+        }
+        cursors.clear();
+    }
+
+    /**
+     * Opens an archive, decompressing it if it is a compressed archive such as a <em>tar.gz</em>.
+     *
+     * @param archive the archive
+     * @param in      the archive stream
+     * @return the archive input stream
+     * @throws ArchiveException if the file isn't an archive
+     */
+    private static ArchiveInputStream openArchive(File archive, InputStream in) throws ArchiveException
+    {
+        InputStream uncompressedInputStream;
+        try
+        {
+            uncompressedInputStream = IOUtils.buffer(new CompressorStreamFactory().createCompressorInputStream(in));
+        }
+        catch (CompressorException e)
+        {
+            // not a compressed archive
+            uncompressedInputStream = in;
+        }
+        return new ArchiveStreamFactory().createArchiveInputStream(archive, uncompressedInputStream);
+    }
+
+    /**
+     * An open archive, positioned at an entry.
+     */
+    private static class Cursor implements Closeable
+    {
+        private final InputStream inputStream;
+
+        private final ArchiveInputStream archiveInputStream;
+
+        /**
+         * The index of the current entry, or {@code -1} if no entry has been read.
+         */
+        private int index = -1;
+
+        Cursor(File archive) throws IOException
+        {
+            inputStream = IOUtils.buffer(FileUtils.openInputStream(archive));
+            try
+            {
+                archiveInputStream = openArchive(archive, inputStream);
+            }
+            catch (ArchiveException e)
+            {
+                IOUtils.closeQuietly(inputStream);
+                throw new IOException("Failed to read archive " + archive + ": " + e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public void close()
+        {
+            IOUtils.closeQuietly(archiveInputStream);
+            IOUtils.closeQuietly(inputStream);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.compiler.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+
+/**
+ * Tests {@link ArchiveFileSet}.
+ */
+public class ArchiveFileSetTest
+{
+
+    @Test
+    public void testPatterns()
+    {
+        ArchiveFileSet fs = new ArchiveFileSet();
+        fs.setIncludes("**/*.jar,bin/");
+        fs.setExcludes("lib/ext/**");
+
+        assertTrue(fs.isIncluded("lib/a.jar"));
+        assertTrue(fs.isIncluded("bin"));
+        assertTrue(fs.isIncluded("bin/run.sh"));
+        assertFalse(fs.isIncluded("lib/a.txt"));
+        assertFalse(fs.isIncluded("lib/ext/b.jar"));
+        assertFalse(fs.isIncluded("lib/CVS/c.jar")); // default excludes
+    }
+
+    @Test
+    public void testBaseDir()
+    {
+        ArchiveFileSet fs = new ArchiveFileSet();
+        fs.setArchiveBaseDir("app-1.0");
+        assertFalse(fs.isBaseDirFound());
+
+        assertFalse(fs.isIncluded("README"));
+        assertNull(fs.getRelativePath("README"));
+        assertFalse(fs.isBaseDirFound());
+
+        assertFalse(fs.isIncluded("app-1.0"));
+        assertTrue(fs.isBaseDirFound());
+        assertTrue(fs.isIncluded("app-1.0/lib/a.jar"));
+        assertEquals("lib/a.jar", fs.getRelativePath("app-1.0/lib/a.jar"));
+        assertFalse(fs.isIncluded("app-1.0.txt"));
+    }
+}
@@ -24,6 +24,7 @@ import com.izforge.izpack.api.data.Blockable;
 import com.izforge.izpack.api.data.OverrideType;
 import com.izforge.izpack.api.data.Pack;
 import com.izforge.izpack.api.data.PackInfo;
+import com.izforge.izpack.core.data.PacksInfoReader;
 import com.izforge.izpack.merge.MergeManager;
 import org.apache.commons.io.IOUtils;
 import org.junit.Assert;
@@ -160,15 +161,13 @@ public abstract class AbstractPackagerTest
 
         InputStream jarEntry = getJarEntry("resources/packs.info", jar);
 
-        ObjectInputStream packStream = new ObjectInputStream(jarEntry);
-        List<PackInfo> packsInfo = (List<PackInfo>) packStream.readObject();
+        List<PackInfo> packsInfo = new PacksInfoReader(jarEntry).getPackInfos();
         assertEquals(1, packsInfo.size());
         Pack pack = packsInfo.get(0).getPack();
         assertEquals(expectedSize, pack.getSize());
         assertEquals(expectedFileSize, fileSize);
 
         IOUtils.closeQuietly(jarEntry);
-        IOUtils.closeQuietly(packStream);
         assertTrue(jar.delete());
     }
 
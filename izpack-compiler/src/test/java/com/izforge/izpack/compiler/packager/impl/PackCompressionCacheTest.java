@@ -0,0 +1,125 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.compiler.packager.impl;
+
+import com.izforge.izpack.api.data.PackCompression;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the {@link PackCompressionCache}.
+ */
+public class PackCompressionCacheTest
+{
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * Verifies that committed entries can be read back, and that hits and misses are counted.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testCopy() throws IOException
+    {
+        PackCompressionCache cache = new PackCompressionCache(temporaryFolder.getRoot().toPath(), 0, 0);
+        byte[] digest = {1, 2, 3};
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(-1, cache.copy(digest, PackCompression.XZ, 9, out));
+
+        put(cache, digest, PackCompression.XZ, 9, new byte[]{4, 5, 6, 7});
+        assertEquals(4, cache.copy(digest, PackCompression.XZ, 9, out));
+        assertArrayEquals(new byte[]{4, 5, 6, 7}, out.toByteArray());
+
+        // the format and level are part of the key
+        assertEquals(-1, cache.copy(digest, PackCompression.GZIP, 9, out));
+        assertEquals(-1, cache.copy(digest, PackCompression.XZ, 1, out));
+
+        assertEquals(1, cache.getHits());
+        assertEquals(3, cache.getMisses());
+        assertEquals(4, cache.getBytesReused());
+    }
+
+    /**
+     * Verifies that entries are evicted by age, and then by size, least recently used first.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testEvict() throws IOException
+    {
+        Path dir = temporaryFolder.getRoot().toPath();
+        PackCompressionCache cache = new PackCompressionCache(dir, 20, 7);
+        long now = System.currentTimeMillis();
+        Path expired = put(cache, new byte[]{1}, PackCompression.XZ, -1, new byte[10]);
+        Path oldest = put(cache, new byte[]{2}, PackCompression.XZ, -1, new byte[10]);
+        Path newest = put(cache, new byte[]{3}, PackCompression.XZ, -1, new byte[10]);
+        Path used = put(cache, new byte[]{4}, PackCompression.XZ, -1, new byte[10]);
+        Files.setLastModifiedTime(expired, FileTime.fromMillis(now - TimeUnit.DAYS.toMillis(8)));
+        Files.setLastModifiedTime(oldest, FileTime.fromMillis(now - TimeUnit.DAYS.toMillis(3)));
+        Files.setLastModifiedTime(newest, FileTime.fromMillis(now - TimeUnit.DAYS.toMillis(1)));
+        Files.setLastModifiedTime(used, FileTime.fromMillis(now - TimeUnit.DAYS.toMillis(2)));
+
+        // using an entry makes it the most recently used
+        cache.copy(new byte[]{4}, PackCompression.XZ, -1, new ByteArrayOutputStream());
+
+        cache.evict();
+        try (Stream<Path> files = Files.walk(dir))
+        {
+            assertEquals(2, files.filter(Files::isRegularFile).count());
+        }
+        assertEquals(-1, cache.copy(new byte[]{1}, PackCompression.XZ, -1, new ByteArrayOutputStream()));
+        assertEquals(-1, cache.copy(new byte[]{2}, PackCompression.XZ, -1, new ByteArrayOutputStream()));
+        assertEquals(10, cache.copy(new byte[]{3}, PackCompression.XZ, -1, new ByteArrayOutputStream()));
+        assertEquals(10, cache.copy(new byte[]{4}, PackCompression.XZ, -1, new ByteArrayOutputStream()));
+    }
+
+    private Path put(PackCompressionCache cache, byte[] digest, PackCompression compression, int level, byte[] data)
+            throws IOException
+    {
+        try (PackCompressionCache.Entry entry = cache.create(digest, compression, level))
+        {
+            entry.getOutputStream().write(data);
+            entry.commit();
+        }
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest)
+        {
+            hex.append(String.format("%02x", b));
+        }
+        Path path = temporaryFolder.getRoot().toPath().resolve(hex.substring(0, 2))
+                .resolve(hex + "-" + compression.toName() + "-" + level + ".bin");
+        assertTrue(Files.exists(path));
+        return path;
+    }
+}
@@ -19,29 +19,60 @@
 
 package com.izforge.izpack.compiler.packager.impl;
 
+import com.izforge.izpack.api.data.ArchiveEntrySource;
 import com.izforge.izpack.api.data.Blockable;
 import com.izforge.izpack.api.data.Info;
 import com.izforge.izpack.api.data.OverrideType;
+import com.izforge.izpack.api.data.PackCompression;
+import com.izforge.izpack.api.data.PackFile;
 import com.izforge.izpack.api.data.PackInfo;
 import com.izforge.izpack.api.rules.RulesEngine;
 import com.izforge.izpack.compiler.data.CompilerData;
+import com.izforge.izpack.compiler.listener.PackagerListener;
 import com.izforge.izpack.compiler.merge.CompilerPathResolver;
 import com.izforge.izpack.compiler.packager.IPackager;
+import com.izforge.izpack.core.data.PacksInfoReader;
 import com.izforge.izpack.merge.MergeManager;
 import com.izforge.izpack.merge.resolve.MergeableResolver;
 import com.izforge.izpack.test.util.TestHelper;
+import com.izforge.izpack.util.StreamSupport;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.Properties;
+import java.util.Random;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
 import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 
 /**
  * Tests the {@link Packager}.
@@ -66,13 +97,466 @@ public class PackagerTest extends AbstractPackagerTest
         CompilerPathResolver pathResolver = mock(CompilerPathResolver.class);
         MergeableResolver resolver = mock(MergeableResolver.class);
         CompilerData data = new CompilerData("", "", "", true);
+        return createPackager(jar, mergeManager, data, new Info(), null);
+    }
+
+    /**
+     * Helper to create a packager that writes to the provided jar.
+     *
+     * @param jar          the jar stream
+     * @param mergeManager the merge manager
+     * @param data         the compiler data
+     * @param info         the installer info
+     * @param listener     the packager listener. May be {@code null}
+     * @return a new packager
+     */
+    private PackagerBase createPackager(JarOutputStream jar, MergeManager mergeManager, CompilerData data, Info info,
+                                        PackagerListener listener)
+    {
+        Properties properties = new Properties();
+        CompilerPathResolver pathResolver = mock(CompilerPathResolver.class);
+        MergeableResolver resolver = mock(MergeableResolver.class);
         RulesEngine rulesEngine = mock(RulesEngine.class);
-        Packager packager = new Packager(properties, null, jar, mergeManager,
+        Packager packager = new Packager(properties, listener, jar, mergeManager,
                                          pathResolver, resolver, data, rulesEngine);
-        packager.setInfo(new Info());
+        packager.setInfo(info);
         return packager;
     }
 
+    /**
+     * Verifies that compressing pack files in parallel produces the same pack stream, offsets and sizes as
+     * sequential compression.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testParallelCompression() throws Exception
+    {
+        File dir = temporaryFolder.newFolder("source");
+        File large = TestHelper.createFile(dir, "large.dat", 1024 * 1024 * 5);
+        File[] files = new File[20];
+        for (int i = 0; i < files.length; ++i)
+        {
+            files[i] = TestHelper.createFile(dir, "f" + i + ".dat", 1024 * (i + 1));
+        }
+
+        File sequential = writeInstaller("sequential.jar", 1, large, files);
+        File parallel = writeInstaller("parallel.jar", 4, large, files);
+
+        List<PackFile> expected = readPackFiles(sequential);
+        List<PackFile> actual = readPackFiles(parallel);
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); ++i)
+        {
+            assertEquals(expected.get(i).getStreamOffset(), actual.get(i).getStreamOffset());
+            assertEquals(expected.get(i).size(), actual.get(i).size());
+            assertEquals(expected.get(i).isBackReference(), actual.get(i).isBackReference());
+        }
+
+        try (JarFile jar1 = new JarFile(sequential); JarFile jar2 = new JarFile(parallel))
+        {
+            String name = PackagerBase.RESOURCES_PATH + "packs/pack-Core";
+            byte[] data1 = IOUtils.toByteArray(jar1.getInputStream(jar1.getEntry(name)));
+            byte[] data2 = IOUtils.toByteArray(jar2.getInputStream(jar2.getEntry(name)));
+            assertArrayEquals(data1, data2);
+        }
+    }
+
+    /**
+     * Verifies that compressed data is reused from the compile cache by a subsequent compilation.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testCompileCache() throws Exception
+    {
+        File dir = temporaryFolder.newFolder("source");
+        File file1 = TestHelper.createFile(dir, "f1.dat", 1024 * 16);
+        File file2 = TestHelper.createFile(dir, "f2.dat", 1024 * 32);
+        File cacheDir = temporaryFolder.newFolder("cache");
+
+        PackagerListener listener1 = mock(PackagerListener.class);
+        File jar1 = writeCachedInstaller(cacheDir, listener1, file1, file2);
+        verify(listener1).packagerMsg("Compile cache: 0 hits, 2 misses, 0 compressed bytes reused",
+                                      PackagerListener.MSG_INFO);
+
+        PackagerListener listener2 = mock(PackagerListener.class);
+        File jar2 = writeCachedInstaller(cacheDir, listener2, file1, file2);
+        List<PackFile> packFiles = readPackFiles(jar2);
+        long reused = packFiles.get(0).size() + packFiles.get(1).size();
+        verify(listener2).packagerMsg("Compile cache: 2 hits, 0 misses, " + reused + " compressed bytes reused",
+                                      PackagerListener.MSG_INFO);
+
+        try (JarFile installer1 = new JarFile(jar1); JarFile installer2 = new JarFile(jar2))
+        {
+            String name = PackagerBase.RESOURCES_PATH + "packs/pack-Core";
+            byte[] data1 = IOUtils.toByteArray(installer1.getInputStream(installer1.getEntry(name)));
+            byte[] data2 = IOUtils.toByteArray(installer2.getInputStream(installer2.getEntry(name)));
+            assertArrayEquals(data1, data2);
+        }
+    }
+
+    private File writeCachedInstaller(File cacheDir, PackagerListener listener, File... files) throws Exception
+    {
+        File installerJar = temporaryFolder.newFile();
+        CompilerData data = new CompilerData("", "", installerJar.getPath(), true);
+        data.setCompileCacheDir(cacheDir.getPath());
+        Info info = new Info();
+        info.setCompressionFormat(PackCompression.XZ);
+
+        JarOutputStream jarOutputStream = new JarOutputStream(new FileOutputStream(installerJar));
+        IPackager packager = createPackager(jarOutputStream, mock(MergeManager.class), data, info, listener);
+        packager.addPack(createPackInfo("Core", files));
+        packager.createInstaller();
+        return installerJar;
+    }
+
+    /**
+     * Verifies that files with identical content from different source paths are stored once, and that the
+     * bytes saved are reported to the listener.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testDuplicateContent() throws Exception
+    {
+        checkDuplicateContent(1);
+        checkDuplicateContent(4);
+    }
+
+    private void checkDuplicateContent(int threads) throws Exception
+    {
+        File dir = temporaryFolder.newFolder();
+        File original = TestHelper.createFile(dir, "original.jar", 1024 * 64);
+        File other = TestHelper.createFile(dir, "other.jar", 1024 * 64);
+        File module = new File(dir, "module");
+        assertTrue(module.mkdir());
+        File copy = new File(module, "original.jar");
+        FileUtils.copyFile(original, copy);
+
+        File installerJar = temporaryFolder.newFile();
+        CompilerData data = new CompilerData("", "", installerJar.getPath(), true);
+        data.setComprThreads(threads);
+        Info info = new Info();
+        info.setCompressionFormat(PackCompression.GZIP);
+        PackagerListener listener = mock(PackagerListener.class);
+
+        JarOutputStream jarOutputStream = new JarOutputStream(new FileOutputStream(installerJar));
+        IPackager packager = createPackager(jarOutputStream, mock(MergeManager.class), data, info, listener);
+        packager.addPack(createPackInfo("Core", original, other));
+        packager.addPack(createPackInfo("Module", copy));
+        packager.createInstaller();
+
+        try (JarFile jar = new JarFile(installerJar);
+             InputStream in = jar.getInputStream(jar.getEntry(PackagerBase.RESOURCES_PATH + "packs.info")))
+        {
+            List<PackInfo> packs = new PacksInfoReader(in).getPackInfos();
+            PackFile stored = packs.get(0).getPackFiles().iterator().next();
+            PackFile linked = packs.get(1).getPackFiles().iterator().next();
+            assertFalse(stored.isBackReference());
+            assertTrue(linked.isBackReference());
+            assertEquals(stored.getStreamOffset(), linked.getStreamOffset());
+            assertEquals(stored.size(), linked.size());
+            assertEquals("packs/pack-Core", linked.getLinkedPackFile().getStreamResourceName());
+            verify(listener).packagerPackDeduplicated("Module", 1, stored.size());
+            verify(listener, never()).packagerPackDeduplicated(eq("Core"), anyInt(), anyLong());
+        }
+    }
+
+    /**
+     * Verifies that the content digest needed by the {@link OverrideType#OVERRIDE_CHANGED changed} override mode is
+     * recorded for back references and files of loose packs.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testChangedOverrideDigests() throws Exception
+    {
+        File dir = temporaryFolder.newFolder();
+        File file = TestHelper.createFile(dir, "file.jar", 1024);
+        File loose = TestHelper.createFile(dir, "loose.jar", 1024);
+
+        File installerJar = temporaryFolder.newFile();
+        JarOutputStream jarOutputStream = new JarOutputStream(new FileOutputStream(installerJar));
+        IPackager packager = createPackager(jarOutputStream, mock(MergeManager.class),
+                                            new CompilerData("", "", installerJar.getPath(), true), new Info(), null);
+        packager.addPack(createPackInfo("Core", false, OverrideType.OVERRIDE_CHANGED, file));
+        packager.addPack(createPackInfo("Module", false, OverrideType.OVERRIDE_CHANGED, file));
+        packager.addPack(createPackInfo("Loose", true, OverrideType.OVERRIDE_CHANGED, loose));
+        packager.createInstaller();
+
+        try (JarFile jar = new JarFile(installerJar);
+             InputStream in = jar.getInputStream(jar.getEntry(PackagerBase.RESOURCES_PATH + "packs.info")))
+        {
+            List<PackInfo> packs = new PacksInfoReader(in).getPackInfos();
+            PackFile stored = packs.get(0).getPackFiles().iterator().next();
+            PackFile linked = packs.get(1).getPackFiles().iterator().next();
+            PackFile looseFile = packs.get(2).getPackFiles().iterator().next();
+            assertTrue(linked.isBackReference());
+            assertArrayEquals(PackFileCompressor.digest(file.toPath()), stored.getDigest());
+            assertArrayEquals(stored.getDigest(), linked.getDigest());
+            assertArrayEquals(PackFileCompressor.digest(loose.toPath()), looseFile.getDigest());
+        }
+    }
+
+    /**
+     * Verifies that archive entries are streamed from the archive into the pack stream, including entries that
+     * are added out of archive order.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testArchiveEntries() throws Exception
+    {
+        File dir = temporaryFolder.newFolder("source");
+        File file = TestHelper.createFile(dir, "file.dat", 1024 * 8);
+        byte[][] content = new byte[3][];
+        File archive = new File(dir, "archive.tar.gz");
+        try (TarArchiveOutputStream out = new TarArchiveOutputStream(
+                new GzipCompressorOutputStream(new FileOutputStream(archive))))
+        {
+            out.putArchiveEntry(new TarArchiveEntry("lib/"));
+            out.closeArchiveEntry();
+            for (int i = 0; i < content.length; ++i)
+            {
+                content[i] = new byte[1024 * (i + 1)];
+                new Random(i).nextBytes(content[i]);
+                TarArchiveEntry entry = new TarArchiveEntry("lib/e" + i + ".dat");
+                entry.setSize(content[i].length);
+                out.putArchiveEntry(entry);
+                out.write(content[i]);
+                out.closeArchiveEntry();
+            }
+        }
+
+        File installerJar = temporaryFolder.newFile();
+        CompilerData data = new CompilerData("", "", installerJar.getPath(), true);
+        data.setComprThreads(4);
+        Info info = new Info();
+        info.setCompressionFormat(PackCompression.GZIP);
+
+        PackInfo packInfo = createPackInfo("Core", file);
+        packInfo.addArchiveEntry(new ArchiveEntrySource(archive, 0, "lib/"), true, 0, 0, "$INSTALL_DIR/lib",
+                                 null, OverrideType.OVERRIDE_TRUE, "", Blockable.BLOCKABLE_NONE,
+                                 Collections.emptyMap(), null);
+        int[] order = {2, 0, 1};
+        for (int i : order)
+        {
+            packInfo.addArchiveEntry(new ArchiveEntrySource(archive, i + 1, "lib/e" + i + ".dat"), false,
+                                     content[i].length, 0, "$INSTALL_DIR/lib/e" + i + ".dat", null,
+                                     OverrideType.OVERRIDE_TRUE, "", Blockable.BLOCKABLE_NONE,
+                                     Collections.emptyMap(), null);
+        }
+
+        JarOutputStream jarOutputStream = new JarOutputStream(new FileOutputStream(installerJar));
+        IPackager packager = createPackager(jarOutputStream, mock(MergeManager.class), data, info, null);
+        packager.addPack(packInfo);
+        packager.createInstaller();
+
+        List<PackFile> packFiles = readPackFiles(installerJar);
+        assertEquals(5, packFiles.size());
+        assertTrue(packFiles.get(1).isDirectory());
+        try (JarFile jar = new JarFile(installerJar))
+        {
+            byte[] pack = IOUtils.toByteArray(
+                    jar.getInputStream(jar.getEntry(PackagerBase.RESOURCES_PATH + "packs/pack-Core")));
+            assertArrayEquals(FileUtils.readFileToByteArray(file), decompress(pack, packFiles.get(0)));
+            for (int i = 0; i < order.length; ++i)
+            {
+                assertArrayEquals(content[order[i]], decompress(pack, packFiles.get(i + 2)));
+            }
+        }
+    }
+
+    /**
+     * Verifies that seekable packs are stored, and that each file can be read by skipping to its offset.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testSeekablePacks() throws Exception
+    {
+        File dir = temporaryFolder.newFolder("source");
+        File[] files = {TestHelper.createFile(dir, "f1.dat", 1024 * 16), TestHelper.createFile(dir, "f2.dat", 1024),
+                        TestHelper.createFile(dir, "f3.dat", 1024 * 64)};
+
+        File installerJar = temporaryFolder.newFile();
+        CompilerData data = new CompilerData("", "", installerJar.getPath(), true);
+        data.setSeekablePacks(true);
+        Info info = new Info();
+        info.setCompressionFormat(PackCompression.GZIP);
+
+        JarOutputStream jarOutputStream = new JarOutputStream(new FileOutputStream(installerJar));
+        IPackager packager = createPackager(jarOutputStream, mock(MergeManager.class), data, info, null);
+        packager.addPack(createPackInfo("Core", files));
+        packager.createInstaller();
+
+        List<PackFile> packFiles = readPackFiles(installerJar);
+        try (JarFile jar = new JarFile(installerJar))
+        {
+            ZipEntry entry = jar.getEntry(PackagerBase.RESOURCES_PATH + "packs/pack-Core");
+            assertEquals(ZipEntry.STORED, entry.getMethod());
+            for (int i = files.length - 1; i >= 0; --i)
+            {
+                PackFile packFile = packFiles.get(i);
+                try (InputStream in = jar.getInputStream(entry))
+                {
+                    assertEquals(packFile.getStreamOffset(), in.skip(packFile.getStreamOffset()));
+                    byte[] compressed = new byte[(int) packFile.size()];
+                    IOUtils.readFully(in, compressed);
+                    packFile.setStreamOffset(0);
+                    assertArrayEquals(FileUtils.readFileToByteArray(files[i]), decompress(compressed, packFile));
+                }
+            }
+        }
+    }
+
+    /**
+     * Verifies that adaptive compression stores incompressible files uncompressed, and records this in their
+     * pack file.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testAdaptiveCompression() throws Exception
+    {
+        File dir = temporaryFolder.newFolder("source");
+        File random = TestHelper.createFile(dir, "random.dat", 1024 * 16);
+        File text = new File(dir, "text.txt");
+        FileUtils.writeStringToFile(text, StringUtils.repeat("compressible text ", 1024), "UTF-8");
+        File image = new File(dir, "image.png");
+        FileUtils.writeStringToFile(image, StringUtils.repeat("compressible image ", 1024), "UTF-8");
+
+        File installerJar = temporaryFolder.newFile();
+        CompilerData data = new CompilerData("", "", installerJar.getPath(), true);
+        data.setComprAdaptive(true);
+        Info info = new Info();
+        info.setCompressionFormat(PackCompression.GZIP);
+
+        JarOutputStream jarOutputStream = new JarOutputStream(new FileOutputStream(installerJar));
+        IPackager packager = createPackager(jarOutputStream, mock(MergeManager.class), data, info, null);
+        packager.addPack(createPackInfo("Core", random, text, image));
+        packager.createInstaller();
+
+        List<PackFile> packFiles = readPackFiles(installerJar);
+        assertEquals(PackCompression.DEFAULT, packFiles.get(0).getCompression());
+        assertNull(packFiles.get(1).getCompression());
+        assertEquals(PackCompression.DEFAULT, packFiles.get(2).getCompression());
+        assertEquals(random.length(), packFiles.get(0).size());
+        assertTrue(packFiles.get(1).size() < text.length());
+        try (JarFile jar = new JarFile(installerJar))
+        {
+            byte[] pack = IOUtils.toByteArray(
+                    jar.getInputStream(jar.getEntry(PackagerBase.RESOURCES_PATH + "packs/pack-Core")));
+            PackFile stored = packFiles.get(2);
+            assertArrayEquals(FileUtils.readFileToByteArray(image),
+                              Arrays.copyOfRange(pack, (int) stored.getStreamOffset(),
+                                                 (int) (stored.getStreamOffset() + stored.size())));
+            assertArrayEquals(FileUtils.readFileToByteArray(text), decompress(pack, packFiles.get(1)));
+        }
+    }
+
+    /**
+     * Verifies that assembling the installer concurrently produces the same entries, in the same order, as
+     * sequential assembly.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testParallelAssembly() throws Exception
+    {
+        File dir = temporaryFolder.newFolder("source");
+        File[] files = {TestHelper.createFile(dir, "f1.dat", 1024 * 64), TestHelper.createFile(dir, "f2.dat", 1024)};
+        File resource = new File(dir, "licence.txt");
+        FileUtils.writeStringToFile(resource, StringUtils.repeat("licence text ", 1024), "UTF-8");
+
+        File sequential = writeInstaller("sequential.jar", false, resource, files);
+        File parallel = writeInstaller("parallel.jar", true, resource, files);
+
+        try (JarFile expected = new JarFile(sequential);
+             JarFile actual = new JarFile(parallel))
+        {
+            List<String> expectedNames = new ArrayList<>();
+            for (JarEntry entry : Collections.list(expected.entries()))
+            {
+                expectedNames.add(entry.getName());
+            }
+            List<String> actualNames = new ArrayList<>();
+            for (JarEntry entry : Collections.list(actual.entries()))
+            {
+                actualNames.add(entry.getName());
+            }
+            assertEquals(expectedNames, actualNames);
+
+            for (String name : Arrays.asList(PackagerBase.RESOURCES_PATH + "packs/pack-Core",
+                                             PackagerBase.RESOURCES_PATH + "licence"))
+            {
+                assertArrayEquals(IOUtils.toByteArray(expected.getInputStream(expected.getEntry(name))),
+                                  IOUtils.toByteArray(actual.getInputStream(actual.getEntry(name))));
+            }
+        }
+        assertEquals(readPackFiles(sequential).size(), readPackFiles(parallel).size());
+    }
+
+    /**
+     * Writes an installer containing a single pack and a resource.
+     */
+    private File writeInstaller(String name, boolean parallel, File resource, File... files) throws Exception
+    {
+        File installerJar = temporaryFolder.newFile(name);
+        CompilerData data = new CompilerData("", "", installerJar.getPath(), true);
+        data.setParallelAssembly(parallel);
+
+        JarOutputStream jarOutputStream = new JarOutputStream(new FileOutputStream(installerJar));
+        IPackager packager = createPackager(jarOutputStream, mock(MergeManager.class), data, new Info(), null);
+        packager.addResource("licence", resource.toURI().toURL());
+        packager.addPack(createPackInfo("Core", files));
+        packager.createInstaller();
+        return installerJar;
+    }
+
+    private byte[] decompress(byte[] pack, PackFile packFile) throws IOException
+    {
+        InputStream in = new ByteArrayInputStream(pack, (int) packFile.getStreamOffset(), (int) packFile.size());
+        return IOUtils.toByteArray(StreamSupport.compressedInput(PackCompression.GZIP, in));
+    }
+
+    /**
+     * Writes an installer containing a single GZIP compressed pack.
+     * <p/>
+     * The large file is added twice, so that the pack contains a back reference.
+     */
+    private File writeInstaller(String name, int threads, File large, File... files) throws Exception
+    {
+        File installerJar = temporaryFolder.newFile(name);
+        CompilerData data = new CompilerData("", "", installerJar.getPath(), true);
+        data.setComprThreads(threads);
+        Info info = new Info();
+        info.setCompressionFormat(PackCompression.GZIP);
+
+        PackInfo packInfo = createPackInfo("Core", files);
+        packInfo.addFile(large.getParentFile(), large, "$INSTALL_DIR/a/" + large.getName(), null,
+                OverrideType.OVERRIDE_TRUE, "", Blockable.BLOCKABLE_NONE, Collections.emptyMap(), "", null);
+        packInfo.addFile(large.getParentFile(), large, "$INSTALL_DIR/b/" + large.getName(), null,
+                OverrideType.OVERRIDE_TRUE, "", Blockable.BLOCKABLE_NONE, Collections.emptyMap(), "", null);
+
+        JarOutputStream jarOutputStream = new JarOutputStream(new FileOutputStream(installerJar));
+        IPackager packager = createPackager(jarOutputStream, mock(MergeManager.class), data, info, null);
+        packager.addPack(packInfo);
+        packager.createInstaller();
+        return installerJar;
+    }
+
+    private List<PackFile> readPackFiles(File installerJar) throws Exception
+    {
+        try (JarFile jar = new JarFile(installerJar);
+             InputStream in = jar.getInputStream(jar.getEntry(PackagerBase.RESOURCES_PATH + "packs.info")))
+        {
+            List<PackInfo> packs = new PacksInfoReader(in).getPackInfos();
+            return new ArrayList<>(packs.get(0).getPackFiles());
+        }
+    }
+
     /*
      * Measures how long (in ms) it takes the packager to create an installer and
      * prints the result to standard output.
@@ -103,11 +587,17 @@ public class PackagerTest extends AbstractPackagerTest
 
     private PackInfo createPackInfo(String name, File... files) throws IOException {
 
-        PackInfo packInfo = new PackInfo(name, null, "", true, false, null, true, calculateTotalSize(files));
+        return createPackInfo(name, false, OverrideType.OVERRIDE_TRUE, files);
+    }
+
+    private PackInfo createPackInfo(String name, boolean loose, OverrideType override, File... files)
+            throws IOException
+    {
+        PackInfo packInfo = new PackInfo(name, null, "", true, loose, null, true, calculateTotalSize(files));
         for (File file : files)
         {
             packInfo.addFile(file.getParentFile(), file, "$INSTALL_DIR/" + file.getName(), null,
-                    OverrideType.OVERRIDE_TRUE, "", Blockable.BLOCKABLE_NONE, Collections.emptyMap(),
+                    override, "", Blockable.BLOCKABLE_NONE, Collections.emptyMap(),
                     "", null);
         }
         return packInfo;
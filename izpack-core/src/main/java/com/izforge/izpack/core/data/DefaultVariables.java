@@ -23,15 +23,20 @@ package com.izforge.izpack.core.data;
 
 import com.izforge.izpack.api.data.DynamicVariable;
 import com.izforge.izpack.api.data.Overrides;
+import com.izforge.izpack.api.data.VariableListener;
 import com.izforge.izpack.api.data.Variables;
 import com.izforge.izpack.api.exception.InstallerException;
 import com.izforge.izpack.api.exception.IzPackException;
 import com.izforge.izpack.api.rules.RulesEngine;
 import com.izforge.izpack.api.substitutor.VariableSubstitutor;
 import com.izforge.izpack.core.substitutor.VariableSubstitutorImpl;
+import com.izforge.izpack.core.variable.PlainValue;
 import com.izforge.izpack.core.variable.utils.ValueUtils;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -49,6 +54,21 @@ public class DefaultVariables implements Variables
      */
     private final Properties properties;
 
+    /**
+     * The version of the variables.
+     */
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * The version of each variable that has been changed.
+     */
+    private final Map<String, Long> versions = new ConcurrentHashMap<String, Long>();
+
+    /**
+     * The listeners notified of changes.
+     */
+    private final List<VariableListener> listeners = new CopyOnWriteArrayList<VariableListener>();
+
     /**
      * The forced override values.
      */
@@ -74,6 +94,17 @@ public class DefaultVariables implements Variables
      */
     private transient Map<String, Deque<Object>> blockedVariableNameStacks = new HashMap<String, Deque<Object>>();
 
+    /**
+     * The last resolved value of each dynamic variable, with the values of the variables it was resolved from.
+     */
+    private final Map<DynamicVariable, Evaluation> evaluations = new IdentityHashMap<DynamicVariable, Evaluation>();
+
+    /**
+     * Collects the names of the variables read while a dynamic variable is evaluated, or {@code null} if no
+     * variable is being evaluated.
+     */
+    private volatile Set<String> reads;
+
 
     /**
      * The logger.
@@ -121,21 +152,92 @@ public class DefaultVariables implements Variables
     {
         // Prevent from re-applying when pressing Previous button in panel
         // but preserve user values made at the panel where Previous has been pressed
+        String override = null;
         if (overrides != null)
         {
-            overrides.remove(name);
+            override = overrides.remove(name);
         }
 
+        Object previous;
         if (value != null)
         {
-            properties.setProperty(name, value);
+            previous = properties.setProperty(name, value);
             logger.fine("Dynamic variable '" + name + "' set to '" + value + "'");
         }
         else
         {
-            properties.remove(name);
+            previous = properties.remove(name);
             logger.fine("Dynamic variable '" + name + "' unset");
         }
+        if (override != null)
+        {
+            // the override was returned in place of the previous value
+            previous = override;
+        }
+        if (value == null ? previous != null : !value.equals(previous))
+        {
+            changed(name, (previous instanceof String) ? (String) previous : null, value);
+        }
+    }
+
+    /**
+     * Returns the version of the variables.
+     * <p/>
+     * The version is incremented each time a variable is set to a different value, or unset, so a cache of values
+     * derived from variables is current as long as the version is unchanged.
+     *
+     * @return the version of the variables
+     */
+    @Override
+    public long getVersion()
+    {
+        return version.get();
+    }
+
+    /**
+     * Returns the version of a variable, i.e. the {@link #getVersion() version of the variables} following the last
+     * change to the variable.
+     *
+     * <p/>
+     * As override values may refer to other variables, a variable with an override is considered changed on each
+     * change to the variables.
+     *
+     * @param name the variable name
+     * @return the version of the variable, or {@code 0} if it has not been changed
+     */
+    @Override
+    public long getVersion(String name)
+    {
+        if (containsOverride(name))
+        {
+            return version.get();
+        }
+        Long result = versions.get(name);
+        return (result != null) ? result : 0;
+    }
+
+    /**
+     * Registers a listener to be notified when variables change.
+     * <p/>
+     * Listeners are notified on the thread changing the variable.
+     *
+     * @param listener the listener
+     */
+    @Override
+    public void addListener(VariableListener listener)
+    {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener.
+     *
+     * @param listener the listener
+     */
+    @Override
+    public void removeListener(VariableListener listener)
+    {
+        listeners.remove(listener);
     }
 
     /**
@@ -147,6 +249,11 @@ public class DefaultVariables implements Variables
     @Override
     public String get(String name)
     {
+        Set<String> names = reads;
+        if (names != null)
+        {
+            names.add(name);
+        }
         return containsOverride(name) ? overrides.fetch(name) : properties.getProperty(name);
     }
 
@@ -159,6 +266,11 @@ public class DefaultVariables implements Variables
     @Override
     public String get(String name, String defaultValue)
     {
+        Set<String> names = reads;
+        if (names != null)
+        {
+            names.add(name);
+        }
         final String value = properties.getProperty(name, defaultValue);
         return containsOverride(name) ? overrides.fetch(name, value) : value;
     }
@@ -303,8 +415,26 @@ public class DefaultVariables implements Variables
         dynamicVariables.add(variable);
     }
 
+    /**
+     * Discards the values remembered from previous refreshes, so that all dynamic variables are evaluated again on
+     * the next {@link #refresh()}.
+     * <p/>
+     * Only {@link PlainValue plain} values are remembered, and they are evaluated again when the variables they refer
+     * to change. This may be invoked when a value may have changed in other ways, e.g. through custom filters.
+     */
+    public synchronized void invalidateDynamicVariables()
+    {
+        evaluations.clear();
+    }
+
     /**
      * Refreshes dynamic variables.
+     * <p/>
+     * Dynamic variables are refreshed in the order they are defined, which the compiler sorts so that variables are
+     * refreshed after those they refer to. The value of a variable with a {@link PlainValue plain} value is only
+     * evaluated again if a variable it refers to, or a variable read while it was last evaluated, has changed since.
+     * Other values, which read processes, the registry, the environment or files, are evaluated on each refresh, as
+     * are conditions, since they may depend on more than variables.
      *
      * @throws InstallerException if variables cannot be refreshed
      */
@@ -326,19 +456,7 @@ public class DefaultVariables implements Variables
                 {
                     if (!(variable.isCheckonce() && variable.isChecked()))
                     {
-                        String newValue;
-                        try
-                        {
-                            newValue = variable.evaluate(replacer);
-                        }
-                        catch (IzPackException exception)
-                        {
-                            throw exception;
-                        }
-                        catch (Exception exception)
-                        {
-                            throw new IzPackException("Failed to refresh dynamic variable (" + name + ")", exception);
-                        }
+                        String newValue = evaluate(variable);
                         if (newValue == null)
                         {
                             if (variable.isAutoUnset())
@@ -403,8 +521,100 @@ public class DefaultVariables implements Variables
         }
     }
 
+    /**
+     * Versions a changed variable, and notifies listeners.
+     *
+     * @param name     the variable name
+     * @param oldValue the previous value. May be {@code null}
+     * @param newValue the new value. May be {@code null}
+     */
+    private void changed(String name, String oldValue, String newValue)
+    {
+        long current = version.incrementAndGet();
+        versions.put(name, current);
+        for (VariableListener listener : listeners)
+        {
+            listener.variableChanged(name, oldValue, newValue, current);
+        }
+    }
+
+    /**
+     * Evaluates a dynamic variable, reusing its last value if the variables it depends on are unchanged.
+     *
+     * @param variable the variable
+     * @return the variable value. May be {@code null}
+     * @throws IzPackException if the variable cannot be evaluated
+     */
+    private String evaluate(DynamicVariable variable)
+    {
+        Evaluation evaluation = evaluations.get(variable);
+        if (evaluation != null && evaluation.isCurrent(this))
+        {
+            return evaluation.value;
+        }
+
+        String value;
+        Set<String> names = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        reads = names;
+        try
+        {
+            value = variable.evaluate(replacer);
+        }
+        catch (IzPackException exception)
+        {
+            throw exception;
+        }
+        catch (Exception exception)
+        {
+            throw new IzPackException("Failed to refresh dynamic variable (" + variable.getName() + ")", exception);
+        }
+        finally
+        {
+            reads = null;
+        }
+
+        if (value == null || ValueUtils.isUnresolved(value) || !isRemembered(variable))
+        {
+            // evaluate again until resolved, or on each refresh if not only derived from variables
+            evaluations.remove(variable);
+        }
+        else
+        {
+            names.addAll(variable.getVarRefs(rules));
+            Map<String, String> inputs = new HashMap<String, String>();
+            for (String name : names)
+            {
+                inputs.put(name, get(name));
+            }
+            evaluations.put(variable, new Evaluation(value, inputs));
+        }
+        return value;
+    }
+
+    /**
+     * Determines if the value of a dynamic variable may be remembered until the variables it was evaluated from
+     * change.
+     * <p/>
+     * This is only the case for {@link PlainValue plain} values that don't refer to system properties, as their
+     * value is derived from variables alone. Other values may change while no variable does.
+     *
+     * @param variable the variable
+     * @return {@code true} if the value may be remembered
+     */
+    private static boolean isRemembered(DynamicVariable variable)
+    {
+        if (!(variable.getValue() instanceof PlainValue))
+        {
+            return false;
+        }
+        String value = ((PlainValue) variable.getValue()).getValue();
+        return value == null || !(value.contains("${SYSTEM[") || value.contains("${SYSTEM_"));
+    }
+
     /**
      * Exposes the variables as properties.
+     * <p/>
+     * Changes made directly to the properties are not versioned, nor notified to listeners.
      *
      * @return the variables
      */
@@ -424,6 +634,7 @@ public class DefaultVariables implements Variables
     public void setOverrides(Overrides overrides)
     {
         this.overrides = overrides;
+        version.incrementAndGet();
     }
 
     @Override
@@ -489,4 +700,39 @@ public class DefaultVariables implements Variables
         }
         return blockedVariableNames;
     }
+
+    /**
+     * The value of a dynamic variable, and the values of the variables it was evaluated from.
+     */
+    private static class Evaluation
+    {
+        private final String value;
+
+        private final Map<String, String> inputs;
+
+        Evaluation(String value, Map<String, String> inputs)
+        {
+            this.value = value;
+            this.inputs = inputs;
+        }
+
+        /**
+         * Determines if the variables the value was evaluated from are unchanged.
+         *
+         * @param variables the variables
+         * @return {@code true} if the value is current
+         */
+        boolean isCurrent(Variables variables)
+        {
+            for (Map.Entry<String, String> entry : inputs.entrySet())
+            {
+                String value = variables.get(entry.getKey());
+                if (value == null ? entry.getValue() != null : !value.equals(entry.getValue()))
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
 }
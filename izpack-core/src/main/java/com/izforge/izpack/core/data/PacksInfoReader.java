@@ -0,0 +1,807 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.core.data;
+
+import com.izforge.izpack.api.data.Blockable;
+import com.izforge.izpack.api.data.ExecutableFile;
+import com.izforge.izpack.api.data.OverrideType;
+import com.izforge.izpack.api.data.Pack;
+import com.izforge.izpack.api.data.PackCompression;
+import com.izforge.izpack.api.data.PackFile;
+import com.izforge.izpack.api.data.PackInfo;
+import com.izforge.izpack.api.data.PacksInfoFormat;
+import com.izforge.izpack.api.data.ParsableFile;
+import com.izforge.izpack.api.data.UpdateCheck;
+import com.izforge.izpack.api.data.XPackFile;
+import com.izforge.izpack.api.data.binding.OsModel;
+import com.izforge.izpack.api.substitutor.SubstitutionType;
+import org.apache.commons.io.IOUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamConstants;
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.izforge.izpack.core.data.PacksInfoWriter.*;
+
+/**
+ * Reads the pack metadata of an installer, i.e. the <em>packs.info</em> resource.
+ * <p/>
+ * Both {@link PacksInfoFormat formats} are supported; the format is detected from the content.
+ * <p/>
+ * For the {@link PacksInfoFormat#BINARY binary} format, packs are decoded on demand: {@link #getPack(int)} only
+ * decodes the pack header, and the files, parsables, executables and update checks of a {@link PackInfo} returned
+ * by {@link #getPackInfo(int)} are decoded when first accessed.
+ *
+ * @see PacksInfoWriter
+ */
+public class PacksInfoReader
+{
+    /**
+     * The format of the metadata.
+     */
+    private final PacksInfoFormat format;
+
+    /**
+     * The packs. Elements are {@code null} until decoded.
+     */
+    private final PackInfo[] packs;
+
+    /**
+     * The binary metadata, or {@code null} if the metadata is serialized.
+     */
+    private final byte[] data;
+
+    /**
+     * The offsets of the strings in the string table.
+     */
+    private final int[] stringOffsets;
+
+    /**
+     * The lengths of the strings in the string table, in bytes.
+     */
+    private final int[] stringLengths;
+
+    /**
+     * The decoded strings. Elements are {@code null} until decoded.
+     */
+    private final String[] strings;
+
+    /**
+     * The offsets of the pack headers and bodies.
+     */
+    private final int[] packOffsets;
+
+    /**
+     * Constructs a <tt>PacksInfoReader</tt>.
+     *
+     * @param in the stream to read the metadata from. This is not closed
+     * @throws IOException for any I/O error, or if the metadata is invalid
+     */
+    public PacksInfoReader(InputStream in) throws IOException
+    {
+        byte[] content = IOUtils.toByteArray(in);
+        if (content.length >= 2 && (short) ((content[0] << 8) | (content[1] & 0xFF))
+                == ObjectStreamConstants.STREAM_MAGIC)
+        {
+            format = PacksInfoFormat.SERIALIZED;
+            List<PackInfo> list = deserialize(content);
+            packs = list.toArray(new PackInfo[list.size()]);
+            data = null;
+            stringOffsets = null;
+            stringLengths = null;
+            strings = null;
+            packOffsets = null;
+            return;
+        }
+
+        format = PacksInfoFormat.BINARY;
+        Decoder decoder = new Decoder(content, 0);
+        int magic = (content.length >= 4) ? decoder.readFixed(4) : 0;
+        if (magic != MAGIC)
+        {
+            throw new StreamCorruptedException("Invalid pack metadata");
+        }
+        int version = decoder.readFixed(2);
+        if (version != VERSION)
+        {
+            throw new StreamCorruptedException("Unsupported pack metadata version: " + version);
+        }
+
+        int stringCount = decoder.readInt();
+        stringOffsets = new int[stringCount];
+        stringLengths = new int[stringCount];
+        strings = new String[stringCount];
+        for (int i = 0; i < stringCount; i++)
+        {
+            stringLengths[i] = decoder.readInt();
+            stringOffsets[i] = decoder.position;
+            decoder.skip(stringLengths[i]);
+        }
+
+        int packCount = decoder.readInt();
+        packs = new PackInfo[packCount];
+        packOffsets = new int[packCount * 2];
+        for (int i = 0; i < packOffsets.length; i++)
+        {
+            packOffsets[i] = decoder.readInt();
+        }
+        int dataLength = decoder.readInt();
+        int dataOffset = decoder.position;
+        if (dataOffset + dataLength != content.length)
+        {
+            throw new StreamCorruptedException("Invalid pack metadata length");
+        }
+        for (int i = 0; i < packOffsets.length; i++)
+        {
+            packOffsets[i] += dataOffset;
+        }
+        data = content;
+    }
+
+    /**
+     * Returns the format of the metadata.
+     *
+     * @return the format
+     */
+    public PacksInfoFormat getFormat()
+    {
+        return format;
+    }
+
+    /**
+     * Returns the number of packs.
+     *
+     * @return the number of packs
+     */
+    public int size()
+    {
+        return packs.length;
+    }
+
+    /**
+     * Returns a pack.
+     *
+     * @param index the pack index
+     * @return the pack
+     * @throws IOException if the metadata is invalid
+     */
+    public Pack getPack(int index) throws IOException
+    {
+        return getPackInfo(index).getPack();
+    }
+
+    /**
+     * Returns all packs.
+     *
+     * @return the packs, in installation order
+     * @throws IOException if the metadata is invalid
+     */
+    public List<Pack> getPacks() throws IOException
+    {
+        List<Pack> result = new ArrayList<Pack>(packs.length);
+        for (int i = 0; i < packs.length; i++)
+        {
+            result.add(getPack(i));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the metadata of a pack.
+     * <p/>
+     * The pack files, parsables, executables and update checks are decoded when first accessed. If the metadata
+     * is invalid, this throws an {@link IllegalStateException}.
+     *
+     * @param index the pack index
+     * @return the pack metadata
+     * @throws IOException if the metadata is invalid
+     */
+    public synchronized PackInfo getPackInfo(int index) throws IOException
+    {
+        PackInfo result = packs[index];
+        if (result == null)
+        {
+            Pack pack = readPack(new Decoder(data, packOffsets[index * 2]));
+            result = new LazyPackInfo(pack, this, index);
+            packs[index] = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the metadata of all packs.
+     * <p/>
+     * Packs are decoded as they are accessed.
+     *
+     * @return the pack metadata, in installation order
+     */
+    public List<PackInfo> getPackInfos()
+    {
+        return new AbstractList<PackInfo>()
+        {
+            @Override
+            public PackInfo get(int index)
+            {
+                try
+                {
+                    return getPackInfo(index);
+                }
+                catch (IOException exception)
+                {
+                    throw new IllegalStateException("Failed to read pack metadata", exception);
+                }
+            }
+
+            @Override
+            public int size()
+            {
+                return packs.length;
+            }
+        };
+    }
+
+    /**
+     * Deserializes metadata written in the {@link PacksInfoFormat#SERIALIZED serialized} format.
+     *
+     * @param content the metadata
+     * @return the packs
+     * @throws IOException for any I/O error, or if the metadata is invalid
+     */
+    @SuppressWarnings("unchecked")
+    private static List<PackInfo> deserialize(byte[] content) throws IOException
+    {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(content)))
+        {
+            return (List<PackInfo>) in.readObject();
+        }
+        catch (ClassNotFoundException exception)
+        {
+            throw new IOException("Failed to read pack metadata", exception);
+        }
+    }
+
+    /**
+     * Decodes a pack header.
+     *
+     * @param decoder the decoder
+     * @return the pack
+     * @throws IOException if the metadata is invalid
+     */
+    private Pack readPack(Decoder decoder) throws IOException
+    {
+        int flags = decoder.readInt();
+        String name = decoder.readString();
+        String langPackId = decoder.readString();
+        String description = decoder.readString();
+        String excludeGroup = decoder.readString();
+        String group = decoder.readString();
+        String condition = decoder.readString();
+        String parent = decoder.readString();
+        String imageId = decoder.readString();
+        long size = decoder.readLong();
+        long fileSize = decoder.readLong();
+        List<OsModel> osConstraints = readOsModels(decoder);
+        List<String> dependencies = decoder.readStrings();
+
+        Pack pack = new Pack(name, langPackId, description, osConstraints, dependencies,
+                             (flags & PACK_REQUIRED) != 0, (flags & PACK_PRESELECTED) != 0,
+                             (flags & PACK_LOOSE) != 0, excludeGroup, (flags & PACK_UNINSTALL) != 0, size);
+        pack.setHidden((flags & PACK_HIDDEN) != 0);
+        pack.setGroup(group);
+        pack.setCondition(condition);
+        pack.setParent(parent);
+        pack.setImageId(imageId);
+        pack.setFileSize(fileSize);
+        pack.setDependants(decoder.readStrings());
+        List<String> installGroups = decoder.readStrings();
+        if (installGroups != null)
+        {
+            pack.getInstallGroups().addAll(installGroups);
+        }
+        List<String> children = decoder.readStrings();
+        if (children != null)
+        {
+            for (String child : children)
+            {
+                pack.addChild(child);
+            }
+        }
+        List<String> validators = decoder.readStrings();
+        if (validators != null)
+        {
+            for (String validator : validators)
+            {
+                pack.addValidator(validator);
+            }
+        }
+        for (Map.Entry<String, String> entry : decoder.readStringMap().entrySet())
+        {
+            pack.setOnSelect(entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<String, String> entry : decoder.readStringMap().entrySet())
+        {
+            pack.setOnDeselect(entry.getKey(), entry.getValue());
+        }
+        return pack;
+    }
+
+    /**
+     * Decodes the files, parsables, executables and update checks of a pack.
+     *
+     * @param index    the pack index
+     * @param packInfo the pack metadata to populate
+     * @throws IOException if the metadata is invalid
+     */
+    private void readBody(int index, LazyPackInfo packInfo) throws IOException
+    {
+        Decoder decoder = new Decoder(data, packOffsets[index * 2 + 1]);
+        int fileCount = decoder.readInt();
+        Map<PackFile, File> files = packInfo.getLoadedFiles();
+        for (int i = 0; i < fileCount; i++)
+        {
+            PackFile file = readFile(decoder);
+            String path = decoder.readPath();
+            files.put(file, (path != null) ? new File(path) : null);
+        }
+
+        int parsableCount = decoder.readInt();
+        for (int i = 0; i < parsableCount; i++)
+        {
+            String path = decoder.readString();
+            String type = decoder.readString();
+            String encoding = decoder.readString();
+            String condition = decoder.readString();
+            ParsableFile parsable = new ParsableFile(path, (type != null) ? SubstitutionType.valueOf(type) : null,
+                                                     encoding, readOsModels(decoder));
+            parsable.setCondition(condition);
+            packInfo.getLoadedParsables().add(parsable);
+        }
+
+        int executableCount = decoder.readInt();
+        for (int i = 0; i < executableCount; i++)
+        {
+            String path = decoder.readString();
+            int executionStage = decoder.readInt();
+            String mainClass = decoder.readString();
+            int type = decoder.readInt();
+            int onFailure = decoder.readInt();
+            boolean keepFile = decoder.readInt() != 0;
+            String condition = decoder.readString();
+            List<String> argList = decoder.readStrings();
+            List<OsModel> osList = readOsModels(decoder);
+            ExecutableFile executable = new ExecutableFile(path, type, mainClass, executionStage, onFailure, argList,
+                                                           osList, keepFile);
+            executable.setCondition(condition);
+            packInfo.getLoadedExecutables().add(executable);
+        }
+
+        int updateCheckCount = decoder.readInt();
+        for (int i = 0; i < updateCheckCount; i++)
+        {
+            ArrayList<String> includes = decoder.readStrings();
+            ArrayList<String> excludes = decoder.readStrings();
+            packInfo.getLoadedUpdateChecks().add(new UpdateCheck(includes, excludes));
+        }
+    }
+
+    /**
+     * Decodes a pack file.
+     *
+     * @param decoder the decoder
+     * @return the pack file
+     * @throws IOException if the metadata is invalid
+     */
+    private PackFile readFile(Decoder decoder) throws IOException
+    {
+        int flags = decoder.readInt();
+        String file = decoder.readPath();
+        String relativePath = decoder.readPath();
+        String targetPath = decoder.readPath();
+        long length = decoder.readLong();
+        long size = decoder.readLong();
+        long lastModified = decoder.readLong();
+        String override = decoder.readString();
+        String overrideRenameTo = decoder.readString();
+        String blockable = decoder.readString();
+        String streamResourceName = decoder.readString();
+        long streamOffset = decoder.readLong();
+        String condition = decoder.readString();
+        List<OsModel> osConstraints = readOsModels(decoder);
+        Map<String, String> pack200Properties = null;
+        if ((flags & FILE_PACK200) != 0)
+        {
+            pack200Properties = decoder.readStringMap();
+        }
+        byte[] digest = null;
+        if ((flags & FILE_DIGEST) != 0)
+        {
+            digest = decoder.readByteArray();
+        }
+        Map additionals = null;
+        if ((flags & FILE_ADDITIONALS) != 0)
+        {
+            additionals = (Map) deserializeObject(decoder.readByteArray());
+        }
+        String compression = null;
+        if ((flags & FILE_COMPRESSION) != 0)
+        {
+            compression = decoder.readString();
+        }
+
+        PackFile result = new PackFile((file != null) ? new File(file) : null, relativePath, targetPath,
+                                       (flags & FILE_DIRECTORY) != 0, length, lastModified, osConstraints,
+                                       (override != null) ? OverrideType.valueOf(override) : null, overrideRenameTo,
+                                       (blockable != null) ? Blockable.valueOf(blockable) : null, additionals,
+                                       pack200Properties);
+        if ((flags & FILE_XPACK) != 0)
+        {
+            XPackFile xPackFile = new XPackFile(result);
+            xPackFile.setArchiveFilePosition(decoder.readLong());
+            result = xPackFile;
+        }
+        if ((flags & FILE_LINKED) != 0)
+        {
+            result.setLinkedPackFile(readFile(decoder));
+        }
+        result.setCondition(condition);
+        result.setSize(size);
+        result.setStreamResourceName(streamResourceName);
+        result.setStreamOffset(streamOffset);
+        result.setDigest(digest);
+        if (compression != null)
+        {
+            result.setCompression(PackCompression.valueOf(compression));
+        }
+        return result;
+    }
+
+    /**
+     * Decodes a list of OS constraints.
+     *
+     * @param decoder the decoder
+     * @return the OS constraints. May be {@code null}
+     * @throws IOException if the metadata is invalid
+     */
+    private List<OsModel> readOsModels(Decoder decoder) throws IOException
+    {
+        int count = decoder.readInt();
+        if (count == 0)
+        {
+            return null;
+        }
+        List<OsModel> result = new ArrayList<OsModel>(count - 1);
+        for (int i = 1; i < count; i++)
+        {
+            String arch = decoder.readString();
+            String family = decoder.readString();
+            String jre = decoder.readString();
+            String name = decoder.readString();
+            String version = decoder.readString();
+            result.add(new OsModel(arch, family, jre, name, version));
+        }
+        return result;
+    }
+
+    /**
+     * Deserializes an object embedded in the binary metadata.
+     *
+     * @param bytes the serialized object
+     * @return the object
+     * @throws IOException if the object cannot be deserialized
+     */
+    private static Object deserializeObject(byte[] bytes) throws IOException
+    {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes)))
+        {
+            return in.readObject();
+        }
+        catch (ClassNotFoundException exception)
+        {
+            throw new IOException("Failed to read pack metadata", exception);
+        }
+    }
+
+    /**
+     * Returns a string from the string table, decoding it on first use.
+     *
+     * @param index the string index
+     * @return the string
+     * @throws IOException if the index is invalid
+     */
+    private String getString(int index) throws IOException
+    {
+        if (index < 0 || index >= strings.length)
+        {
+            throw new StreamCorruptedException("Invalid pack metadata string: " + index);
+        }
+        String result = strings[index];
+        if (result == null)
+        {
+            result = new String(data, stringOffsets[index], stringLengths[index], StandardCharsets.UTF_8);
+            strings[index] = result;
+        }
+        return result;
+    }
+
+    /**
+     * Pack metadata whose files, parsables, executables and update checks are decoded on first access.
+     */
+    private static class LazyPackInfo extends PackInfo
+    {
+        private static final long serialVersionUID = -5212839472536413066L;
+
+        /**
+         * The reader to decode the pack from, or {@code null} once decoded.
+         */
+        private transient PacksInfoReader reader;
+
+        /**
+         * The pack index.
+         */
+        private final int index;
+
+        LazyPackInfo(Pack pack, PacksInfoReader reader, int index)
+        {
+            super(pack);
+            this.reader = reader;
+            this.index = index;
+        }
+
+        @Override
+        public Map<PackFile, File> getPackFilesMap()
+        {
+            load();
+            return super.getPackFilesMap();
+        }
+
+        @Override
+        public Set<PackFile> getPackFiles()
+        {
+            load();
+            return super.getPackFiles();
+        }
+
+        @Override
+        public File getFile(PackFile packFile)
+        {
+            load();
+            return super.getFile(packFile);
+        }
+
+        @Override
+        public List<ParsableFile> getParsables()
+        {
+            load();
+            return super.getParsables();
+        }
+
+        @Override
+        public List<ExecutableFile> getExecutables()
+        {
+            load();
+            return super.getExecutables();
+        }
+
+        @Override
+        public List<UpdateCheck> getUpdateChecks()
+        {
+            load();
+            return super.getUpdateChecks();
+        }
+
+        Map<PackFile, File> getLoadedFiles()
+        {
+            return super.getPackFilesMap();
+        }
+
+        List<ParsableFile> getLoadedParsables()
+        {
+            return super.getParsables();
+        }
+
+        List<ExecutableFile> getLoadedExecutables()
+        {
+            return super.getExecutables();
+        }
+
+        List<UpdateCheck> getLoadedUpdateChecks()
+        {
+            return super.getUpdateChecks();
+        }
+
+        /**
+         * Decodes the pack body, if it hasn't been decoded yet.
+         *
+         * @throws IllegalStateException if the metadata is invalid
+         */
+        private void load()
+        {
+            synchronized (this)
+            {
+                if (reader != null)
+                {
+                    try
+                    {
+                        reader.readBody(index, this);
+                    }
+                    catch (IOException exception)
+                    {
+                        throw new IllegalStateException("Failed to read metadata of pack " + getPack().getName(),
+                                                        exception);
+                    }
+                    reader = null;
+                }
+            }
+        }
+
+        /**
+         * Decodes the pack body before the pack is serialized.
+         *
+         * @return this
+         */
+        private Object writeReplace()
+        {
+            load();
+            return this;
+        }
+    }
+
+    /**
+     * Decodes values from the binary metadata.
+     */
+    private class Decoder
+    {
+        private final byte[] bytes;
+
+        private int position;
+
+        Decoder(byte[] bytes, int position)
+        {
+            this.bytes = bytes;
+            this.position = position;
+        }
+
+        int readFixed(int count) throws IOException
+        {
+            int result = 0;
+            for (int i = 0; i < count; i++)
+            {
+                result = (result << 8) | (read() & 0xFF);
+            }
+            return result;
+        }
+
+        int readInt() throws IOException
+        {
+            int result = 0;
+            for (int shift = 0; shift < 35; shift += 7)
+            {
+                int b = read();
+                result |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0)
+                {
+                    return result;
+                }
+            }
+            throw new StreamCorruptedException("Invalid pack metadata");
+        }
+
+        long readLong() throws IOException
+        {
+            long encoded = 0;
+            for (int shift = 0; shift < 70; shift += 7)
+            {
+                int b = read();
+                encoded |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0)
+                {
+                    return (encoded >>> 1) ^ -(encoded & 1);
+                }
+            }
+            throw new StreamCorruptedException("Invalid pack metadata");
+        }
+
+        String readString() throws IOException
+        {
+            int index = readInt();
+            return (index == 0) ? null : getString(index - 1);
+        }
+
+        String readPath() throws IOException
+        {
+            String name = readString();
+            if (name == null)
+            {
+                return null;
+            }
+            String parent = readString();
+            return (parent != null) ? parent + name : name;
+        }
+
+        ArrayList<String> readStrings() throws IOException
+        {
+            int count = readInt();
+            if (count == 0)
+            {
+                return null;
+            }
+            ArrayList<String> result = new ArrayList<String>(count - 1);
+            for (int i = 1; i < count; i++)
+            {
+                result.add(readString());
+            }
+            return result;
+        }
+
+        Map<String, String> readStringMap() throws IOException
+        {
+            int count = readInt();
+            Map<String, String> result = new LinkedHashMap<String, String>();
+            for (int i = 1; i < count; i++)
+            {
+                String key = readString();
+                result.put(key, readString());
+            }
+            return result;
+        }
+
+        byte[] readByteArray() throws IOException
+        {
+            int length = readInt();
+            if (length < 0 || position + length > bytes.length)
+            {
+                throw new StreamCorruptedException("Invalid pack metadata");
+            }
+            byte[] result = new byte[length];
+            System.arraycopy(bytes, position, result, 0, length);
+            position += length;
+            return result;
+        }
+
+        void skip(int count) throws IOException
+        {
+            if (count < 0 || position + count > bytes.length)
+            {
+                throw new StreamCorruptedException("Invalid pack metadata");
+            }
+            position += count;
+        }
+
+        private int read() throws IOException
+        {
+            if (position >= bytes.length)
+            {
+                throw new StreamCorruptedException("Unexpected end of pack metadata");
+            }
+            return bytes[position++];
+        }
+    }
+}
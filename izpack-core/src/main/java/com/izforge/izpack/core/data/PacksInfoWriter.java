@@ -0,0 +1,518 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.core.data;
+
+import com.izforge.izpack.api.data.ExecutableFile;
+import com.izforge.izpack.api.data.Pack;
+import com.izforge.izpack.api.data.PackFile;
+import com.izforge.izpack.api.data.PackInfo;
+import com.izforge.izpack.api.data.PacksInfoFormat;
+import com.izforge.izpack.api.data.ParsableFile;
+import com.izforge.izpack.api.data.UpdateCheck;
+import com.izforge.izpack.api.data.XPackFile;
+import com.izforge.izpack.api.data.binding.OsModel;
+import com.izforge.izpack.util.NoCloseOutputStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the pack metadata of an installer, i.e. the <em>packs.info</em> resource.
+ * <p/>
+ * In the {@link PacksInfoFormat#BINARY binary} format, the resource consists of:
+ * <ul>
+ * <li>a header: the {@link #MAGIC magic number} and the format {@link #VERSION version}</li>
+ * <li>a string table. Each distinct string is stored once, and referred to by its index elsewhere</li>
+ * <li>an index holding the offsets of the header and of the body of each pack</li>
+ * <li>the pack data. A pack header holds the {@link Pack}; the body holds the files, parsables, executables and
+ * update checks of the pack</li>
+ * </ul>
+ * Integers are written as variable length quantities, so the format is compact, and the installer can decode the
+ * pack headers without decoding the file lists of packs that aren't installed.
+ *
+ * @see PacksInfoReader
+ */
+public class PacksInfoWriter
+{
+    /**
+     * The magic number of the binary format: "IZPI".
+     */
+    static final int MAGIC = 0x495A5049;
+
+    /**
+     * The version of the binary format.
+     */
+    static final int VERSION = 1;
+
+    /**
+     * Pack file flag, indicating the file is a directory.
+     */
+    static final int FILE_DIRECTORY = 1;
+
+    /**
+     * Pack file flag, indicating the file is an {@link XPackFile}.
+     */
+    static final int FILE_XPACK = 1 << 1;
+
+    /**
+     * Pack file flag, indicating the file has Pack200 properties.
+     */
+    static final int FILE_PACK200 = 1 << 2;
+
+    /**
+     * Pack file flag, indicating the file is a back reference.
+     */
+    static final int FILE_LINKED = 1 << 3;
+
+    /**
+     * Pack file flag, indicating the file has a content digest.
+     */
+    static final int FILE_DIGEST = 1 << 4;
+
+    /**
+     * Pack file flag, indicating the file has additional attributes.
+     */
+    static final int FILE_ADDITIONALS = 1 << 5;
+
+    /**
+     * Pack file flag, indicating the file content is compressed differently to the installer compression format.
+     */
+    static final int FILE_COMPRESSION = 1 << 6;
+
+    /**
+     * Pack flag, indicating the pack is required.
+     */
+    static final int PACK_REQUIRED = 1;
+
+    /**
+     * Pack flag, indicating the pack is preselected.
+     */
+    static final int PACK_PRESELECTED = 1 << 1;
+
+    /**
+     * Pack flag, indicating the pack files are stored outside the installer.
+     */
+    static final int PACK_LOOSE = 1 << 2;
+
+    /**
+     * Pack flag, indicating the pack is uninstalled.
+     */
+    static final int PACK_UNINSTALL = 1 << 3;
+
+    /**
+     * Pack flag, indicating the pack is hidden.
+     */
+    static final int PACK_HIDDEN = 1 << 4;
+
+    /**
+     * The format to write.
+     */
+    private final PacksInfoFormat format;
+
+    /**
+     * Constructs a <tt>PacksInfoWriter</tt>.
+     *
+     * @param format the format to write
+     */
+    public PacksInfoWriter(PacksInfoFormat format)
+    {
+        this.format = format;
+    }
+
+    /**
+     * Writes pack metadata to a stream.
+     *
+     * @param packs the packs
+     * @param out   the stream to write to. This is not closed
+     * @throws IOException for any I/O error
+     */
+    public void write(List<PackInfo> packs, OutputStream out) throws IOException
+    {
+        if (format == PacksInfoFormat.SERIALIZED)
+        {
+            try (ObjectOutputStream objOut = new ObjectOutputStream(new NoCloseOutputStream(out)))
+            {
+                objOut.writeObject(packs);
+            }
+            return;
+        }
+
+        Encoder encoder = new Encoder();
+        int[] offsets = new int[packs.size() * 2];
+        for (int i = 0; i < packs.size(); i++)
+        {
+            PackInfo packInfo = packs.get(i);
+            offsets[i * 2] = encoder.size();
+            writePack(packInfo.getPack(), encoder);
+            offsets[i * 2 + 1] = encoder.size();
+            writeBody(packInfo, encoder);
+        }
+
+        DataOutputStream data = new DataOutputStream(new NoCloseOutputStream(out));
+        data.writeInt(MAGIC);
+        data.writeShort(VERSION);
+        writeVarInt(encoder.strings.size(), data);
+        for (String string : encoder.strings)
+        {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length, data);
+            data.write(bytes);
+        }
+        writeVarInt(packs.size(), data);
+        for (int offset : offsets)
+        {
+            writeVarInt(offset, data);
+        }
+        writeVarInt(encoder.size(), data);
+        encoder.writeTo(data);
+        data.close();
+    }
+
+    /**
+     * Writes a pack header.
+     *
+     * @param pack    the pack
+     * @param encoder the encoder
+     * @throws IOException for any I/O error
+     */
+    private void writePack(Pack pack, Encoder encoder) throws IOException
+    {
+        int flags = (pack.isRequired() ? PACK_REQUIRED : 0) | (pack.isPreselected() ? PACK_PRESELECTED : 0)
+                | (pack.isLoose() ? PACK_LOOSE : 0) | (pack.isUninstall() ? PACK_UNINSTALL : 0)
+                | (pack.isHidden() ? PACK_HIDDEN : 0);
+        encoder.writeInt(flags);
+        encoder.writeString(pack.getName());
+        encoder.writeString(pack.getLangPackId());
+        encoder.writeString(pack.getDescription());
+        encoder.writeString(pack.getExcludeGroup());
+        encoder.writeString(pack.getGroup());
+        encoder.writeString(pack.getCondition());
+        encoder.writeString(pack.getParent());
+        encoder.writeString(pack.getImageId());
+        encoder.writeLong(pack.getSize());
+        encoder.writeLong(pack.getFileSize());
+        writeOsModels(pack.getOsConstraints(), encoder);
+        encoder.writeStrings(pack.getDependencies());
+        encoder.writeStrings(pack.getDependants());
+        encoder.writeStrings(pack.getInstallGroups());
+        encoder.writeStrings(pack.getChildren());
+        encoder.writeStrings(pack.getValidators());
+        encoder.writeStrings(pack.getOnSelect());
+        encoder.writeStrings(pack.getOnDeselect());
+    }
+
+    /**
+     * Writes the files, parsables, executables and update checks of a pack.
+     *
+     * @param packInfo the pack
+     * @param encoder  the encoder
+     * @throws IOException for any I/O error
+     */
+    private void writeBody(PackInfo packInfo, Encoder encoder) throws IOException
+    {
+        Map<PackFile, File> files = packInfo.getPackFilesMap();
+        encoder.writeInt(files.size());
+        for (Map.Entry<PackFile, File> entry : files.entrySet())
+        {
+            writeFile(entry.getKey(), encoder);
+            File file = entry.getValue();
+            encoder.writePath(file != null ? file.getPath() : null);
+        }
+
+        List<ParsableFile> parsables = packInfo.getParsables();
+        encoder.writeInt(parsables.size());
+        for (ParsableFile parsable : parsables)
+        {
+            encoder.writeString(parsable.getPath());
+            encoder.writeString(parsable.getType() != null ? parsable.getType().name() : null);
+            encoder.writeString(parsable.getEncoding());
+            encoder.writeString(parsable.getCondition());
+            writeOsModels(parsable.getOsConstraints(), encoder);
+        }
+
+        List<ExecutableFile> executables = packInfo.getExecutables();
+        encoder.writeInt(executables.size());
+        for (ExecutableFile executable : executables)
+        {
+            encoder.writeString(executable.path);
+            encoder.writeInt(executable.executionStage);
+            encoder.writeString(executable.mainClass);
+            encoder.writeInt(executable.type);
+            encoder.writeInt(executable.onFailure);
+            encoder.writeInt(executable.keepFile ? 1 : 0);
+            encoder.writeString(executable.getCondition());
+            encoder.writeStrings(executable.argList);
+            writeOsModels(executable.osList, encoder);
+        }
+
+        List<UpdateCheck> updateChecks = packInfo.getUpdateChecks();
+        encoder.writeInt(updateChecks.size());
+        for (UpdateCheck updateCheck : updateChecks)
+        {
+            encoder.writeStrings(updateCheck.includesList);
+            encoder.writeStrings(updateCheck.excludesList);
+        }
+    }
+
+    /**
+     * Writes a pack file.
+     *
+     * @param file    the pack file
+     * @param encoder the encoder
+     * @throws IOException for any I/O error
+     */
+    private void writeFile(PackFile file, Encoder encoder) throws IOException
+    {
+        int flags = (file.isDirectory() ? FILE_DIRECTORY : 0) | (file instanceof XPackFile ? FILE_XPACK : 0)
+                | (file.isPack200Jar() ? FILE_PACK200 : 0) | (file.isBackReference() ? FILE_LINKED : 0)
+                | (file.getDigest() != null ? FILE_DIGEST : 0) | (file.getAdditionals() != null ? FILE_ADDITIONALS : 0)
+                | (file.getCompression() != null ? FILE_COMPRESSION : 0);
+        encoder.writeInt(flags);
+        encoder.writePath(file.getFile() != null ? file.getFile().getPath() : null);
+        encoder.writePath(file.getRelativeSourcePath());
+        encoder.writePath(file.getTargetPath());
+        encoder.writeLong(file.length());
+        encoder.writeLong(file.size());
+        encoder.writeLong(file.lastModified());
+        encoder.writeString(file.override() != null ? file.override().name() : null);
+        encoder.writeString(file.overrideRenameTo());
+        encoder.writeString(file.blockable() != null ? file.blockable().name() : null);
+        encoder.writeString(file.getStreamResourceName());
+        encoder.writeLong(file.getStreamOffset());
+        encoder.writeString(file.getCondition());
+        writeOsModels(file.osConstraints(), encoder);
+        if (file.isPack200Jar())
+        {
+            encoder.writeStrings(file.getPack200Properties());
+        }
+        if (file.getDigest() != null)
+        {
+            encoder.writeByteArray(file.getDigest());
+        }
+        if (file.getAdditionals() != null)
+        {
+            // additionals may hold arbitrary objects supplied by custom actions, so are serialized
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream objOut = new ObjectOutputStream(bytes))
+            {
+                objOut.writeObject(file.getAdditionals());
+            }
+            encoder.writeByteArray(bytes.toByteArray());
+        }
+        if (file.getCompression() != null)
+        {
+            encoder.writeString(file.getCompression().name());
+        }
+        if (file instanceof XPackFile)
+        {
+            encoder.writeLong(((XPackFile) file).getArchiveFilePosition());
+        }
+        if (file.isBackReference())
+        {
+            writeFile(file.getLinkedPackFile(), encoder);
+        }
+    }
+
+    /**
+     * Writes a list of OS constraints.
+     *
+     * @param models  the OS constraints. May be {@code null}
+     * @param encoder the encoder
+     * @throws IOException for any I/O error
+     */
+    private void writeOsModels(List<OsModel> models, Encoder encoder) throws IOException
+    {
+        encoder.writeCount(models);
+        if (models != null)
+        {
+            for (OsModel model : models)
+            {
+                encoder.writeString(model.getArch());
+                encoder.writeString(model.getFamily());
+                encoder.writeString(model.getJre());
+                encoder.writeString(model.getName());
+                encoder.writeString(model.getVersion());
+            }
+        }
+    }
+
+    /**
+     * Writes a non-negative int as a variable length quantity, 7 bits per byte, least significant first.
+     *
+     * @param value the value to write
+     * @param out   the stream to write to
+     * @throws IOException for any I/O error
+     */
+    static void writeVarInt(int value, OutputStream out) throws IOException
+    {
+        while ((value & ~0x7F) != 0)
+        {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    /**
+     * Writes a long as a variable length quantity.
+     * <p/>
+     * Values are zig-zag encoded so that small negative values, such as {@code -1} denoting an unset offset, are
+     * written in a single byte.
+     *
+     * @param value the value to write
+     * @param out   the stream to write to
+     * @throws IOException for any I/O error
+     */
+    static void writeVarLong(long value, OutputStream out) throws IOException
+    {
+        long encoded = (value << 1) ^ (value >> 63);
+        while ((encoded & ~0x7FL) != 0)
+        {
+            out.write((int) ((encoded & 0x7F) | 0x80));
+            encoded >>>= 7;
+        }
+        out.write((int) encoded);
+    }
+
+    /**
+     * Encodes pack data into a buffer, collecting strings into the string table.
+     */
+    private static class Encoder extends ByteArrayOutputStream
+    {
+        /**
+         * The string table.
+         */
+        private final List<String> strings = new ArrayList<String>();
+
+        /**
+         * The string table indexes, keyed on string.
+         */
+        private final Map<String, Integer> indexes = new HashMap<String, Integer>();
+
+        Encoder()
+        {
+            super(64 * 1024);
+        }
+
+        void writeInt(int value) throws IOException
+        {
+            writeVarInt(value, this);
+        }
+
+        void writeLong(long value) throws IOException
+        {
+            writeVarLong(value, this);
+        }
+
+        /**
+         * Writes a string as an index into the string table, where {@code 0} denotes {@code null}.
+         *
+         * @param value the string. May be {@code null}
+         * @throws IOException for any I/O error
+         */
+        void writeString(String value) throws IOException
+        {
+            if (value == null)
+            {
+                writeInt(0);
+                return;
+            }
+            Integer index = indexes.get(value);
+            if (index == null)
+            {
+                index = strings.size();
+                strings.add(value);
+                indexes.put(value, index);
+            }
+            writeInt(index + 1);
+        }
+
+        /**
+         * Writes a path as its name followed by its parent, including the trailing separator, so that
+         * directories shared by many files are only stored once in the string table.
+         *
+         * @param path the path. May be {@code null}
+         * @throws IOException for any I/O error
+         */
+        void writePath(String path) throws IOException
+        {
+            if (path == null)
+            {
+                writeInt(0);
+                return;
+            }
+            int index = Math.max(path.lastIndexOf('/'), path.lastIndexOf('\\'));
+            writeString(path.substring(index + 1));
+            writeString(index >= 0 ? path.substring(0, index + 1) : null);
+        }
+
+        /**
+         * Writes the size of a collection, where {@code 0} denotes {@code null}.
+         *
+         * @param values the collection. May be {@code null}
+         * @throws IOException for any I/O error
+         */
+        void writeCount(Collection<?> values) throws IOException
+        {
+            writeInt(values != null ? values.size() + 1 : 0);
+        }
+
+        void writeStrings(Collection<String> values) throws IOException
+        {
+            writeCount(values);
+            if (values != null)
+            {
+                for (String value : values)
+                {
+                    writeString(value);
+                }
+            }
+        }
+
+        void writeStrings(Map<String, String> values) throws IOException
+        {
+            writeCount(values != null ? values.keySet() : null);
+            if (values != null)
+            {
+                for (Map.Entry<String, String> entry : values.entrySet())
+                {
+                    writeString(entry.getKey());
+                    writeString(entry.getValue());
+                }
+            }
+        }
+
+        void writeByteArray(byte[] value) throws IOException
+        {
+            writeInt(value.length);
+            write(value);
+        }
+    }
+}
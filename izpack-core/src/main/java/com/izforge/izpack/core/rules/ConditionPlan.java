@@ -0,0 +1,432 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.core.rules;
+
+import com.izforge.izpack.api.data.InstallData;
+import com.izforge.izpack.api.rules.Condition;
+import com.izforge.izpack.api.rules.ConditionWithMultipleOperands;
+import com.izforge.izpack.core.rules.logic.AndCondition;
+import com.izforge.izpack.core.rules.logic.NotCondition;
+import com.izforge.izpack.core.rules.logic.OrCondition;
+import com.izforge.izpack.core.rules.logic.XorCondition;
+import com.izforge.izpack.core.rules.process.JavaCondition;
+import com.izforge.izpack.core.rules.process.PackSelectionCondition;
+import com.izforge.izpack.core.rules.process.RefCondition;
+import com.izforge.izpack.core.rules.process.UserCondition;
+import com.izforge.izpack.core.rules.process.VariableCondition;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A condition tree compiled into an evaluation plan.
+ * <p/>
+ * The {@link AndCondition and}, {@link OrCondition or}, {@link XorCondition xor}, {@link NotCondition not} and
+ * {@link RefCondition ref} conditions of the tree are flattened into the plan, so that only the other conditions
+ * are evaluated. The operands of <em>and</em> and <em>or</em> are ordered by estimated cost, so that cheap variable
+ * comparisons short-circuit expensive checks such as file existence or Java fields. A condition shared by several
+ * branches of the tree is evaluated at most once per evaluation of the plan.
+ * <p/>
+ * Subclasses of the logical conditions are evaluated as they are, as they may override {@code isTrue()}.
+ */
+final class ConditionPlan
+{
+    /**
+     * The cost of conditions that only compare variables.
+     */
+    private static final int VARIABLE_COST = 1;
+
+    /**
+     * The cost of conditions that check installation data other than variables.
+     */
+    private static final int DATA_COST = 2;
+
+    /**
+     * The cost of conditions that access the file system, or unknown conditions.
+     */
+    private static final int DEFAULT_COST = 10;
+
+    /**
+     * The cost of conditions that use reflection.
+     */
+    private static final int JAVA_COST = 20;
+
+    /**
+     * The root of the plan.
+     */
+    private final Node root;
+
+    /**
+     * The number of distinct conditions evaluated by the plan.
+     */
+    private final int conditions;
+
+    /**
+     * Constructs a <tt>ConditionPlan</tt>.
+     *
+     * @param root       the root of the plan
+     * @param conditions the number of distinct conditions evaluated by the plan
+     */
+    private ConditionPlan(Node root, int conditions)
+    {
+        this.root = root;
+        this.conditions = conditions;
+    }
+
+    /**
+     * Compiles a condition tree.
+     *
+     * @param condition the root condition
+     * @return the evaluation plan
+     */
+    static ConditionPlan compile(Condition condition)
+    {
+        Compiler compiler = new Compiler();
+        Node root = compiler.compile(condition, condition.getInstallData());
+        return new ConditionPlan(root, compiler.leaves.size());
+    }
+
+    /**
+     * Evaluates the plan.
+     *
+     * @return the result of the condition
+     */
+    boolean evaluate()
+    {
+        return root.evaluate(new byte[conditions]);
+    }
+
+    /**
+     * Estimates the cost of evaluating a condition.
+     *
+     * @param condition the condition
+     * @return the estimated cost
+     */
+    private static int getCost(Condition condition)
+    {
+        if (condition instanceof JavaCondition)
+        {
+            return JAVA_COST;
+        }
+        else if (condition instanceof PackSelectionCondition || condition instanceof UserCondition)
+        {
+            return DATA_COST;
+        }
+        else if (condition instanceof VariableCondition || condition.isPure())
+        {
+            return VARIABLE_COST;
+        }
+        return DEFAULT_COST;
+    }
+
+    /**
+     * Builds a plan from a condition tree.
+     */
+    private static class Compiler
+    {
+        /**
+         * The nodes of the conditions compiled so far, used to share nodes between branches.
+         */
+        private final Map<Condition, Node> nodes = new IdentityHashMap<Condition, Node>();
+
+        /**
+         * The conditions being compiled, used to detect cyclic references.
+         */
+        private final Set<Condition> compiling = Collections.newSetFromMap(new IdentityHashMap<Condition, Boolean>());
+
+        /**
+         * The evaluated conditions, indexed on their slot in the evaluation results.
+         */
+        private final List<Condition> leaves = new ArrayList<Condition>();
+
+        /**
+         * Compiles a condition.
+         *
+         * @param condition   the condition. May be {@code null}
+         * @param installData the installation data of the parent condition, assigned to conditions without any
+         * @return the node
+         */
+        Node compile(Condition condition, InstallData installData)
+        {
+            if (condition == null)
+            {
+                return Constant.FALSE;
+            }
+            if (condition.getInstallData() == null)
+            {
+                condition.setInstallData(installData);
+            }
+            Node node = nodes.get(condition);
+            if (node == null)
+            {
+                if (compiling.add(condition))
+                {
+                    node = createNode(condition);
+                    compiling.remove(condition);
+                }
+                else
+                {
+                    // a cyclic reference, evaluated as it is
+                    node = createLeaf(condition);
+                }
+                nodes.put(condition, node);
+            }
+            return node;
+        }
+
+        /**
+         * Creates the node of a condition.
+         *
+         * @param condition the condition
+         * @return the node
+         */
+        private Node createNode(Condition condition)
+        {
+            Node node;
+            InstallData data = condition.getInstallData();
+            Class<?> type = condition.getClass();
+            if (type == AndCondition.class || type == OrCondition.class)
+            {
+                boolean and = (type == AndCondition.class);
+                List<Node> operands = new ArrayList<Node>();
+                for (Condition operand : ((ConditionWithMultipleOperands) condition).getOperands())
+                {
+                    Node child = compile(operand, data);
+                    if (child instanceof Junction && ((Junction) child).and == and)
+                    {
+                        // (a && b) && c is equivalent to a && b && c
+                        operands.addAll(Arrays.asList(((Junction) child).operands));
+                    }
+                    else
+                    {
+                        operands.add(child);
+                    }
+                }
+                node = new Junction(and, operands.toArray(new Node[operands.size()]));
+            }
+            else if (type == XorCondition.class)
+            {
+                List<Condition> operands = ((ConditionWithMultipleOperands) condition).getOperands();
+                Node[] children = new Node[operands.size()];
+                for (int i = 0; i < children.length; ++i)
+                {
+                    children[i] = compile(operands.get(i), data);
+                }
+                node = new Xor(children);
+            }
+            else if (type == NotCondition.class)
+            {
+                Condition referenced = ((NotCondition) condition).getReferencedCondition();
+                node = (referenced != null) ? new Not(compile(referenced, data)) : Constant.FALSE;
+            }
+            else if (type == RefCondition.class)
+            {
+                node = compile(((RefCondition) condition).getReferencedCondition(), data);
+            }
+            else
+            {
+                node = createLeaf(condition);
+            }
+            return node;
+        }
+
+        private Node createLeaf(Condition condition)
+        {
+            Leaf leaf = new Leaf(condition, leaves.size());
+            leaves.add(condition);
+            return leaf;
+        }
+    }
+
+    /**
+     * A node of the plan.
+     */
+    private abstract static class Node
+    {
+        /**
+         * The estimated cost of evaluating the node.
+         */
+        final int cost;
+
+        Node(int cost)
+        {
+            this.cost = cost;
+        }
+
+        /**
+         * Evaluates the node.
+         *
+         * @param results the results of the conditions evaluated so far, indexed on slot: {@code 0} if not yet
+         *                evaluated, {@code 1} if false, {@code 2} if true
+         * @return the result
+         */
+        abstract boolean evaluate(byte[] results);
+    }
+
+    /**
+     * A constant result.
+     */
+    private static class Constant extends Node
+    {
+        static final Constant FALSE = new Constant();
+
+        Constant()
+        {
+            super(0);
+        }
+
+        @Override
+        boolean evaluate(byte[] results)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * A condition evaluated by the plan.
+     */
+    private static class Leaf extends Node
+    {
+        private final Condition condition;
+
+        /**
+         * The index of the condition result.
+         */
+        private final int slot;
+
+        Leaf(Condition condition, int slot)
+        {
+            super(getCost(condition));
+            this.condition = condition;
+            this.slot = slot;
+        }
+
+        @Override
+        boolean evaluate(byte[] results)
+        {
+            byte result = results[slot];
+            if (result == 0)
+            {
+                result = condition.isTrue() ? (byte) 2 : (byte) 1;
+                results[slot] = result;
+            }
+            return result == 2;
+        }
+    }
+
+    /**
+     * The conjunction or disjunction of operands, evaluated cheapest first.
+     */
+    private static class Junction extends Node
+    {
+        private final boolean and;
+
+        private final Node[] operands;
+
+        Junction(boolean and, Node[] operands)
+        {
+            super(sum(operands));
+            this.and = and;
+            this.operands = operands;
+            Arrays.sort(operands, new Comparator<Node>()
+            {
+                @Override
+                public int compare(Node o1, Node o2)
+                {
+                    return Integer.compare(o1.cost, o2.cost);
+                }
+            });
+        }
+
+        @Override
+        boolean evaluate(byte[] results)
+        {
+            for (Node operand : operands)
+            {
+                if (operand.evaluate(results) != and)
+                {
+                    return !and;
+                }
+            }
+            return and;
+        }
+    }
+
+    /**
+     * The exclusive disjunction of operands. All operands are evaluated.
+     */
+    private static class Xor extends Node
+    {
+        private final Node[] operands;
+
+        Xor(Node[] operands)
+        {
+            super(sum(operands));
+            this.operands = operands;
+        }
+
+        @Override
+        boolean evaluate(byte[] results)
+        {
+            boolean result = false;
+            for (Node operand : operands)
+            {
+                result ^= operand.evaluate(results);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * The negation of a node.
+     */
+    private static class Not extends Node
+    {
+        private final Node operand;
+
+        Not(Node operand)
+        {
+            super(operand.cost);
+            this.operand = operand;
+        }
+
+        @Override
+        boolean evaluate(byte[] results)
+        {
+            return !operand.evaluate(results);
+        }
+    }
+
+    private static int sum(Node[] operands)
+    {
+        int result = 0;
+        for (Node operand : operands)
+        {
+            result += operand.cost;
+        }
+        return result;
+    }
+}
@@ -46,6 +46,8 @@ import java.io.OutputStream;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 
 
@@ -71,6 +73,26 @@ public class RulesEngineImpl implements RulesEngine
 
     private final ConditionContainer container;
 
+    /**
+     * The memoized results of pure conditions, keyed on condition identifier.
+     */
+    private final Map<String, Result> results = new ConcurrentHashMap<String, Result>();
+
+    /**
+     * The compiled evaluation plans of conditions, keyed on condition identifier.
+     */
+    private final Map<String, ConditionPlan> plans = new ConcurrentHashMap<String, ConditionPlan>();
+
+    /**
+     * The number of condition evaluations satisfied by memoized results.
+     */
+    private final AtomicLong hits = new AtomicLong();
+
+    /**
+     * The number of conditions evaluated.
+     */
+    private final AtomicLong misses = new AtomicLong();
+
     private static final Logger logger = Logger.getLogger(RulesEngineImpl.class.getName());
 
     /**
@@ -128,6 +150,8 @@ public class RulesEngineImpl implements RulesEngine
                 resolveBuiltinConditions(condition);
             }
         }
+        results.clear();
+        plans.clear();
     }
 
     /**
@@ -193,6 +217,8 @@ public class RulesEngineImpl implements RulesEngine
         {
             refCondition.resolveReference();
         }
+        results.clear();
+        plans.clear();
     }
 
     /**
@@ -319,7 +345,11 @@ public class RulesEngineImpl implements RulesEngine
         Condition cond = getCondition(id);
         if (cond != null)
         {
-            return isConditionTrue(cond);
+            if (cond.getInstallData() == null)
+            {
+                cond.setInstallData(this.installData);
+            }
+            return isTrue(id, cond);
         }
         logger.warning("Condition " + id + " not found");
         return false;
@@ -332,7 +362,100 @@ public class RulesEngineImpl implements RulesEngine
         {
             cond.setInstallData(this.installData);
         }
-        return cond.isTrue();
+        String id = cond.getId();
+        return isTrue((id != null && conditionsMap.get(id) == cond) ? id : null, cond);
+    }
+
+    /**
+     * Discards the memoized condition results, so that all conditions are evaluated again.
+     * <p/>
+     * The results of {@link Condition#isPure() pure} conditions are reused until the variables they refer to change.
+     * This should be invoked if variables are changed without being versioned, e.g. directly via
+     * {@link Variables#getProperties()}.
+     */
+    public void invalidateConditions()
+    {
+        results.clear();
+        plans.clear();
+    }
+
+    /**
+     * Returns the number of condition evaluations satisfied by memoized results.
+     *
+     * @return the number of memoized results used
+     */
+    public long getConditionCacheHits()
+    {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of condition evaluations not satisfied by memoized results.
+     *
+     * @return the number of conditions evaluated
+     */
+    public long getConditionCacheMisses()
+    {
+        return misses.get();
+    }
+
+    /**
+     * Returns the evaluation plan of a condition, compiling it on first use.
+     * <p/>
+     * Plans are keyed on identifier, so conditions parsed from the same expression share a plan.
+     *
+     * @param id   the condition identifier
+     * @param cond the condition
+     * @return the evaluation plan
+     */
+    private ConditionPlan getPlan(String id, Condition cond)
+    {
+        ConditionPlan plan = plans.get(id);
+        if (plan == null)
+        {
+            plan = ConditionPlan.compile(cond);
+            plans.put(id, plan);
+        }
+        return plan;
+    }
+
+    /**
+     * Evaluates a condition with its compiled plan, reusing its memoized result if the variables it refers to are
+     * unchanged.
+     *
+     * @param id   the identifier to memoize the result under. If {@code null}, the result isn't memoized
+     * @param cond the condition
+     * @return the condition result
+     */
+    private boolean isTrue(String id, Condition cond)
+    {
+        InstallData data = cond.getInstallData();
+        if (id == null || data == null || data != installData)
+        {
+            misses.incrementAndGet();
+            return cond.isTrue();
+        }
+        Variables variables = data.getVariables();
+        Result result = results.get(id);
+        if (result != null && result.isCurrent(variables))
+        {
+            hits.incrementAndGet();
+            return result.value;
+        }
+        misses.incrementAndGet();
+        long version = variables.getVersion();
+        boolean value = getPlan(id, cond).evaluate();
+        if (cond.isPure() && version >= 0)
+        {
+            // only remembered if the variables track changes
+            Set<String> refs = cond.getVarRefs();
+            results.put(id, new Result(value, version, refs.toArray(new String[refs.size()])));
+        }
+        else if (result != null)
+        {
+            results.remove(id);
+        }
+        return value;
     }
 
     /**
@@ -351,8 +474,9 @@ public class RulesEngineImpl implements RulesEngine
             logger.fine("Panel " + panelId + " unconditionally activated");
             return true;
         }
-        Condition condition = getCondition(this.panelConditions.get(panelId));
-        boolean b = condition.isTrue();
+        String conditionId = this.panelConditions.get(panelId);
+        Condition condition = getCondition(conditionId);
+        boolean b = isTrue(conditionId, condition);
         logger.fine("Panel " + panelId + ": activation depends on condition "
                             + condition.getId() + " -> " + b);
         return b;
@@ -402,8 +526,9 @@ public class RulesEngineImpl implements RulesEngine
             logger.fine("Package " + packid + " unconditionally installable");
             return true;
         }
-        Condition condition = getCondition(this.packConditions.get(packid));
-        boolean b = condition.isTrue();
+        String conditionId = this.packConditions.get(packid);
+        Condition condition = getCondition(conditionId);
+        boolean b = isTrue(conditionId, condition);
         logger.fine("Package " + packid + ": installation depends on condition "
                 + condition.getId() + " -> " + b);
         return b;
@@ -889,6 +1014,53 @@ public class RulesEngineImpl implements RulesEngine
         }
     }
 
+    /**
+     * The memoized result of a pure condition.
+     */
+    private static class Result
+    {
+        private final boolean value;
+
+        /**
+         * The version of the variables when the condition was evaluated.
+         */
+        private final long version;
+
+        /**
+         * The variables the condition refers to.
+         */
+        private final String[] refs;
+
+        Result(boolean value, long version, String[] refs)
+        {
+            this.value = value;
+            this.version = version;
+            this.refs = refs;
+        }
+
+        /**
+         * Determines if none of the variables the condition refers to have changed since it was evaluated.
+         *
+         * @param variables the variables
+         * @return {@code true} if the result is current
+         */
+        boolean isCurrent(Variables variables)
+        {
+            if (variables.getVersion() == version)
+            {
+                return true;
+            }
+            for (String name : refs)
+            {
+                if (variables.getVersion(name) > version)
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
     /**
      * A built-in condition, created by the RulesEngine. These are not intended to be serialized - the RulesEngine
      * will replace any instance of a built in condition with its own version.
@@ -932,5 +1104,11 @@ public class RulesEngineImpl implements RulesEngine
             return new HashSet<String>(0);
         }
 
+        @Override
+        public boolean isPure()
+        {
+            return true;
+        }
+
     }
 }
@@ -93,4 +93,22 @@ public class CompareNumericsCondition extends CompareCondition
                                                        this.operand2);
     }
 
+    /**
+     * Determines if the result depends only on the variables the operands refer to.
+     * <p/>
+     * The operands are substituted in a single pass: the values of the variables they refer to are inserted as they
+     * are, and not substituted again. The result therefore only depends on the variables returned by
+     * {@link #getVarRefs()}, so it may be memoized on their versions. This differs from {@link VariableCondition},
+     * which substitutes the value of its variable, and so depends on the variables that value refers to.
+     * <p/>
+     * References without braces are not memoized, as {@link #getVarRefs()} may not return their exact names.
+     *
+     * @return {@code true} if the operands only contain references enclosed in braces
+     */
+    @Override
+    public boolean isPure()
+    {
+        return ValueUtils.hasOnlyBracedReferences(operand1, operand2);
+    }
+
 }
\ No newline at end of file
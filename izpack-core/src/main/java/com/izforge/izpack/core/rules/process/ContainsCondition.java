@@ -266,4 +266,17 @@ public class ContainsCondition extends Condition {
         return vars;
     }
 
+    /**
+     * Determines if the result depends only on variables, i.e. if the source is not a file, the value doesn't
+     * refer to variables, and a string source only refers to variables in braces.
+     *
+     * @return {@code true} if the condition only depends on the variables it refers to
+     */
+    @Override
+    public boolean isPure()
+    {
+        return contentType != ContentType.FILE && (value == null || !ValueUtils.isUnresolved(value))
+                && (contentType != ContentType.STRING || ValueUtils.hasOnlyBracedReferences(source));
+    }
+
 }
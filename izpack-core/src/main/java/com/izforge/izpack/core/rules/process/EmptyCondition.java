@@ -227,4 +227,11 @@ public class EmptyCondition extends Condition
         }
         return vars;
     }
+
+    @Override
+    public boolean isPure()
+    {
+        return contentType == ContentType.VARIABLE
+                || (contentType == ContentType.STRING && ValueUtils.hasOnlyBracedReferences(content));
+    }
 }
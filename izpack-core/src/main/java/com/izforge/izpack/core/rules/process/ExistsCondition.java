@@ -178,6 +178,12 @@ public class ExistsCondition extends Condition
         return vars;
     }
 
+    @Override
+    public boolean isPure()
+    {
+        return contentType == ContentType.VARIABLE;
+    }
+
     public enum ContentType
     {
         VARIABLE("variable"), FILE("file");
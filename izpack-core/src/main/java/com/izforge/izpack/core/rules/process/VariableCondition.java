@@ -29,6 +29,7 @@ import com.izforge.izpack.api.adaptator.impl.XMLElementImpl;
 import com.izforge.izpack.api.data.InstallData;
 import com.izforge.izpack.api.data.Variables;
 import com.izforge.izpack.api.rules.Condition;
+import com.izforge.izpack.core.variable.utils.ValueUtils;
 
 /**
  * @author Dennis Reil, <izpack@reil-online.de>
@@ -145,4 +146,22 @@ public class VariableCondition extends Condition
         // in this.value no variable substition is made, therefore not added here 
         return vars;
     }
+
+    /**
+     * Determines if the result depends only on the variable. As the value and the variable value are compared after
+     * substituting variables, this is only the case if neither refers to other variables.
+     *
+     * @return {@code true} if the condition only depends on the variable
+     */
+    @Override
+    public boolean isPure()
+    {
+        InstallData installData = getInstallData();
+        if (installData == null || (value != null && ValueUtils.isUnresolved(value)))
+        {
+            return false;
+        }
+        String val = installData.getVariable(variablename);
+        return val == null || !ValueUtils.isUnresolved(val);
+    }
 }
\ No newline at end of file
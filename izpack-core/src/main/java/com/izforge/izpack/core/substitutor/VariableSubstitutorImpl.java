@@ -17,14 +17,16 @@
 package com.izforge.izpack.core.substitutor;
 
 import com.izforge.izpack.api.data.Variables;
-import com.izforge.izpack.api.exception.IzPackException;
 import com.izforge.izpack.api.substitutor.SubstitutionType;
 import com.izforge.izpack.api.substitutor.VariableSubstitutor;
 import org.apache.commons.io.IOUtils;
 
 import java.io.*;
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Substitutes variables occurring in an input stream or a string. This implementation supports a
@@ -42,7 +44,22 @@ public class VariableSubstitutorImpl implements VariableSubstitutor, Serializabl
 {
     private static final long serialVersionUID = 3907213762447685687L;
 
-    private static final Logger logger = Logger.getLogger(VariableSubstitutorImpl.class.getName());
+    /**
+     * The maximum number of templates cached for each substitution type. The least recently used templates are
+     * discarded beyond it.
+     */
+    private static final int MAX_TEMPLATES = 1024;
+
+    /**
+     * The maximum length of strings whose templates are cached.
+     */
+    private static final int MAX_TEMPLATE_LENGTH = 4096;
+
+    /**
+     * The parsed templates of substituted strings, for each substitution type without and with braces required.
+     * Templates don't depend on the variables, so they are shared by all substitutors.
+     */
+    private static final List<Map<String, VariableTemplate>> templates = createTemplateCaches();
 
     /**
      * The replacement variables
@@ -109,18 +126,49 @@ public class VariableSubstitutorImpl implements VariableSubstitutor, Serializabl
         {
             return null;
         }
+        if (type == null)
+        {
+            type = SubstitutionType.getDefault();
+        }
+        if (str.indexOf(VariableTemplate.getVariableStart(type)) == -1)
+        {
+            // no references
+            return str;
+        }
+        return getTemplate(str, type).render(variables);
+    }
 
-        // Create reader and write for the strings
-
-        try
+    /**
+     * Returns the parsed template of a string, caching it if the string is short.
+     *
+     * @param str  the string
+     * @param type the substitution type
+     * @return the template
+     */
+    private VariableTemplate getTemplate(String str, SubstitutionType type)
+    {
+        if (str.length() > MAX_TEMPLATE_LENGTH)
         {
-            return IOUtils.toString(new VariableSubstitutorReader(new StringReader(str), variables, type, bracesRequired));
+            return VariableTemplate.compile(str, type, bracesRequired);
         }
-        catch (IOException e)
+        Map<String, VariableTemplate> cache = templates.get(type.ordinal() * 2 + (bracesRequired ? 1 : 0));
+        VariableTemplate template = cache.get(str);
+        if (template == null)
         {
-            logger.log(Level.SEVERE, "Error when substituting variables", e);
-            throw new IzPackException(e);
+            template = VariableTemplate.compile(str, type, bracesRequired);
+            cache.put(str, template);
         }
+        return template;
+    }
+
+    private static List<Map<String, VariableTemplate>> createTemplateCaches()
+    {
+        List<Map<String, VariableTemplate>> result = new ArrayList<Map<String, VariableTemplate>>();
+        for (int i = 0; i < SubstitutionType.values().length * 2; ++i)
+        {
+            result.add(Collections.synchronizedMap(new TemplateCache()));
+        }
+        return result;
     }
 
     /**
@@ -171,4 +219,23 @@ public class VariableSubstitutorImpl implements VariableSubstitutor, Serializabl
         return IOUtils.copy(new VariableSubstitutorReader(reader, variables, type, bracesRequired), writer);
     }
 
+    /**
+     * Templates in access order, bounded to {@link #MAX_TEMPLATES}.
+     */
+    private static class TemplateCache extends LinkedHashMap<String, VariableTemplate>
+    {
+        private static final long serialVersionUID = 1L;
+
+        TemplateCache()
+        {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, VariableTemplate> eldest)
+        {
+            return size() > MAX_TEMPLATES;
+        }
+    }
+
 }
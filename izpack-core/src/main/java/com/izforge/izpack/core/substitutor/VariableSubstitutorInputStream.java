@@ -82,8 +82,8 @@ public class VariableSubstitutorInputStream extends InputStream
             int count = 0;
             while (count < buff.length)
             {
-                int curChar = substitutorReader.read();
-                if (curChar == -1)
+                int read = substitutorReader.read(buff, count, buff.length - count);
+                if (read == -1)
                 {
                     lastSegment = true;
                     if (count == 0) {
@@ -91,7 +91,7 @@ public class VariableSubstitutorInputStream extends InputStream
                     }
                     break;
                 }
-                buff[count++] = (char) curChar;
+                count += read;
             }
             buffer = String.valueOf(buff, 0, count).getBytes(encoding);
         }
@@ -21,16 +21,49 @@ import com.izforge.izpack.api.substitutor.SubstitutionType;
 import com.izforge.izpack.util.IoHelper;
 
 import java.io.IOException;
-import java.io.PushbackReader;
 import java.io.Reader;
 import java.nio.CharBuffer;
 
 /**
- * An input reader which resolves IzPack variables on the fly
+ * An input reader which resolves IzPack variables on the fly.
+ * <p/>
+ * The source is read in blocks. Bulk reads copy runs of text without variable start characters straight from the
+ * block, so that only variable references are processed a character at a time.
  */
 public class VariableSubstitutorReader extends Reader
 {
-    private PushbackReader pushbackReader = null;
+    /**
+     * The size of the blocks read from the source.
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Denotes that no character has been pushed back.
+     */
+    private static final int NONE = -2;
+
+    private final Reader source;
+
+    /**
+     * The block read from the source.
+     */
+    private final char[] buffer = new char[BUFFER_SIZE];
+
+    /**
+     * The position of the next character in the block.
+     */
+    private int position = 0;
+
+    /**
+     * The number of characters in the block.
+     */
+    private int limit = 0;
+
+    /**
+     * The character pushed back, or {@link #NONE}.
+     */
+    private int pushback = NONE;
+
     /**
      * The replacement variables
      */
@@ -50,6 +83,11 @@ public class VariableSubstitutorReader extends Reader
     private String varValue = null;
     private int varValueIndex = 0;
 
+    /**
+     * The variable start character, returned if it doesn't start a reference.
+     */
+    private final String variableStartValue;
+
 
     public VariableSubstitutorReader(Reader source, Variables variables, SubstitutionType type, boolean bracesRequired)
     {
@@ -59,7 +97,7 @@ public class VariableSubstitutorReader extends Reader
 
     public VariableSubstitutorReader(Reader source, Variables variables, SubstitutionType type)
     {
-        this.pushbackReader = new PushbackReader(source);
+        this.source = source;
         this.variables = variables;
         this.type = type;
         if (type == null)
@@ -86,6 +124,7 @@ public class VariableSubstitutorReader extends Reader
             default:
                 break;
         }
+        variableStartValue = String.valueOf(variable_start);
     }
 
     /**
@@ -113,38 +152,55 @@ public class VariableSubstitutorReader extends Reader
     @Override
     public int read() throws IOException
     {
-        if(varValue != null){
-            if(varValueIndex < varValue.length()){
-                return varValue.charAt(varValueIndex++);
-            }
-            if(varValueIndex == varValue.length()){
+        while (true)
+        {
+            if (varValue != null)
+            {
+                if (varValueIndex < varValue.length())
+                {
+                    return varValue.charAt(varValueIndex++);
+                }
                 varValue = null;
                 varValueIndex = 0;
             }
-        }
 
-        int data = pushbackReader.read();
-        if(data != variable_start) return data;
+            int data = next();
+            if (data != variable_start)
+            {
+                return data;
+            }
+            substitute();
+        }
+    }
 
-        data = pushbackReader.read();
+    /**
+     * Reads a variable reference following the variable start character, and makes its value, or the reference
+     * itself if it can't be resolved, the next text to be read.
+     *
+     * @throws IOException for any I/O error
+     */
+    private void substitute() throws IOException
+    {
+        int data = next();
         if (data == '{')
         {
             inBraces = true;
         }
         else if (bracesRequired)
         {
-            pushbackReader.unread(data);
-            return variable_start;
+            unread(data);
+            varValue = variableStartValue;
+            return;
         }
 
-        varNameBuffer.delete(0, varNameBuffer.length());
+        varNameBuffer.setLength(0);
 
         if (!inBraces && data != -1)
         {
             varNameBuffer.append((char) data);
         }
 
-        data = pushbackReader.read();
+        data = next();
         while (
                 data >= ' ' && (inBraces && data != '}')
                 || (inBraces && ((data == '[') || (data == ']')))
@@ -152,45 +208,18 @@ public class VariableSubstitutorReader extends Reader
         )
         {
             varNameBuffer.append((char) data);
-            data = pushbackReader.read();
+            data = next();
         }
 
         boolean variable = wasItPlausibleVariableName(data);
         String name = varNameBuffer.toString();
-        if (variable && name.length() > 0)
-        {
-            // check for environment variables
-            if (inBraces && name.startsWith("ENV[")
-                    && (name.lastIndexOf(']') == name.length() - 1))
-            {
-                varValue = System.getenv(name.substring(4, name.length() - 1));
-                if (varValue == null)
-                {
-                    varValue = "";
-                }
-            }
-            else if (inBraces && name.startsWith("SYSTEM[")
-                    && (name.lastIndexOf(']') == name.length() - 1))
-            {
-                varValue = System.getProperty(name.substring(7, name.length() - 1));
-            }
-            // TODO: Compatibility mode - to be removed in future
-            else if (inBraces && name.startsWith("SYSTEM_") && name.length() > 7)
-            {
-                varValue = System.getProperty(name.substring(7).replace('_', '.'));
-            }
-            else
-            {
-                varValue = variables.get(name);
-            }
-        }
 
         boolean unclosedBraces = false;
         if (data <= ' ')
         {
             if (data != -1)
             {
-                pushbackReader.unread(data);
+                unread(data);
             }
             unclosedBraces = true;
         } else if (
@@ -198,29 +227,33 @@ public class VariableSubstitutorReader extends Reader
                 || (!isAllowedCharInVariableName(data) && data != '}' && data != variable_end)
                 )
         {
-            pushbackReader.unread(data);
+            unread(data);
         }
 
-        if(varValue == null)
-        {
-            varValue = variable_start
-                    + (inBraces ? "{" : "")
-                    + varNameBuffer.toString()
-                    + (inBraces && !unclosedBraces ? "}" : "")
-                    + (variable_end != '\0' && variable ? variable_end : "");
-        }
-        else
-        {
-            varValue = escapeSpecialChars(varValue);
-        }
+        String raw = variable_start
+                + (inBraces ? "{" : "")
+                + name
+                + (inBraces && !unclosedBraces ? "}" : "")
+                + (variable_end != '\0' && variable ? variable_end : "");
+        varValue = (variable && name.length() > 0) ? reference(name, inBraces, raw) : raw;
 
         inBraces = false;
+    }
 
-        if(varValue.length() == 0){
-            return read();
-        }
-
-        return varValue.charAt(varValueIndex++);
+    /**
+     * Returns the text replacing a variable reference.
+     * <p/>
+     * This implementation returns the escaped value of the variable, environment variable or system property, or
+     * the reference itself if it is undefined.
+     *
+     * @param name     the name in the reference
+     * @param inBraces determines if the name is enclosed in braces
+     * @param raw      the text of the reference
+     * @return the text replacing the reference
+     */
+    String reference(String name, boolean inBraces, String raw)
+    {
+        return VariableTemplate.Reference.create(name, inBraces, raw, type).render(variables);
     }
 
     private boolean wasItPlausibleVariableName(int data) throws IOException
@@ -235,7 +268,7 @@ public class VariableSubstitutorReader extends Reader
             {
                 return false;
             }
-            int nextData = pushbackReader.read();
+            int nextData = next();
             if (nextData == -1)
             {
                 return false;
@@ -244,7 +277,7 @@ public class VariableSubstitutorReader extends Reader
             {
                 return true;
             }
-            pushbackReader.unread(nextData);
+            unread(nextData);
             return false;
         }
         return variable_end == data;
@@ -258,23 +291,59 @@ public class VariableSubstitutorReader extends Reader
     @Override
     public int read(char cbuf[], int off, int len) throws IOException {
         int charsRead = 0;
-        for(int i=0; i<len; i++){
-            int nextChar = read();
-            if(nextChar == -1) {
-                if(charsRead == 0){
-                    charsRead = -1;
+        while (charsRead < len)
+        {
+            if (varValue != null)
+            {
+                // copy the value of the last variable
+                int count = Math.min(varValue.length() - varValueIndex, len - charsRead);
+                varValue.getChars(varValueIndex, varValueIndex + count, cbuf, off + charsRead);
+                varValueIndex += count;
+                charsRead += count;
+                if (varValueIndex == varValue.length())
+                {
+                    varValue = null;
+                    varValueIndex = 0;
                 }
+                continue;
+            }
+            if (pushback == NONE && position == limit && !fill())
+            {
                 break;
             }
-            charsRead = i + 1;
-            cbuf[off + i] = (char) nextChar;
+            if (pushback != NONE)
+            {
+                int data = read();
+                if (data == -1)
+                {
+                    break;
+                }
+                cbuf[off + charsRead++] = (char) data;
+                continue;
+            }
+
+            // copy the text up to the next variable start character
+            int end = Math.min(limit, position + len - charsRead);
+            int start = position;
+            while (position < end && buffer[position] != variable_start)
+            {
+                ++position;
+            }
+            int count = position - start;
+            System.arraycopy(buffer, start, cbuf, off + charsRead, count);
+            charsRead += count;
+            if (position < end)
+            {
+                ++position;
+                substitute();
+            }
         }
-        return charsRead;
+        return (charsRead == 0 && len > 0) ? -1 : charsRead;
     }
 
     @Override
     public void close() throws IOException {
-        this.pushbackReader.close();
+        source.close();
     }
 
     @Override
@@ -284,7 +353,7 @@ public class VariableSubstitutorReader extends Reader
 
     @Override
     public boolean ready() throws IOException {
-        return this.pushbackReader.ready();
+        return varValue != null || pushback != NONE || position < limit || source.ready();
     }
 
     @Override
@@ -302,6 +371,56 @@ public class VariableSubstitutorReader extends Reader
         throw new RuntimeException("Operation Not Supported");
     }
 
+    /**
+     * Returns the next character of the source.
+     *
+     * @return the next character, or {@code -1} if the end of the source has been reached
+     * @throws IOException for any I/O error
+     */
+    private int next() throws IOException
+    {
+        if (pushback != NONE)
+        {
+            int data = pushback;
+            pushback = NONE;
+            return data;
+        }
+        if (position == limit && !fill())
+        {
+            return -1;
+        }
+        return buffer[position++];
+    }
+
+    /**
+     * Pushes back a character, so that it is returned by the next call to {@link #next()}.
+     *
+     * @param data the character, or {@code -1} to push back the end of the source
+     */
+    private void unread(int data)
+    {
+        pushback = data;
+    }
+
+    /**
+     * Reads the next block from the source.
+     *
+     * @return {@code true} if characters were read, {@code false} if the end of the source has been reached
+     * @throws IOException for any I/O error
+     */
+    private boolean fill() throws IOException
+    {
+        int count;
+        do
+        {
+            count = source.read(buffer, 0, buffer.length);
+        }
+        while (count == 0);
+        position = 0;
+        limit = Math.max(count, 0);
+        return count > 0;
+    }
+
 
     private static boolean isAllowedCharInVariableName(int c)
     {
@@ -317,9 +436,10 @@ public class VariableSubstitutorReader extends Reader
      * Escapes the special characters in the specified string using file type specific rules.
      *
      * @param str  the string to check for special characters
+     * @param type the substitution type, or {@code null} for the default type
      * @return the string with the special characters properly escaped
      */
-    private String escapeSpecialChars(String str)
+    static String escapeSpecialChars(String str, SubstitutionType type)
     {
         StringBuffer buffer;
         int len;
@@ -0,0 +1,279 @@
+/*
+ * Copyright 2016 Julien Ponge, René Krell and the IzPack team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.core.substitutor;
+
+import com.izforge.izpack.api.data.Variables;
+import com.izforge.izpack.api.substitutor.SubstitutionType;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A string containing variable references, parsed once so that it can be rendered repeatedly without parsing.
+ * <p/>
+ * References are parsed by a {@link VariableSubstitutorReader}, and variable values are escaped for the
+ * {@link SubstitutionType} of the template. Variable values are looked up when the template is rendered, so a
+ * template remains valid as variables change.
+ */
+public final class VariableTemplate
+{
+    /**
+     * The literal text and references of the template, in order. Literals are {@code String}s.
+     */
+    private final Object[] parts;
+
+    /**
+     * The template text if it contains no references, otherwise {@code null}.
+     */
+    private final String literal;
+
+    /**
+     * Constructs a <tt>VariableTemplate</tt>.
+     *
+     * @param parts the literal text and references of the template
+     */
+    private VariableTemplate(Object[] parts)
+    {
+        this.parts = parts;
+        if (parts.length == 0)
+        {
+            literal = "";
+        }
+        else if (parts.length == 1 && parts[0] instanceof String)
+        {
+            literal = (String) parts[0];
+        }
+        else
+        {
+            literal = null;
+        }
+    }
+
+    /**
+     * Parses a template, as by {@link Variables#replace(String)}, i.e. for the
+     * {@link SubstitutionType#TYPE_PLAIN plain} type with braces not required.
+     *
+     * @param text the template text
+     * @return the parsed template
+     */
+    public static VariableTemplate compile(String text)
+    {
+        return compile(text, SubstitutionType.TYPE_PLAIN, false);
+    }
+
+    /**
+     * Parses a template.
+     *
+     * @param text           the template text
+     * @param type           the substitution type, or {@code null} for the default type
+     * @param bracesRequired determines if references must be enclosed in braces
+     * @return the parsed template
+     */
+    public static VariableTemplate compile(String text, SubstitutionType type, boolean bracesRequired)
+    {
+        final SubstitutionType referenceType = (type != null) ? type : SubstitutionType.getDefault();
+        final List<Object> parts = new ArrayList<Object>();
+        final StringBuilder literal = new StringBuilder();
+        VariableSubstitutorReader reader = new VariableSubstitutorReader(new StringReader(text), null, referenceType,
+                                                                         bracesRequired)
+        {
+            @Override
+            String reference(String name, boolean inBraces, String raw)
+            {
+                // the text read so far precedes the reference
+                if (literal.length() > 0)
+                {
+                    parts.add(literal.toString());
+                    literal.setLength(0);
+                }
+                parts.add(Reference.create(name, inBraces, raw, referenceType));
+                return "";
+            }
+        };
+        try
+        {
+            int c;
+            while ((c = reader.read()) != -1)
+            {
+                literal.append((char) c);
+            }
+        }
+        catch (IOException exception)
+        {
+            // not thrown by a StringReader
+            throw new IllegalStateException(exception);
+        }
+        if (literal.length() > 0)
+        {
+            parts.add(literal.toString());
+        }
+        return new VariableTemplate(parts.toArray());
+    }
+
+    /**
+     * Returns the character starting variable references for a substitution type.
+     *
+     * @param type the substitution type, or {@code null} for the default type
+     * @return the variable start character
+     */
+    public static char getVariableStart(SubstitutionType type)
+    {
+        if (type == SubstitutionType.TYPE_SHELL)
+        {
+            return '%';
+        }
+        else if (type == SubstitutionType.TYPE_AT || type == SubstitutionType.TYPE_ANT)
+        {
+            return '@';
+        }
+        return '$';
+    }
+
+    /**
+     * Determines if the template contains variable references.
+     *
+     * @return {@code true} if the template contains references
+     */
+    public boolean hasReferences()
+    {
+        return literal == null;
+    }
+
+    /**
+     * Renders the template, replacing references with the current values of the variables.
+     * <p/>
+     * References to undefined variables are rendered as they appear in the template.
+     *
+     * @param variables the variables
+     * @return the rendered text
+     */
+    public String render(Variables variables)
+    {
+        if (literal != null)
+        {
+            return literal;
+        }
+        StringBuilder result = new StringBuilder();
+        render(variables, result);
+        return result.toString();
+    }
+
+    /**
+     * Renders the template, replacing references with the current values of the variables.
+     *
+     * @param variables the variables
+     * @param result    the builder to append the rendered text to
+     */
+    public void render(Variables variables, StringBuilder result)
+    {
+        for (Object part : parts)
+        {
+            if (part instanceof String)
+            {
+                result.append((String) part);
+            }
+            else
+            {
+                result.append(((Reference) part).render(variables));
+            }
+        }
+    }
+
+    /**
+     * A variable reference.
+     */
+    static final class Reference
+    {
+        private enum Kind
+        {
+            VARIABLE, ENVIRONMENT, SYSTEM
+        }
+
+        private final Kind kind;
+
+        /**
+         * The name of the variable, environment variable or system property.
+         */
+        private final String name;
+
+        /**
+         * The text of the reference, rendered if it is undefined.
+         */
+        private final String raw;
+
+        /**
+         * The substitution type, used to escape values.
+         */
+        private final SubstitutionType type;
+
+        private Reference(Kind kind, String name, String raw, SubstitutionType type)
+        {
+            this.kind = kind;
+            this.name = name;
+            this.raw = raw;
+            this.type = type;
+        }
+
+        static Reference create(String name, boolean inBraces, String raw, SubstitutionType type)
+        {
+            if (inBraces && name.startsWith("ENV[") && (name.lastIndexOf(']') == name.length() - 1))
+            {
+                return new Reference(Kind.ENVIRONMENT, name.substring(4, name.length() - 1), raw, type);
+            }
+            else if (inBraces && name.startsWith("SYSTEM[") && (name.lastIndexOf(']') == name.length() - 1))
+            {
+                return new Reference(Kind.SYSTEM, name.substring(7, name.length() - 1), raw, type);
+            }
+            // TODO: Compatibility mode - to be removed in future
+            else if (inBraces && name.startsWith("SYSTEM_") && name.length() > 7)
+            {
+                return new Reference(Kind.SYSTEM, name.substring(7).replace('_', '.'), raw, type);
+            }
+            return new Reference(Kind.VARIABLE, name, raw, type);
+        }
+
+        /**
+         * Renders the reference.
+         *
+         * @param variables the variables
+         * @return the escaped value of the reference, or the reference itself if it is undefined
+         */
+        String render(Variables variables)
+        {
+            String value;
+            switch (kind)
+            {
+                case ENVIRONMENT:
+                    value = System.getenv(name);
+                    if (value == null)
+                    {
+                        value = "";
+                    }
+                    break;
+                case SYSTEM:
+                    value = System.getProperty(name);
+                    break;
+                default:
+                    value = variables.get(name);
+                    break;
+            }
+            return value != null ? VariableSubstitutorReader.escapeSpecialChars(value, type) : raw;
+        }
+    }
+}
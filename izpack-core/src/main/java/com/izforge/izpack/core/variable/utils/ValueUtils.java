@@ -30,6 +30,8 @@ public class ValueUtils
 {
     private static final Pattern RESOLVER_PATTERN = Pattern.compile("\\$\\{(.+?)\\}|\\$(.+?)\\b");
 
+    private static final Pattern BRACED_PATTERN = Pattern.compile("\\$\\{[^}]+\\}");
+
     public static Set<String> parseUnresolvedVariableNames(String... strings)
     {
         Set<String> unresolvedNames = new HashSet<String>();
@@ -63,4 +65,25 @@ public class ValueUtils
         Matcher matcher = getUnresolvedVariableMatcher(value);
         return matcher.find();
     }
+
+    /**
+     * Determines if all variable references in the given strings are enclosed in braces.
+     * <p/>
+     * Only then are the names returned by {@link #parseUnresolvedVariableNames(String...)} exactly the variables
+     * substituted, as names of references without braces may contain characters, such as '.', ending the match.
+     *
+     * @param strings the strings. May contain {@code null}
+     * @return {@code true} if the strings contain no references without braces
+     */
+    public static boolean hasOnlyBracedReferences(String... strings)
+    {
+        for (String s : strings)
+        {
+            if (s != null && BRACED_PATTERN.matcher(s).replaceAll("").indexOf('$') != -1)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
 }
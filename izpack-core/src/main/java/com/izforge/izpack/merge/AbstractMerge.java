@@ -20,9 +20,12 @@
 package com.izforge.izpack.merge;
 
 import java.io.OutputStream;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import com.izforge.izpack.api.merge.Mergeable;
 
@@ -36,12 +39,87 @@ public abstract class AbstractMerge implements Mergeable
 {
     protected Map<OutputStream, List<String>> mergeContent;
 
+    /**
+     * Returns the names of the entries merged to a stream, creating the list if needed.
+     * <p/>
+     * Lists created here are indexed, so that {@link List#contains(Object)} is a constant time check.
+     *
+     * @param outputStream the stream
+     * @return the names of the entries merged to the stream
+     */
     protected List<String> getMergeList(OutputStream outputStream)
     {
-        if (!mergeContent.containsKey(outputStream))
+        List<String> result = mergeContent.get(outputStream);
+        if (result == null)
         {
-            mergeContent.put(outputStream, new ArrayList<String>());
+            result = new MergeList();
+            mergeContent.put(outputStream, result);
+        }
+        return result;
+    }
+
+    /**
+     * A list of entry names, with a hash index of its elements.
+     */
+    private static class MergeList extends AbstractList<String>
+    {
+        private final List<String> names = new ArrayList<String>();
+
+        private final Set<String> index = new HashSet<String>();
+
+        @Override
+        public String get(int index)
+        {
+            return names.get(index);
+        }
+
+        @Override
+        public int size()
+        {
+            return names.size();
+        }
+
+        @Override
+        public boolean contains(Object o)
+        {
+            return index.contains(o);
+        }
+
+        @Override
+        public void add(int index, String name)
+        {
+            names.add(index, name);
+            this.index.add(name);
+        }
+
+        @Override
+        public String set(int index, String name)
+        {
+            String result = names.set(index, name);
+            this.index.add(name);
+            unindex(result);
+            return result;
+        }
+
+        @Override
+        public String remove(int index)
+        {
+            String result = names.remove(index);
+            unindex(result);
+            return result;
+        }
+
+        /**
+         * Removes a name from the index, unless the list still contains it.
+         *
+         * @param name the name
+         */
+        private void unindex(String name)
+        {
+            if (!names.contains(name))
+            {
+                index.remove(name);
+            }
         }
-        return mergeContent.get(outputStream);
     }
 }
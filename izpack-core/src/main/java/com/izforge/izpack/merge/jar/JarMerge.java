@@ -25,6 +25,10 @@ import com.izforge.izpack.merge.AbstractMerge;
 import com.izforge.izpack.util.FileUtil;
 import com.izforge.izpack.util.IoHelper;
 
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.io.IOUtils;
+
 import java.io.*;
 import java.net.URL;
 import java.util.ArrayList;
@@ -35,6 +39,7 @@ import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
 /**
@@ -44,6 +49,11 @@ import java.util.zip.ZipOutputStream;
  */
 public class JarMerge extends AbstractMerge
 {
+    /**
+     * Pattern matching the names of signature files.
+     */
+    private static final Pattern SIGNATURE = Pattern.compile("/?META-INF/(.*\\.(SF|DSA|RSA)|SIG-.*)");
+
     private final String jarPath;
 
     private final String regexp;
@@ -176,16 +186,13 @@ public class JarMerge extends AbstractMerge
     {
         Pattern pattern = Pattern.compile(regexp);
         List<String> mergeList = getMergeList(outputStream);
-        JarFile jarFile = null;
-        JarEntry jarEntry;
-        try
+        try (ZipFile zipFile = ZipFile.builder().setFile(new File(jarPath)).get())
         {
-            jarFile = new JarFile(jarPath);
-            Enumeration<JarEntry> jarFileEntries = jarFile.entries();
+            Enumeration<ZipArchiveEntry> jarFileEntries = zipFile.getEntries();
 
             while (jarFileEntries.hasMoreElements())
             {
-                jarEntry = jarFileEntries.nextElement();
+                ZipArchiveEntry jarEntry = jarFileEntries.nextElement();
 
                 if (isManifest(jarEntry.getName())) {
                     // Skip the JAR's manifest file to avoid
@@ -213,9 +220,29 @@ public class JarMerge extends AbstractMerge
                         dest.append(matchFile);
                     }
 
-                    InputStream inputStream = jarFile.getInputStream(jarEntry);
-                    IoHelper.copyStreamToJar(inputStream, (java.util.zip.ZipOutputStream) outputStream, dest.toString().replaceAll("//", "/"),
-                            jarEntry.getTime());
+                    String name = dest.toString().replaceAll("//", "/");
+                    if (outputStream instanceof RawJarOutputStream)
+                    {
+                        try (InputStream inputStream = zipFile.getRawInputStream(jarEntry))
+                        {
+                            ((RawJarOutputStream) outputStream).addRawEntry(copyEntry(jarEntry, name), inputStream);
+                        }
+                    }
+                    else
+                    {
+                        try (InputStream inputStream = zipFile.getInputStream(jarEntry))
+                        {
+                            if (jarEntry.getMethod() == ZipEntry.STORED)
+                            {
+                                copyStoredEntry(jarEntry, inputStream, (ZipOutputStream) outputStream, name);
+                            }
+                            else
+                            {
+                                IoHelper.copyStreamToJar(inputStream, (ZipOutputStream) outputStream, name,
+                                                         jarEntry.getTime());
+                            }
+                        }
+                    }
                 }
             }
         }
@@ -223,16 +250,58 @@ public class JarMerge extends AbstractMerge
         {
             throw new IzPackException("Error accessing file: " + jarPath, e.getCause());
         }
-        finally {
-            if (jarFile != null)
-            {
-                try
-                {
-                    jarFile.close();
-                }
-                catch (IOException ignored) {}
-            }
+    }
+
+    /**
+     * Copies an entry under a new name, keeping its method, CRC and sizes.
+     * <p/>
+     * The copy describes the compressed content of the source unchanged, so it is written from the
+     * {@link ZipFile#getRawInputStream(ZipArchiveEntry) raw} content of the source.
+     *
+     * @param source the source entry
+     * @param name   the name of the copy
+     * @return the copy
+     */
+    private ZipArchiveEntry copyEntry(ZipArchiveEntry source, String name)
+    {
+        ZipArchiveEntry entry = new ZipArchiveEntry(name);
+        entry.setMethod(source.getMethod());
+        entry.setSize(source.getSize());
+        entry.setCompressedSize(source.getCompressedSize());
+        entry.setCrc(source.getCrc());
+        if (source.getTime() != -1)
+        {
+            entry.setTime(source.getTime());
+        }
+        return entry;
+    }
+
+    /**
+     * Copies an entry stored without compression, keeping its method, CRC and sizes.
+     * <p/>
+     * The bytes are moved unchanged, so neither inflating the source nor deflating the copy is needed.
+     *
+     * @param source the source entry
+     * @param in     the source entry content
+     * @param out    the stream to write to
+     * @param name   the name of the copy
+     * @throws IOException for any I/O error
+     */
+    private void copyStoredEntry(ZipEntry source, InputStream in, ZipOutputStream out, String name)
+            throws IOException
+    {
+        ZipEntry entry = new ZipEntry(name);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(source.getSize());
+        entry.setCompressedSize(source.getCompressedSize());
+        entry.setCrc(source.getCrc());
+        if (source.getTime() != -1)
+        {
+            entry.setTime(source.getTime());
         }
+        out.putNextEntry(entry);
+        IOUtils.copy(in, out);
+        out.closeEntry();
     }
 
     @Override
@@ -279,7 +348,7 @@ public class JarMerge extends AbstractMerge
      */
     private boolean isSignature(String name)
     {
-        return name.matches("/?META-INF/.*\\.(SF|DSA|RSA)") || name.matches("/?META-INF/SIG-.*");
+        return SIGNATURE.matcher(name).matches();
     }
 
     /**
@@ -0,0 +1,220 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.merge.jar;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+/**
+ * A {@link JarOutputStream} that writes through a commons-compress {@link ZipArchiveOutputStream}, so that
+ * compressed entries of other archives can also be copied without being inflated and deflated again.
+ * <p/>
+ * Entries written with {@link #putNextEntry(ZipEntry)} are compressed as by a <tt>JarOutputStream</tt>.
+ * {@link JarMerge} copies the entries of the jars it merges with {@link #addRawEntry(ZipArchiveEntry, InputStream)}
+ * when merging to this stream.
+ */
+public class RawJarOutputStream extends JarOutputStream
+{
+    /**
+     * The stream writing the archive.
+     */
+    private final ZipArchiveOutputStream archive;
+
+    /**
+     * The names of the entries written, to reject duplicates as <tt>ZipOutputStream</tt> does.
+     */
+    private final Set<String> names = new HashSet<String>();
+
+    /**
+     * Determines if an entry is open.
+     */
+    private boolean open;
+
+    /**
+     * Determines if the archive is complete.
+     */
+    private boolean finished;
+
+    /**
+     * Constructs a <tt>RawJarOutputStream</tt>.
+     *
+     * @param file the file to write. Any existing file is replaced
+     * @throws IOException if the file cannot be created
+     */
+    public RawJarOutputStream(Path file) throws IOException
+    {
+        // the inherited stream is never written to; it only completes an empty archive on close
+        super(OutputStream.nullOutputStream());
+        archive = new ZipArchiveOutputStream(file);
+    }
+
+    /**
+     * Adds an entry from its compressed content, as read from another archive.
+     *
+     * @param entry the entry. Its method, CRC, size and compressed size must be set
+     * @param raw   the compressed content of the entry
+     * @throws IOException for any I/O error, or if an entry with the same name has already been written
+     */
+    public void addRawEntry(ZipArchiveEntry entry, InputStream raw) throws IOException
+    {
+        closeEntry();
+        checkName(entry.getName());
+        archive.addRawArchiveEntry(entry, raw);
+    }
+
+    @Override
+    public void setComment(String comment)
+    {
+        archive.setComment(comment);
+    }
+
+    @Override
+    public void setMethod(int method)
+    {
+        archive.setMethod(method);
+    }
+
+    @Override
+    public void setLevel(int level)
+    {
+        archive.setLevel(level);
+    }
+
+    @Override
+    public void putNextEntry(ZipEntry entry) throws IOException
+    {
+        closeEntry();
+        checkName(entry.getName());
+        archive.putArchiveEntry(copy(entry));
+        open = true;
+    }
+
+    @Override
+    public void closeEntry() throws IOException
+    {
+        if (open)
+        {
+            open = false;
+            archive.closeArchiveEntry();
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException
+    {
+        archive.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException
+    {
+        archive.write(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException
+    {
+        archive.flush();
+    }
+
+    @Override
+    public void finish() throws IOException
+    {
+        if (!finished)
+        {
+            closeEntry();
+            archive.finish();
+            finished = true;
+        }
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            finish();
+            archive.close();
+        }
+        finally
+        {
+            super.close();
+        }
+    }
+
+    /**
+     * Copies the attributes of an entry that are set.
+     * <p/>
+     * Unlike <tt>ZipOutputStream</tt>, <tt>ZipArchiveEntry</tt> rejects unset attributes.
+     *
+     * @param entry the entry
+     * @return the copy
+     */
+    private static ZipArchiveEntry copy(ZipEntry entry)
+    {
+        ZipArchiveEntry result = new ZipArchiveEntry(entry.getName());
+        if (entry.getMethod() != -1)
+        {
+            result.setMethod(entry.getMethod());
+        }
+        if (entry.getSize() != -1)
+        {
+            result.setSize(entry.getSize());
+        }
+        if (entry.getCompressedSize() != -1)
+        {
+            result.setCompressedSize(entry.getCompressedSize());
+        }
+        if (entry.getCrc() != -1)
+        {
+            result.setCrc(entry.getCrc());
+        }
+        if (entry.getTime() != -1)
+        {
+            result.setTime(entry.getTime());
+        }
+        result.setComment(entry.getComment());
+        return result;
+    }
+
+    /**
+     * Verifies that no entry with the specified name has been written.
+     *
+     * @param name the entry name
+     * @throws ZipException if an entry with the name has already been written
+     */
+    private void checkName(String name) throws ZipException
+    {
+        if (!names.add(name))
+        {
+            throw new ZipException("duplicate entry: " + name);
+        }
+    }
+}
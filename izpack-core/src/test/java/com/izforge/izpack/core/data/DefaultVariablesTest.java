@@ -24,6 +24,7 @@ package com.izforge.izpack.core.data;
 import com.izforge.izpack.api.data.*;
 import com.izforge.izpack.api.exception.InstallerException;
 import com.izforge.izpack.api.rules.Condition;
+import com.izforge.izpack.api.substitutor.VariableSubstitutor;
 import com.izforge.izpack.core.container.DefaultContainer;
 import com.izforge.izpack.core.rules.ConditionContainer;
 import com.izforge.izpack.core.rules.RulesEngineImpl;
@@ -40,10 +41,14 @@ import org.junit.rules.TemporaryFolder;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.*;
 
@@ -65,6 +70,45 @@ public class DefaultVariablesTest
     private final DefaultVariables variables = new DefaultVariables();
 
 
+    /**
+     * Tests the {@link Variables#getVersion()} and {@link Variables#getVersion(String)} methods, and that listeners
+     * are notified of changes.
+     */
+    @Test
+    public void testVersions()
+    {
+        final List<String> changes = new ArrayList<String>();
+        VariableListener listener = new VariableListener()
+        {
+            @Override
+            public void variableChanged(String name, String oldValue, String newValue, long version)
+            {
+                changes.add(name + ":" + oldValue + "->" + newValue + "@" + version);
+            }
+        };
+        variables.addListener(listener);
+        assertEquals(0, variables.getVersion());
+        assertEquals(0, variables.getVersion("var1"));
+
+        variables.set("var1", "value1");
+        variables.set("var2", "value2");
+        variables.set("var1", "value1"); // unchanged
+        assertEquals(2, variables.getVersion());
+        assertEquals(1, variables.getVersion("var1"));
+        assertEquals(2, variables.getVersion("var2"));
+
+        variables.set("var1", null);
+        variables.set("var3", null); // unchanged
+        assertEquals(3, variables.getVersion());
+        assertEquals(3, variables.getVersion("var1"));
+        assertEquals(0, variables.getVersion("var3"));
+
+        variables.removeListener(listener);
+        variables.set("var2", "other");
+        assertEquals(4, variables.getVersion("var2"));
+        assertEquals(Arrays.asList("var1:null->value1@1", "var2:null->value2@2", "var1:value1->null@3"), changes);
+    }
+
     /**
      * Tests the {@link Variables#set(String, String)}, {@link Variables#get(String)} and
      * {@link Variables#get(String, String)} methods.
@@ -397,6 +441,53 @@ public class DefaultVariablesTest
         assertEquals("recheck variable with checkonce=true", "depValue", variables.get("checkonceVar")); // should not change any more
     }
 
+    /**
+     * Verifies that dynamic variables are only evaluated again when the variables they depend on change.
+     */
+    @Test
+    public void testDynamicVariablesEvaluatedOnChange()
+    {
+        final AtomicInteger evaluations = new AtomicInteger();
+        DynamicVariableImpl counted = new DynamicVariableImpl();
+        counted.setName("counted");
+        counted.setValue(new PlainValue("${depVar2}-${other}")
+        {
+            @Override
+            public String resolve(VariableSubstitutor... substitutors) throws Exception
+            {
+                evaluations.incrementAndGet();
+                return super.resolve(substitutors);
+            }
+        });
+
+        variables.set("depVar1", "a");
+        variables.set("other", "b");
+        variables.add(createDynamic("depVar2", "${depVar1}"));
+        variables.add(counted);
+
+        variables.refresh();
+        variables.refresh();
+        assertEquals("a-b", variables.get("counted"));
+        assertEquals(1, evaluations.get());
+
+        // a change to an indirect dependency is propagated
+        variables.set("depVar1", "c");
+        variables.refresh();
+        assertEquals("c-b", variables.get("counted"));
+        assertEquals(2, evaluations.get());
+
+        variables.set("other", "d");
+        variables.set("unrelated", "e");
+        variables.refresh();
+        variables.refresh();
+        assertEquals("c-d", variables.get("counted"));
+        assertEquals(3, evaluations.get());
+
+        variables.invalidateDynamicVariables();
+        variables.refresh();
+        assertEquals(4, evaluations.get());
+    }
+
     /**
      * Tests dynamic variables with and without conditions
      * <p>
@@ -705,6 +796,37 @@ public class DefaultVariablesTest
         return createDynamicFromIni(name, "src/test/resources/com/izforge/izpack/core/variable/test.ini", "test", name, autounset);
     }
 
+    /**
+     * Verifies that dynamic variables not derived from variables alone are evaluated on each refresh.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testExternalDynamicVariablesEvaluatedOnRefresh() throws IOException
+    {
+        File ini = rootFolder.newFile("external.ini");
+        FileUtils.writeStringToFile(ini, "[test]\nkey=first\n", "UTF-8");
+        variables.add(createDynamicFromIni("external", ini.getPath(), "test", "key", false));
+        System.setProperty("izpack.test.property", "one");
+        variables.add(createDynamic("property", "${SYSTEM[izpack.test.property]}"));
+        try
+        {
+            variables.refresh();
+            assertEquals("first", variables.get("external"));
+            assertEquals("one", variables.get("property"));
+
+            FileUtils.writeStringToFile(ini, "[test]\nkey=second\n", "UTF-8");
+            System.setProperty("izpack.test.property", "two");
+            variables.refresh();
+            assertEquals("second", variables.get("external"));
+            assertEquals("two", variables.get("property"));
+        }
+        finally
+        {
+            System.clearProperty("izpack.test.property");
+        }
+    }
+
     /**
      * Creates a dynamic variable from a ini file.
      *
@@ -0,0 +1,332 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.core.data;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.izforge.izpack.api.data.Blockable;
+import com.izforge.izpack.api.data.ExecutableFile;
+import com.izforge.izpack.api.data.OverrideType;
+import com.izforge.izpack.api.data.Pack;
+import com.izforge.izpack.api.data.PackCompression;
+import com.izforge.izpack.api.data.PackFile;
+import com.izforge.izpack.api.data.PackInfo;
+import com.izforge.izpack.api.data.PacksInfoFormat;
+import com.izforge.izpack.api.data.ParsableFile;
+import com.izforge.izpack.api.data.UpdateCheck;
+import com.izforge.izpack.api.data.XPackFile;
+import com.izforge.izpack.api.data.binding.OsModel;
+import com.izforge.izpack.api.substitutor.SubstitutionType;
+
+/**
+ * Tests the {@link PacksInfoWriter} and {@link PacksInfoReader}.
+ */
+public class PacksInfoReaderTest
+{
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * Verifies that pack metadata survives a round trip through the binary format.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testBinary() throws IOException
+    {
+        List<PackInfo> packs = createPacks();
+        PacksInfoReader reader = read(write(packs, PacksInfoFormat.BINARY));
+        assertEquals(PacksInfoFormat.BINARY, reader.getFormat());
+        checkPacks(packs, reader);
+    }
+
+    /**
+     * Verifies that pack metadata written in the serialized format can still be read.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testSerialized() throws IOException
+    {
+        List<PackInfo> packs = createPacks();
+        PacksInfoReader reader = read(write(packs, PacksInfoFormat.SERIALIZED));
+        assertEquals(PacksInfoFormat.SERIALIZED, reader.getFormat());
+        checkPacks(packs, reader);
+    }
+
+    /**
+     * Verifies that the binary format is more compact than the serialized format when there are many files.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testBinaryIsCompact() throws IOException
+    {
+        File dir = temporaryFolder.newFolder();
+        PackInfo packInfo = new PackInfo("Core", "Core", null, true, false, null, true, 0);
+        for (int i = 0; i < 500; i++)
+        {
+            File file = new File(dir, "file" + i + ".txt");
+            FileUtils.writeStringToFile(file, "content " + i, "UTF-8");
+            packInfo.addFile(dir, file, "$INSTALL_PATH/lib/" + file.getName(), null, OverrideType.OVERRIDE_TRUE,
+                             null, Blockable.BLOCKABLE_NONE, null, null, null);
+        }
+        List<PackInfo> packs = Collections.singletonList(packInfo);
+
+        byte[] binary = write(packs, PacksInfoFormat.BINARY);
+        byte[] serialized = write(packs, PacksInfoFormat.SERIALIZED);
+        assertTrue(binary.length * 4 < serialized.length);
+        assertEquals(500, read(binary).getPackInfo(0).getPackFiles().size());
+    }
+
+    /**
+     * Verifies that invalid metadata is rejected.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test(expected = StreamCorruptedException.class)
+    public void testInvalid() throws IOException
+    {
+        read(new byte[]{1, 2, 3, 4, 5, 6});
+    }
+
+    /**
+     * Verifies that truncated binary metadata is rejected.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test(expected = StreamCorruptedException.class)
+    public void testTruncated() throws IOException
+    {
+        byte[] data = write(createPacks(), PacksInfoFormat.BINARY);
+        read(Arrays.copyOf(data, data.length - 1));
+    }
+
+    private List<PackInfo> createPacks() throws IOException
+    {
+        File dir = temporaryFolder.newFolder();
+        File file1 = new File(dir, "a.txt");
+        File file2 = new File(dir, "b.jar");
+        File subdir = new File(dir, "sub");
+        FileUtils.writeStringToFile(file1, "a", "UTF-8");
+        FileUtils.writeStringToFile(file2, "bb", "UTF-8");
+        assertTrue(subdir.mkdir());
+        List<OsModel> unix = Collections.singletonList(new OsModel(null, "unix", null, null, null));
+
+        PackInfo core = new PackInfo("Core", "core.id", "The core", true, false, null, true, 1234);
+        core.setOsConstraints(unix);
+        core.addInstallGroup("group1");
+        core.setGroup("base");
+        core.setCondition("cond.core");
+        core.addValidator("com.example.Validator");
+        core.addOnSelect("Docs", null);
+        core.addOnDeselect("!Docs", "cond.docs");
+        Map<String, Object> additionals = new HashMap<String, Object>();
+        additionals.put("key", 42);
+        core.addFile(dir, file1, "$INSTALL_PATH/a.txt", unix, OverrideType.OVERRIDE_UPDATE, "*.bak",
+                     Blockable.BLOCKABLE_AUTO, additionals, "cond.a", null);
+        core.addFile(dir, subdir, "$INSTALL_PATH/sub", null, OverrideType.OVERRIDE_TRUE, null,
+                     Blockable.BLOCKABLE_NONE, null, null, null);
+        core.addFile(dir, file2, "$INSTALL_PATH/b.jar", null, OverrideType.OVERRIDE_FALSE, null,
+                     Blockable.BLOCKABLE_NONE, null, null, Collections.singletonMap("effort", "9"));
+        PackFile stored = core.getPackFiles().iterator().next();
+        stored.setStreamResourceName("packs/pack-Core");
+        stored.setStreamOffset(17);
+        stored.setSize(5);
+        stored.setDigest(new byte[]{1, 2, 3});
+        stored.setCompression(PackCompression.DEFAULT);
+        core.addParsable(new ParsableFile("$INSTALL_PATH/a.txt", SubstitutionType.TYPE_SHELL, "UTF-8", unix));
+        ExecutableFile executable = new ExecutableFile("$INSTALL_PATH/run.sh", ExecutableFile.BIN, null,
+                                                       ExecutableFile.POSTINSTALL, ExecutableFile.WARN,
+                                                       new ArrayList<String>(Arrays.asList("-x", "y")), unix,
+                                                       true);
+        executable.setCondition("cond.exec");
+        core.addExecutable(executable);
+        core.addUpdateCheck(new UpdateCheck(new ArrayList<String>(Collections.singletonList("lib/*.jar")), null));
+
+        PackInfo docs = new PackInfo("Docs", null, null, false, true, "docs", false, 0);
+        docs.setHidden(true);
+        docs.setParent("Core");
+        docs.addDependency("Core");
+        docs.addFile(dir, file1, "$INSTALL_PATH/docs/a.txt", null, OverrideType.OVERRIDE_TRUE, null,
+                     Blockable.BLOCKABLE_NONE, null, null, null);
+        PackFile linked = docs.getPackFiles().iterator().next();
+        linked.setStreamResourceName("packs/pack-Docs");
+        linked.setLinkedPackFile(stored);
+
+        PackInfo volume = new PackInfo("Volume", null, null, false, false, null, true, 0);
+        XPackFile xPackFile = new XPackFile(dir, file2, "$INSTALL_PATH/v/b.jar", null, OverrideType.OVERRIDE_TRUE,
+                                            null, Blockable.BLOCKABLE_FORCE);
+        xPackFile.setArchiveFilePosition(987654321L);
+        volume.getPackFilesMap().put(xPackFile, file2);
+
+        return Arrays.asList(core, docs, volume);
+    }
+
+    private void checkPacks(List<PackInfo> expected, PacksInfoReader reader) throws IOException
+    {
+        assertEquals(expected.size(), reader.size());
+        for (int i = 0; i < expected.size(); i++)
+        {
+            checkPack(expected.get(i).getPack(), reader.getPack(i));
+            checkPackInfo(expected.get(i), reader.getPackInfos().get(i));
+        }
+
+        PackFile linked = reader.getPackInfo(1).getPackFiles().iterator().next();
+        assertTrue(linked.isBackReference());
+        assertEquals("packs/pack-Core", linked.getLinkedPackFile().getStreamResourceName());
+        assertEquals(17, linked.getLinkedPackFile().getStreamOffset());
+        assertEquals(987654321L, ((XPackFile) reader.getPackInfo(2).getPackFiles().iterator().next())
+                .getArchiveFilePosition());
+    }
+
+    private void checkPack(Pack expected, Pack actual)
+    {
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getLangPackId(), actual.getLangPackId());
+        assertEquals(expected.getDescription(), actual.getDescription());
+        assertEquals(expected.isRequired(), actual.isRequired());
+        assertEquals(expected.isPreselected(), actual.isPreselected());
+        assertEquals(expected.isLoose(), actual.isLoose());
+        assertEquals(expected.isUninstall(), actual.isUninstall());
+        assertEquals(expected.isHidden(), actual.isHidden());
+        assertEquals(expected.getExcludeGroup(), actual.getExcludeGroup());
+        assertEquals(expected.getGroup(), actual.getGroup());
+        assertEquals(expected.getCondition(), actual.getCondition());
+        assertEquals(expected.getParent(), actual.getParent());
+        assertEquals(expected.getSize(), actual.getSize());
+        assertEquals(expected.getFileSize(), actual.getFileSize());
+        assertEquals(expected.getDependencies(), actual.getDependencies());
+        assertEquals(expected.getInstallGroups(), actual.getInstallGroups());
+        assertEquals(expected.getValidators(), actual.getValidators());
+        assertEquals(expected.getOnSelect(), actual.getOnSelect());
+        assertEquals(expected.getOnDeselect(), actual.getOnDeselect());
+        checkOsModels(expected.getOsConstraints(), actual.getOsConstraints());
+    }
+
+    private void checkPackInfo(PackInfo expected, PackInfo actual)
+    {
+        List<PackFile> expectedFiles = new ArrayList<PackFile>(expected.getPackFiles());
+        List<PackFile> actualFiles = new ArrayList<PackFile>(actual.getPackFiles());
+        assertEquals(expectedFiles.size(), actualFiles.size());
+        for (int i = 0; i < expectedFiles.size(); i++)
+        {
+            PackFile expectedFile = expectedFiles.get(i);
+            PackFile actualFile = actualFiles.get(i);
+            assertEquals(expectedFile.getClass(), actualFile.getClass());
+            assertEquals(expectedFile.getFile(), actualFile.getFile());
+            assertEquals(expected.getFile(expectedFile), actual.getFile(actualFile));
+            assertEquals(expectedFile.getRelativeSourcePath(), actualFile.getRelativeSourcePath());
+            assertEquals(expectedFile.getTargetPath(), actualFile.getTargetPath());
+            assertEquals(expectedFile.isDirectory(), actualFile.isDirectory());
+            assertEquals(expectedFile.length(), actualFile.length());
+            assertEquals(expectedFile.size(), actualFile.size());
+            assertEquals(expectedFile.lastModified(), actualFile.lastModified());
+            assertEquals(expectedFile.override(), actualFile.override());
+            assertEquals(expectedFile.overrideRenameTo(), actualFile.overrideRenameTo());
+            assertEquals(expectedFile.blockable(), actualFile.blockable());
+            assertEquals(expectedFile.getStreamResourceName(), actualFile.getStreamResourceName());
+            assertEquals(expectedFile.getStreamOffset(), actualFile.getStreamOffset());
+            assertEquals(expectedFile.getCondition(), actualFile.getCondition());
+            assertEquals(expectedFile.isPack200Jar(), actualFile.isPack200Jar());
+            assertEquals(expectedFile.getPack200Properties(), actualFile.getPack200Properties());
+            assertEquals(expectedFile.getAdditionals(), actualFile.getAdditionals());
+            assertEquals(expectedFile.isBackReference(), actualFile.isBackReference());
+            assertArrayEquals(expectedFile.getDigest(), actualFile.getDigest());
+            assertEquals(expectedFile.getCompression(), actualFile.getCompression());
+            checkOsModels(expectedFile.osConstraints(), actualFile.osConstraints());
+        }
+
+        assertEquals(expected.getParsables().size(), actual.getParsables().size());
+        for (int i = 0; i < expected.getParsables().size(); i++)
+        {
+            ParsableFile expectedParsable = expected.getParsables().get(i);
+            ParsableFile actualParsable = actual.getParsables().get(i);
+            assertEquals(expectedParsable.getPath(), actualParsable.getPath());
+            assertEquals(expectedParsable.getType(), actualParsable.getType());
+            assertEquals(expectedParsable.getEncoding(), actualParsable.getEncoding());
+            assertEquals(expectedParsable.getCondition(), actualParsable.getCondition());
+            checkOsModels(expectedParsable.getOsConstraints(), actualParsable.getOsConstraints());
+        }
+
+        assertEquals(expected.getExecutables().size(), actual.getExecutables().size());
+        for (int i = 0; i < expected.getExecutables().size(); i++)
+        {
+            ExecutableFile expectedExecutable = expected.getExecutables().get(i);
+            ExecutableFile actualExecutable = actual.getExecutables().get(i);
+            assertEquals(expectedExecutable.toString(), actualExecutable.toString());
+            assertEquals(expectedExecutable.keepFile, actualExecutable.keepFile);
+            assertEquals(expectedExecutable.getCondition(), actualExecutable.getCondition());
+        }
+
+        assertEquals(expected.getUpdateChecks().size(), actual.getUpdateChecks().size());
+        for (int i = 0; i < expected.getUpdateChecks().size(); i++)
+        {
+            assertEquals(expected.getUpdateChecks().get(i).includesList, actual.getUpdateChecks().get(i).includesList);
+            assertEquals(expected.getUpdateChecks().get(i).excludesList, actual.getUpdateChecks().get(i).excludesList);
+        }
+    }
+
+    private void checkOsModels(List<OsModel> expected, List<OsModel> actual)
+    {
+        if (expected == null)
+        {
+            assertNull(actual);
+            return;
+        }
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++)
+        {
+            assertEquals(expected.get(i).toString(), actual.get(i).toString());
+        }
+    }
+
+    private static byte[] write(List<PackInfo> packs, PacksInfoFormat format) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new PacksInfoWriter(format).write(packs, out);
+        return out.toByteArray();
+    }
+
+    private static PacksInfoReader read(byte[] data) throws IOException
+    {
+        return new PacksInfoReader(new ByteArrayInputStream(data));
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.core.rules;
+
+import com.izforge.izpack.api.adaptator.IXMLElement;
+import com.izforge.izpack.api.rules.Condition;
+import com.izforge.izpack.api.rules.ConditionWithMultipleOperands;
+import com.izforge.izpack.core.rules.logic.AndCondition;
+import com.izforge.izpack.core.rules.logic.NotCondition;
+import com.izforge.izpack.core.rules.logic.OrCondition;
+import com.izforge.izpack.core.rules.logic.XorCondition;
+import com.izforge.izpack.core.rules.process.RefCondition;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+/**
+ * Tests the {@link ConditionPlan} class.
+ */
+public class ConditionPlanTest
+{
+
+    /**
+     * Verifies that cheap operands are evaluated before expensive ones.
+     */
+    @Test
+    public void testCostOrder()
+    {
+        FixedCondition expensive = new FixedCondition(true, false);
+        FixedCondition cheap = new FixedCondition(false, true);
+
+        ConditionPlan plan = ConditionPlan.compile(create(new AndCondition(null), expensive, cheap));
+        assertFalse(plan.evaluate());
+        assertEquals(0, expensive.evaluations);
+        assertEquals(1, cheap.evaluations);
+
+        FixedCondition cheapTrue = new FixedCondition(true, true);
+        plan = ConditionPlan.compile(create(new OrCondition(null), expensive, cheapTrue));
+        assertTrue(plan.evaluate());
+        assertEquals(0, expensive.evaluations);
+        assertEquals(1, cheapTrue.evaluations);
+    }
+
+    /**
+     * Verifies that a condition shared by several branches is evaluated once.
+     */
+    @Test
+    public void testSharedConditions()
+    {
+        FixedCondition shared = new FixedCondition(true, false);
+        FixedCondition other = new FixedCondition(false, false);
+        RefCondition ref = new RefCondition(null);
+        ref.setReferencedCondition(shared);
+
+        Condition condition = create(new OrCondition(null),
+                                     create(new AndCondition(null), shared, other),
+                                     create(new AndCondition(null), ref, NotCondition.createFromCondition(other, null)));
+        assertTrue(condition.isTrue());
+        assertEquals(2, shared.evaluations);
+
+        shared.evaluations = 0;
+        other.evaluations = 0;
+        assertTrue(ConditionPlan.compile(condition).evaluate());
+        assertEquals(1, shared.evaluations);
+        assertEquals(1, other.evaluations);
+    }
+
+    /**
+     * Verifies that plans evaluate random condition trees as the conditions do.
+     */
+    @Test
+    public void testRandomTrees()
+    {
+        Random random = new Random(5);
+        for (int i = 0; i < 2000; ++i)
+        {
+            FixedCondition[] leaves = new FixedCondition[1 + random.nextInt(5)];
+            for (int j = 0; j < leaves.length; ++j)
+            {
+                leaves[j] = new FixedCondition(random.nextBoolean(), random.nextBoolean());
+            }
+            Condition condition = createTree(random, leaves, 4);
+            assertEquals(condition.isTrue(), ConditionPlan.compile(condition).evaluate());
+        }
+    }
+
+    private Condition createTree(Random random, FixedCondition[] leaves, int depth)
+    {
+        int type = (depth == 0) ? 0 : random.nextInt(7);
+        switch (type)
+        {
+            case 1:
+                return create(new AndCondition(null), createOperands(random, leaves, depth));
+            case 2:
+                return create(new OrCondition(null), createOperands(random, leaves, depth));
+            case 3:
+                return create(new XorCondition(null), createOperands(random, leaves, depth));
+            case 4:
+                return NotCondition.createFromCondition(createTree(random, leaves, depth - 1), null);
+            case 5:
+                RefCondition ref = new RefCondition(null);
+                ref.setReferencedCondition(random.nextInt(4) == 0 ? null : createTree(random, leaves, depth - 1));
+                return ref;
+            default:
+                return leaves[random.nextInt(leaves.length)];
+        }
+    }
+
+    private Condition[] createOperands(Random random, FixedCondition[] leaves, int depth)
+    {
+        Condition[] operands = new Condition[random.nextInt(4)];
+        for (int i = 0; i < operands.length; ++i)
+        {
+            operands[i] = createTree(random, leaves, depth - 1);
+        }
+        return operands;
+    }
+
+    private static Condition create(ConditionWithMultipleOperands condition, Condition... operands)
+    {
+        condition.addOperands(operands);
+        return condition;
+    }
+
+    /**
+     * A condition with a fixed result, counting its evaluations.
+     */
+    private static class FixedCondition extends Condition
+    {
+        private final boolean result;
+
+        private final boolean pure;
+
+        private int evaluations;
+
+        FixedCondition(boolean result, boolean pure)
+        {
+            this.result = result;
+            this.pure = pure;
+        }
+
+        @Override
+        public void readFromXML(IXMLElement xmlcondition)
+        {
+        }
+
+        @Override
+        public boolean isTrue()
+        {
+            ++evaluations;
+            return result;
+        }
+
+        @Override
+        public void makeXMLData(IXMLElement conditionRoot)
+        {
+        }
+
+        @Override
+        public Set<String> getVarRefs()
+        {
+            return Collections.emptySet();
+        }
+
+        @Override
+        public boolean isPure()
+        {
+            return pure;
+        }
+    }
+}
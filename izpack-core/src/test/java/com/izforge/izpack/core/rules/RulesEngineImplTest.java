@@ -31,9 +31,12 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import com.izforge.izpack.core.rules.process.*;
 import org.junit.After;
@@ -732,6 +735,70 @@ public class RulesEngineImplTest
         }
     }
 
+    /**
+     * Verifies that the results of pure conditions are memoized until the variables they refer to change, and that
+     * impure conditions are evaluated each time.
+     */
+    @Test
+    public void testMemoizedConditions()
+    {
+        DefaultVariables variables = new DefaultVariables();
+        RulesEngineImpl rules = new RulesEngineImpl(new AutomatedInstallData(variables, Platforms.LINUX), null,
+                                                    Platforms.LINUX);
+        variables.setRules(rules);
+        CountingCondition pure = new CountingCondition("var1", true);
+        CountingCondition impure = new CountingCondition("var1", false);
+        pure.setId("pure");
+        impure.setId("impure");
+        Map<String, Condition> conditions = new HashMap<String, Condition>();
+        conditions.put("pure", pure);
+        conditions.put("impure", impure);
+        conditions.put("ref", NotCondition.createFromCondition(pure, rules));
+        rules.readConditionMap(conditions);
+
+        variables.set("var1", "on");
+        assertTrue(rules.isConditionTrue("pure"));
+        assertTrue(rules.isConditionTrue("pure"));
+        assertTrue(rules.isConditionTrue(pure));
+        assertFalse(rules.isConditionTrue("ref"));
+        assertTrue(rules.isConditionTrue("impure"));
+        assertTrue(rules.isConditionTrue("impure"));
+        assertEquals(2, pure.evaluations); // once directly, once via ref
+        assertEquals(2, impure.evaluations);
+        assertEquals(2, rules.getConditionCacheHits());
+        assertEquals(4, rules.getConditionCacheMisses());
+
+        // unrelated variables don't invalidate the result
+        variables.set("var2", "on");
+        assertTrue(rules.isConditionTrue("pure"));
+        assertEquals(2, pure.evaluations);
+
+        variables.set("var1", "off");
+        assertFalse(rules.isConditionTrue("pure"));
+        assertTrue(rules.isConditionTrue("ref"));
+        assertEquals(4, pure.evaluations);
+
+        rules.invalidateConditions();
+        assertFalse(rules.isConditionTrue("pure"));
+        assertEquals(5, pure.evaluations);
+
+        // conditions on variables with references are not pure
+        VariableCondition condition = new VariableCondition("var1", "on");
+        condition.setInstallData(rules.getCondition("pure").getInstallData());
+        variables.set("var1", "on");
+        assertTrue(condition.isPure());
+        variables.set("var1", "${var2}");
+        assertFalse(condition.isPure());
+
+        // compare conditions are only pure if their references are in braces, as the names are then unambiguous
+        CompareNumericsCondition compare = new CompareNumericsCondition();
+        compare.setLeftOperand("${a.b}");
+        compare.setRightOperand("1");
+        assertTrue(compare.isPure());
+        compare.setLeftOperand("$a.b");
+        assertFalse(compare.isPure());
+    }
+
     /**
      * Helper to serialize and deserialize conditions held by the supplied {@link RulesEngine}.
      *
@@ -775,6 +842,50 @@ public class RulesEngineImplTest
         return rules;
     }
 
-}
+    /**
+     * A condition that is true if a variable is "on", counting its evaluations.
+     */
+    private static class CountingCondition extends Condition
+    {
+        private final String name;
+
+        private final boolean pure;
+
+        private int evaluations;
+
+        CountingCondition(String name, boolean pure)
+        {
+            this.name = name;
+            this.pure = pure;
+        }
+
+        @Override
+        public void readFromXML(IXMLElement xmlcondition)
+        {
+        }
+
+        @Override
+        public boolean isTrue()
+        {
+            ++evaluations;
+            return "on".equals(getInstallData().getVariable(name));
+        }
+
+        @Override
+        public void makeXMLData(IXMLElement conditionRoot)
+        {
+        }
 
+        @Override
+        public Set<String> getVarRefs()
+        {
+            return new HashSet<String>(Collections.singletonList(name));
+        }
 
+        @Override
+        public boolean isPure()
+        {
+            return pure;
+        }
+    }
+}
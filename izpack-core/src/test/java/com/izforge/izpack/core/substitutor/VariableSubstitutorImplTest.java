@@ -33,6 +33,7 @@ import com.izforge.izpack.api.substitutor.SubstitutionType;
 import com.izforge.izpack.api.substitutor.VariableSubstitutor;
 
 import static junit.framework.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static junit.framework.Assert.fail;
 
 
@@ -58,6 +59,22 @@ public class VariableSubstitutorImplTest
         variableSubstitutor = new VariableSubstitutorImpl(variables);
     }
 
+    @Test
+    public void shouldSubstituteCachedTemplatesWithLatestValues() throws Exception
+    {
+        Variables variables = new DefaultVariables(new Properties());
+        VariableSubstitutor substitutor = new VariableSubstitutorImpl(variables);
+        String text = "string without variables";
+        assertSame(text, substitutor.substitute(text, SubstitutionType.TYPE_XML));
+
+        variables.set("CACHED", "<one>");
+        assertThat(substitutor.substitute("${CACHED}/$CACHED", SubstitutionType.TYPE_XML),
+                   Is.is("&lt;one&gt;/&lt;one&gt;"));
+        variables.set("CACHED", "two");
+        assertThat(substitutor.substitute("${CACHED}/$CACHED", SubstitutionType.TYPE_XML), Is.is("two/two"));
+        assertThat(substitutor.substitute("${CACHED}/$CACHED", SubstitutionType.TYPE_PLAIN), Is.is("two/two"));
+    }
+
     @Test
     public void shouldNotSubstitute() throws Exception
     {
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2016 Julien Ponge, René Krell and the IzPack team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.core.substitutor;
+
+import com.izforge.izpack.api.data.Variables;
+import com.izforge.izpack.api.substitutor.SubstitutionType;
+import com.izforge.izpack.core.data.DefaultVariables;
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Properties;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+
+/**
+ * Tests the {@link VariableSubstitutorReader} class.
+ */
+public class VariableSubstitutorReaderTest
+{
+    private Variables variables;
+
+    @Before
+    public void setUp()
+    {
+        Properties properties = new Properties();
+        properties.put("A", "o<n>e");
+        properties.put("AB", "t\\wo");
+        properties.put("B.C", " three");
+        properties.put("EMPTY", "");
+        variables = new DefaultVariables(properties);
+    }
+
+    /**
+     * Verifies that variables are substituted for each substitution type.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testSubstitute() throws IOException
+    {
+        assertEquals("x o<n>e t\\wo $B", substitute("x $A ${AB} $B", SubstitutionType.TYPE_PLAIN, false));
+        assertEquals("x $A t\\wo", substitute("x $A ${AB}", SubstitutionType.TYPE_PLAIN, true));
+        assertEquals("o&lt;n&gt;e", substitute("${A}", SubstitutionType.TYPE_XML, false));
+        assertEquals("t\\\\wo\\ three", substitute("$AB${B.C}", SubstitutionType.TYPE_JAVA_PROPERTIES, false));
+        assertEquals("o<n>e%", substitute("%A%", SubstitutionType.TYPE_SHELL, false));
+        assertEquals("o<n>e@", substitute("@A@", SubstitutionType.TYPE_AT, false));
+        assertEquals("o<n>e:@B@", substitute("@A@:@B@", SubstitutionType.TYPE_ANT, false));
+        assertEquals("$", substitute("$", SubstitutionType.TYPE_PLAIN, true));
+    }
+
+    /**
+     * Verifies that bulk reads return the same text as reading a character at a time, including references
+     * spanning the blocks read from the source.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testBulkRead() throws IOException
+    {
+        char[] chars = {'$', '%', '@', '{', '}', '[', ']', 'A', 'B', '.', ' ', '\n', 'x'};
+        Random random = new Random(11);
+        for (int i = 0; i < 2000; ++i)
+        {
+            StringBuilder text = new StringBuilder();
+            int length = random.nextInt(i % 100 == 0 ? 20000 : 30);
+            for (int j = 0; j < length; ++j)
+            {
+                text.append(chars[random.nextInt(chars.length)]);
+            }
+            for (SubstitutionType type : SubstitutionType.values())
+            {
+                boolean bracesRequired = random.nextBoolean();
+                String expected = readChars(create(text.toString(), type, bracesRequired));
+                assertEquals(text.toString(), expected,
+                             read(create(text.toString(), type, bracesRequired), 1 + random.nextInt(10000)));
+            }
+        }
+    }
+
+    private String substitute(String text, SubstitutionType type, boolean bracesRequired) throws IOException
+    {
+        return IOUtils.toString(create(text, type, bracesRequired));
+    }
+
+    private Reader create(String text, SubstitutionType type, boolean bracesRequired)
+    {
+        return new VariableSubstitutorReader(new StringReader(text), variables, type, bracesRequired);
+    }
+
+    private static String readChars(Reader reader) throws IOException
+    {
+        StringBuilder result = new StringBuilder();
+        int data;
+        while ((data = reader.read()) != -1)
+        {
+            result.append((char) data);
+        }
+        return result.toString();
+    }
+
+    private static String read(Reader reader, int size) throws IOException
+    {
+        StringBuilder result = new StringBuilder();
+        char[] buffer = new char[size];
+        int count;
+        while ((count = reader.read(buffer, 0, size)) != -1)
+        {
+            result.append(buffer, 0, count);
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2016 Julien Ponge, René Krell and the IzPack team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.core.substitutor;
+
+import com.izforge.izpack.api.data.Variables;
+import com.izforge.izpack.api.substitutor.SubstitutionType;
+import com.izforge.izpack.core.data.DefaultVariables;
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Properties;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+/**
+ * Tests the {@link VariableTemplate} class.
+ */
+public class VariableTemplateTest
+{
+    private Variables variables;
+
+    @Before
+    public void setUp()
+    {
+        Properties properties = new Properties();
+        properties.put("A", "one");
+        properties.put("AB", "two");
+        properties.put("B.C", "th<r>ee");
+        properties.put("EMPTY", "");
+        properties.put("INSTALL_PATH", "/opt/app");
+        variables = new DefaultVariables(properties);
+    }
+
+    /**
+     * Verifies that templates render as the variables would replace them.
+     */
+    @Test
+    public void testRender()
+    {
+        checkRender("plain text");
+        checkRender("$INSTALL_PATH/lib/${A}.jar");
+        checkRender("$A$AB${B.C}$EMPTY$UNDEFINED${UNDEFINED}");
+        checkRender("$$$AB$A");
+        checkRender("${A");
+        checkRender("${A B}x");
+        checkRender("$A}x");
+        checkRender("${SYSTEM[java.version]}${SYSTEM_java_version}${SYSTEM[undefined.property]}");
+        checkRender("${ENV[IZPACK_UNDEFINED_VARIABLE]}x");
+        checkRender("$");
+        checkRender("a$");
+        checkRender("$ a");
+        checkRender("$/x");
+    }
+
+    /**
+     * Verifies that random templates render as the variables would replace them.
+     */
+    @Test
+    public void testRenderRandom()
+    {
+        char[] chars = {'$', '$', '{', '}', '[', ']', 'A', 'B', '.', '/', ' ', '\t', 'x'};
+        Random random = new Random(7);
+        for (int i = 0; i < 20000; ++i)
+        {
+            StringBuilder text = new StringBuilder();
+            int length = random.nextInt(12);
+            for (int j = 0; j < length; ++j)
+            {
+                text.append(chars[random.nextInt(chars.length)]);
+            }
+            checkRender(text.toString());
+        }
+    }
+
+    /**
+     * Verifies that random templates of each substitution type render as the reader would substitute them.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testRenderTypes() throws IOException
+    {
+        char[] chars = {'$', '%', '@', '@', '{', '}', '[', ']', 'A', 'B', '.', ' ', 'x'};
+        Random random = new Random(13);
+        for (int i = 0; i < 20000; ++i)
+        {
+            StringBuilder text = new StringBuilder();
+            int length = random.nextInt(12);
+            for (int j = 0; j < length; ++j)
+            {
+                text.append(chars[random.nextInt(chars.length)]);
+            }
+            for (SubstitutionType type : SubstitutionType.values())
+            {
+                checkRender(text.toString(), type, false);
+                checkRender(text.toString(), type, true);
+            }
+        }
+    }
+
+    /**
+     * Verifies that the latest values of variables are rendered.
+     */
+    @Test
+    public void testRenderLatestValues()
+    {
+        VariableTemplate template = VariableTemplate.compile("$INSTALL_PATH/lib");
+        assertTrue(template.hasReferences());
+        assertEquals("/opt/app/lib", template.render(variables));
+        variables.set("INSTALL_PATH", "/usr/local/app");
+        assertEquals("/usr/local/app/lib", template.render(variables));
+
+        assertFalse(VariableTemplate.compile("lib/app.jar").hasReferences());
+    }
+
+    private void checkRender(String text)
+    {
+        try
+        {
+            checkRender(text, SubstitutionType.TYPE_PLAIN, false);
+        }
+        catch (IOException exception)
+        {
+            throw new IllegalStateException(exception);
+        }
+        assertEquals(text, variables.replace(text), VariableTemplate.compile(text).render(variables));
+    }
+
+    private void checkRender(String text, SubstitutionType type, boolean bracesRequired) throws IOException
+    {
+        String expected = IOUtils.toString(
+                new VariableSubstitutorReader(new StringReader(text), variables, type, bracesRequired));
+        assertEquals(text, expected, VariableTemplate.compile(text, type, bracesRequired).render(variables));
+    }
+}
@@ -20,6 +20,7 @@
 package com.izforge.izpack.merge.jar;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
 import java.io.File;
@@ -31,9 +32,16 @@ import java.net.URL;
 import java.net.URLClassLoader;
 import java.util.HashMap;
 import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
 import java.util.jar.JarOutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
 
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.io.IOUtils;
 import org.hamcrest.core.Is;
 import org.hamcrest.core.StringContains;
 import org.junit.Test;
@@ -200,4 +208,97 @@ public class JarMergeTest
         assertEquals("META-INF/ok2", allValues.get(1).getName());
     }
 
+    /**
+     * Verifies that stored entries are copied as stored, with their checksum and size unchanged.
+     */
+    @Test
+    public void testCopyStoredEntries() throws IOException
+    {
+        byte[] content = "stored content".getBytes("UTF-8");
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        File jar = File.createTempFile("storedtest", ".jar");
+        jar.deleteOnExit();
+        try (JarOutputStream stream = new JarOutputStream(new FileOutputStream(jar)))
+        {
+            ZipEntry stored = new ZipEntry("stored/file.txt");
+            stored.setMethod(ZipEntry.STORED);
+            stored.setSize(content.length);
+            stored.setCompressedSize(content.length);
+            stored.setCrc(crc.getValue());
+            stream.putNextEntry(stored);
+            stream.write(content);
+            stream.closeEntry();
+            stream.putNextEntry(new ZipEntry("stored/deflated.txt"));
+            stream.write(content);
+            stream.closeEntry();
+        }
+
+        File output = File.createTempFile("storedout", ".jar");
+        output.deleteOnExit();
+        JarMerge merge = new JarMerge(ResolveUtils.processUrlToJarPath(jar.toURI().toURL()), "stored", "dest",
+                                      new HashMap<OutputStream, List<String>>());
+        try (JarOutputStream stream = new JarOutputStream(new FileOutputStream(output)))
+        {
+            merge.merge(stream);
+        }
+
+        try (JarFile result = new JarFile(output))
+        {
+            JarEntry entry = result.getJarEntry("dest/file.txt");
+            assertEquals(ZipEntry.STORED, entry.getMethod());
+            assertEquals(crc.getValue(), entry.getCrc());
+            assertArrayEquals(content, IOUtils.toByteArray(result.getInputStream(entry)));
+            entry = result.getJarEntry("dest/deflated.txt");
+            assertEquals(ZipEntry.DEFLATED, entry.getMethod());
+            assertArrayEquals(content, IOUtils.toByteArray(result.getInputStream(entry)));
+        }
+    }
+
+    /**
+     * Verifies that compressed entries are copied without recompression when merging to a
+     * {@link RawJarOutputStream}.
+     */
+    @Test
+    public void testCopyCompressedEntriesRaw() throws IOException
+    {
+        byte[] content = "deflated content, deflated content, deflated content".getBytes("UTF-8");
+        File jar = File.createTempFile("rawtest", ".jar");
+        jar.deleteOnExit();
+        try (JarOutputStream stream = new JarOutputStream(new FileOutputStream(jar)))
+        {
+            // a compression level the merged jar does not use
+            stream.setLevel(Deflater.BEST_SPEED);
+            stream.putNextEntry(new ZipEntry("raw/deflated.txt"));
+            stream.write(content);
+            stream.closeEntry();
+        }
+
+        File output = File.createTempFile("rawout", ".jar");
+        output.deleteOnExit();
+        JarMerge merge = new JarMerge(ResolveUtils.processUrlToJarPath(jar.toURI().toURL()), "raw", "dest",
+                                      new HashMap<OutputStream, List<String>>());
+        try (JarOutputStream stream = new RawJarOutputStream(output.toPath()))
+        {
+            stream.setLevel(Deflater.NO_COMPRESSION);
+            stream.putNextEntry(new ZipEntry("other.txt"));
+            stream.write(content);
+            stream.closeEntry();
+            merge.merge(stream);
+        }
+
+        try (ZipFile source = ZipFile.builder().setFile(jar).get();
+             ZipFile result = ZipFile.builder().setFile(output).get())
+        {
+            ZipArchiveEntry sourceEntry = source.getEntry("raw/deflated.txt");
+            ZipArchiveEntry entry = result.getEntry("dest/deflated.txt");
+            assertEquals(ZipEntry.DEFLATED, entry.getMethod());
+            assertEquals(sourceEntry.getCrc(), entry.getCrc());
+            assertArrayEquals(IOUtils.toByteArray(source.getRawInputStream(sourceEntry)),
+                              IOUtils.toByteArray(result.getRawInputStream(entry)));
+            assertArrayEquals(content, IOUtils.toByteArray(result.getInputStream(entry)));
+            assertArrayEquals(content, IOUtils.toByteArray(result.getInputStream(result.getEntry("other.txt"))));
+        }
+    }
+
 }
@@ -22,13 +22,14 @@
 package com.izforge.izpack.event;
 
 import java.io.File;
+import java.util.logging.Logger;
 
 import com.izforge.izpack.api.data.InstallData;
 import com.izforge.izpack.api.data.Pack;
 import com.izforge.izpack.api.data.PackFile;
 import com.izforge.izpack.api.exception.InstallerException;
 import com.izforge.izpack.event.AbstractProgressInstallerListener;
-import com.izforge.izpack.util.FileExecutor;
+import com.izforge.izpack.util.FilePermissions;
 import com.izforge.izpack.util.OsVersion;
 
 /**
@@ -40,6 +41,13 @@ import com.izforge.izpack.util.OsVersion;
 public class ChmodInstallerListener extends AbstractProgressInstallerListener
 {
 
+    /**
+     * Sets file permissions, falling back to <tt>chmod</tt> where they can't be set directly.
+     */
+    private final FilePermissions permissions = new FilePermissions();
+
+    private static final Logger logger = Logger.getLogger(ChmodInstallerListener.class.getName());
+
     /**
      * Constructs an {@code ChmodInstallerListener}.
      *
@@ -116,7 +124,6 @@ public class ChmodInstallerListener extends AbstractProgressInstallerListener
 
     private void chmod(File path, int permissions)
     {
-        String pathSep = System.getProperty("path.separator");
         if (OsVersion.IS_WINDOWS)
         {
             throw new InstallerException("Sorry, chmod not supported yet on windows; use this class OS dependant.");
@@ -126,10 +133,11 @@ public class ChmodInstallerListener extends AbstractProgressInstallerListener
         {
             return;
         }
-        String permStr = Integer.toOctalString(permissions);
-        String[] params = {"chmod", permStr, path.getAbsolutePath()};
-        String[] output = new String[2];
-        FileExecutor fe = new FileExecutor();
-        fe.executeCommand(params, output);
+        this.permissions.setPermissions(path, permissions);
+        // apply any chmod fallback now, as executables of the pack run before afterPack() is invoked
+        for (File file : this.permissions.flush())
+        {
+            logger.warning("Failed to set permissions of " + file);
+        }
     }
 }
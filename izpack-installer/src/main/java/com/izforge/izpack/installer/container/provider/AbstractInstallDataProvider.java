@@ -7,14 +7,13 @@ import com.izforge.izpack.api.exception.ResourceException;
 import com.izforge.izpack.api.exception.ResourceNotFoundException;
 import com.izforge.izpack.api.resource.Locales;
 import com.izforge.izpack.api.resource.Resources;
+import com.izforge.izpack.core.data.PacksInfoReader;
 import com.izforge.izpack.util.*;
-import org.apache.commons.io.IOUtils;
 import org.picocontainer.injectors.Provider;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.ObjectInputStream;
 import java.net.InetAddress;
 import java.util.*;
 import java.util.logging.Level;
@@ -87,25 +86,16 @@ public abstract class AbstractInstallDataProvider implements Provider
         List<Panel> panelsOrder = (List<Panel>) resources.getObject("panelsOrder");
 
         // We read the packs data
-        InputStream in = resources.getInputStream("packs.info");
-        ObjectInputStream objIn = new ObjectInputStream(in);
-        List<PackInfo> packs;
-        try
-        {
-            packs = (List<PackInfo>) objIn.readObject();
-        }
-        finally
+        List<Pack> allPacks;
+        try (InputStream in = resources.getInputStream("packs.info"))
         {
-            IOUtils.closeQuietly(objIn);
+            allPacks = new PacksInfoReader(in).getPacks();
         }
 
         List<Pack> availablePacks = new ArrayList<Pack>();
-        List<Pack> allPacks = new ArrayList<Pack>();
 
-        for (PackInfo packInfo : packs)
+        for (Pack pack : allPacks)
         {
-            Pack pack = packInfo.getPack();
-            allPacks.add(pack);
             if (matcher.matchesCurrentPlatform(pack.getOsConstraints()))
             {
                 availablePacks.add(pack);
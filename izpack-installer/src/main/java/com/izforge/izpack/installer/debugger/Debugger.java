@@ -53,6 +53,7 @@ import com.izforge.izpack.api.data.InstallData;
 import com.izforge.izpack.api.data.Panel;
 import com.izforge.izpack.api.rules.Condition;
 import com.izforge.izpack.api.rules.RulesEngine;
+import com.izforge.izpack.core.rules.RulesEngineImpl;
 import com.izforge.izpack.gui.ButtonFactory;
 import com.izforge.izpack.gui.IconsDatabase;
 
@@ -72,6 +73,7 @@ public class Debugger extends WindowAdapter
     private final VariableHistoryTableModel variablesmodel;
     private final ConditionHistoryTableModel conditionhistorymodel;
     private final Preferences preferences;
+    private final JLabel conditionstatistics = new JLabel();
 
     private Properties lasttimevariables;
 
@@ -121,6 +123,19 @@ public class Debugger extends WindowAdapter
             conditionhistorymodel.setValue(condition, rules.isConditionTrue(condition), comment);
         }
         conditionhistorymodel.fireTableDataChanged();
+        updateConditionStatistics();
+    }
+
+    private void updateConditionStatistics()
+    {
+        if (rules instanceof RulesEngineImpl)
+        {
+            RulesEngineImpl engine = (RulesEngineImpl) rules;
+            long hits = engine.getConditionCacheHits();
+            long total = hits + engine.getConditionCacheMisses();
+            conditionstatistics.setText("Memoized condition results: " + hits + " of " + total + " evaluations ("
+                                                + (total == 0 ? 0 : hits * 100 / total) + "%)");
+        }
     }
 
     private Properties getChangedVariables(Panel nextpanelmetadata, Panel lastpanelmetadata)
@@ -338,6 +353,7 @@ public class Debugger extends WindowAdapter
 
         JScrollPane conditionscroller = new JScrollPane(conditiontable);
         conditionpanel.add(conditionscroller, BorderLayout.CENTER);
+        conditionpanel.add(conditionstatistics, BorderLayout.SOUTH);
 
         JTabbedPane tabpane = new JTabbedPane(JTabbedPane.TOP);
         tabpane.insertTab("Variable settings", null, debugpanel, "", 0);
@@ -182,6 +182,17 @@ public class MultiVolumeUnpacker extends UnpackerBase
         return unpacker;
     }
 
+    /**
+     * Returns the maximum number of packs to unpack concurrently.
+     *
+     * @return {@code 1}, as the files of all packs are read in sequence from the volumes
+     */
+    @Override
+    protected int getUnpackThreads()
+    {
+        return 1;
+    }
+
     @Override
     protected void skip(PackFile file, Pack pack, InputStream packInputStream) throws IOException
     {
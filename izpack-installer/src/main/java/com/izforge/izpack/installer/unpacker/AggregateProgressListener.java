@@ -0,0 +1,134 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.installer.unpacker;
+
+import com.izforge.izpack.api.event.ProgressListener;
+
+/**
+ * A {@link ProgressListener} that combines the progress of packs unpacked concurrently.
+ * <p/>
+ * Each unpack thread reports the steps of its pack as if it were unpacked on its own. The sub-steps of all packs
+ * started so far are combined into a single step, so that the progress reported to the delegate only increases.
+ * Calls to the delegate are serialized.
+ */
+class AggregateProgressListener implements ProgressListener
+{
+    /**
+     * The listener to report the combined progress to.
+     */
+    private final ProgressListener delegate;
+
+    /**
+     * The last sub-step reported by each thread, for the pack it is unpacking.
+     */
+    private final ThreadLocal<int[]> subStep = ThreadLocal.withInitial(() -> new int[2]);
+
+    /**
+     * The highest step started.
+     */
+    private int step;
+
+    /**
+     * The number of sub-steps of all packs started.
+     */
+    private int total;
+
+    /**
+     * The number of sub-steps performed.
+     */
+    private int done;
+
+    /**
+     * Constructs an <tt>AggregateProgressListener</tt>.
+     *
+     * @param delegate the listener to report the combined progress to
+     */
+    AggregateProgressListener(ProgressListener delegate)
+    {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public synchronized void startAction(String name, int steps)
+    {
+        delegate.startAction(name, steps);
+    }
+
+    @Override
+    public synchronized void stopAction()
+    {
+        delegate.stopAction();
+    }
+
+    /**
+     * Invoked when a pack starts.
+     * <p/>
+     * Any sub-steps not reported for the previous pack of the calling thread are counted as performed.
+     *
+     * @param stepName the name of the step
+     * @param step     the step number
+     * @param subSteps the number of sub-steps the step consists of
+     */
+    @Override
+    public synchronized void nextStep(String stepName, int step, int subSteps)
+    {
+        int[] current = subStep.get();
+        done += current[1] - current[0];
+        current[0] = 0;
+        current[1] = subSteps;
+        total += subSteps;
+        this.step = Math.max(this.step, step);
+        delegate.nextStep(stepName, this.step, total);
+        delegate.progress(done, stepName);
+    }
+
+    @Override
+    public synchronized void setSubStepNo(int subSteps)
+    {
+        int[] current = subStep.get();
+        total += subSteps - current[1];
+        current[1] = subSteps;
+        delegate.setSubStepNo(total);
+    }
+
+    @Override
+    public synchronized void progress(String message)
+    {
+        delegate.progress(message);
+    }
+
+    @Override
+    public synchronized void progress(int subStep, String message)
+    {
+        int[] current = this.subStep.get();
+        if (subStep > current[0])
+        {
+            done += Math.min(subStep, current[1]) - current[0];
+            current[0] = Math.min(subStep, current[1]);
+        }
+        delegate.progress(done, message);
+    }
+
+    @Override
+    public synchronized void restartAction(String name, String overallMessage, String tip, int steps)
+    {
+        delegate.restartAction(name, overallMessage, tip, steps);
+    }
+}
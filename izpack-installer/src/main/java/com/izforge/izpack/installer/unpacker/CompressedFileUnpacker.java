@@ -27,6 +27,7 @@ import com.izforge.izpack.api.exception.InstallerException;
 import com.izforge.izpack.util.StreamSupport;
 import com.izforge.izpack.util.os.FileQueue;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
 
 import java.io.File;
 import java.io.IOException;
@@ -38,11 +39,19 @@ import java.nio.file.Path;
 
 /**
  * Unpacker for compressed files.
+ * <p/>
+ * By default, files are uncompressed directly from a view of the pack stream bounded to the compressed size of the
+ * file. Alternatively, the compressed data may first be spooled to a temporary file.
  */
 public class CompressedFileUnpacker extends FileUnpacker
 {
     private final PackCompression compressionFormat;
 
+    /**
+     * Determines if compressed data is copied to a temporary file before it is uncompressed.
+     */
+    private final boolean spool;
+
     /**
      * Constructs a <tt>CompressedFileUnpacker</tt>.
      *
@@ -50,9 +59,24 @@ public class CompressedFileUnpacker extends FileUnpacker
      * @param queue       the file queue. May be <tt>null</tt>
      */
     public CompressedFileUnpacker(Cancellable cancellable, FileQueue queue, PackCompression compressionFormat)
+    {
+        this(cancellable, queue, compressionFormat, false);
+    }
+
+    /**
+     * Constructs a <tt>CompressedFileUnpacker</tt>.
+     *
+     * @param cancellable       determines if unpacking should be cancelled
+     * @param queue             the file queue. May be <tt>null</tt>
+     * @param compressionFormat the compression format of the file
+     * @param spool             if {@code true}, copy the compressed data to a temporary file before uncompressing it
+     */
+    public CompressedFileUnpacker(Cancellable cancellable, FileQueue queue, PackCompression compressionFormat,
+                                  boolean spool)
     {
         super(cancellable, queue);
         this.compressionFormat = compressionFormat;
+        this.spool = spool;
     }
 
     /**
@@ -67,6 +91,67 @@ public class CompressedFileUnpacker extends FileUnpacker
     @Override
     public void unpack(PackFile file, InputStream packInputStream, File target)
             throws IOException, InstallerException
+    {
+        if (spool)
+        {
+            spool(file, packInputStream, target);
+        }
+        else
+        {
+            stream(file, packInputStream, target);
+        }
+    }
+
+    /**
+     * Uncompresses a pack file directly from the pack stream.
+     * <p/>
+     * The decompressor is given a view of the pack stream bounded to the compressed size of the file, so it cannot
+     * read into the data of the next file. Any bytes the decompressor leaves unread are skipped.
+     *
+     * @param file            the pack file meta-data
+     * @param packInputStream the pack input stream
+     * @param target          the target
+     * @throws IOException        for any I/O error
+     * @throws InstallerException for any installer exception
+     */
+    private void stream(PackFile file, InputStream packInputStream, File target)
+            throws IOException, InstallerException
+    {
+        final long fileSize = file.size();
+        final long fileLength = file.length();
+        final long backReferenceFileLength = file.isBackReference() ? file.getLinkedPackFile().size() : fileSize;
+        final BoundedInputStream bounded = BoundedInputStream.builder()
+                .setInputStream(packInputStream)
+                .setMaxCount(fileSize)
+                .setPropagateClose(false)
+                .get();
+        try (InputStream finalStream = StreamSupport.compressedInput(compressionFormat, bounded))
+        {
+            final long bytesUncompressed = copy(file, finalStream, target);
+            if (bytesUncompressed != fileLength)
+            {
+                throw new IOException("File size mismatch when uncompressing from pack: " + file.getRelativeSourcePath());
+            }
+        }
+        IOUtils.skip(bounded, fileSize - bounded.getCount());
+        final long bytesUnpacked = bounded.getCount();
+        if (!(bytesUnpacked == fileSize || bytesUnpacked == backReferenceFileLength))
+        {
+            throw new IOException("File size mismatch when reading from pack: " + file.getRelativeSourcePath());
+        }
+    }
+
+    /**
+     * Copies the compressed data of a pack file to a temporary file, and uncompresses it from there.
+     *
+     * @param file            the pack file meta-data
+     * @param packInputStream the pack input stream
+     * @param target          the target
+     * @throws IOException        for any I/O error
+     * @throws InstallerException for any installer exception
+     */
+    private void spool(PackFile file, InputStream packInputStream, File target)
+            throws IOException, InstallerException
     {
         final long fileSize = file.size();
         final long fileLength = file.length();
@@ -30,6 +30,11 @@ import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 
 import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.logging.Logger;
 
 
@@ -43,6 +48,21 @@ import java.util.logging.Logger;
 public abstract class FileUnpacker
 {
 
+    /**
+     * The default size of the buffer used to copy streams.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The maximum number of bytes transferred between channels before checking for cancellation.
+     */
+    private static final long TRANSFER_SIZE = 8 * 1024 * 1024;
+
+    /**
+     * The copy buffer of each thread, reused across files.
+     */
+    private static final ThreadLocal<byte[]> buffers = new ThreadLocal<byte[]>();
+
     /**
      * Determines if unpacking should be cancelled.
      */
@@ -68,6 +88,11 @@ public abstract class FileUnpacker
      */
     private boolean queued;
 
+    /**
+     * The size of the buffer used to copy streams.
+     */
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+
     /**
      * The logger.
      */
@@ -108,10 +133,22 @@ public abstract class FileUnpacker
         return queued;
     }
 
+    /**
+     * Sets the size of the buffer used to copy streams.
+     *
+     * @param bufferSize the buffer size. Values below {@code 1} denote the {@link #DEFAULT_BUFFER_SIZE default}
+     */
+    public void setBufferSize(int bufferSize)
+    {
+        this.bufferSize = (bufferSize > 0) ? bufferSize : DEFAULT_BUFFER_SIZE;
+    }
+
     /**
      * Copies an input stream to a target, setting its timestamp to that of the pack file.
      * <p/>
      * If the target is a blockable file, then a temporary file will be created, and the file queued.
+     * <p/>
+     * If the stream reads from a file, the data is transferred from the file's channel from its current position.
      *
      * @param file   the pack file
      * @param in     the pack file stream
@@ -122,8 +159,16 @@ public abstract class FileUnpacker
      */
     protected long copy(PackFile file, InputStream in, File target) throws IOException
     {
+        if (in instanceof FileInputStream)
+        {
+            FileChannel channel = ((FileInputStream) in).getChannel();
+            long position = channel.position();
+            long bytesCopied = copy(file, channel, position, target);
+            channel.position(position + bytesCopied);
+            return bytesCopied;
+        }
         OutputStream out = getTarget(file, target);
-        byte[] buffer = new byte[5120];
+        byte[] buffer = getBuffer();
         long bytesCopied = 0;
         long bytesToCopy = (file.isBackReference() ? file.getLinkedPackFile().length() : file.length());
         logger.fine("|- Copying to file system (size: " + bytesToCopy + " bytes)");
@@ -149,6 +194,56 @@ public abstract class FileUnpacker
         return bytesCopied;
     }
 
+    /**
+     * Transfers data from a file channel to a target, setting its timestamp to that of the pack file.
+     * <p/>
+     * Where supported by the platform, the data is copied by the operating system without passing through the
+     * heap. If the target is a blockable file, then a temporary file will be created, and the file queued.
+     *
+     * @param file     the pack file
+     * @param in       the channel to read from
+     * @param position the position in the channel of the file data
+     * @param target   the file to write to
+     * @return the number of bytes actually copied
+     * @throws InterruptedIOException if the copy operation is cancelled
+     * @throws IOException            for any I/O error
+     */
+    protected long copy(PackFile file, FileChannel in, long position, File target) throws IOException
+    {
+        OutputStream out = getTarget(file, target);
+        long bytesCopied = 0;
+        long bytesToCopy = (file.isBackReference() ? file.getLinkedPackFile().length() : file.length());
+        logger.fine("|- Transferring to file system (size: " + bytesToCopy + " bytes)");
+        try
+        {
+            WritableByteChannel channel = (out instanceof FileOutputStream) ? ((FileOutputStream) out).getChannel()
+                                                                            : Channels.newChannel(out);
+            while (bytesCopied < bytesToCopy)
+            {
+                if (cancellable.isCancelled())
+                {
+                    // operation cancelled
+                    throw new InterruptedIOException("Copy operation cancelled");
+                }
+                long count = Math.min(bytesToCopy - bytesCopied, TRANSFER_SIZE);
+                long transferred = in.transferTo(position + bytesCopied, count, channel);
+                if (transferred <= 0)
+                {
+                    throw new IOException("Unexpected end of stream (installer corrupted?)");
+                }
+                bytesCopied += transferred;
+            }
+        }
+        finally
+        {
+            IOUtils.closeQuietly(out);
+        }
+
+        postCopy(file);
+
+        return bytesCopied;
+    }
+
     /**
      * Invoked after copying is complete to set the last modified timestamp, and queue blockable files.
      *
@@ -250,6 +345,52 @@ public abstract class FileUnpacker
         }
     }
 
+    /**
+     * Computes the content digest of a file.
+     *
+     * @param file the file
+     * @return the digest, computed using {@link PackFile#DIGEST_ALGORITHM}
+     * @throws IOException for any I/O error
+     */
+    public static byte[] digest(File file) throws IOException
+    {
+        MessageDigest digest;
+        try
+        {
+            digest = MessageDigest.getInstance(PackFile.DIGEST_ALGORITHM);
+        }
+        catch (NoSuchAlgorithmException exception)
+        {
+            throw new IllegalStateException(exception);
+        }
+        byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
+        try (InputStream in = new FileInputStream(file))
+        {
+            int read;
+            while ((read = in.read(buffer)) != -1)
+            {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return digest.digest();
+    }
+
+    /**
+     * Returns the copy buffer of the current thread.
+     *
+     * @return the buffer
+     */
+    private byte[] getBuffer()
+    {
+        byte[] buffer = buffers.get();
+        if (buffer == null || buffer.length != bufferSize)
+        {
+            buffer = new byte[bufferSize];
+            buffers.set(buffer);
+        }
+        return buffer;
+    }
+
     /**
      * Determines if a pack file is blockable.
      * <p/>
@@ -28,9 +28,10 @@ import com.izforge.izpack.api.handler.Prompt;
 import com.izforge.izpack.util.os.FileQueue;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.logging.Logger;
 
 
@@ -95,34 +96,20 @@ public class LooseFileUnpacker extends FileUnpacker
         }
         if (resolvedFile.exists())
         {
-            InputStream stream = null;
-            try
+            try (FileChannel channel = FileChannel.open(resolvedFile.toPath(), StandardOpenOption.READ))
             {
-                stream = new FileInputStream(resolvedFile);
                 // may have a different length & last modified than we had at compile time, therefore we have to
                 // build a new PackFile for the copy process...
                 file = new PackFile(resolvedFile.getParentFile(), resolvedFile, file.getTargetPath(),
                                     file.osConstraints(), file.override(), file.overrideRenameTo(),
                                     file.blockable(), file.getAdditionals());
 
-                copy(file, stream, target);
+                copy(file, channel, 0, target);
             }
             catch (IOException e)
             {
                 logger.warning("Error when copying file " + resolvedFile + ": " + e);
             }
-            finally
-            {
-                try
-                {
-                    if (stream != null)
-                        stream.close();
-                }
-                catch(IOException e)
-                {
-                    logger.warning("Error when closing stream: " + e);
-                }
-            }
         }
         else
         {
@@ -93,7 +93,7 @@ public class ScriptParser
         }
 
         // Parses the file
-        // (Use buffering because substitutor processes byte at a time)
+        // (The substitutor reads the file in blocks, so only the output is buffered)
         Reader reader = null;
         Writer writer = null;
         try {
@@ -105,7 +105,7 @@ public class ScriptParser
             OutputStreamWriter outWriter = parsable.getEncoding() != null ?
                 new OutputStreamWriter(outFile, parsable.getEncoding()) :
                 new OutputStreamWriter(outFile);
-            reader = new BufferedReader(inReader, 5120);
+            reader = inReader;
             writer = new BufferedWriter(outWriter, 5120);
             replacer.substitute(reader, writer, parsable.getType());
         } finally {
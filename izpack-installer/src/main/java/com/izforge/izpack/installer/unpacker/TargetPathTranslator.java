@@ -0,0 +1,69 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.installer.unpacker;
+
+import com.izforge.izpack.api.data.Variables;
+import com.izforge.izpack.core.data.DefaultVariables;
+import com.izforge.izpack.util.IoHelper;
+
+/**
+ * Translates the target paths of pack files, as {@link IoHelper#translatePath(String, Variables)} does.
+ * <p/>
+ * Only the directory part of each target path is substituted, so that it is parsed once into the template cached
+ * by the variable substitutor and shared by all files in the directory. The file name is appended as is, unless
+ * it contains, or may be part of, a variable reference.
+ */
+class TargetPathTranslator
+{
+    /**
+     * The variables.
+     */
+    private final Variables variables;
+
+    /**
+     * Constructs a <tt>TargetPathTranslator</tt>.
+     *
+     * @param variables the variables
+     */
+    TargetPathTranslator(Variables variables)
+    {
+        this.variables = variables;
+    }
+
+    /**
+     * Translates a target path to a local system path.
+     *
+     * @param targetPath the target path
+     * @return the translated path
+     */
+    String translate(String targetPath)
+    {
+        int split = targetPath.lastIndexOf('/') + 1;
+        if (!(variables instanceof DefaultVariables) || split == 0 || targetPath.indexOf('$', split) != -1
+                || targetPath.lastIndexOf("${", split) > targetPath.lastIndexOf('}', split))
+        {
+            // the file name contains, or may be part of, a variable reference, or the variables may not parse
+            // references as DefaultVariables does
+            return IoHelper.translatePath(targetPath, variables);
+        }
+        return IoHelper.translatePath(variables.replace(targetPath.substring(0, split))
+                                              + targetPath.substring(split));
+    }
+}
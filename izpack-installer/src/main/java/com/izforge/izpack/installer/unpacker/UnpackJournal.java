@@ -0,0 +1,418 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.installer.unpacker;
+
+import com.izforge.izpack.api.data.Pack;
+import com.izforge.izpack.api.data.PackFile;
+import org.apache.commons.io.IOUtils;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Records the packs and files unpacked by an installation, so that an interrupted installation can be resumed.
+ * <p/>
+ * The journal is a text file next to the installation directory. Each unpacked file is recorded with its pack,
+ * pack stream offset, size and modification time, and each completed pack once its files have been parsed and
+ * executed. When an installation with the same key is restarted, completed packs are skipped, and files whose
+ * target still has the recorded size and modification time are not written again. Targets are not digested, as
+ * that would read every file already unpacked; a file replaced with one of the same size and modification time is
+ * kept. The key identifies the installer, installation path and selected packs; as records are looked up by target
+ * path, files are only reused if variables resolve them to the same targets.
+ */
+class UnpackJournal implements Closeable
+{
+    /**
+     * The suffix appended to the installation directory name to name the journal.
+     */
+    static final String SUFFIX = ".izpack-journal";
+
+    /**
+     * The first line of a journal.
+     */
+    private static final String HEADER = "# IzPack unpack journal 2";
+
+    private static final String KEY = "K";
+
+    private static final String FILE = "F";
+
+    private static final String PACK = "P";
+
+    private static final char SEPARATOR = '\t';
+
+    /**
+     * The journal file.
+     */
+    private final File file;
+
+    /**
+     * The files recorded by a previous installation, keyed on target path.
+     */
+    private final Map<String, Entry> entries = new HashMap<String, Entry>();
+
+    /**
+     * The names of the completed packs.
+     */
+    private final Set<String> packs = new HashSet<String>();
+
+    /**
+     * The journal writer, or {@code null} if the journal is closed or could not be written.
+     */
+    private Writer writer;
+
+    /**
+     * The journal output stream.
+     */
+    private FileOutputStream out;
+
+    private static final Logger logger = Logger.getLogger(UnpackJournal.class.getName());
+
+    /**
+     * Constructs an <tt>UnpackJournal</tt>.
+     *
+     * @param file the journal file
+     */
+    private UnpackJournal(File file)
+    {
+        this.file = file;
+    }
+
+    /**
+     * Opens a journal. The records of a previous installation are kept if it was written with the same key,
+     * otherwise the journal is started again.
+     *
+     * @param file the journal file
+     * @param key  the key identifying the installation
+     * @return the journal
+     * @throws IOException if the journal cannot be written
+     */
+    static UnpackJournal open(File file, String key) throws IOException
+    {
+        UnpackJournal journal = new UnpackJournal(file);
+        boolean append = file.exists() && journal.read(key);
+        journal.out = new FileOutputStream(file, append);
+        journal.writer = new BufferedWriter(new OutputStreamWriter(journal.out, StandardCharsets.UTF_8));
+        if (!append)
+        {
+            journal.write(HEADER);
+            journal.write(KEY + SEPARATOR + key);
+            journal.sync();
+        }
+        else
+        {
+            // terminate any record partially written when the installation was interrupted
+            journal.write("");
+            logger.info("Resuming installation: " + journal.packs.size() + " packs and " + journal.entries.size()
+                                + " files were previously unpacked");
+        }
+        return journal;
+    }
+
+    /**
+     * Returns the journal file of an installation.
+     *
+     * @param installPath the installation path
+     * @return the journal file
+     */
+    static File getFile(String installPath)
+    {
+        File dir = new File(installPath).getAbsoluteFile();
+        File parent = dir.getParentFile();
+        return parent != null ? new File(parent, dir.getName() + SUFFIX) : new File(dir, SUFFIX);
+    }
+
+    /**
+     * Creates the key identifying an installation.
+     *
+     * @param appName     the application name
+     * @param appVersion  the application version
+     * @param installPath the installation path
+     * @param packs       the selected packs
+     * @return the key
+     */
+    static String createKey(String appName, String appVersion, String installPath, List<Pack> packs)
+    {
+        MessageDigest digest = createDigest();
+        update(digest, appName);
+        update(digest, appVersion);
+        update(digest, new File(installPath).getAbsolutePath());
+        for (Pack pack : packs)
+        {
+            update(digest, pack.getName());
+        }
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Determines if a pack was completed by a previous installation.
+     *
+     * @param pack the pack
+     * @return {@code true} if the pack doesn't need to be unpacked again
+     */
+    boolean isCompleted(Pack pack)
+    {
+        return packs.contains(pack.getName());
+    }
+
+    /**
+     * Determines if a file was unpacked by a previous installation, and its target is unchanged since.
+     *
+     * @param pack   the pack of the file
+     * @param file   the pack file
+     * @param target the target file
+     * @return {@code true} if the file doesn't need to be unpacked again
+     */
+    boolean isCompleted(Pack pack, PackFile file, File target)
+    {
+        Entry entry = entries.get(target.getAbsolutePath());
+        return entry != null && entry.pack.equals(pack.getName()) && entry.offset == file.getStreamOffset()
+                && entry.size == file.length() && target.length() == file.length()
+                && target.lastModified() == entry.lastModified;
+    }
+
+    /**
+     * Records that a file has been unpacked.
+     *
+     * @param pack   the pack of the file
+     * @param file   the pack file
+     * @param target the target file
+     */
+    synchronized void fileCompleted(Pack pack, PackFile file, File target)
+    {
+        if (writer == null)
+        {
+            return;
+        }
+        try
+        {
+            write(FILE + SEPARATOR + pack.getName() + SEPARATOR + file.getStreamOffset() + SEPARATOR + file.length()
+                          + SEPARATOR + target.lastModified() + SEPARATOR + target.getAbsolutePath());
+            writer.flush();
+        }
+        catch (IOException exception)
+        {
+            failed(exception);
+        }
+    }
+
+    /**
+     * Records that a pack has been completed, and syncs the journal to disk.
+     *
+     * @param pack the pack
+     */
+    synchronized void packCompleted(Pack pack)
+    {
+        if (writer == null || !packs.add(pack.getName()))
+        {
+            return;
+        }
+        try
+        {
+            write(PACK + SEPARATOR + pack.getName());
+            sync();
+        }
+        catch (IOException exception)
+        {
+            failed(exception);
+        }
+    }
+
+    /**
+     * Closes and deletes the journal, once the installation has completed.
+     */
+    synchronized void delete()
+    {
+        close();
+        if (file.exists() && !file.delete())
+        {
+            logger.warning("Failed to delete unpack journal: " + file);
+        }
+    }
+
+    /**
+     * Closes the journal.
+     */
+    @Override
+    public synchronized void close()
+    {
+        IOUtils.closeQuietly(writer);
+        writer = null;
+        out = null;
+    }
+
+    /**
+     * Reads the records of a previous installation.
+     *
+     * @param key the key identifying the installation
+     * @return {@code true} if the journal was written with the same key
+     */
+    private boolean read(String key)
+    {
+        BufferedReader reader = null;
+        try
+        {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+            if (!HEADER.equals(reader.readLine()) || !(KEY + SEPARATOR + key).equals(reader.readLine()))
+            {
+                logger.fine("Discarding unpack journal of a different installation: " + file);
+                return false;
+            }
+            String line;
+            while ((line = reader.readLine()) != null)
+            {
+                String[] fields = line.split(String.valueOf(SEPARATOR), 6);
+                if (fields.length == 6 && FILE.equals(fields[0]))
+                {
+                    try
+                    {
+                        entries.put(fields[5], new Entry(fields[1], Long.parseLong(fields[2]),
+                                                         Long.parseLong(fields[3]), Long.parseLong(fields[4])));
+                    }
+                    catch (NumberFormatException exception)
+                    {
+                        // a record may have been partially written when the installation was interrupted
+                        logger.fine("Ignoring invalid unpack journal record: " + line);
+                    }
+                }
+                else if (fields.length == 2 && PACK.equals(fields[0]))
+                {
+                    packs.add(fields[1]);
+                }
+            }
+            return true;
+        }
+        catch (IOException exception)
+        {
+            logger.log(Level.FINE, "Failed to read unpack journal " + file + ": " + exception.getMessage(),
+                       exception);
+            return false;
+        }
+        finally
+        {
+            IOUtils.closeQuietly(reader);
+        }
+    }
+
+    /**
+     * Writes a record.
+     *
+     * @param record the record
+     * @throws IOException for any I/O error
+     */
+    private void write(String record) throws IOException
+    {
+        writer.write(record);
+        writer.write('\n');
+    }
+
+    /**
+     * Flushes the journal and syncs it to disk.
+     *
+     * @throws IOException for any I/O error
+     */
+    private void sync() throws IOException
+    {
+        writer.flush();
+        out.getFD().sync();
+    }
+
+    /**
+     * Invoked when the journal cannot be written. The installation continues without recording files.
+     *
+     * @param exception the cause
+     */
+    private void failed(IOException exception)
+    {
+        logger.log(Level.WARNING, "Failed to write unpack journal " + file + ": " + exception.getMessage(),
+                   exception);
+        close();
+    }
+
+    private static MessageDigest createDigest()
+    {
+        try
+        {
+            return MessageDigest.getInstance(PackFile.DIGEST_ALGORITHM);
+        }
+        catch (NoSuchAlgorithmException exception)
+        {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    private static void update(MessageDigest digest, String value)
+    {
+        if (value != null)
+        {
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+        }
+        digest.update((byte) 0);
+    }
+
+    private static String toHex(byte[] bytes)
+    {
+        StringBuilder result = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes)
+        {
+            result.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return result.toString();
+    }
+
+    /**
+     * A file recorded by a previous installation.
+     */
+    private static class Entry
+    {
+        private final String pack;
+
+        private final long offset;
+
+        private final long size;
+
+        private final long lastModified;
+
+        Entry(String pack, long offset, long size, long lastModified)
+        {
+            this.pack = pack;
+            this.offset = offset;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.installer.unpacker;
+
+import com.izforge.izpack.api.data.PackFile;
+import com.izforge.izpack.util.NoCloseInputStream;
+import org.apache.commons.io.IOUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Writes the files of a pack on a pool of writer threads.
+ * <p/>
+ * The calling thread reads the data of each file from the pack stream into memory. The data is then unpacked to its
+ * target by a writer thread, so that decompressing and writing files overlaps with reading the pack stream. Files
+ * larger than a threshold are not buffered: once the files in flight have been written, they are unpacked from the
+ * pack stream by the calling thread. Written files are completed on the calling thread, in the order they were
+ * submitted. The number of files in flight is bounded to limit memory usage.
+ */
+class UnpackPipeline implements Closeable
+{
+    /**
+     * Completes a file once it has been written.
+     */
+    interface Completion
+    {
+        /**
+         * Invoked on the thread submitting files, once a file has been written.
+         *
+         * @param file     the pack file
+         * @param target   the target file
+         * @param unpacker the unpacker that wrote the file
+         */
+        void completed(PackFile file, File target, FileUnpacker unpacker);
+    }
+
+    private static final Logger logger = Logger.getLogger(UnpackPipeline.class.getName());
+
+    /**
+     * File data above this size is unpacked by the calling thread.
+     */
+    private static final int MEMORY_THRESHOLD = 1024 * 1024;
+
+    /**
+     * The maximum number of files in flight.
+     */
+    private final int maxPending;
+
+    /**
+     * Completes written files.
+     */
+    private final Completion completion;
+
+    /**
+     * The writer threads.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * The submitted files, in pack stream order.
+     */
+    private final Deque<Pending> pending = new ArrayDeque<>();
+
+    /**
+     * Constructs an <tt>UnpackPipeline</tt>.
+     *
+     * @param threads    the number of writer threads
+     * @param completion completes written files
+     */
+    UnpackPipeline(int threads, Completion completion)
+    {
+        this.maxPending = threads * 4;
+        this.completion = completion;
+        final AtomicInteger count = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "izpack-write-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Reads the data of a file from the pack stream, and submits it to be written.
+     * <p/>
+     * Files already written are completed first. If the maximum number of files are in flight, this blocks until
+     * the oldest has been written. Files larger than the threshold are written by this thread, once all files in
+     * flight have been written.
+     *
+     * @param file       the pack file
+     * @param length     the number of bytes of the file in the pack stream
+     * @param packStream the pack stream
+     * @param unpacker   the unpacker to write the file with
+     * @param target     the target file
+     * @throws IOException for any I/O error
+     */
+    void submit(final PackFile file, long length, InputStream packStream, final FileUnpacker unpacker,
+                final File target) throws IOException
+    {
+        if (length > MEMORY_THRESHOLD)
+        {
+            flush();
+            unpacker.unpack(file, new NoCloseInputStream(packStream), target);
+            completion.completed(file, target, unpacker);
+            return;
+        }
+
+        while (!pending.isEmpty() && (pending.size() >= maxPending || pending.peekFirst().future.isDone()))
+        {
+            completeNext();
+        }
+
+        final byte[] buffer = new byte[(int) length];
+        if (IOUtils.read(packStream, buffer) != length)
+        {
+            throw new IOException("Unexpected end of stream (installer corrupted?): " + file.getTargetPath());
+        }
+        Future<?> future = executor.submit(() -> {
+            unpacker.unpack(file, new ByteArrayInputStream(buffer), target);
+            return null;
+        });
+        pending.add(new Pending(file, target, unpacker, future));
+    }
+
+    /**
+     * Waits for all files in flight to be written, and completes them in submission order.
+     *
+     * @throws IOException for any I/O error
+     */
+    void flush() throws IOException
+    {
+        while (!pending.isEmpty())
+        {
+            completeNext();
+        }
+    }
+
+    /**
+     * Stops the writer threads, and waits for them to terminate. Files in flight are discarded.
+     */
+    @Override
+    public void close()
+    {
+        executor.shutdownNow();
+        for (Pending p : pending)
+        {
+            p.future.cancel(true);
+        }
+        pending.clear();
+        try
+        {
+            while (!executor.awaitTermination(1, TimeUnit.SECONDS))
+            {
+                logger.fine("Waiting for writer threads to stop");
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Waits for the oldest file in flight to be written, and completes it.
+     *
+     * @throws IOException for any I/O error
+     */
+    private void completeNext() throws IOException
+    {
+        Pending next = pending.removeFirst();
+        try
+        {
+            next.future.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while writing " + next.target);
+        }
+        catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+            {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("Failed to write " + next.target, cause);
+        }
+        completion.completed(next.file, next.target, next.unpacker);
+    }
+
+    /**
+     * A file in flight.
+     */
+    private static class Pending
+    {
+        private final PackFile file;
+
+        private final File target;
+
+        private final FileUnpacker unpacker;
+
+        private final Future<?> future;
+
+        Pending(PackFile file, File target, FileUnpacker unpacker, Future<?> future)
+        {
+            this.file = file;
+            this.target = target;
+            this.unpacker = unpacker;
+            this.future = future;
+        }
+    }
+}
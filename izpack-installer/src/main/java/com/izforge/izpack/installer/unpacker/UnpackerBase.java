@@ -23,6 +23,7 @@
 package com.izforge.izpack.installer.unpacker;
 
 import com.izforge.izpack.api.data.ExecutableFile;
+import com.izforge.izpack.api.data.Info;
 import com.izforge.izpack.api.data.InstallData;
 import com.izforge.izpack.api.data.OverrideType;
 import com.izforge.izpack.api.data.Pack;
@@ -44,6 +45,7 @@ import com.izforge.izpack.api.resource.Messages;
 import com.izforge.izpack.api.resource.Resources;
 import com.izforge.izpack.api.rules.RulesEngine;
 import com.izforge.izpack.api.substitutor.VariableSubstitutor;
+import com.izforge.izpack.core.data.PacksInfoReader;
 import com.izforge.izpack.core.handler.ProgressHandler;
 import com.izforge.izpack.core.handler.PromptUIHandler;
 import com.izforge.izpack.core.resource.ResourceManager;
@@ -72,12 +74,22 @@ import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.net.URL;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.jar.Attributes;
 import java.util.jar.Manifest;
 import java.util.logging.Level;
@@ -132,6 +144,11 @@ public abstract class UnpackerBase implements IUnpacker
      */
     private final Variables variables;
 
+    /**
+     * Translates the target paths of pack files.
+     */
+    private final TargetPathTranslator targetPaths;
+
     /**
      * Translations
      */
@@ -200,6 +217,27 @@ public abstract class UnpackerBase implements IUnpacker
      */
     private boolean disableInterrupt = false;
 
+    /**
+     * If <tt>true</tt>, concurrently unpacked packs stop as a pack has failed.
+     */
+    private volatile boolean aborted = false;
+
+    /**
+     * Serializes prompts of packs unpacked concurrently.
+     */
+    private final Object promptLock = new Object();
+
+    /**
+     * The directories created or found to exist during this installation, so each is only checked once.
+     * Cleared when update checks are performed, as these may delete directories.
+     */
+    private final Set<File> directories = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The journal recording unpacked files, or {@code null} if installations aren't resumable.
+     */
+    private volatile UnpackJournal journal;
+
     /**
      * Translation cache for packs
      */
@@ -235,6 +273,7 @@ public abstract class UnpackerBase implements IUnpacker
         this.prompt = prompt;
         this.matcher = matcher;
         this.variables = installData.getVariables();
+        this.targetPaths = new TargetPathTranslator(variables);
         this.messages = installData.getMessages();
         cancellable = new Cancellable()
         {
@@ -303,17 +342,19 @@ public abstract class UnpackerBase implements IUnpacker
         logIntro();
 
         state = State.UNPACKING;
-        ObjectInputStream objIn = null;
+        directories.clear();
         try
         {
             FileQueue queue = queueFactory.isSupported() ? queueFactory.create() : null;
 
-            InputStream in = resources.getInputStream("packs.info");
-            objIn = new ObjectInputStream(in);
-            @SuppressWarnings("unchecked") List<PackInfo> packsInfo = (List<PackInfo>) objIn.readObject();
-            objIn.close();
+            List<PackInfo> packsInfo;
+            try (InputStream in = resources.getInputStream("packs.info"))
+            {
+                packsInfo = new PacksInfoReader(in).getPackInfos();
+            }
 
             selectedPacks = installData.getSelectedPacks();
+            journal = openJournal(selectedPacks);
 
             preUnpack(selectedPacks);
             unpack(packsInfo, queue);
@@ -374,7 +415,6 @@ public abstract class UnpackerBase implements IUnpacker
         {
             cleanup();
             logEpilog();
-            IOUtils.closeQuietly(objIn);
         }
     }
 
@@ -489,6 +529,23 @@ public abstract class UnpackerBase implements IUnpacker
      */
     protected void unpack(List<PackInfo> packs, FileQueue queue) throws InstallerException
     {
+        int threads = getUnpackThreads();
+        if (threads > 1 && listeners.isFileListener())
+        {
+            logger.info("Unpacking packs sequentially, as installer listeners are notified of each file");
+            threads = 1;
+        }
+        if (threads > 1 && hasUpdateChecks(packs))
+        {
+            logger.info("Unpacking packs sequentially, as update checks may delete files of other packs");
+            threads = 1;
+        }
+        if (threads > 1)
+        {
+            unpack(packs, queue, threads);
+            return;
+        }
+
         int count = packs.size();
         for (int i = 0; i < count; i++)
         {
@@ -503,23 +560,283 @@ public abstract class UnpackerBase implements IUnpacker
 
                 listeners.beforePack(pack, i);
                 unpack(packInfo, i, queue, parsables, executables, updateChecks);
-                checkInterrupt();
+                completePack(pack, parsables, executables, updateChecks);
+            }
+        }
+    }
 
-                logger.fine("Found " + parsables.size() + " parsable files");
-                parseFiles(parsables);
-                checkInterrupt();
+    /**
+     * Unpacks the selected packs concurrently.
+     * <p/>
+     * The files of up to twice the number of threads packs are extracted concurrently. Packs are only started
+     * once the packs they depend on, and the packs sharing target paths with them, have completed. The remaining
+     * steps of each pack, i.e. parsing and executing files and {@link InstallerListeners#afterPack}, are performed
+     * on the calling thread in pack order. {@link InstallerListeners#beforePack} is invoked in pack order as each
+     * pack is started, so it may be invoked for a pack before {@link InstallerListeners#afterPack} has been invoked
+     * for the previous pack. Packs with update checks are never unpacked concurrently.
+     *
+     * @param packs   the packs to unpack
+     * @param queue   the file queue, or {@code null} if queuing is not supported
+     * @param threads the number of unpack threads
+     * @throws ResourceInterruptedException if unpacking is cancelled
+     * @throws InstallerException           for any error
+     */
+    private void unpack(List<PackInfo> packs, final FileQueue queue, int threads) throws InstallerException
+    {
+        logger.fine("Unpacking packs using " + threads + " threads");
+        final AtomicInteger count = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "izpack-unpack-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Deque<PendingPack> pending = new ArrayDeque<PendingPack>();
+        ProgressListener progressListener = listener;
+        listener = new AggregateProgressListener(progressListener);
+        try
+        {
+            for (int i = 0; i < packs.size(); i++)
+            {
+                final PackInfo packInfo = packs.get(i);
+                Pack pack = packInfo.getPack();
+                if (shouldUnpack(pack))
+                {
+                    Set<String> targets = getTargetPaths(packInfo);
+                    while (!pending.isEmpty() && (pending.size() >= threads * 2 || dependsOn(pack, pending)
+                            || overlaps(targets, pending)))
+                    {
+                        completePack(pending.removeFirst());
+                    }
+                    final PendingPack next = new PendingPack(pack, targets);
+                    final int packNo = i;
+                    listeners.beforePack(pack, i);
+                    next.future = executor.submit(
+                            () -> unpack(packInfo, packNo, queue, next.parsables, next.executables, next.updateChecks));
+                    pending.add(next);
+                }
+            }
+            while (!pending.isEmpty())
+            {
+                completePack(pending.removeFirst());
+            }
+        }
+        finally
+        {
+            // stop any packs still being unpacked after a failure
+            aborted = !pending.isEmpty();
+            executor.shutdown();
+            for (PendingPack p : pending)
+            {
+                p.future.cancel(false);
+            }
+            try
+            {
+                while (!executor.awaitTermination(1, TimeUnit.SECONDS))
+                {
+                    logger.fine("Waiting for unpack threads to stop");
+                }
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            aborted = false;
+            listener = progressListener;
+        }
+    }
 
-                logger.fine("Found " + executables.size() + " executable files");
-                executeFiles(executables);
-                checkInterrupt();
+    /**
+     * Determines if a pack depends on any pack being unpacked.
+     *
+     * @param pack    the pack
+     * @param pending the packs being unpacked
+     * @return {@code true} if the pack depends on a pack being unpacked
+     */
+    private boolean dependsOn(Pack pack, Deque<PendingPack> pending)
+    {
+        List<String> dependencies = pack.getDependencies();
+        if (dependencies != null)
+        {
+            for (PendingPack p : pending)
+            {
+                if (dependencies.contains(p.pack.getName()))
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
 
-                // update checks should be done _after_ uninstaller was put, so we don't delete it. TODO
-                performUpdateChecks(updateChecks);
-                checkInterrupt();
+    /**
+     * Determines if any of the selected packs has update checks.
+     * <p/>
+     * Update checks delete files not installed by the packs, so they cannot run while other packs are being
+     * unpacked.
+     *
+     * @param packs the packs to unpack
+     * @return {@code true} if a pack has update checks
+     */
+    private boolean hasUpdateChecks(List<PackInfo> packs)
+    {
+        for (PackInfo packInfo : packs)
+        {
+            if (!packInfo.getUpdateChecks().isEmpty() && shouldUnpack(packInfo.getPack()))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the target paths of the files of a pack.
+     * <p/>
+     * The paths are compared before variables are replaced, so packs referring to the same file through different
+     * variables are not detected as overlapping.
+     *
+     * @param packInfo the pack
+     * @return the target paths of the files of the pack
+     */
+    private static Set<String> getTargetPaths(PackInfo packInfo)
+    {
+        Set<String> result = new HashSet<String>();
+        for (PackFile packFile : packInfo.getPackFiles())
+        {
+            if (!packFile.isDirectory())
+            {
+                result.add(packFile.getTargetPath());
+            }
+        }
+        return result;
+    }
 
-                listeners.afterPack(pack);
+    /**
+     * Determines if any pack being unpacked shares target paths with a pack.
+     *
+     * @param targets the target paths of the pack
+     * @param pending the packs being unpacked
+     * @return {@code true} if a pack being unpacked has any of the target paths
+     */
+    private static boolean overlaps(Set<String> targets, Deque<PendingPack> pending)
+    {
+        for (PendingPack p : pending)
+        {
+            if (!Collections.disjoint(targets, p.targets))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Waits for the files of a pack being unpacked to be extracted, and completes it.
+     *
+     * @param pending the pack being unpacked
+     * @throws ResourceInterruptedException if unpacking is cancelled
+     * @throws InstallerException           for any error
+     */
+    private void completePack(PendingPack pending)
+    {
+        try
+        {
+            pending.future.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new ResourceInterruptedException("Installation cancelled");
+        }
+        catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error)
+            {
+                throw (Error) cause;
             }
+            throw new InstallerException("Failed to unpack pack: " + pending.pack.getName(), cause);
         }
+        completePack(pending.pack, pending.parsables, pending.executables, pending.updateChecks);
+    }
+
+    /**
+     * Completes a pack once its files have been extracted.
+     * <p/>
+     * This parses and executes files, performs update checks and notifies listeners.
+     *
+     * @param pack         the pack
+     * @param parsables    the parsable files of the pack
+     * @param executables  the executable files of the pack
+     * @param updateChecks the update checks of the pack
+     * @throws ResourceInterruptedException if unpacking is cancelled
+     * @throws InstallerException           for any error
+     */
+    private void completePack(Pack pack, List<ParsableFile> parsables, List<ExecutableFile> executables,
+                              List<UpdateCheck> updateChecks)
+    {
+        checkInterrupt();
+
+        logger.fine("Found " + parsables.size() + " parsable files");
+        parseFiles(parsables);
+        checkInterrupt();
+
+        logger.fine("Found " + executables.size() + " executable files");
+        executeFiles(executables);
+        checkInterrupt();
+
+        // update checks should be done _after_ uninstaller was put, so we don't delete it. TODO
+        performUpdateChecks(updateChecks);
+        if (updateChecks != null && !updateChecks.isEmpty())
+        {
+            // the update checks may have deleted directories, so they must be checked again
+            directories.clear();
+        }
+        checkInterrupt();
+
+        listeners.afterPack(pack);
+
+        if (journal != null)
+        {
+            journal.packCompleted(pack);
+        }
+    }
+
+    /**
+     * Returns the maximum number of packs to unpack concurrently.
+     *
+     * @return the number of unpack threads. Values below {@code 2} denote sequential unpacking
+     */
+    protected int getUnpackThreads()
+    {
+        Info info = installData.getInfo();
+        return info != null ? info.getUnpackThreads() : 1;
+    }
+
+    /**
+     * Returns the number of threads writing the files of each pack.
+     *
+     * @return the number of writer threads. Values below {@code 2} denote writing files on the unpacking thread
+     */
+    protected int getUnpackWriteThreads()
+    {
+        Info info = installData.getInfo();
+        return info != null ? info.getUnpackWriteThreads() : 1;
+    }
+
+    /**
+     * Returns the size of the buffer used to copy files.
+     *
+     * @return the buffer size
+     */
+    protected int getUnpackBufferSize()
+    {
+        Info info = getInstallData().getInfo();
+        return info != null ? info.getUnpackBufferSize() : FileUnpacker.DEFAULT_BUFFER_SIZE;
     }
 
     /**
@@ -534,7 +851,8 @@ public abstract class UnpackerBase implements IUnpacker
                           List<ExecutableFile> executables, List<UpdateCheck> updateChecks)
     {
         InputStream in = null;
-        Pack pack = packInfo.getPack();
+        UnpackPipeline pipeline = null;
+        final Pack pack = packInfo.getPack();
         PackFile[] packFiles = packInfo.getPackFiles().toArray(new PackFile[]{});
         try
         {
@@ -544,8 +862,27 @@ public abstract class UnpackerBase implements IUnpacker
             selectedPacks = installData.getSelectedPacks();
             listener.nextStep(stepName, selectedPacks.indexOf(pack) + 1, len);
 
+            if (journal != null && journal.isCompleted(pack))
+            {
+                restorePack(packInfo);
+                return;
+            }
+
             in = resources.getPackStream(pack.getName());
 
+            int writeThreads = getUnpackWriteThreads();
+            if (writeThreads > 1)
+            {
+                pipeline = new UnpackPipeline(writeThreads, (file, target, unpacker) -> {
+                    checkInterrupt();
+                    if (!unpacker.isQueued())
+                    {
+                        fileCompleted(file, target, pack);
+                        listeners.afterFile(target, file, pack);
+                    }
+                });
+            }
+
             for (int i = 0; i < len; i++)
             {
                 PackFile packFile = packFiles[i];
@@ -555,7 +892,14 @@ public abstract class UnpackerBase implements IUnpacker
                 if (shouldUnpack(packFile))
                 {
                     // unpack the file
-                    unpack(packFile, in, i + 1, pack, queue);
+                    if (pipeline != null)
+                    {
+                        unpack(packFile, in, i + 1, pack, queue, pipeline);
+                    }
+                    else
+                    {
+                        unpack(packFile, in, i + 1, pack, queue);
+                    }
                 } else
                 {
                     if (!isDirectory)
@@ -565,6 +909,10 @@ public abstract class UnpackerBase implements IUnpacker
                     }
                 }
             }
+            if (pipeline != null)
+            {
+                pipeline.flush();
+            }
             readParsableFiles(packInfo, parsables);
             readExecutableFiles(packInfo, executables);
             readUpdateChecks(packInfo, updateChecks);
@@ -579,10 +927,36 @@ public abstract class UnpackerBase implements IUnpacker
         }
         finally
         {
+            if (pipeline != null)
+            {
+                pipeline.close();
+            }
             IOUtils.closeQuietly(in);
         }
     }
 
+    /**
+     * Restores a pack completed by an interrupted installation.
+     * <p/>
+     * Its files are recorded for uninstallation without being unpacked again. Its parsable files, executables and
+     * update checks were processed when the pack was completed, so only its uninstall executables are recorded.
+     *
+     * @param packInfo the pack info of the pack
+     */
+    private void restorePack(PackInfo packInfo)
+    {
+        Pack pack = packInfo.getPack();
+        logger.info("Pack " + pack.getName() + " completed by an interrupted installation - skipping");
+        for (PackFile packFile : packInfo.getPackFiles())
+        {
+            if (shouldUnpack(packFile))
+            {
+                getUninstallData().addFile(targetPaths.translate(packFile.getTargetPath()), pack.isUninstall());
+            }
+        }
+        readExecutableFiles(packInfo, new ArrayList<ExecutableFile>());
+    }
+
     /**
      * Determines if a file should be unpacked.
      *
@@ -616,11 +990,29 @@ public abstract class UnpackerBase implements IUnpacker
      */
     protected void unpack(PackFile packFile, InputStream packInputStream, int fileNo, Pack pack, FileQueue queue)
             throws IOException
+    {
+        unpack(packFile, packInputStream, fileNo, pack, queue, null);
+    }
+
+    /**
+     * Unpacks a pack file, optionally writing it on a writer thread.
+     *
+     * @param packFile        the pack file
+     * @param packInputStream the pack file input stream
+     * @param fileNo          the pack file number
+     * @param pack            the pack that the pack file comes from
+     * @param queue           the file queue, or {@code null} if queuing is not supported
+     * @param pipeline        the pipeline to write the file with, or {@code null} to write it on this thread
+     * @throws IOException     for any I/O error
+     * @throws IzPackException for any other error
+     */
+    private void unpack(PackFile packFile, InputStream packInputStream, int fileNo, Pack pack, FileQueue queue,
+                        UnpackPipeline pipeline) throws IOException
     {
         String targetPath = packFile.getTargetPath();
 
         // translate & build the path
-        String path = IoHelper.translatePath(targetPath, variables);
+        String path = targetPaths.translate(targetPath);
         File target = new File(path);
         File dir = target;
         if (!packFile.isDirectory())
@@ -642,6 +1034,24 @@ public abstract class UnpackerBase implements IUnpacker
 
         listener.progress(fileNo, path);
 
+        if (journal != null && journal.isCompleted(pack, packFile, target))
+        {
+            // unpacked by an interrupted installation
+            if (!packFile.isBackReference() && !pack.isLoose() && !packFile.isPack200Jar())
+            {
+                long size = packFile.size();
+                logger.fine("|- Already unpacked - skipping pack stream by " + size + " bytes");
+                skip(packInputStream, size);
+            }
+            if (pipeline != null && listeners.isFileListener())
+            {
+                // notify listeners in pack file order
+                pipeline.flush();
+            }
+            listeners.afterFile(target, packFile, pack);
+            return;
+        }
+
         // if this file exists and should not be overwritten, check what to do
         if (target.exists() && (packFile.override() != OverrideType.OVERRIDE_TRUE) && !isOverwriteFile(packFile, target))
         {
@@ -654,10 +1064,57 @@ public abstract class UnpackerBase implements IUnpacker
         } else
         {
             handleOverrideRename(packFile, target);
-            extract(packFile, target, packInputStream, pack, queue);
+            if (pipeline == null || !submit(packFile, target, packInputStream, pack, queue, pipeline))
+            {
+                extract(packFile, target, packInputStream, pack, queue);
+            }
         }
     }
 
+    /**
+     * Submits a pack file to be written on a writer thread, if its data is read from the pack stream.
+     * <p/>
+     * The data of the file is read from the pack stream by this thread. {@link InstallerListeners#afterFile} is
+     * invoked on this thread once the file has been written, in pack file order.
+     *
+     * @param packFile        the pack file
+     * @param target          the file to write to
+     * @param packInputStream the pack file input stream
+     * @param pack            the pack that the pack file comes from
+     * @param queue           the file queue, or {@code null} if queuing is not supported
+     * @param pipeline        the pipeline to write the file with
+     * @return {@code true} if the file was submitted, {@code false} if it must be extracted by this thread
+     * @throws IOException for any I/O error
+     */
+    private boolean submit(PackFile packFile, File target, InputStream packInputStream, Pack pack, FileQueue queue,
+                           UnpackPipeline pipeline) throws IOException
+    {
+        if (pack.isLoose() || packFile.isBackReference() || packFile.isPack200Jar())
+        {
+            return false;
+        }
+        FileUnpacker unpacker = createFileUnpacker(packFile, pack, queue, cancellable);
+        unpacker.setBufferSize(getUnpackBufferSize());
+        long length;
+        if (unpacker instanceof CompressedFileUnpacker)
+        {
+            length = packFile.size();
+        }
+        else if (unpacker instanceof DefaultFileUnpacker)
+        {
+            length = packFile.length();
+        }
+        else
+        {
+            // the number of bytes read from the pack stream isn't known
+            return false;
+        }
+        logger.fine("|- Extracting file using " + unpacker.getClass().getName() + " on a writer thread");
+        pipeline.submit(packFile, length, packInputStream, unpacker, target);
+        checkInterrupt();
+        return true;
+    }
+
     /**
      * Extracts a pack file.
      *
@@ -685,7 +1142,9 @@ public abstract class UnpackerBase implements IUnpacker
                 if (!packFile.isPack200Jar())
                 {
                     // Non-Pack200 files are saved in main pack stream
-                    // Offset is always 0 for Pack200 resources, because each file has its own stream resource
+                    // Offset is always 0 for Pack200 resources, because each file has its own stream resource.
+                    // Seekable pack streams are stored in the jar, so skipping to the offset doesn't inflate the
+                    // preceding data
                     long size = linkedPackFile.getStreamOffset();
                     logger.fine("|- Backreference to pack stream (offset: " + size + " bytes");
                     skip(packStream, size);
@@ -699,12 +1158,14 @@ public abstract class UnpackerBase implements IUnpacker
             }
 
             unpacker = createFileUnpacker(packFile, pack, queue, cancellable);
+            unpacker.setBufferSize(getUnpackBufferSize());
             logger.fine("|- Extracting file using " + unpacker.getClass().getName() + ")");
             unpacker.unpack(packFile, packStream, target);
             checkInterrupt();
 
             if (!unpacker.isQueued())
             {
+                fileCompleted(packFile, target, pack);
                 listeners.afterFile(target, packFile, pack);
             }
         }
@@ -735,6 +1196,49 @@ public abstract class UnpackerBase implements IUnpacker
         }
     }
 
+    /**
+     * Records that a pack file has been unpacked, if installations are resumable.
+     *
+     * @param packFile the pack file
+     * @param target   the file written
+     * @param pack     the pack that the pack file comes from
+     */
+    private void fileCompleted(PackFile packFile, File target, Pack pack)
+    {
+        if (journal != null)
+        {
+            journal.fileCompleted(pack, packFile, target);
+        }
+    }
+
+    /**
+     * Opens the journal recording unpacked files, if installations are resumable.
+     *
+     * @param packs the selected packs
+     * @return the journal, or {@code null} if installations aren't resumable or the journal can't be written
+     */
+    private UnpackJournal openJournal(List<Pack> packs)
+    {
+        Info info = installData.getInfo();
+        if (info == null || !info.isUnpackJournal())
+        {
+            return null;
+        }
+        String installPath = installData.getInstallPath();
+        File file = UnpackJournal.getFile(installPath);
+        try
+        {
+            String key = UnpackJournal.createKey(info.getAppName(), info.getAppVersion(), installPath, packs);
+            return UnpackJournal.open(file, key);
+        }
+        catch (IOException exception)
+        {
+            logger.log(Level.WARNING, "Failed to open unpack journal " + file + ": " + exception.getMessage(),
+                       exception);
+            return null;
+        }
+    }
+
     /**
      * Creates an unpacker to unpack a pack file.
      *
@@ -748,7 +1252,12 @@ public abstract class UnpackerBase implements IUnpacker
     protected FileUnpacker createFileUnpacker(PackFile file, Pack pack, FileQueue queue, Cancellable cancellable)
             throws InstallerException
     {
-        PackCompression compressionFormat = getInstallData().getInfo().getCompressionFormat();
+        // files may be stored with a different compression format to the installer, e.g. if incompressible
+        PackCompression compressionFormat = file.getCompression();
+        if (compressionFormat == null)
+        {
+            compressionFormat = getInstallData().getInfo().getCompressionFormat();
+        }
         FileUnpacker unpacker;
         if (pack.isLoose())
         {
@@ -758,7 +1267,9 @@ public abstract class UnpackerBase implements IUnpacker
             unpacker = new Pack200FileUnpacker(cancellable, resources, queue);
         } else if (compressionFormat != PackCompression.DEFAULT)
         {
-            unpacker = new CompressedFileUnpacker(cancellable, queue, compressionFormat);
+            Info info = getInstallData().getInfo();
+            unpacker = new CompressedFileUnpacker(cancellable, queue, compressionFormat,
+                                                  info != null && info.isSpoolCompressedFiles());
         } else
         {
             unpacker = new DefaultFileUnpacker(cancellable, queue);
@@ -792,6 +1303,13 @@ public abstract class UnpackerBase implements IUnpacker
         // write installation information
         writeInstallationInformation();
 
+        // the installation no longer needs to be resumed
+        if (journal != null)
+        {
+            journal.delete();
+            journal = null;
+        }
+
         // unpacking complete
         listener.stopAction();
     }
@@ -801,6 +1319,11 @@ public abstract class UnpackerBase implements IUnpacker
      */
     protected void cleanup()
     {
+        if (journal != null)
+        {
+            journal.close();
+            journal = null;
+        }
         state = State.READY;
     }
 
@@ -911,6 +1434,9 @@ public abstract class UnpackerBase implements IUnpacker
      * Creates a directory including any necessary but nonexistent parent directories, associated with a pack file.
      * <p/>
      * If {@link InstallerListener}s are registered, these will be notified for each directory created.
+     * <p/>
+     * Directories created or found to exist earlier in the installation aren't checked again, unless update checks
+     * have been performed since.
      *
      * @param dir  the directory to create
      * @param file the pack file
@@ -919,12 +1445,16 @@ public abstract class UnpackerBase implements IUnpacker
      */
     protected void createDirectory(File dir, PackFile file, Pack pack)
     {
+        if (directories.contains(dir))
+        {
+            return;
+        }
         if (!dir.exists())
         {
             if (!listeners.isFileListener())
             {
-                // Create it in one step.
-                if (!dir.mkdirs())
+                // Create it in one step. It may also be created by a pack unpacked concurrently
+                if (!dir.mkdirs() && !dir.isDirectory())
                 {
                     throw new IzPackException("Could not create directory: " + dir.getPath());
                 }
@@ -943,6 +1473,12 @@ public abstract class UnpackerBase implements IUnpacker
                 listeners.afterDir(dir, file, pack);
             }
         }
+        // the directory and its parents now exist
+        File parent = dir;
+        while (parent != null && directories.add(parent))
+        {
+            parent = parent.getParentFile();
+        }
     }
 
     /**
@@ -1007,7 +1543,7 @@ public abstract class UnpackerBase implements IUnpacker
             notifyAll(); // notify threads waiting in interrupt()
         } else
         {
-            if (state == State.INTERRUPTED)
+            if (state == State.INTERRUPTED || aborted)
             {
                 result = true;
             }
@@ -1281,6 +1817,9 @@ public abstract class UnpackerBase implements IUnpacker
                     // file or record with which mtime
                     // it was installed...)
                     result = (file.lastModified() < pf.lastModified());
+                } else if (pf.override() == OverrideType.OVERRIDE_CHANGED)
+                {
+                    result = isChanged(pf, file);
                 } else
                 {
                     Option defChoice = null;
@@ -1299,10 +1838,14 @@ public abstract class UnpackerBase implements IUnpacker
                         result = (defChoice == Option.YES);
                     } else // ask the user
                     {
-                        Option answer = prompt.confirm(Type.QUESTION,
-                                messages.get("InstallPanel.overwrite.title") + " - " + file.getName(),
-                                messages.get("InstallPanel.overwrite.question") + file.getAbsolutePath(),
-                                Options.YES_NO, defChoice);
+                        Option answer;
+                        synchronized (promptLock)
+                        {
+                            answer = prompt.confirm(Type.QUESTION,
+                                    messages.get("InstallPanel.overwrite.title") + " - " + file.getName(),
+                                    messages.get("InstallPanel.overwrite.question") + file.getAbsolutePath(),
+                                    Options.YES_NO, defChoice);
+                        }
                         result = (answer == Option.YES);
                     }
                 }
@@ -1312,6 +1855,42 @@ public abstract class UnpackerBase implements IUnpacker
         return result;
     }
 
+    /**
+     * Determines if the content of an existing file differs from a pack file.
+     * <p/>
+     * The sizes are compared first, so the existing file is only read if they are the same.
+     *
+     * @param pf   the pack file
+     * @param file the existing file
+     * @return {@code true} if the file differs, or if the pack file has no recorded digest
+     */
+    protected boolean isChanged(PackFile pf, File file)
+    {
+        if (file.length() != pf.length())
+        {
+            return true;
+        }
+        byte[] digest = pf.getDigest();
+        if (digest == null && pf.isBackReference())
+        {
+            digest = pf.getLinkedPackFile().getDigest();
+        }
+        if (digest == null)
+        {
+            logger.fine("|- No digest recorded for " + pf.getTargetPath() + ", overwriting");
+            return true;
+        }
+        try
+        {
+            return !Arrays.equals(digest, FileUnpacker.digest(file));
+        }
+        catch (IOException exception)
+        {
+            logger.log(Level.FINE, "Failed to compute digest of " + file + ": " + exception.getMessage(), exception);
+            return true;
+        }
+    }
+
     /**
      * Renames a file, if it exists and the pack file defines how it should be handled.
      *
@@ -1432,5 +2011,28 @@ public abstract class UnpackerBase implements IUnpacker
 
         logger = Logger.getLogger(UnpackerBase.class.getName());
     }
-}
 
+    /**
+     * A pack being unpacked concurrently.
+     */
+    private static class PendingPack
+    {
+        private final Pack pack;
+
+        private final Set<String> targets;
+
+        private final List<ParsableFile> parsables = new ArrayList<ParsableFile>();
+
+        private final List<ExecutableFile> executables = new ArrayList<ExecutableFile>();
+
+        private final List<UpdateCheck> updateChecks = new ArrayList<UpdateCheck>();
+
+        private Future<?> future;
+
+        PendingPack(Pack pack, Set<String> targets)
+        {
+            this.pack = pack;
+            this.targets = targets;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.installer.unpacker;
+
+import com.izforge.izpack.api.event.ProgressListener;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+
+
+/**
+ * Tests the {@link AggregateProgressListener} class.
+ */
+public class AggregateProgressListenerTest
+{
+
+    /**
+     * Verifies that the progress of packs reported by different threads is combined into a single step.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testCombinesProgress() throws Exception
+    {
+        ProgressListener delegate = mock(ProgressListener.class);
+        final AggregateProgressListener listener = new AggregateProgressListener(delegate);
+
+        run(() -> {
+            listener.nextStep("pack1", 1, 4);
+            listener.progress(2, "file1");
+        });
+        run(() -> {
+            listener.nextStep("pack2", 2, 3);
+            listener.progress(3, "file2");
+        });
+        run(() -> {
+            // a pack started later by another thread doesn't move the step backwards
+            listener.nextStep("pack0", 1, 2);
+        });
+        listener.progress(1, "file3");
+
+        InOrder order = inOrder(delegate);
+        order.verify(delegate).nextStep("pack1", 1, 4);
+        order.verify(delegate).progress(0, "pack1");
+        order.verify(delegate).progress(2, "file1");
+        order.verify(delegate).nextStep("pack2", 2, 7);
+        order.verify(delegate).progress(2, "pack2");
+        order.verify(delegate).progress(5, "file2");
+        order.verify(delegate).nextStep("pack0", 2, 9);
+        order.verify(delegate).progress(5, "pack0");
+        order.verify(delegate).progress(5, "file3");
+        order.verifyNoMoreInteractions();
+    }
+
+    /**
+     * Verifies that sub-steps a thread didn't report for its previous pack are counted once it starts the next.
+     */
+    @Test
+    public void testCompletesPreviousPack()
+    {
+        ProgressListener delegate = mock(ProgressListener.class);
+        AggregateProgressListener listener = new AggregateProgressListener(delegate);
+
+        listener.nextStep("pack1", 1, 5);
+        listener.progress(3, "file1");
+        listener.nextStep("pack2", 2, 2);
+        listener.progress(1, "file2");
+
+        InOrder order = inOrder(delegate);
+        order.verify(delegate).nextStep("pack1", 1, 5);
+        order.verify(delegate).progress(0, "pack1");
+        order.verify(delegate).progress(3, "file1");
+        order.verify(delegate).nextStep("pack2", 2, 7);
+        order.verify(delegate).progress(5, "pack2");
+        order.verify(delegate).progress(6, "file2");
+        order.verifyNoMoreInteractions();
+    }
+
+    /**
+     * Runs a task on a separate thread, and waits for it to complete.
+     *
+     * @param task the task
+     * @throws InterruptedException if interrupted
+     */
+    private void run(Runnable task) throws InterruptedException
+    {
+        Thread thread = new Thread(task);
+        thread.start();
+        thread.join();
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.installer.unpacker;
+
+
+import com.izforge.izpack.api.data.Blockable;
+import com.izforge.izpack.api.data.PackCompression;
+import com.izforge.izpack.api.data.PackFile;
+import com.izforge.izpack.util.StreamSupport;
+import com.izforge.izpack.util.os.FileQueue;
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import java.io.*;
+
+import static org.junit.Assert.assertEquals;
+
+
+/**
+ * Tests the {@link CompressedFileUnpacker} class.
+ */
+public class CompressedFileUnpackerTest extends AbstractFileUnpackerTest
+{
+
+    /**
+     * Data following the compressed file in the pack stream.
+     */
+    private static final byte[] NEXT_FILE = {1, 2, 3, 4};
+
+    /**
+     * Verifies that uncompressing a file consumes exactly its compressed data from the pack stream.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testStreamBoundedToFile() throws Exception
+    {
+        checkBounded(false);
+    }
+
+    /**
+     * Verifies that files may be spooled to a temporary file before they are uncompressed.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testSpool() throws Exception
+    {
+        checkBounded(true);
+    }
+
+    /**
+     * Verifies that a pack stream truncated within the compressed data of a file is detected.
+     *
+     * @throws Exception for any error
+     */
+    @Test(expected = IOException.class)
+    public void testTruncated() throws Exception
+    {
+        File baseDir = temporaryFolder.getRoot();
+        File source = createSourceFile(baseDir);
+        File target = getTargetFile(baseDir);
+        PackFile file = createPackFile(baseDir, source, target, Blockable.BLOCKABLE_NONE);
+        byte[] compressed = compress(source);
+        InputStream packStream = new ByteArrayInputStream(compressed, 0, compressed.length - 2);
+
+        createUnpacker(baseDir, null).unpack(file, packStream, target);
+    }
+
+    /**
+     * Creates a pack file stream.
+     *
+     * @param source the source
+     * @return a new stream
+     * @throws IOException for any I/O error
+     */
+    @Override
+    protected InputStream createPackStream(File source) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(compress(source));
+        out.write(NEXT_FILE);
+        return new ByteArrayInputStream(out.toByteArray());
+    }
+
+    /**
+     * Helper to create a new pack file, with the size of its compressed data.
+     *
+     * @param baseDir   the base directory
+     * @param source    the source file
+     * @param target    the target file
+     * @param blockable the blockable type
+     * @return a new pack file
+     * @throws IOException if the source file doesn't exist
+     */
+    @Override
+    protected PackFile createPackFile(File baseDir, File source, File target, Blockable blockable) throws IOException
+    {
+        PackFile file = super.createPackFile(baseDir, source, target, blockable);
+        file.setSize(compress(source).length);
+        return file;
+    }
+
+    /**
+     * Helper to create an unpacker.
+     *
+     * @param sourceDir the source directory
+     * @param queue     the file queue. May be {@code null}
+     * @return a new unpacker
+     */
+    @Override
+    protected FileUnpacker createUnpacker(File sourceDir, FileQueue queue)
+    {
+        return new CompressedFileUnpacker(getCancellable(), queue, PackCompression.DEFLATE);
+    }
+
+    /**
+     * Unpacks a file, and verifies the data following it in the pack stream is left unread.
+     *
+     * @param spool if {@code true}, spool the compressed data to a temporary file
+     * @throws Exception for any error
+     */
+    private void checkBounded(boolean spool) throws Exception
+    {
+        File baseDir = temporaryFolder.getRoot();
+        File source = createSourceFile(baseDir);
+        File target = getTargetFile(baseDir);
+        PackFile file = createPackFile(baseDir, source, target, Blockable.BLOCKABLE_NONE);
+        InputStream packStream = createPackStream(source);
+
+        FileUnpacker unpacker = new CompressedFileUnpacker(getCancellable(), null, PackCompression.DEFLATE, spool);
+        unpacker.unpack(file, packStream, target);
+        checkTarget(source, target);
+
+        for (byte b : NEXT_FILE)
+        {
+            assertEquals(b, packStream.read());
+        }
+        assertEquals(-1, packStream.read());
+    }
+
+    /**
+     * Compresses a file.
+     *
+     * @param source the file
+     * @return the compressed data
+     * @throws IOException for any I/O error
+     */
+    private byte[] compress(File source) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OutputStream compressed = StreamSupport.compressedOutput(PackCompression.DEFLATE, out))
+        {
+            compressed.write(FileUtils.readFileToByteArray(source));
+        }
+        return out.toByteArray();
+    }
+}
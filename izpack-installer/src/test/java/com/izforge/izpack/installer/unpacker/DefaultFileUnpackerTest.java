@@ -22,11 +22,17 @@
 package com.izforge.izpack.installer.unpacker;
 
 
+import com.izforge.izpack.api.data.Blockable;
+import com.izforge.izpack.api.data.PackFile;
 import com.izforge.izpack.util.os.FileQueue;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.junit.Test;
 
 import java.io.*;
 
+import static org.junit.Assert.assertEquals;
+
 
 /**
  * Tests the {@link DefaultFileUnpacker} class.
@@ -36,6 +42,40 @@ import java.io.*;
 public class DefaultFileUnpackerTest extends AbstractFileUnpackerTest
 {
 
+    /**
+     * Verifies that a file is transferred from the current position of a file stream, and that the stream is left
+     * positioned after the file.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testTransferFromFileStream() throws Exception
+    {
+        File baseDir = temporaryFolder.getRoot();
+        File source = createSourceFile(baseDir);
+        File target = getTargetFile(baseDir);
+        PackFile file = createPackFile(baseDir, source, target, Blockable.BLOCKABLE_NONE);
+
+        File pack = new File(baseDir, "pack");
+        try (OutputStream out = new FileOutputStream(pack))
+        {
+            out.write(new byte[]{1, 2});
+            out.write(FileUtils.readFileToByteArray(source));
+            out.write(3);
+        }
+
+        FileUnpacker unpacker = createUnpacker(baseDir, null);
+        unpacker.setBufferSize(4);
+        try (InputStream in = new FileInputStream(pack))
+        {
+            assertEquals(2, in.skip(2));
+            unpacker.unpack(file, in, target);
+            assertEquals(3, in.read());
+            assertEquals(-1, in.read());
+        }
+        checkTarget(source, target);
+    }
+
     /**
      * Creates a pack file stream.
      *
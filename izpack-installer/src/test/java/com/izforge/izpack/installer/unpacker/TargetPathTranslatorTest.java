@@ -0,0 +1,66 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.installer.unpacker;
+
+import com.izforge.izpack.api.data.Variables;
+import com.izforge.izpack.core.data.DefaultVariables;
+import com.izforge.izpack.util.IoHelper;
+import org.junit.Test;
+
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+
+
+/**
+ * Tests the {@link TargetPathTranslator} class.
+ */
+public class TargetPathTranslatorTest
+{
+
+    /**
+     * Verifies that target paths are translated as by {@link IoHelper#translatePath(String, Variables)}, with the
+     * latest variable values.
+     */
+    @Test
+    public void testTranslate()
+    {
+        Properties properties = new Properties();
+        properties.put("INSTALL_PATH", "/opt/app");
+        properties.put("NAME", "app");
+        Variables variables = new DefaultVariables(properties);
+        TargetPathTranslator translator = new TargetPathTranslator(variables);
+
+        String[] paths = {"$INSTALL_PATH/lib/a.jar", "$INSTALL_PATH/lib/b.jar", "$INSTALL_PATH/lib/$NAME.jar",
+                "${INSTALL_PATH}/bin/${NAME}", "$INSTALL_PATH/${SYSTEM[java.version]/x}", "$INSTALL_PATH/$/x",
+                "$INSTALL_PATH/a\\/b", "$UNDEFINED/lib/a.jar", "relative/a.txt", "a.txt", "$INSTALL_PATH/",
+                "${INSTALL_PATH/lib}/a.jar", "${INSTALL_PATH lib/a.jar", "${NAME}}/${/a.jar"};
+        for (String path : paths)
+        {
+            assertEquals(path, IoHelper.translatePath(path, variables), translator.translate(path));
+        }
+
+        variables.set("INSTALL_PATH", "/usr/local/app");
+        for (String path : paths)
+        {
+            assertEquals(path, IoHelper.translatePath(path, variables), translator.translate(path));
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.installer.unpacker;
+
+import com.izforge.izpack.api.data.Blockable;
+import com.izforge.izpack.api.data.OverrideType;
+import com.izforge.izpack.api.data.Pack;
+import com.izforge.izpack.api.data.PackFile;
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+
+/**
+ * Tests the {@link UnpackJournal} class.
+ */
+public class UnpackJournalTest
+{
+    /**
+     * Temporary folder.
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * The pack.
+     */
+    private final Pack pack = new Pack("core", null, null, null, null, true, true, false, null, true, 0);
+
+    /**
+     * The pack file.
+     */
+    private PackFile packFile;
+
+    /**
+     * The unpacked file.
+     */
+    private File target;
+
+    /**
+     * Sets up the test case.
+     *
+     * @throws Exception for any error
+     */
+    @Before
+    public void setUp() throws Exception
+    {
+        File source = new File(temporaryFolder.newFolder("source"), "file.txt");
+        FileUtils.writeStringToFile(source, "content", StandardCharsets.UTF_8);
+        packFile = new PackFile(source.getParentFile(), source, source.getName(), null, OverrideType.OVERRIDE_TRUE,
+                                null, Blockable.BLOCKABLE_NONE, null);
+        target = new File(temporaryFolder.newFolder("install"), "file.txt");
+        FileUtils.copyFile(source, target);
+    }
+
+    /**
+     * Verifies that files recorded by an interrupted installation are completed when it is resumed.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testResume() throws Exception
+    {
+        File file = UnpackJournal.getFile(target.getParent());
+        assertEquals(new File(temporaryFolder.getRoot(), "install" + UnpackJournal.SUFFIX), file);
+
+        UnpackJournal journal = UnpackJournal.open(file, "key");
+        assertFalse(journal.isCompleted(pack, packFile, target));
+        journal.fileCompleted(pack, packFile, target);
+        journal.close();
+
+        journal = UnpackJournal.open(file, "key");
+        assertFalse(journal.isCompleted(pack));
+        assertTrue(journal.isCompleted(pack, packFile, target));
+
+        // the target has been modified since
+        FileUtils.writeStringToFile(target, "CONTENT", StandardCharsets.UTF_8);
+        assertTrue(target.setLastModified(target.lastModified() + 2000));
+        assertFalse(journal.isCompleted(pack, packFile, target));
+
+        journal.delete();
+        assertFalse(file.exists());
+    }
+
+    /**
+     * Verifies that packs recorded as completed by an interrupted installation are completed when it is resumed.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testResumeCompletedPack() throws Exception
+    {
+        File file = UnpackJournal.getFile(target.getParent());
+        UnpackJournal journal = UnpackJournal.open(file, "key");
+        assertFalse(journal.isCompleted(pack));
+        journal.fileCompleted(pack, packFile, target);
+        journal.packCompleted(pack);
+        journal.close();
+
+        journal = UnpackJournal.open(file, "key");
+        assertTrue(journal.isCompleted(pack));
+        journal.close();
+
+        journal = UnpackJournal.open(file, "other");
+        assertFalse(journal.isCompleted(pack));
+        journal.close();
+    }
+
+    /**
+     * Verifies that the records of a different installation are discarded.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testDifferentInstallation() throws Exception
+    {
+        File file = UnpackJournal.getFile(target.getParent());
+        UnpackJournal journal = UnpackJournal.open(file, "key");
+        journal.fileCompleted(pack, packFile, target);
+        journal.close();
+
+        journal = UnpackJournal.open(file, "other");
+        assertFalse(journal.isCompleted(pack, packFile, target));
+        journal.close();
+
+        assertNotEquals(UnpackJournal.createKey("app", "1.0", target.getParent(), Collections.singletonList(pack)),
+                        UnpackJournal.createKey("app", "1.0", target.getParent(), Arrays.asList(pack, pack)));
+    }
+
+    /**
+     * Verifies that a record partially written when an installation was interrupted is ignored.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testPartialRecord() throws Exception
+    {
+        File file = UnpackJournal.getFile(target.getParent());
+        UnpackJournal journal = UnpackJournal.open(file, "key");
+        journal.fileCompleted(pack, packFile, target);
+        journal.close();
+        FileUtils.writeStringToFile(file, "F\tcore\t0\t12", StandardCharsets.UTF_8, true);
+
+        journal = UnpackJournal.open(file, "key");
+        assertTrue(journal.isCompleted(pack, packFile, target));
+        journal.fileCompleted(pack, packFile, target);
+        journal.close();
+
+        journal = UnpackJournal.open(file, "key");
+        assertTrue(journal.isCompleted(pack, packFile, target));
+        journal.close();
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.installer.unpacker;
+
+import com.izforge.izpack.api.data.Blockable;
+import com.izforge.izpack.api.data.OverrideType;
+import com.izforge.izpack.api.data.PackFile;
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+/**
+ * Tests the {@link UnpackPipeline} class.
+ */
+public class UnpackPipelineTest
+{
+    /**
+     * Temporary folder.
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * Verifies that files read from a pack stream are written to their targets, and completed in order.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testUnpack() throws Exception
+    {
+        File sourceDir = temporaryFolder.newFolder("source");
+        File targetDir = temporaryFolder.newFolder("target");
+        Random random = new Random(42);
+        // the last file is written by the calling thread
+        int[] sizes = {0, 10, 1024, 64 * 1024, 10, 2 * 1024 * 1024};
+
+        List<PackFile> packFiles = new ArrayList<PackFile>();
+        List<byte[]> contents = new ArrayList<byte[]>();
+        ByteArrayOutputStream pack = new ByteArrayOutputStream();
+        for (int i = 0; i < sizes.length; i++)
+        {
+            byte[] content = new byte[sizes[i]];
+            random.nextBytes(content);
+            File source = new File(sourceDir, "file" + i);
+            FileUtils.writeByteArrayToFile(source, content);
+            packFiles.add(new PackFile(sourceDir, source, source.getName(), null, OverrideType.OVERRIDE_TRUE, null,
+                                       Blockable.BLOCKABLE_NONE, null));
+            contents.add(content);
+            pack.write(content);
+        }
+
+        final List<PackFile> completed = new ArrayList<PackFile>();
+        Cancellable cancellable = () -> false;
+        InputStream packStream = new ByteArrayInputStream(pack.toByteArray());
+        try (UnpackPipeline pipeline = new UnpackPipeline(2, (file, target, unpacker) -> {
+            assertTrue(target.exists());
+            completed.add(file);
+        }))
+        {
+            for (PackFile packFile : packFiles)
+            {
+                pipeline.submit(packFile, packFile.length(), packStream, new DefaultFileUnpacker(cancellable, null),
+                                new File(targetDir, packFile.getTargetPath()));
+            }
+            pipeline.flush();
+        }
+
+        assertEquals(-1, packStream.read());
+        assertEquals(packFiles, completed);
+        for (int i = 0; i < packFiles.size(); i++)
+        {
+            File target = new File(targetDir, packFiles.get(i).getTargetPath());
+            assertArrayEquals(contents.get(i), FileUtils.readFileToByteArray(target));
+            assertEquals(packFiles.get(i).lastModified() / 1000, target.lastModified() / 1000);
+        }
+    }
+
+    /**
+     * Verifies that a truncated pack stream is detected.
+     *
+     * @throws Exception for any error
+     */
+    @Test(expected = IOException.class)
+    public void testTruncatedStream() throws Exception
+    {
+        File sourceDir = temporaryFolder.newFolder("source");
+        File source = new File(sourceDir, "file");
+        FileUtils.writeByteArrayToFile(source, new byte[100]);
+        PackFile packFile = new PackFile(sourceDir, source, source.getName(), null, OverrideType.OVERRIDE_TRUE, null,
+                                         Blockable.BLOCKABLE_NONE, null);
+
+        try (UnpackPipeline pipeline = new UnpackPipeline(2, (file, target, unpacker) -> {
+        }))
+        {
+            pipeline.submit(packFile, packFile.length(), new ByteArrayInputStream(new byte[50]),
+                            new DefaultFileUnpacker(() -> false, null), new File(sourceDir, "target"));
+        }
+    }
+}
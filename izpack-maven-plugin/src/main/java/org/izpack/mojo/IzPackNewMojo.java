@@ -19,6 +19,7 @@
 package org.izpack.mojo;
 
 import com.izforge.izpack.api.data.Info;
+import com.izforge.izpack.api.data.PacksInfoFormat;
 import com.izforge.izpack.api.data.binding.IzpackProjectInstaller;
 import com.izforge.izpack.api.exception.CompilerException;
 import com.izforge.izpack.compiler.CompilerConfig;
@@ -76,7 +77,7 @@ public class IzPackNewMojo extends AbstractMojo
     private MavenProjectHelper projectHelper;
 
     /**
-     * Format compression. Choices are default (no compression), gzip, bzip2, xz, lzma, deflate
+     * Format compression. Choices are default (no compression), gz, bzip2, xz, lzma, deflate, zstd, lz4-framed
      */
     @Parameter( defaultValue = "default" )
     private String comprFormat;
@@ -111,6 +112,59 @@ public class IzPackNewMojo extends AbstractMojo
     @Parameter( defaultValue = "-1" )
     private int comprLevel;
 
+    /**
+     * Number of threads used to compress the pack files. Files are compressed sequentially by default (1)
+     */
+    @Parameter( defaultValue = "1" )
+    private int comprThreads;
+
+    /**
+     * Whether to store pack files that are already compressed (by extension, or by the entropy of their content)
+     * uncompressed. Only applies when a compression format is set
+     */
+    @Parameter( defaultValue = "false" )
+    private boolean comprAdaptive;
+
+    /**
+     * Directory of a compile cache, keeping compressed pack file data between builds.
+     * No cache is used by default
+     */
+    @Parameter
+    private File compileCacheDirectory;
+
+    /**
+     * Maximum size of the compile cache in megabytes. Unlimited by default (0)
+     */
+    @Parameter( defaultValue = "0" )
+    private long compileCacheMaxSize;
+
+    /**
+     * Number of days after which unused compile cache entries are removed. Defaults to 30 days
+     */
+    @Parameter( defaultValue = "30" )
+    private int compileCacheMaxAge;
+
+    /**
+     * Format of the pack metadata written to the installer: "binary" (default) or "serialized", the Java-serialized
+     * format written by previous versions
+     */
+    @Parameter( defaultValue = "binary" )
+    private String packsInfoFormat;
+
+    /**
+     * Whether to store compressed pack streams without further jar compression, so that the installer can seek to
+     * the files in a pack. Only applies when a pack compression format is set
+     */
+    @Parameter( defaultValue = "false" )
+    private boolean seekablePacks;
+
+    /**
+     * Whether to write the skeleton installer, the installer data and the packs concurrently. The entries of the
+     * installer jar are in the same order as when written sequentially
+     */
+    @Parameter( defaultValue = "false" )
+    private boolean parallelAssembly;
+
     /**
      * Whether to automatically include project.url from Maven into
      * IzPack info header
@@ -365,7 +419,7 @@ public class IzPackNewMojo extends AbstractMojo
         return includedProperties;
     }
 
-    private CompilerData initCompilerData(File jarFile)
+    private CompilerData initCompilerData(File jarFile) throws MojoFailureException
     {
         Info info = new Info();
 
@@ -383,8 +437,26 @@ public class IzPackNewMojo extends AbstractMojo
         {
             info.setAppURL(project.getUrl());
         }
-        return new CompilerData(comprFormat, kind, installFile.getPath(), null, baseDir.getPath(), jarFile.getPath(),
-                                mkdirs, comprLevel, info, manifestEntries);
+        CompilerData compilerData = new CompilerData(comprFormat, kind, installFile.getPath(), null,
+                                                     baseDir.getPath(), jarFile.getPath(), mkdirs, comprLevel, info,
+                                                     manifestEntries);
+        compilerData.setComprThreads(comprThreads);
+        compilerData.setComprAdaptive(comprAdaptive);
+        if (compileCacheDirectory != null)
+        {
+            compilerData.setCompileCacheDir(compileCacheDirectory.getPath());
+            compilerData.setCompileCacheMaxSize(compileCacheMaxSize * 1024 * 1024);
+            compilerData.setCompileCacheMaxAge(compileCacheMaxAge);
+        }
+        PacksInfoFormat format = PacksInfoFormat.byName(packsInfoFormat);
+        if (format == null)
+        {
+            throw new MojoFailureException("Unknown pack metadata format: " + packsInfoFormat);
+        }
+        compilerData.setPacksInfoFormat(format);
+        compilerData.setSeekablePacks(seekablePacks);
+        compilerData.setParallelAssembly(parallelAssembly);
+        return compilerData;
     }
 
     private Handler createLogHandler()
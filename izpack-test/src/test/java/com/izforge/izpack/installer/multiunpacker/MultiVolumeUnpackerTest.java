@@ -33,6 +33,7 @@ import com.izforge.izpack.compiler.listener.PackagerListener;
 import com.izforge.izpack.compiler.merge.CompilerPathResolver;
 import com.izforge.izpack.compiler.packager.impl.MultiVolumePackager;
 import com.izforge.izpack.core.data.DefaultVariables;
+import com.izforge.izpack.core.data.PacksInfoReader;
 import com.izforge.izpack.core.io.VolumeLocator;
 import com.izforge.izpack.core.resource.ResourceManager;
 import com.izforge.izpack.core.substitutor.VariableSubstitutorImpl;
@@ -478,17 +479,10 @@ public class MultiVolumeUnpackerTest
     private List<Pack> getPacks(Resources resources) throws IOException, ClassNotFoundException
     {
         // We read the packs data
-        InputStream in = resources.getInputStream("packs.info");
-        ObjectInputStream objIn = new ObjectInputStream(in);
-        List<PackInfo> packsInfo = (List<PackInfo>) objIn.readObject();
-        objIn.close();
-        List<Pack> packs = new ArrayList<Pack>();
-        for (PackInfo packInfo : packsInfo)
+        try (InputStream in = resources.getInputStream("packs.info"))
         {
-            Pack pack = packInfo.getPack();
-            packs.add(pack);
+            return new PacksInfoReader(in).getPacks();
         }
-        return packs;
     }
 
     /**
@@ -30,6 +30,7 @@ import java.io.InputStreamReader;
 import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.logging.Level;
@@ -306,10 +307,9 @@ public class FileExecutor
     {
         int exitStatus = 0;
         String[] output = new String[2];
-        // String permissions = (System.getProperty("user.name").equals("root"))
-        // ? "a+x" : "u+x";
-        String permissions = "a+x";
         boolean isUnix = matcher.getCurrentPlatform().isA(UNIX);
+        List<File> notExecutable = (currentStage != ExecutableFile.UNINSTALL && isUnix)
+                ? setExecutable(matcher) : Collections.<File>emptyList();
 
         // loop through all executables
         Iterator<ExecutableFile> efileIterator = this.files.iterator();
@@ -330,14 +330,11 @@ public class FileExecutor
 
             if (ExecutableFile.BIN == efile.type && currentStage != ExecutableFile.UNINSTALL && isUnix)
             {
-                // fix executable permission for unix systems
-                logger.fine("Making file executable (setting executable flag)");
-                String[] params = {"/bin/chmod", permissions, file.toString()};
-                exitStatus = executeCommand(params, output);
-                if (exitStatus != 0)
+                // the executable permission was set for all files up front
+                if (notExecutable.contains(file))
                 {
-                    handler.emitWarning("file execution error", "Error executing \n" + params[0]
-                            + " " + params[1] + " " + params[2]);
+                    handler.emitWarning("file execution error", "Error executing \n/bin/chmod a+x " + file);
+                    exitStatus = 1;
                     continue;
                 }
             }
@@ -435,6 +432,26 @@ public class FileExecutor
         return exitStatus;
     }
 
+    /**
+     * Sets the executable flag of the binaries for the current platform.
+     *
+     * @param matcher the platform-model matcher
+     * @return the files that couldn't be made executable
+     */
+    private List<File> setExecutable(PlatformModelMatcher matcher)
+    {
+        FilePermissions permissions = new FilePermissions(this);
+        for (ExecutableFile efile : files)
+        {
+            if (ExecutableFile.BIN == efile.type && matcher.matchesCurrentPlatform(efile.osList))
+            {
+                logger.fine("Making file executable (setting executable flag): " + efile.path);
+                permissions.setExecutable(new File(efile.path));
+            }
+        }
+        return permissions.flush();
+    }
+
     /**
      * Transform classpath as specified in targetFile attribute into
      * OS specific classpath. This method also resolves directories
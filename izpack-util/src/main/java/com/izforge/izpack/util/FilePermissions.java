@@ -0,0 +1,270 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * Sets the permissions of files on Unix.
+ * <p/>
+ * Permissions are applied through the file system's {@link PosixFileAttributeView} where it is supported.
+ * Otherwise, and for modes that cannot be expressed as {@link PosixFilePermission}s such as the setuid, setgid
+ * and sticky bits, files are collected and passed to a single <tt>chmod</tt> invocation per mode by
+ * {@link #flush()}.
+ */
+public class FilePermissions
+{
+
+    /**
+     * The maximum number of characters of the paths passed to a single <tt>chmod</tt> invocation.
+     */
+    private static final int MAX_BATCH_LENGTH = 32 * 1024;
+
+    /**
+     * The permissions of each mode bit, from the most significant.
+     */
+    private static final PosixFilePermission[] PERMISSIONS = {
+            PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE, PosixFilePermission.OWNER_EXECUTE,
+            PosixFilePermission.GROUP_READ, PosixFilePermission.GROUP_WRITE, PosixFilePermission.GROUP_EXECUTE,
+            PosixFilePermission.OTHERS_READ, PosixFilePermission.OTHERS_WRITE, PosixFilePermission.OTHERS_EXECUTE};
+
+    /**
+     * The <tt>chmod</tt> command.
+     */
+    private static final String CHMOD = "/bin/chmod";
+
+    /**
+     * The <tt>chmod</tt> mode to make files executable.
+     */
+    private static final String EXECUTABLE = "a+x";
+
+    /**
+     * The executor to run <tt>chmod</tt> with.
+     */
+    private final FileExecutor executor;
+
+    /**
+     * The files waiting for <tt>chmod</tt>, keyed on mode.
+     */
+    private final Map<String, List<File>> pending = new LinkedHashMap<String, List<File>>();
+
+    private static final Logger logger = Logger.getLogger(FilePermissions.class.getName());
+
+    /**
+     * Constructs a <tt>FilePermissions</tt>.
+     */
+    public FilePermissions()
+    {
+        this(new FileExecutor());
+    }
+
+    /**
+     * Constructs a <tt>FilePermissions</tt>.
+     *
+     * @param executor the executor to run <tt>chmod</tt> with
+     */
+    public FilePermissions(FileExecutor executor)
+    {
+        this.executor = executor;
+    }
+
+    /**
+     * Sets the permissions of a file.
+     * <p/>
+     * If the permissions cannot be set directly, the file is queued until {@link #flush()} is invoked.
+     *
+     * @param file the file
+     * @param mode the Unix file mode, e.g. <tt>0755</tt>
+     */
+    public void setPermissions(File file, int mode)
+    {
+        PosixFileAttributeView view = (mode & ~0777) == 0 ? getView(file) : null;
+        if (view != null)
+        {
+            try
+            {
+                view.setPermissions(toPermissions(mode));
+                return;
+            }
+            catch (IOException exception)
+            {
+                logger.fine("Failed to set permissions of " + file + " directly: " + exception.getMessage());
+            }
+        }
+        queue(Integer.toOctalString(mode), file);
+    }
+
+    /**
+     * Makes a file executable by everyone.
+     * <p/>
+     * If the permissions cannot be set directly, the file is queued until {@link #flush()} is invoked.
+     *
+     * @param file the file
+     */
+    public void setExecutable(File file)
+    {
+        PosixFileAttributeView view = getView(file);
+        if (view != null)
+        {
+            try
+            {
+                Set<PosixFilePermission> permissions = view.readAttributes().permissions();
+                permissions.add(PosixFilePermission.OWNER_EXECUTE);
+                permissions.add(PosixFilePermission.GROUP_EXECUTE);
+                permissions.add(PosixFilePermission.OTHERS_EXECUTE);
+                view.setPermissions(permissions);
+                return;
+            }
+            catch (IOException exception)
+            {
+                logger.fine("Failed to make " + file + " executable directly: " + exception.getMessage());
+            }
+        }
+        queue(EXECUTABLE, file);
+    }
+
+    /**
+     * Runs <tt>chmod</tt> for the queued files, passing as many files to each invocation as possible.
+     * <p/>
+     * If an invocation fails, its files are retried one at a time to determine which of them failed.
+     *
+     * @return the files whose permissions could not be set
+     */
+    public List<File> flush()
+    {
+        List<File> failed = new ArrayList<File>();
+        for (Map.Entry<String, List<File>> entry : pending.entrySet())
+        {
+            String mode = entry.getKey();
+            List<File> batch = new ArrayList<File>();
+            int length = 0;
+            for (File file : entry.getValue())
+            {
+                String path = file.getAbsolutePath();
+                if (!batch.isEmpty() && length + path.length() > MAX_BATCH_LENGTH)
+                {
+                    chmod(mode, batch, failed);
+                    batch.clear();
+                    length = 0;
+                }
+                batch.add(file);
+                length += path.length() + 1;
+            }
+            chmod(mode, batch, failed);
+        }
+        pending.clear();
+        return failed;
+    }
+
+    /**
+     * Converts a Unix file mode to permissions.
+     *
+     * @param mode the file mode. Only the lower 9 bits are used
+     * @return the corresponding permissions
+     */
+    public static Set<PosixFilePermission> toPermissions(int mode)
+    {
+        Set<PosixFilePermission> result = EnumSet.noneOf(PosixFilePermission.class);
+        for (int i = 0; i < PERMISSIONS.length; ++i)
+        {
+            if ((mode & (0400 >> i)) != 0)
+            {
+                result.add(PERMISSIONS[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Runs <tt>chmod</tt> for a batch of files. If it fails, each file is retried individually.
+     *
+     * @param mode   the mode argument to <tt>chmod</tt>
+     * @param files  the files
+     * @param failed collects the files whose permissions could not be set
+     */
+    private void chmod(String mode, List<File> files, List<File> failed)
+    {
+        if (files.isEmpty())
+        {
+            return;
+        }
+        String[] params = new String[files.size() + 2];
+        params[0] = CHMOD;
+        params[1] = mode;
+        for (int i = 0; i < files.size(); ++i)
+        {
+            params[i + 2] = files.get(i).getAbsolutePath();
+        }
+        if (executor.executeCommand(params, new String[2]) != 0)
+        {
+            if (files.size() == 1)
+            {
+                failed.add(files.get(0));
+            }
+            else
+            {
+                for (File file : files)
+                {
+                    chmod(mode, Collections.singletonList(file), failed);
+                }
+            }
+        }
+    }
+
+    /**
+     * Queues a file for <tt>chmod</tt>.
+     *
+     * @param mode the mode argument to <tt>chmod</tt>
+     * @param file the file
+     */
+    private void queue(String mode, File file)
+    {
+        List<File> files = pending.get(mode);
+        if (files == null)
+        {
+            files = new ArrayList<File>();
+            pending.put(mode, files);
+        }
+        files.add(file);
+    }
+
+    /**
+     * Returns the POSIX attribute view of a file.
+     *
+     * @param file the file
+     * @return the view, or {@code null} if the file system doesn't support POSIX attributes
+     */
+    private static PosixFileAttributeView getView(File file)
+    {
+        return Files.getFileAttributeView(file.toPath(), PosixFileAttributeView.class);
+    }
+}
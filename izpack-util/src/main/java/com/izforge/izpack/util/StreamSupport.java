@@ -20,38 +20,64 @@
 package com.izforge.izpack.util;
 
 import com.izforge.izpack.api.data.PackCompression;
+import io.airlift.compress.zstd.ZstdInputStream;
 import org.apache.commons.compress.compressors.CompressorException;
 import org.apache.commons.compress.compressors.CompressorStreamFactory;
 import org.apache.commons.compress.compressors.deflate.DeflateCompressorInputStream;
 import org.apache.commons.compress.compressors.deflate.DeflateCompressorOutputStream;
 import org.apache.commons.compress.compressors.deflate.DeflateParameters;
+import org.apache.commons.compress.compressors.zstandard.ZstdCompressorOutputStream;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.zip.Deflater;
 
+/**
+ * Creates the streams compressing and decompressing pack data.
+ * <p/>
+ * The compression libraries are only referenced from nested classes, so that they are only loaded when used.
+ * Installers only include the libraries needed by the compression format of their packs.
+ */
 public final class StreamSupport
 {
+    /**
+     * The Zstandard compression level used if no valid level is specified.
+     */
+    private static final int ZSTD_DEFAULT_LEVEL = 3;
+
+    /**
+     * The maximum Zstandard compression level.
+     */
+    private static final int ZSTD_MAX_LEVEL = 22;
+
     public static OutputStream compressedOutput(PackCompression comprFormat, OutputStream outputStream) throws IOException
+    {
+        return compressedOutput(comprFormat, -1, outputStream);
+    }
+
+    /**
+     * Returns a stream that compresses data written to it.
+     *
+     * @param comprFormat  the compression format
+     * @param level        the compression level. Only used by formats supporting levels, and ignored if it is out of
+     *                     the range supported by the format
+     * @param outputStream the stream to write compressed data to
+     * @return the compressing stream
+     * @throws IOException if the stream cannot be created
+     */
+    public static OutputStream compressedOutput(PackCompression comprFormat, int level, OutputStream outputStream)
+            throws IOException
     {
         switch (comprFormat)
         {
             case DEFAULT:
                 return outputStream;
-            case DEFLATE:
-                DeflateParameters deflateParameters = new DeflateParameters();
-                deflateParameters.setCompressionLevel(Deflater.BEST_COMPRESSION);
-                return new DeflateCompressorOutputStream(outputStream, deflateParameters);
+            case ZSTD:
+                int zstdLevel = (level >= 1 && level <= ZSTD_MAX_LEVEL) ? level : ZSTD_DEFAULT_LEVEL;
+                return Compress.zstdOutput(zstdLevel, outputStream);
             default:
-                try
-                {
-                    return new CompressorStreamFactory().createCompressorOutputStream(comprFormat.toName(), outputStream);
-                }
-                catch (CompressorException e)
-                {
-                    throw new IOException(e);
-                }
+                return Compress.compressedOutput(comprFormat, outputStream);
         }
     }
 
@@ -61,19 +87,74 @@ public final class StreamSupport
         {
             case DEFAULT:
                 return inputStream;
-            case DEFLATE:
+            case ZSTD:
+                return Zstd.compressedInput(inputStream);
+            default:
+                return Compress.compressedInput(comprFormat, inputStream);
+        }
+    }
+
+    /**
+     * Creates streams with commons-compress.
+     * <p/>
+     * Zstandard compression also requires the native zstd-jni library, which is only available to the compiler.
+     */
+    private static final class Compress
+    {
+        static OutputStream compressedOutput(PackCompression comprFormat, OutputStream outputStream)
+                throws IOException
+        {
+            if (comprFormat == PackCompression.DEFLATE)
+            {
+                DeflateParameters deflateParameters = new DeflateParameters();
+                deflateParameters.setCompressionLevel(Deflater.BEST_COMPRESSION);
+                return new DeflateCompressorOutputStream(outputStream, deflateParameters);
+            }
+            try
+            {
+                return new CompressorStreamFactory().createCompressorOutputStream(comprFormat.toName(), outputStream);
+            }
+            catch (CompressorException e)
+            {
+                throw new IOException(e);
+            }
+        }
+
+        static InputStream compressedInput(PackCompression comprFormat, InputStream inputStream) throws IOException
+        {
+            if (comprFormat == PackCompression.DEFLATE)
+            {
                 DeflateParameters deflateParameters = new DeflateParameters();
                 deflateParameters.setCompressionLevel(Deflater.BEST_COMPRESSION);
                 return new DeflateCompressorInputStream(inputStream, deflateParameters);
-            default:
-                try
-                {
-                    return new CompressorStreamFactory().createCompressorInputStream(comprFormat.toName(), inputStream);
-                }
-                catch (CompressorException e)
-                {
-                    throw new IOException(e);
-                }
+            }
+            try
+            {
+                return new CompressorStreamFactory().createCompressorInputStream(comprFormat.toName(), inputStream);
+            }
+            catch (CompressorException e)
+            {
+                throw new IOException(e);
+            }
+        }
+
+        static OutputStream zstdOutput(int level, OutputStream outputStream) throws IOException
+        {
+            return new ZstdCompressorOutputStream(outputStream, level);
+        }
+    }
+
+    /**
+     * Creates Zstandard decompression streams.
+     * <p/>
+     * Kept separate from {@link Compress}, as installers decompress Zstandard with aircompressor alone.
+     */
+    private static final class Zstd
+    {
+        static InputStream compressedInput(InputStream inputStream) throws IOException
+        {
+            // pure Java decoder, so installers don't depend on native libraries
+            return new ZstdInputStream(inputStream);
         }
     }
 }
@@ -733,6 +733,31 @@ public class DirectoryScanner
         return everythingIncluded;
     }
 
+    /**
+     * Test whether a path relative to the base directory matches at least
+     * one include pattern and no exclude pattern, without scanning the
+     * base directory. This allows the entries of an archive to be matched
+     * without extracting them. Selectors are not evaluated.
+     *
+     * @param name The relative path. Both '/' and '\\' are accepted as
+     *             separators. Must not be <code>null</code>.
+     * @return <code>true</code> when the path is included.
+     */
+    public synchronized boolean isIncludedPath(String name)
+    {
+        if (includes == null)
+        {
+            includes = new String[]{"**"};
+        }
+        if (excludes == null)
+        {
+            excludes = new String[0];
+        }
+        String path = name.replace('/', File.separatorChar)
+                .replace('\\', File.separatorChar);
+        return isIncluded(path) && !isExcluded(path);
+    }
+
     /**
      * Scan the base directory for files which match at least one include
      * pattern and don't match any exclude patterns. If there are selectors
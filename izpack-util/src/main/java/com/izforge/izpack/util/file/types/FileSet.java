@@ -212,6 +212,21 @@ public class FileSet extends DataType
         return ds;
     }
 
+    /**
+     * Returns a directory scanner set up with the patterns of this fileset,
+     * without scanning the base directory. Use
+     * {@link DirectoryScanner#isIncludedPath(String)} to match paths, such as
+     * the entries of an archive, against the patterns.
+     *
+     * @return a new directory scanner
+     */
+    public DirectoryScanner getPathMatcher()
+    {
+        DirectoryScanner ds = new DirectoryScanner();
+        setupDirectoryScanner(ds);
+        return ds;
+    }
+
     /**
      * Set up the specified directory scanner against the specified project.
      *
@@ -0,0 +1,133 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeNotNull;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests {@link FilePermissions}.
+ */
+public class FilePermissionsTest
+{
+    /**
+     * Temporary folder.
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * Verifies that file modes are converted to the equivalent permissions.
+     */
+    @Test
+    public void testToPermissions()
+    {
+        assertEquals(PosixFilePermissions.fromString("rwxr-x---"), FilePermissions.toPermissions(0750));
+        assertEquals(PosixFilePermissions.fromString("rw-r--r--"), FilePermissions.toPermissions(0644));
+        assertEquals(PosixFilePermissions.fromString("---------"), FilePermissions.toPermissions(0));
+    }
+
+    /**
+     * Verifies that permissions are set directly on file systems supporting POSIX attributes, without running
+     * <tt>chmod</tt>.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testSetDirectly() throws Exception
+    {
+        File file = temporaryFolder.newFile("file");
+        assumeNotNull(Files.getFileAttributeView(file.toPath(), PosixFileAttributeView.class));
+        RecordingExecutor executor = new RecordingExecutor(0);
+        FilePermissions permissions = new FilePermissions(executor);
+
+        permissions.setPermissions(file, 0640);
+        assertEquals(PosixFilePermissions.fromString("rw-r-----"), Files.getPosixFilePermissions(file.toPath()));
+
+        permissions.setExecutable(file);
+        assertEquals(PosixFilePermissions.fromString("rwxr-x--x"), Files.getPosixFilePermissions(file.toPath()));
+
+        assertTrue(permissions.flush().isEmpty());
+        assertTrue(executor.commands.isEmpty());
+    }
+
+    /**
+     * Verifies that modes that can't be set directly are applied with one <tt>chmod</tt> invocation per mode, and
+     * that the files of a failed invocation are retried individually.
+     */
+    @Test
+    public void testBatchedChmod()
+    {
+        File file1 = new File(temporaryFolder.getRoot(), "file1");
+        File file2 = new File(temporaryFolder.getRoot(), "file2");
+        RecordingExecutor executor = new RecordingExecutor(1);
+        FilePermissions permissions = new FilePermissions(executor);
+
+        permissions.setPermissions(file1, 04755);
+        permissions.setPermissions(file2, 04755);
+
+        assertEquals(Arrays.asList(file1, file2), permissions.flush());
+        assertEquals(3, executor.commands.size());
+        assertArrayEquals(new String[]{"/bin/chmod", "4755", file1.getAbsolutePath(), file2.getAbsolutePath()},
+                          executor.commands.get(0));
+        assertArrayEquals(new String[]{"/bin/chmod", "4755", file1.getAbsolutePath()}, executor.commands.get(1));
+        assertArrayEquals(new String[]{"/bin/chmod", "4755", file2.getAbsolutePath()}, executor.commands.get(2));
+
+        // the queue is cleared by flushing
+        assertTrue(permissions.flush().isEmpty());
+        assertEquals(3, executor.commands.size());
+    }
+
+    /**
+     * Records the commands it is asked to execute.
+     */
+    private static class RecordingExecutor extends FileExecutor
+    {
+        private final List<String[]> commands = new ArrayList<String[]>();
+
+        private final int exitStatus;
+
+        RecordingExecutor(int exitStatus)
+        {
+            this.exitStatus = exitStatus;
+        }
+
+        @Override
+        public int executeCommand(String[] params, String[] output)
+        {
+            commands.add(params);
+            return exitStatus;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.izforge.izpack.util;
+
+import java.io.IOException;
+
+import com.izforge.izpack.api.data.PackCompression;
+
+/**
+ * Measures the compressed size and decompression throughput of each compression format supported by
+ * {@link StreamSupport}.
+ * <p/>
+ * This is not run as part of the build. Run it manually when changing compression formats or their defaults.
+ */
+public class StreamSupportBenchmark
+{
+
+    public static void main(String[] args) throws IOException
+    {
+        byte[] data = StreamSupportTest.createData(4 * 1024 * 1024);
+        for (PackCompression compression : PackCompression.values())
+        {
+            byte[] compressed = StreamSupportTest.compress(compression, -1, data);
+            StreamSupportTest.decompress(compression, compressed); // warm up
+
+            long startNanos = System.nanoTime();
+            StreamSupportTest.decompress(compression, compressed);
+            long timeDiff = Math.max((System.nanoTime() - startNanos) / 1000000, 1);
+
+            System.out.println("Decompressing " + compression.toName() + ": " + data.length + " -> "
+                                       + compressed.length + " bytes, " + timeDiff + "ms ("
+                                       + (data.length / 1024 / timeDiff) + " KiB/ms)");
+        }
+    }
+}
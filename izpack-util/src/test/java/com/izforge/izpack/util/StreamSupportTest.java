@@ -0,0 +1,127 @@
+/*
+ * IzPack - Copyright 2001-2012 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.izforge.izpack.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import com.izforge.izpack.api.data.PackCompression;
+
+/**
+ * Tests {@link StreamSupport}.
+ */
+public class StreamSupportTest
+{
+
+    /**
+     * Verifies that data survives a round trip through each compression format.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testRoundTrip() throws IOException
+    {
+        byte[] data = createData(256 * 1024);
+        for (PackCompression compression : PackCompression.values())
+        {
+            byte[] compressed = compress(compression, -1, data);
+            assertArrayEquals(compression.toName(), data, decompress(compression, compressed));
+        }
+    }
+
+    /**
+     * Verifies that Zstandard compression levels are honoured, and that out of range levels fall back to the
+     * default level.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testZstdLevel() throws IOException
+    {
+        byte[] data = createData(256 * 1024);
+        byte[] fast = compress(PackCompression.ZSTD, 1, data);
+        byte[] best = compress(PackCompression.ZSTD, 19, data);
+        byte[] invalid = compress(PackCompression.ZSTD, 99, data);
+
+        assertTrue(best.length < fast.length);
+        assertArrayEquals(data, decompress(PackCompression.ZSTD, fast));
+        assertArrayEquals(data, decompress(PackCompression.ZSTD, best));
+        assertArrayEquals(data, decompress(PackCompression.ZSTD, invalid));
+    }
+
+    /**
+     * Creates semi-compressible data: random words from a small vocabulary, interspersed with random bytes.
+     *
+     * @param size the data size
+     * @return the data
+     */
+    static byte[] createData(int size)
+    {
+        Random random = new Random(42);
+        String[] words = {"izpack", "installer", "pack", "file", "compress", "stream", "target", "path",
+                "variable", "condition", "panel", "resource"};
+        ByteArrayOutputStream out = new ByteArrayOutputStream(size);
+        while (out.size() < size)
+        {
+            if (random.nextInt(8) == 0)
+            {
+                byte[] noise = new byte[random.nextInt(32)];
+                random.nextBytes(noise);
+                out.write(noise, 0, noise.length);
+            }
+            else
+            {
+                byte[] word = words[random.nextInt(words.length)].getBytes();
+                out.write(word, 0, word.length);
+                out.write(' ');
+            }
+        }
+        byte[] result = new byte[size];
+        System.arraycopy(out.toByteArray(), 0, result, 0, size);
+        return result;
+    }
+
+    static byte[] compress(PackCompression compression, int level, byte[] data) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = StreamSupport.compressedOutput(compression, level, bytes))
+        {
+            out.write(data);
+        }
+        return bytes.toByteArray();
+    }
+
+    static byte[] decompress(PackCompression compression, byte[] data) throws IOException
+    {
+        try (InputStream in = StreamSupport.compressedInput(compression, new ByteArrayInputStream(data)))
+        {
+            return IOUtils.toByteArray(in);
+        }
+    }
+}